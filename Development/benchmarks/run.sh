@@ -0,0 +1,10 @@
+#!/bin/sh
+# Build the server and the benchmarks, then run the benchmarks and keep the results as
+# results/<commit>.json, so that runs of different commits can be compared.
+# Arguments are passed on to JMH, e.g. ./run.sh FanOut -p sessions=100
+set -e
+cd "$(dirname "$0")"
+mvn -q -f ../pom.xml install -DskipTests
+mvn -q package
+mkdir -p results
+java -jar target/benchmarks.jar -rf json -rff "results/$(git rev-parse --short HEAD).json" "$@"
@@ -0,0 +1,73 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.model.Message;
+import com.neu.prattle.service.MessageService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@link MessageService#addMessage(Message)}, the synchronous store of a sent
+ * message, against each {@link Backend}. The store is emptied before every iteration so that
+ * iterations measure the same table size. Run with -t to add concurrent senders.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+public class AddMessageBenchmark {
+    @Param({"MEMORY", "H2"})
+    private Backend backend;
+
+    private MessageService messageService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() throws SQLException {
+        messageService = backend.open();
+    }
+
+    @Setup(Level.Iteration)
+    public void empty() throws SQLException {
+        messageService.removeAllMessages();
+    }
+
+    @TearDown
+    public void tearDown() {
+        backend.close();
+    }
+
+    @Benchmark
+    public void addMessage() throws SQLException {
+        long next = sequence.incrementAndGet();
+        messageService.addMessage(Message.messageBuilder()
+                .setFrom("user" + next % 100)
+                .setToChannelId((int) (next % 10))
+                .setMessageContent("message " + next)
+                .setTimestamp(new Timestamp(next))
+                .build());
+    }
+}
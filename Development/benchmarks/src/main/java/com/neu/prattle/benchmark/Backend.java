@@ -0,0 +1,83 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.IdSequence;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.User;
+import com.neu.prattle.service.MessageService;
+import com.neu.prattle.utils.HibernateUtil;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import java.sql.SQLException;
+
+/**
+ * The message stores a benchmark can run {@link MessageService} against. JMH runs every parameter
+ * value in its own JVM, so the choice made by {@link #open()} holds for the whole run.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+public enum Backend {
+    /**
+     * The in-memory store
+     */
+    MEMORY {
+        @Override
+        MessageService open() throws SQLException {
+            MessageService messageService = MessageService.getInstance();
+            messageService.testMode();
+            return messageService;
+        }
+    },
+    /**
+     * The Hibernate store on an in-memory H2 database in MySQL mode, as a stand-in for MySQL
+     */
+    H2 {
+        @Override
+        MessageService open() {
+            HibernateUtil.setSessionFactory(new Configuration()
+                    .addAnnotatedClass(User.class)
+                    .addAnnotatedClass(Message.class)
+                    .addAnnotatedClass(Channel.class)
+                    .addAnnotatedClass(IdSequence.class)
+                    .setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+                    .setProperty("hibernate.connection.url", H2_URL)
+                    .setProperty("hibernate.connection.username", "sa")
+                    .setProperty("hibernate.connection.password", "")
+                    .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+                    .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                    .setProperty("hibernate.jdbc.batch_size", "100")
+                    .buildSessionFactory());
+            return MessageService.getInstance();
+        }
+
+        @Override
+        void close() {
+            SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+            HibernateUtil.setSessionFactory(null);
+            sessionFactory.close();
+        }
+    };
+
+    /**
+     * URL of the H2 database of {@link #H2}, for benchmarks that also reach it through plain JDBC
+     */
+    static final String H2_URL = "jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    /**
+     * Make the message service use this store
+     *
+     * @return the message service
+     * @throws SQLException if the store could not be set up
+     */
+    abstract MessageService open() throws SQLException;
+
+    /**
+     * Release the store
+     */
+    void close() {
+        // nothing to release
+    }
+}
@@ -0,0 +1,126 @@
+package com.neu.prattle.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.User;
+import com.neu.prattle.utils.GsonUtil;
+import com.neu.prattle.utils.UserChannelSetExclusionStrategy;
+import com.neu.prattle.websocket.BinaryMessageDecoder;
+import com.neu.prattle.websocket.BinaryMessageEncoder;
+import com.neu.prattle.websocket.MessageDecoder;
+import com.neu.prattle.websocket.MessageEncoder;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the websocket message codec: {@link MessageEncoder#encode(Message)} on every
+ * outgoing frame and {@link MessageDecoder#decode(String)} on every incoming one, decoding the
+ * JSON the browser client sends, and the encoding of a user, as the REST controllers do. The
+ * baseline benchmarks run the codecs used before the shared one: gson with its reflective
+ * adapters for encoding and Jackson 1 for decoding. The binary benchmarks run the wire format
+ * of the binary subprotocol on the same message.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CodecBenchmark {
+    private final MessageEncoder encoder = new MessageEncoder();
+    private final MessageDecoder decoder = new MessageDecoder();
+    private final Gson gson = GsonUtil.getGson();
+    private final Gson reflectiveGson = new GsonBuilder()
+            .setExclusionStrategies(new UserChannelSetExclusionStrategy()).create();
+    private final ObjectMapper jackson = new ObjectMapper();
+    private final BinaryMessageEncoder binaryEncoder = new BinaryMessageEncoder();
+    private final BinaryMessageDecoder binaryDecoder = new BinaryMessageDecoder();
+    private Message message;
+    private String json;
+    private String encoded;
+    private User user;
+    private ByteBuffer binary;
+
+    @Setup
+    public void setUp() {
+        message = Message.messageBuilder()
+                .setFrom("alice")
+                .setToUsername("bob")
+                .setMessageContent("The quick brown fox jumps over the lazy dog, twice over for a typical chat line.")
+                .setTimestamp(new Timestamp(1575000000000L))
+                .build();
+        message.setId(42);
+        message.setFromAvatar(3);
+        message.setToAvatar(5);
+        // what the browser client sends
+        json = "{\"content\":\"" + message.getContent() + "\",\"toUsername\":\"bob\"}";
+        encoded = encoder.encode(message);
+        binary = binaryEncoder.encode(message);
+        user = new User("alice", "secret", "alice@example.com", "Alice", "Liddell", "Curiouser and curiouser.");
+        user.setLockout(new Timestamp(1575000000000L));
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(message);
+    }
+
+    @Benchmark
+    public Message decode() {
+        return decoder.decode(json);
+    }
+
+    @Benchmark
+    public Message decodeEncoded() {
+        return decoder.decode(encoded);
+    }
+
+    @Benchmark
+    public String encodeUser() {
+        return gson.toJson(user);
+    }
+
+    @Benchmark
+    public String baselineEncode() {
+        return reflectiveGson.toJson(message);
+    }
+
+    @Benchmark
+    public Message baselineDecode() throws IOException {
+        return jackson.readValue(json, Message.class);
+    }
+
+    @Benchmark
+    public String baselineEncodeUser() {
+        return reflectiveGson.toJson(user);
+    }
+
+    @Benchmark
+    public ByteBuffer binaryEncode() {
+        return binaryEncoder.encode(message);
+    }
+
+    @Benchmark
+    public Message binaryDecode() {
+        return binaryDecoder.decode(binary);
+    }
+}
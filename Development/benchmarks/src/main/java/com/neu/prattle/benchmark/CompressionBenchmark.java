@@ -0,0 +1,74 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.model.Message;
+import com.neu.prattle.websocket.CompressionMetrics;
+import com.neu.prattle.websocket.OutboundFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the compressed binary subprotocol against the plain one, for chat lines of growing
+ * length: a frame is encoded, for the compressed case also compressed, and released. Run with
+ * -Dprattle.deflate.threshold and -Dprattle.deflate.level through the JMH -jvmArgs option to see
+ * how the settings move the cost.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompressionBenchmark {
+    @Param({"80", "400", "4000"})
+    private int contentLength;
+
+    private final CompressionMetrics metrics = new CompressionMetrics();
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < contentLength) {
+            content.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        content.setLength(contentLength);
+        message = Message.messageBuilder()
+                .setFrom("alice")
+                .setToChannelId(1)
+                .setMessageContent(content.toString())
+                .setTimestamp(new Timestamp(1575000000000L))
+                .build();
+    }
+
+    @Benchmark
+    public int binaryFrame() {
+        OutboundFrame frame = new OutboundFrame(message);
+        int size = frame.getBinary().remaining();
+        frame.release();
+        return size;
+    }
+
+    @Benchmark
+    public int compressedFrame() {
+        OutboundFrame frame = new OutboundFrame(message);
+        int size = frame.getCompressed(metrics).remaining();
+        frame.release();
+        return size;
+    }
+}
@@ -0,0 +1,64 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.model.Message;
+import com.neu.prattle.websocket.ChatSubject;
+import com.neu.prattle.websocket.OverflowPolicy;
+import com.neu.prattle.websocket.SessionOutbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of publishing one message to a {@link ChatSubject} with N attached sessions: the message
+ * is encoded once and offered to the outbox of every session, which sends it on the publishing
+ * thread to a session that discards it.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FanOutBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    private int sessions;
+
+    private ChatSubject subject;
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        subject = new ChatSubject();
+        for (int i = 0; i < sessions; i++) {
+            SessionOutbox outbox = new SessionOutbox(NoopSession.create("session" + i), 256,
+                    OverflowPolicy.DROP_OLDEST, Runnable::run);
+            subject.attach(outbox::offer);
+        }
+    }
+
+    @Benchmark
+    public void publish() {
+        long next = sequence++;
+        subject.publish(Message.messageBuilder()
+                .setFrom("alice")
+                .setToChannelId(1)
+                .setMessageContent("message " + next)
+                .setTimestamp(new Timestamp(next))
+                .build());
+    }
+}
@@ -0,0 +1,92 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.model.Message;
+import com.neu.prattle.service.MessageService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the history reads behind the REST API against each {@link Backend}: a whole channel
+ * history and a whole conversation, both returned in timestamp order, and the newest page of a
+ * channel. The store is seeded once with the given number of messages, spread over 10 channels
+ * and the conversations of 20 users, with a fixed seed so that every run reads the same data.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HistoryBenchmark {
+    private static final int CHANNELS = 10;
+    private static final int USERS = 20;
+
+    @Param({"MEMORY", "H2"})
+    private Backend backend;
+
+    @Param({"10000"})
+    private int messages;
+
+    private MessageService messageService;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        messageService = backend.open();
+        Random random = new Random(42);
+        for (int i = 0; i < messages; i++) {
+            Message.MessageBuilder builder = Message.messageBuilder()
+                    .setFrom("user" + random.nextInt(USERS))
+                    .setMessageContent("message " + i)
+                    .setTimestamp(new Timestamp(random.nextInt(messages) * 1000L));
+            if (random.nextBoolean()) {
+                builder.setToChannelId(random.nextInt(CHANNELS));
+            } else {
+                builder.setToUsername("user" + random.nextInt(USERS));
+            }
+            messageService.queueMessage(builder.build());
+        }
+        messageService.flushMessages();
+    }
+
+    @TearDown
+    public void tearDown() {
+        backend.close();
+    }
+
+    @Benchmark
+    public List<Message> channelHistory() throws SQLException {
+        return messageService.getMessagesWithinChannel(next++ % CHANNELS);
+    }
+
+    @Benchmark
+    public List<Message> channelPage() throws SQLException {
+        return messageService.getMessagesWithinChannel(next++ % CHANNELS, null, null, 50);
+    }
+
+    @Benchmark
+    public List<Message> conversation() throws SQLException {
+        int user = next++ % USERS;
+        return messageService.getMessagesByUsers("user" + user, "user" + (user + 1) % USERS);
+    }
+}
@@ -0,0 +1,119 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.database.MessageDBHibernate;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
+import com.neu.prattle.utils.HibernateUtil;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the message history queries of {@link MessageDBHibernate} as the message table
+ * grows, with and without the indexes declared on {@link Message}: the newest page of a channel,
+ * a page from the middle of a channel and the whole history of a sender. Runs on the {@link
+ * Backend#H2} database. The table is seeded once per trial with a fixed seed; for 10M rows run
+ * with -p rows=10000000 and a heap of a few GB.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageQueryBenchmark {
+    private static final int CHANNELS = 100;
+    private static final int USERS = 1000;
+    private static final int INSERT_BATCH = 10000;
+    private static final String[] DROP_INDEXES = {
+            "drop index idx_message_channel_time",
+            "drop index idx_message_from_time",
+            "drop index idx_message_to_time",
+            "drop index idx_message_conversation_time"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean indexes;
+
+    private final MessageDBHibernate messageDB = MessageDBHibernate.getInstance();
+    private final Random random = new Random(42);
+    private MessageCursor middle;
+
+    @Setup
+    public void setUp() throws SQLException {
+        Backend.H2.open();
+        for (int inserted = 0; inserted < rows; inserted += INSERT_BATCH) {
+            int count = Math.min(INSERT_BATCH, rows - inserted);
+            List<Message> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long sequence = (long) inserted + i;
+                Message.MessageBuilder builder = Message.messageBuilder()
+                        .setFrom("user" + random.nextInt(USERS))
+                        .setMessageContent("message " + sequence)
+                        .setTimestamp(new Timestamp(sequence * 1000));
+                if (random.nextBoolean()) {
+                    builder.setToChannelId(random.nextInt(CHANNELS));
+                } else {
+                    builder.setToUsername("user" + random.nextInt(USERS));
+                }
+                batch.add(builder.build());
+            }
+            messageDB.addMessages(batch);
+        }
+        if (!indexes) {
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                Transaction transaction = session.beginTransaction();
+                for (String statement : DROP_INDEXES) {
+                    session.createNativeQuery(statement).executeUpdate();
+                }
+                transaction.commit();
+            }
+        }
+        middle = new MessageCursor(new Timestamp(rows / 2 * 1000L), 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Backend.H2.close();
+    }
+
+    @Benchmark
+    public List<Message> channelPage() throws SQLException {
+        return messageDB.getMessagesByToChannel(random.nextInt(CHANNELS), null, null, 50);
+    }
+
+    @Benchmark
+    public List<Message> olderChannelPage() throws SQLException {
+        return messageDB.getMessagesByToChannel(random.nextInt(CHANNELS), middle, null, 50);
+    }
+
+    @Benchmark
+    public List<Message> senderHistory() throws SQLException {
+        return messageDB.getMessagesByFrom("user" + random.nextInt(USERS));
+    }
+}
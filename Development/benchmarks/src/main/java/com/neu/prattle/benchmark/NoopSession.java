@@ -0,0 +1,81 @@
+package com.neu.prattle.benchmark;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+/**
+ * Websocket sessions that accept every message and send nothing, so that benchmarks measure the
+ * server and not the network. Async sends complete before they return. Built as proxies rather than mocks, since a mock records every call
+ * and would run out of memory over a benchmark run.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+final class NoopSession {
+
+    private NoopSession() {
+    }
+
+    /**
+     * Create an open session
+     *
+     * @param id the session id
+     * @return the session
+     */
+    static Session create(String id) {
+        RemoteEndpoint.Basic remote = (RemoteEndpoint.Basic) Proxy.newProxyInstance(
+                RemoteEndpoint.Basic.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Basic.class},
+                (proxy, method, args) -> defaultValue(method));
+        RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                RemoteEndpoint.Async.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Async.class},
+                (proxy, method, args) -> {
+                    if (args != null && args.length > 0 && args[args.length - 1] instanceof SendHandler) {
+                        ((SendHandler) args[args.length - 1]).onResult(new SendResult());
+                    }
+                    return defaultValue(method);
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "getBasicRemote":
+                            return remote;
+                        case "getAsyncRemote":
+                            return async;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "NoopSession " + id;
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    /**
+     * What a method that does nothing returns: true for booleans, so that the session is open,
+     * zero for numbers and null otherwise
+     *
+     * @param method the method
+     * @return the value
+     */
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return true;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
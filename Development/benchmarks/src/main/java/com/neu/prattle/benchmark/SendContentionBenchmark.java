@@ -0,0 +1,120 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.exceptions.UserAlreadyPresentException;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.User;
+import com.neu.prattle.service.MessageService;
+import com.neu.prattle.service.UserService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How the throughput of {@link MessageService#addMessage(Message)} and
+ * {@link UserService#addUser(User)} scales with concurrent callers, on the in-memory stores so
+ * that the services themselves are measured. With locked=true every call is made under one
+ * shared lock, which is how the services behaved while their writes were synchronized on the
+ * singleton. Run with -t to change the number of callers, e.g. -t 1 and -t 64.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+public class SendContentionBenchmark {
+    @Param({"false", "true"})
+    private boolean locked;
+
+    private final Object lock = new Object();
+    private MessageService messageService;
+    private UserService userService;
+
+    /**
+     * The calls of one benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        private final int thread = THREADS.getAndIncrement();
+        private long sequence;
+    }
+
+    @Setup
+    public void setUp() {
+        messageService = MessageService.getInstance();
+        userService = UserService.getInstance();
+    }
+
+    @Setup(Level.Iteration)
+    public void empty() throws SQLException {
+        messageService.testMode();
+        userService.testMode();
+    }
+
+    @TearDown
+    public void tearDown() {
+        messageService.shutdown();
+    }
+
+    @Benchmark
+    public void send(Caller caller) throws SQLException {
+        if (locked) {
+            synchronized (lock) {
+                addMessage(caller);
+            }
+        } else {
+            addMessage(caller);
+        }
+    }
+
+    @Benchmark
+    public void signUp(Caller caller) throws SQLException {
+        if (locked) {
+            synchronized (lock) {
+                addUser(caller);
+            }
+        } else {
+            addUser(caller);
+        }
+    }
+
+    private void addMessage(Caller caller) throws SQLException {
+        messageService.addMessage(Message.messageBuilder()
+                .setFrom("user" + caller.thread)
+                .setToChannelId(caller.thread % 10)
+                .setMessageContent("message " + caller.sequence++)
+                .setTimestamp(new Timestamp(System.currentTimeMillis()))
+                .build());
+    }
+
+    private void addUser(Caller caller) throws SQLException {
+        try {
+            // every other sign up is a duplicate, detected by the store
+            userService.addUser(new User("user" + caller.thread + "_" + caller.sequence++ / 2));
+        } catch (UserAlreadyPresentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.neu.prattle.benchmark;
+
+import com.neu.prattle.database.IUserDB;
+import com.neu.prattle.database.UserDB;
+import com.neu.prattle.database.UserDBHibernate;
+import com.neu.prattle.model.User;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the pooled JDBC user backend {@link UserDB} and of {@link UserDBHibernate} on point
+ * lookups, single adds and bulk adds of 100 users. Both run on the {@link Backend#H2} database,
+ * the JDBC backend through a HikariCP pool. Hibernate has no bulk add, so it adds the batch one
+ * user at a time. The user table is reset to the given number of users before every iteration.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UserBackendBenchmark {
+    private static final int BULK = 100;
+
+    @Param({"hibernate", "jdbc"})
+    private String store;
+
+    @Param({"10000"})
+    private int users;
+
+    private HikariDataSource dataSource;
+    private UserDB jdbc;
+    private IUserDB userDB;
+    private final Random random = new Random(42);
+    private long sequence;
+
+    @Setup
+    public void setUp() throws SQLException {
+        Backend.H2.open();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(Backend.H2_URL);
+        config.setUsername("sa");
+        dataSource = new HikariDataSource(config);
+        jdbc = new UserDB(dataSource);
+        userDB = "jdbc".equals(store) ? jdbc : UserDBHibernate.getInstance();
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() throws SQLException {
+        jdbc.removeAllUsers();
+        List<User> seeded = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            seeded.add(user("user" + i));
+        }
+        jdbc.addUsers(seeded);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+        Backend.H2.close();
+    }
+
+    private static User user(String name) {
+        return new User(name, "password", name + "@prattle", "first", "last", "bio");
+    }
+
+    @Benchmark
+    public Optional<User> lookup() throws SQLException {
+        return userDB.findUserByName("user" + random.nextInt(users));
+    }
+
+    @Benchmark
+    public void addUser() throws SQLException {
+        userDB.addUser(user("added" + sequence++));
+    }
+
+    @Benchmark
+    public void bulkAdd() throws SQLException {
+        List<User> batch = new ArrayList<>(BULK);
+        for (int i = 0; i < BULK; i++) {
+            batch.add(user("added" + sequence++));
+        }
+        if (userDB == jdbc) {
+            jdbc.addUsers(batch);
+        } else {
+            for (User user : batch) {
+                userDB.addUser(user);
+            }
+        }
+    }
+}
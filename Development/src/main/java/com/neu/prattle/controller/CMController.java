@@ -1,11 +1,8 @@
 package com.neu.prattle.controller;
 
-import com.google.gson.Gson;
-
 import com.neu.prattle.model.Message;
 import com.neu.prattle.service.IMessageService;
 import com.neu.prattle.service.MessageService;
-import com.neu.prattle.utils.GsonUtil;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -13,6 +10,7 @@ import java.util.List;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -22,7 +20,8 @@ import javax.ws.rs.core.Response;
  * @author Team 9
  * @version 2019-11-26
  *
- * API list: GET /cm/from/{channelID}/all get all channel messages within a channel (from any user)
+ * API list: GET /cm/from/{channelID}/all?before=&after=&limit= get a page of the channel messages
+ * within a channel (from any user), see {@link MessagePage}
  */
 @Path(value = "/cm")
 public class CMController {
@@ -41,33 +40,45 @@ public class CMController {
     }
 
     /**
-     * Getter for the JSON object from the message list.
+     * Handles http GET request to retrieve all messages within a channel
      *
-     * @param msgList the list of messages.
-     * @return the JSON String.
+     * @param channelID channel ID - a string but will be converted to an int
+     * @return response with JSON of message list. 200: ok 400: invalid channel ID 500: database
+     * error
      */
-    private String getJsonFromMsgList(List<Message> msgList) {
-        Gson gson = GsonUtil.getGson();
-        return gson.toJson(msgList);
+    public Response getAllMessages(String channelID) {
+        return getAllMessages(channelID, null, null, null);
     }
 
     /**
-     * Handles http GET request to retrieve all messages within a channel
+     * Handles http GET request to retrieve a page of the messages within a channel. Without any
+     * paging parameter the whole history is streamed.
      *
      * @param channelID channel ID - a string but will be converted to an int
-     * @return response with JSON of message list. 200: ok 500: database error
+     * @param before    only messages before this cursor, optional
+     * @param after     only messages after this cursor, optional
+     * @param limit     maximum number of messages, optional
+     * @return response with JSON of message list. 200: ok 400: invalid paging parameter 500:
+     * database error
      */
     @GET
     @Path("/from/{channelID}/all")
-    public Response getAllMessages(@PathParam("channelID") String channelID) {
+    public Response getAllMessages(@PathParam("channelID") String channelID, @QueryParam("before") String before,
+                                   @QueryParam("after") String after, @QueryParam("limit") String limit) {
         List<Message> dmList;
         try {
             int channelIDint = Integer.parseInt(channelID);
-            dmList = messageService.getMessagesWithinChannel(channelIDint);
+            if (MessagePage.isAbsent(before, after, limit)) {
+                return MessageJson.ok(messageService.streamMessagesWithinChannel(channelIDint));
+            }
+            MessagePage page = MessagePage.parse(before, after, limit);
+            dmList = messageService.getMessagesWithinChannel(channelIDint, page.getBefore(), page.getAfter(), page.getLimit());
+        } catch (IllegalArgumentException e) {
+            return Response.status(400).entity(e.getMessage()).build();
         } catch (SQLException e) {
             return Response.status(500).entity(e.getMessage()).build();
         }
-        return Response.ok(getJsonFromMsgList(dmList), MediaType.APPLICATION_JSON).build();
+        return MessagePage.toResponse(dmList);
     }
 }
 
@@ -3,6 +3,7 @@ package com.neu.prattle.controller;
 import com.google.gson.Gson;
 import com.neu.prattle.model.Channel;
 import com.neu.prattle.model.ChannelDTO;
+import com.neu.prattle.model.ChannelSummary;
 import com.neu.prattle.service.ChannelService;
 import com.neu.prattle.service.IChannelService;
 import com.neu.prattle.utils.GsonUtil;
@@ -11,8 +12,8 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * A Resource class responsible for handling CRUD operations on Channel
@@ -55,7 +56,8 @@ public class ChannelController {
     }
 
     /**
-     * Handles a http GET request for getting all channels
+     * Handles a http GET request for getting all channels. Only the id, name and member counts of
+     * each channel are sent, see {@link ChannelSummary}.
      * @return A response indicating the outcome of the request.
      *  200: ok, body contains Json
      *  500: database error
@@ -63,9 +65,9 @@ public class ChannelController {
     @GET
     @Path("/all")
     public Response getAllChannels(){
-        Set<Channel> channels;
+        List<ChannelSummary> channels;
         try {
-            channels = channelService.getAllChannels();
+            channels = channelService.getChannelSummaries();
         } catch (SQLException e){
             return Response.status(500).entity(e.getMessage()).build();
         }
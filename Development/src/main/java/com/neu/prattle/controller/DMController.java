@@ -1,14 +1,11 @@
 package com.neu.prattle.controller;
 
-import com.google.gson.Gson;
-
+import com.neu.prattle.database.MessageStream;
 import com.neu.prattle.model.Message;
 import com.neu.prattle.service.MessageService;
 import com.neu.prattle.service.IMessageService;
-import com.neu.prattle.utils.GsonUtil;
 
 import javax.ws.rs.*;
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import java.sql.SQLException;
@@ -23,8 +20,9 @@ import java.util.List;
  * API list:
  * GET /dm/from/{username} {@link #getDMFrom(String)} get dm from user.
  * GET /dm/to/{username} {@link #getDMTo(String)} get dm to user.
- * GET /dm/between/{username1}/{username2} {@link #getDMBetween(String, String)} get user between
- * users.
+ * GET /dm/between/{username1}/{username2}?before=&after=&limit=
+ * {@link #getDMBetween(String, String, String, String, String)} get a page of the dm between
+ * users, see {@link MessagePage}.
  */
 @Path(value = "/dm")
 public class DMController {
@@ -43,18 +41,7 @@ public class DMController {
     }
 
     /**
-     * Getter for the JSON object from the message list.
-     *
-     * @param msgList the list of messages.
-     * @return the JSON String.
-     */
-    private String getJsonFromMsgList(List<Message> msgList) {
-        Gson gson = GsonUtil.getGson();
-        return gson.toJson(msgList);
-    }
-
-    /**
-     * Handles http GET request for message from user.
+     * Handles http GET request for message from user. The history is streamed to the response.
      *
      * @param username username of the from user.
      * @return response with JSON of message list. 200: ok 500: database error
@@ -62,17 +49,17 @@ public class DMController {
     @GET
     @Path("/from/{username}")
     public Response getDMFrom(@PathParam("username") String username) {
-        List<Message> dmList;
+        MessageStream dmStream;
         try {
-            dmList = messageService.getMessagesByFrom(username);
+            dmStream = messageService.streamMessagesByFrom(username);
         } catch (SQLException e) {
             return Response.status(500).entity(e.getMessage()).build();
         }
-        return Response.ok(getJsonFromMsgList(dmList), MediaType.APPLICATION_JSON).build();
+        return MessageJson.ok(dmStream);
     }
 
     /**
-     * Handles http GET request for message to user.
+     * Handles http GET request for message to user. The history is streamed to the response.
      *
      * @param username username of the to user.
      * @return response with JSON of message list. 200: ok 500: database error
@@ -80,31 +67,55 @@ public class DMController {
     @GET
     @Path("/to/{username}")
     public Response getDMTo(@PathParam("username") String username) {
-        List<Message> dmList;
+        MessageStream dmStream;
         try {
-            dmList = messageService.getMessagesByTo(username);
+            dmStream = messageService.streamMessagesByTo(username);
         } catch (SQLException e) {
             return Response.status(500).entity(e.getMessage()).build();
         }
-        return Response.ok(getJsonFromMsgList(dmList), MediaType.APPLICATION_JSON).build();
+        return MessageJson.ok(dmStream);
     }
 
     /**
-     * Handles http GET request for message between two users.
+     * Handles http GET request for all messages between two users.
      *
      * @param username1 username of the first user.
      * @param username2 username of the second user.
      * @return response with JSON of message list. 200: ok 500: database error
      */
+    public Response getDMBetween(String username1, String username2) {
+        return getDMBetween(username1, username2, null, null, null);
+    }
+
+    /**
+     * Handles http GET request for a page of the messages between two users. Without any paging
+     * parameter the whole history is streamed.
+     *
+     * @param username1 username of the first user.
+     * @param username2 username of the second user.
+     * @param before    only messages before this cursor, optional.
+     * @param after     only messages after this cursor, optional.
+     * @param limit     maximum number of messages, optional.
+     * @return response with JSON of message list. 200: ok 400: invalid paging parameter 500:
+     * database error
+     */
     @GET
     @Path("/between/{username1}/{username2}")
-    public Response getDMBetween(@PathParam("username1") String username1, @PathParam("username2") String username2) {
+    public Response getDMBetween(@PathParam("username1") String username1, @PathParam("username2") String username2,
+                                 @QueryParam("before") String before, @QueryParam("after") String after,
+                                 @QueryParam("limit") String limit) {
         List<Message> dmList;
         try {
-            dmList = messageService.getMessagesByUsers(username1, username2);
+            if (MessagePage.isAbsent(before, after, limit)) {
+                return MessageJson.ok(messageService.streamMessagesByUsers(username1, username2));
+            }
+            MessagePage page = MessagePage.parse(before, after, limit);
+            dmList = messageService.getMessagesByUsers(username1, username2, page.getBefore(), page.getAfter(), page.getLimit());
+        } catch (IllegalArgumentException e) {
+            return Response.status(400).entity(e.getMessage()).build();
         } catch (SQLException e) {
             return Response.status(500).entity(e.getMessage()).build();
         }
-        return Response.ok(getJsonFromMsgList(dmList), MediaType.APPLICATION_JSON).build();
+        return MessagePage.toResponse(dmList);
     }
 }
@@ -0,0 +1,105 @@
+package com.neu.prattle.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.neu.prattle.utils.GsonUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads and writes JSON request and response bodies with the gson of {@link GsonUtil}, in place
+ * of RESTEasy's Jackson provider, so that the REST API and the websockets share one codec.
+ * Strings and {@link StreamingOutput} are left to RESTEasy, since the controllers write those as
+ * JSON already.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class GsonProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    /**
+     * The gson object
+     */
+    private final Gson gson = GsonUtil.getGson();
+
+    /**
+     * Whether the type is read and written by this provider
+     *
+     * @param type      the type
+     * @param mediaType the media type of the body
+     * @return true for JSON bodies of types other than strings, bytes and streaming output
+     */
+    private static boolean handles(Class<?> type, MediaType mediaType) {
+        return (mediaType == null || MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType))
+                && type != String.class && type != byte[].class && !StreamingOutput.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return handles(type, mediaType);
+    }
+
+    /**
+     * Read a request body
+     *
+     * @return the object read
+     * @throws BadRequestException if the body is not JSON of the type
+     */
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+        Reader reader = new BufferedReader(new InputStreamReader(entityStream, StandardCharsets.UTF_8));
+        try {
+            return gson.fromJson(reader, genericType);
+        } catch (JsonParseException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return handles(type, mediaType);
+    }
+
+    @Override
+    public long getSize(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    /**
+     * Write a response body
+     *
+     * @throws IOException if writing to the response fails
+     */
+    @Override
+    public void writeTo(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(entityStream, StandardCharsets.UTF_8));
+        gson.toJson(o, genericType, writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,131 @@
+package com.neu.prattle.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.neu.prattle.database.MessageStream;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.utils.GsonUtil;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Writes message lists as a JSON array straight to the response, one message at a time, instead
+ * of building the whole document as a String first. Combined with a {@link MessageStream} the
+ * memory a request takes does not grow with the size of the history.
+ *
+ * A streamed entity holds the database session of its stream until it is written. It closes the
+ * stream once written or if writing fails, is {@link Closeable} for responses whose entity is
+ * never written, see {@link UnwrittenEntityFilter}, and {@link #ok(MessageStream)} closes it if
+ * the response cannot be built.
+ *
+ * @author Team 9
+ * @version dated 2019-12-06
+ */
+final class MessageJson {
+
+    private MessageJson() {
+    }
+
+    /**
+     * Response entity writing a list of messages
+     *
+     * @param messages the messages
+     * @return the entity
+     */
+    static StreamingOutput of(List<Message> messages) {
+        return output -> write(messages.iterator(), output);
+    }
+
+    /**
+     * Response entity writing a stream of messages. The stream is closed once written, or if
+     * writing fails.
+     *
+     * @param messages the messages, opened by the resource method so that a database error can
+     *                 still be answered with a 500
+     * @return the entity
+     */
+    static StreamingOutput of(MessageStream messages) {
+        return new StreamOutput(messages);
+    }
+
+    /**
+     * 200 response streaming the messages as JSON. The stream is closed if the response cannot
+     * be built.
+     *
+     * @param messages the messages, opened by the resource method
+     * @return the response
+     */
+    static Response ok(MessageStream messages) {
+        try {
+            return Response.ok(of(messages), MediaType.APPLICATION_JSON).build();
+        } catch (RuntimeException e) {
+            messages.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write messages as a JSON array
+     *
+     * @param messages the messages
+     * @param output   the response body
+     * @throws IOException if writing to the response fails
+     */
+    private static void write(Iterator<Message> messages, OutputStream output) throws IOException {
+        Gson gson = GsonUtil.getGson();
+        JsonWriter writer = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        writer.beginArray();
+        while (messages.hasNext()) {
+            gson.toJson(messages.next(), Message.class, writer);
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    /**
+     * Response entity writing a stream of messages, closing the stream once written
+     */
+    private static final class StreamOutput implements StreamingOutput, Closeable {
+        /**
+         * The messages
+         */
+        private final MessageStream messages;
+
+        /**
+         * Constructor
+         *
+         * @param messages the messages
+         */
+        StreamOutput(MessageStream messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            try {
+                MessageJson.write(messages, output);
+            } finally {
+                messages.close();
+            }
+        }
+
+        /**
+         * Close the stream without writing it
+         */
+        @Override
+        public void close() {
+            messages.close();
+        }
+    }
+}
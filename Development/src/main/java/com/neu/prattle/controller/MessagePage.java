@@ -0,0 +1,160 @@
+package com.neu.prattle.controller;
+
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
+
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * The paging parameters of a message history request. A page holds at most limit messages,
+ * oldest first. The response carries the cursors of its first and last message in the
+ * X-Before-Cursor and X-After-Cursor headers, to be passed back as before to load older messages
+ * or as after to load newer ones. A request without any paging parameter gets the whole history,
+ * streamed, as before paging existed; see {@link #isAbsent(String, String, String)}.
+ *
+ * @author Team 9
+ * @version dated 2019-12-04
+ */
+final class MessagePage {
+    /**
+     * Page size when no limit is given
+     */
+    static final int DEFAULT_LIMIT = 100;
+    /**
+     * Largest page size
+     */
+    static final int MAX_LIMIT = 500;
+    /**
+     * Header holding the cursor of the oldest message in the page
+     */
+    static final String BEFORE_HEADER = "X-Before-Cursor";
+    /**
+     * Header holding the cursor of the newest message in the page
+     */
+    static final String AFTER_HEADER = "X-After-Cursor";
+
+    /**
+     * Only messages before this cursor, null for no bound
+     */
+    private final MessageCursor before;
+    /**
+     * Only messages after this cursor, null for no bound
+     */
+    private final MessageCursor after;
+    /**
+     * Maximum number of messages
+     */
+    private final int limit;
+
+    /**
+     * Constructor
+     *
+     * @param before only messages before this cursor, null for no bound
+     * @param after  only messages after this cursor, null for no bound
+     * @param limit  maximum number of messages
+     */
+    private MessagePage(MessageCursor before, MessageCursor after, int limit) {
+        this.before = before;
+        this.after = after;
+        this.limit = limit;
+    }
+
+    /**
+     * Whether a request has none of the paging parameters, and so asks for the whole history
+     *
+     * @param before before cursor string, may be null
+     * @param after  after cursor string, may be null
+     * @param limit  limit string, may be null
+     * @return true if all are absent or empty
+     */
+    static boolean isAbsent(String before, String after, String limit) {
+        return isEmpty(before) && isEmpty(after) && isEmpty(limit);
+    }
+
+    /**
+     * Whether a query parameter is absent
+     *
+     * @param parameter the parameter, may be null
+     * @return true if null or empty
+     */
+    private static boolean isEmpty(String parameter) {
+        return parameter == null || parameter.isEmpty();
+    }
+
+    /**
+     * Parse the query parameters of a request
+     *
+     * @param before before cursor string, may be null
+     * @param after  after cursor string, may be null
+     * @param limit  limit string, may be null
+     * @return the paging parameters
+     * @throws IllegalArgumentException if a cursor or the limit is invalid
+     */
+    static MessagePage parse(String before, String after, String limit) {
+        int pageSize = DEFAULT_LIMIT;
+        if (limit != null && !limit.isEmpty()) {
+            try {
+                pageSize = Integer.parseInt(limit);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid limit " + limit);
+            }
+            if (pageSize < 1 || pageSize > MAX_LIMIT) {
+                throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+            }
+        }
+        return new MessagePage(MessageCursor.parse(before), MessageCursor.parse(after), pageSize);
+    }
+
+    /**
+     * Build the response for a page of messages
+     *
+     * @param messages the page, oldest first
+     * @return 200 response with the cursor headers
+     */
+    static Response toResponse(List<Message> messages) {
+        StreamingOutput json = MessageJson.of(messages);
+        Response.ResponseBuilder builder = Response.ok(json, MediaType.APPLICATION_JSON);
+        if (!messages.isEmpty()) {
+            MessageCursor first = MessageCursor.of(messages.get(0));
+            MessageCursor last = MessageCursor.of(messages.get(messages.size() - 1));
+            if (first != null) {
+                builder.header(BEFORE_HEADER, first.toString());
+            }
+            if (last != null) {
+                builder.header(AFTER_HEADER, last.toString());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Getter for the before cursor
+     *
+     * @return before cursor, null for no bound
+     */
+    MessageCursor getBefore() {
+        return before;
+    }
+
+    /**
+     * Getter for the after cursor
+     *
+     * @return after cursor, null for no bound
+     */
+    MessageCursor getAfter() {
+        return after;
+    }
+
+    /**
+     * Getter for the limit
+     *
+     * @return maximum number of messages
+     */
+    int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,39 @@
+package com.neu.prattle.controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Closes the entity of a response that is sent without its body. HEAD requests run the GET
+ * resource method, but the entity it returns is never written, so a streamed history would keep
+ * its database session open. Entities that hold resources until written are {@link Closeable};
+ * this filter closes them and drops them from HEAD responses.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+@Provider
+public class UnwrittenEntityFilter implements ContainerResponseFilter {
+
+    /**
+     * Close and drop the entity of a HEAD response
+     *
+     * @param request  the request
+     * @param response the response
+     * @throws IOException if closing the entity fails
+     */
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+        Object entity = response.getEntity();
+        if (HttpMethod.HEAD.equals(request.getMethod()) && entity instanceof Closeable) {
+            response.setEntity(null);
+            ((Closeable) entity).close();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.Channel;
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
 import com.neu.prattle.service.ChannelService;
 import com.neu.prattle.service.IUserService;
 import com.neu.prattle.service.UserService;
@@ -13,7 +14,6 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.sql.SQLException;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -112,16 +112,17 @@ public class UserController {
     }
 
     /**
-     * Handles a get request for getting all users
+     * Handles a get request for getting all users. Only the public profile of each user is sent,
+     * see {@link UserSummary}.
      *
      * @return a response with json of user list 200: ok 500: database error
      */
     @GET
     @Path("/all")
     public Response getAllUsers() {
-        List<User> userList;
+        List<UserSummary> userList;
         try {
-            userList = accountService.getAllUsers();
+            userList = accountService.getUserSummaries();
         } catch (SQLException e) {
             return Response.status(500).entity(e.getMessage()).build();
         }
@@ -130,16 +131,17 @@ public class UserController {
     }
 
     /**
-     * Handles a get request for getting all active users
+     * Handles a get request for getting all active users. Only the public profile of each user is
+     * sent, see {@link UserSummary}.
      *
      * @return a response with json of user list 200: ok 500: database error
      */
     @GET
     @Path("/active")
     public Response getActiveUsers() {
-        List<User> userList;
+        List<UserSummary> userList;
         try {
-            userList = accountService.getActiveUsers();
+            userList = accountService.getActiveUserSummaries();
         } catch (SQLException e) {
             return Response.status(500).entity(e.getMessage()).build();
         }
@@ -183,9 +185,8 @@ public class UserController {
             if (!optionalIUser.isPresent()) {
                 return Response.status(404).build();
             }
-            User user = optionalIUser.get();
-            Set<Channel> channels = new HashSet<>(user.getChannelSet());
-            channels.addAll(user.getModChannelSet());
+            // the user's channel sets are lazy, so ask for the channels in one query instead
+            Set<Channel> channels = ChannelService.getInstance().getChannelsOfUser(username);
             String jsonResp = gson.toJson(channels);
             return Response.ok(jsonResp, MediaType.APPLICATION_JSON).build();
         } catch (SQLException e) {
@@ -1,6 +1,8 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.ChannelMembership;
+import com.neu.prattle.model.ChannelSummary;
 import com.neu.prattle.utils.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
@@ -26,12 +28,31 @@ public class ChannelDBHibernate implements IChannelDB {
         return channelDB;
     }
 
+    /**
+     * Query hint applying an entity graph as the fetch plan
+     */
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+
     /**
      * Constructor
      */
     private ChannelDBHibernate() {
     }
 
+    /**
+     * Create a channel query that fetches the mods and participants of the channels in the same
+     * statement, through {@link Channel#MEMBERS_GRAPH}. The users' own channel sets stay lazy.
+     *
+     * @param session the session
+     * @param hql     the query
+     * @return the query
+     */
+    private static Query<Channel> createMembersQuery(Session session, String hql) {
+        Query<Channel> query = session.createQuery(hql, Channel.class);
+        query.setHint(FETCH_GRAPH, session.getEntityGraph(Channel.MEMBERS_GRAPH));
+        return query;
+    }
+
 
     /**
      * Set test mode for the database interface. Should be called and only be called for test
@@ -43,7 +64,7 @@ public class ChannelDBHibernate implements IChannelDB {
     }
 
     /**
-     * Get all channels in the database
+     * Get all channels in the database, with their mods and participants
      *
      * @return all channels in the database
      * @throws SQLException if the connection failed or there is an error.
@@ -52,7 +73,7 @@ public class ChannelDBHibernate implements IChannelDB {
     public Set<Channel> getAllChannels() throws SQLException {
         List<Channel> channels;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Channel> query = session.createQuery("from Channel ", Channel.class);
+            Query<Channel> query = createMembersQuery(session, "from Channel ");
             channels = query.list();
         } catch (Exception e) {
             throw new SQLException(e.getMessage());
@@ -61,7 +82,27 @@ public class ChannelDBHibernate implements IChannelDB {
     }
 
     /**
-     * Get channel with id in the database
+     * Get the id, name and member counts of every channel in the database, ordered by id. The
+     * members are counted by the database, no channel or user entity is loaded.
+     *
+     * @return list of channel summaries
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public List<ChannelSummary> getChannelSummaries() throws SQLException {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            // counted in subqueries, joining both member tables would multiply the rows
+            return session.createQuery("select new com.neu.prattle.model.ChannelSummary(c.id, c.name, "
+                    + "(select count(p) from Channel c2 join c2.participants p where c2.id = c.id), "
+                    + "(select count(m) from Channel c3 join c3.mods m where c3.id = c.id)) "
+                    + "from Channel c order by c.id", ChannelSummary.class).list();
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage());
+        }
+    }
+
+    /**
+     * Get channel with id in the database, with its mods and participants
      *
      * @param id id of the channel
      * @return optional channel with input id
@@ -70,19 +111,43 @@ public class ChannelDBHibernate implements IChannelDB {
     @Override
     public Optional<Channel> getChannel(int id) throws SQLException {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Channel channel = session.get(Channel.class, id);
-            if (channel != null) {
-                return Optional.of(channel);
-            } else {
+            Query<Channel> query = createMembersQuery(session, "from Channel where id = :id");
+            query.setParameter("id", id);
+            // the fetched members repeat the channel row, any of them will do
+            return query.list().stream().findFirst();
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage());
+        }
+    }
+
+    /**
+     * Get the id, name and member usernames of the channel with id in the database. Only scalar
+     * columns are selected, so neither the channel nor its users are loaded as entities.
+     *
+     * @param id id of the channel
+     * @return optional membership of the channel with input id
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public Optional<ChannelMembership> getChannelMembership(int id) throws SQLException {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            List<String> names = session.createQuery("select c.name from Channel c where c.id = :id", String.class)
+                    .setParameter("id", id).list();
+            if (names.isEmpty()) {
                 return Optional.empty();
             }
+            List<String> participants = session.createQuery("select u.username from Channel c join c.participants u where c.id = :id", String.class)
+                    .setParameter("id", id).list();
+            List<String> mods = session.createQuery("select u.username from Channel c join c.mods u where c.id = :id", String.class)
+                    .setParameter("id", id).list();
+            return Optional.of(new ChannelMembership(id, names.get(0), participants, mods));
         } catch (Exception e) {
             throw new SQLException(e.getMessage());
         }
     }
 
     /**
-     * Get channel with name in the database
+     * Get channel with name in the database, with their mods and participants
      *
      * @param name name of the channel
      * @return set of channels with input name
@@ -92,7 +157,7 @@ public class ChannelDBHibernate implements IChannelDB {
     public Set<Channel> getChannels(String name) throws SQLException {
         List<Channel> channels;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Channel> query = session.createQuery("from Channel where name = :name", Channel.class);
+            Query<Channel> query = createMembersQuery(session, "from Channel where name = :name");
             query.setParameter("name", name);
             channels = query.list();
         } catch (Exception e) {
@@ -101,6 +166,29 @@ public class ChannelDBHibernate implements IChannelDB {
         return new HashSet<>(channels);
     }
 
+    /**
+     * Get the channels the input user is a participant or mod of, with their mods and
+     * participants
+     *
+     * @param username the username
+     * @return set of channels of the user
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public Set<Channel> getChannelsOfUser(String username) throws SQLException {
+        List<Channel> channels;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Channel> query = createMembersQuery(session, "from Channel where"
+                    + " id in (select c.id from Channel c join c.participants u where u.username = :username)"
+                    + " or id in (select c.id from Channel c join c.mods u where u.username = :username)");
+            query.setParameter("username", username);
+            channels = query.list();
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage());
+        }
+        return new HashSet<>(channels);
+    }
+
     /**
      * Add a channel to the database
      *
@@ -1,17 +1,28 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.ChannelMembership;
+import com.neu.prattle.model.ChannelSummary;
+import com.neu.prattle.model.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class that implements {@link IChannelDB} to create a database in memory. This acts similar to a remote
  * database, but allows for testing and working with methods before setting up the actual
  * database implementation.
  *
+ * Channels are kept in a concurrent map by id, with secondary indexes from channel name and from
+ * member username to channel ids. A channel is indexed under the name and members it has when it
+ * is added or updated, so changes to a stored channel are seen by name and member lookups once
+ * {@link #updateChannel(Channel)} is called. Changes to one channel are applied atomically with a
+ * compute on its id.
+ *
  * @author Team 9
- * @version 2019-11-12
+ * @version 2019-12-06
  */
 public class ChannelDBInMemory implements IChannelDB {
     /**
@@ -30,16 +41,46 @@ public class ChannelDBInMemory implements IChannelDB {
     private ChannelDBInMemory(){}
 
     /**
-     * Store channels in memory
+     * The name and member usernames a channel is indexed under
      */
-    private Set<Channel> channelSet = new HashSet<>();
+    private static class Indexed {
+        private final String name;
+        private final Set<String> members;
+
+        Indexed(Channel channel) {
+            name = channel.getName();
+            members = Stream.concat(channel.getParticipants().stream(), channel.getMods().stream())
+                    .map(User::getUsername)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Store channels in memory, by id
+     */
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    /**
+     * What each stored channel is indexed under, by id
+     */
+    private final Map<Integer, Indexed> indexed = new ConcurrentHashMap<>();
+    /**
+     * Channel ids by channel name
+     */
+    private final Map<String, Set<Integer>> byName = new ConcurrentHashMap<>();
+    /**
+     * Channel ids by the username of a participant or mod
+     */
+    private final Map<String, Set<Integer>> byMember = new ConcurrentHashMap<>();
 
     /**
      * Setter for channelSet
      * @param channelSet channelSet
      */
     public void setChannelSet(Set<Channel> channelSet) {
-        this.channelSet = channelSet;
+        testMode();
+        for (Channel channel : channelSet) {
+            addChannel(channel);
+        }
     }
 
     /**
@@ -49,7 +90,92 @@ public class ChannelDBInMemory implements IChannelDB {
      */
     @Override
     public void testMode() {
-        channelSet = new HashSet<>();
+        channels.clear();
+        indexed.clear();
+        byName.clear();
+        byMember.clear();
+    }
+
+    /**
+     * Add a channel id to a secondary index. The id is added inside the compute on the key, the
+     * same way {@link #unindex} removes ids, so that it cannot go into a set that a concurrent
+     * unindex of another channel has just emptied and dropped from the index.
+     *
+     * @param index the index
+     * @param key   the key, null if the channel does not belong in the index
+     * @param id    the channel id
+     */
+    private static void index(Map<String, Set<Integer>> index, String key, int id) {
+        if (key != null) {
+            index.compute(key, (k, ids) -> {
+                Set<Integer> result = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Remove a channel id from a secondary index, dropping the key once it has no channels left
+     *
+     * @param index the index
+     * @param key   the key, null if the channel does not belong in the index
+     * @param id    the channel id
+     */
+    private static void unindex(Map<String, Set<Integer>> index, String key, int id) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Bring the secondary indexes of a channel up to date. Called inside a compute on the id of the
+     * channel, so that changes to one channel are applied one at a time.
+     *
+     * @param id      the channel id
+     * @param channel the channel, null if removed
+     */
+    private void reindex(int id, Channel channel) {
+        Indexed before = channel == null ? indexed.remove(id) : indexed.put(id, new Indexed(channel));
+        Indexed after = indexed.get(id);
+        if (before != null) {
+            if (after == null || !Objects.equals(before.name, after.name)) {
+                unindex(byName, before.name, id);
+            }
+            for (String member : before.members) {
+                if (after == null || !after.members.contains(member)) {
+                    unindex(byMember, member, id);
+                }
+            }
+        }
+        if (after != null) {
+            index(byName, after.name, id);
+            for (String member : after.members) {
+                index(byMember, member, id);
+            }
+        }
+    }
+
+    /**
+     * Get the stored channels with the input ids
+     *
+     * @param ids the channel ids, null for none
+     * @return set of channels
+     */
+    private Set<Channel> getChannels(Set<Integer> ids) {
+        Set<Channel> result = new HashSet<>();
+        if (ids != null) {
+            for (Integer id : ids) {
+                Channel channel = channels.get(id);
+                if (channel != null) {
+                    result.add(channel);
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -59,7 +185,20 @@ public class ChannelDBInMemory implements IChannelDB {
      */
     @Override
     public Set<Channel> getAllChannels() {
-        return channelSet;
+        return new HashSet<>(channels.values());
+    }
+
+    /**
+     * Get the id, name and member counts of every channel in database, ordered by id
+     *
+     * @return list of channel summaries
+     */
+    @Override
+    public List<ChannelSummary> getChannelSummaries() {
+        return channels.values().stream()
+                .map(ChannelSummary::of)
+                .sorted(Comparator.comparingInt(ChannelSummary::getId))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -70,7 +209,18 @@ public class ChannelDBInMemory implements IChannelDB {
      */
     @Override
     public Optional<Channel> getChannel(int id) {
-        return channelSet.stream().filter(channel -> channel.getId()==(id)).findAny();
+        return Optional.ofNullable(channels.get(id));
+    }
+
+    /**
+     * Get the id, name and member usernames of the channel with id in database
+     *
+     * @param id id of the channel
+     * @return membership of the channel with input id
+     */
+    @Override
+    public Optional<ChannelMembership> getChannelMembership(int id) {
+        return getChannel(id).map(ChannelMembership::of);
     }
 
     /**
@@ -81,17 +231,31 @@ public class ChannelDBInMemory implements IChannelDB {
      */
     @Override
     public Set<Channel> getChannels(String name) {
-        return channelSet.stream().filter(channel -> channel.getName().equals(name)).collect(Collectors.toSet());
+        return getChannels(byName.get(name));
+    }
+
+    /**
+     * Get the channels the input user is a participant or mod of
+     *
+     * @param username the username
+     * @return set of channels of the user
+     */
+    @Override
+    public Set<Channel> getChannelsOfUser(String username) {
+        return getChannels(byMember.get(username));
     }
 
     /**
-     * Add a channel to the database
+     * Add a channel to the database. Adding a channel with the id of a stored channel does nothing.
      *
      * @param channel channel to add
      */
     @Override
     public void addChannel(Channel channel) {
-        channelSet.add(channel);
+        channels.computeIfAbsent(channel.getId(), id -> {
+            reindex(id, channel);
+            return channel;
+        });
     }
 
     /**
@@ -101,17 +265,25 @@ public class ChannelDBInMemory implements IChannelDB {
      */
     @Override
     public void removeChannel(Channel channel) {
-        channelSet.remove(channel);
+        if (channel == null) {
+            return;
+        }
+        channels.computeIfPresent(channel.getId(), (id, stored) -> {
+            reindex(id, null);
+            return null;
+        });
     }
 
     /**
-     * Update the changes in the input channel to the database
+     * Update the changes in the input channel to the database, adding it if not stored
      *
      * @param channel channel to change
      */
     @Override
     public void updateChannel(Channel channel) {
-        channelSet.remove(channel);
-        channelSet.add(channel);
+        channels.compute(channel.getId(), (id, stored) -> {
+            reindex(id, channel);
+            return channel;
+        });
     }
 }
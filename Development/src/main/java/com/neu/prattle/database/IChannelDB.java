@@ -1,8 +1,11 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.ChannelMembership;
+import com.neu.prattle.model.ChannelSummary;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -28,6 +31,13 @@ public interface IChannelDB {
      */
     Set<Channel> getAllChannels() throws SQLException;
 
+    /**
+     * Get the id, name and member counts of every channel, ordered by id
+     * @return list of channel summaries
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    List<ChannelSummary> getChannelSummaries() throws SQLException;
+
     /**
      * Get channel with id in the database
      * @param id id of the channel
@@ -36,6 +46,15 @@ public interface IChannelDB {
      */
     Optional<Channel> getChannel(int id) throws SQLException;
 
+    /**
+     * Get the id, name and member usernames of the channel with id in the database, without
+     * loading any user
+     * @param id id of the channel
+     * @return optional membership of the channel with input id
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    Optional<ChannelMembership> getChannelMembership(int id) throws SQLException;
+
     /**
      * Get channel with name in the database
      * @param name name of the channel
@@ -44,6 +63,14 @@ public interface IChannelDB {
      */
     Set<Channel> getChannels(String name) throws SQLException;
 
+    /**
+     * Get the channels the input user is a participant or mod of
+     * @param username the username
+     * @return set of channels of the user
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    Set<Channel> getChannelsOfUser(String username) throws SQLException;
+
     /**
      * Add a channel to the database
      * @param channel channel to add
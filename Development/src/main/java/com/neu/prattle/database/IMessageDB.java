@@ -1,9 +1,10 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 
 import java.sql.SQLException;
-import java.util.Set;
+import java.util.List;
 
 /**
  * Class that acts as a database controller. The controller is responsible for interacting with the
@@ -28,42 +29,128 @@ public interface IMessageDB {
      */
     void addMessage(Message message) throws SQLException;
 
+    /**
+     * add a batch of messages to the database in a single transaction
+     *
+     * @param messages messages to be added
+     * @throws SQLException if database error occurs, in which case none of the messages are added
+     */
+    void addMessages(List<Message> messages) throws SQLException;
+
+    /**
+     * reserve the id of a message that is added later, so that the message can be used with its
+     * id before it is stored. Messages added without an id get one reserved when added.
+     *
+     * @return the id, never given out again
+     * @throws SQLException if database error occurs
+     */
+    int reserveId() throws SQLException;
+
     /**
      * get all messages between two input users in the database
      *
      * @param user1 the first user's username
      * @param user2 the second user's username
-     * @return set of all messages between user1 and user2
+     * @return list of all messages between user1 and user2, oldest first
+     * @throws SQLException if database error occurs
+     */
+    List<Message> getMessagesBetweenUsers(String user1, String user2) throws SQLException;
+
+    /**
+     * get a page of the messages between two input users, ordered by timestamp and id. If only
+     * after is set the page holds the oldest messages after it, otherwise the newest messages
+     * before the before cursor, or the newest messages overall.
+     *
+     * @param user1  the first user's username
+     * @param user2  the second user's username
+     * @param before only messages before this cursor, null for no bound
+     * @param after  only messages after this cursor, null for no bound
+     * @param limit  maximum number of messages
+     * @return the page of messages, oldest first
      * @throws SQLException if database error occurs
      */
-    Set<Message> getMessagesBetweenUsers(String user1, String user2) throws SQLException;
+    List<Message> getMessagesBetweenUsers(String user1, String user2, MessageCursor before, MessageCursor after, int limit) throws SQLException;
 
     /**
      * get all messages from input user in the database
      *
      * @param from user's username
-     * @return set of all messages the input user sent
+     * @return list of all messages the input user sent, oldest first
      * @throws SQLException if database error occurs
      */
-    Set<Message> getMessagesByFrom(String from) throws SQLException;
+    List<Message> getMessagesByFrom(String from) throws SQLException;
 
     /**
      * get all messages to input user in the database
      *
      * @param to user's username
-     * @return set of all messages sent to the input user
+     * @return list of all messages sent to the input user, oldest first
+     * @throws SQLException if database error occurs
+     */
+    List<Message> getMessagesByToUser(String to) throws SQLException;
+
+    /**
+     * stream all messages from input user in the database
+     *
+     * @param from user's username
+     * @return stream of all messages the input user sent, oldest first, to be closed by the caller
+     * @throws SQLException if database error occurs
+     */
+    MessageStream streamMessagesByFrom(String from) throws SQLException;
+
+    /**
+     * stream all messages to input user in the database
+     *
+     * @param to user's username
+     * @return stream of all messages sent to the input user, oldest first, to be closed by the
+     * caller
+     * @throws SQLException if database error occurs
+     */
+    MessageStream streamMessagesByToUser(String to) throws SQLException;
+
+    /**
+     * stream all messages between two users in the database
+     *
+     * @param user1 the first user's username
+     * @param user2 the second user's username
+     * @return stream of all messages between the two users, oldest first, to be closed by the
+     * caller
      * @throws SQLException if database error occurs
      */
-    Set<Message> getMessagesByToUser(String to) throws SQLException;
+    MessageStream streamMessagesBetweenUsers(String user1, String user2) throws SQLException;
+
+    /**
+     * stream all messages to the input channel in the database
+     *
+     * @param to channel id
+     * @return stream of all messages sent to the input channel, oldest first, to be closed by the
+     * caller
+     * @throws SQLException if database error occurs
+     */
+    MessageStream streamMessagesByToChannel(int to) throws SQLException;
 
     /**
      * get all messages to the input channel in the database
      *
      * @param to channel id
-     * @return set of all messages sent to the input channel
+     * @return list of all messages sent to the input channel, oldest first
+     * @throws SQLException if database error occurs
+     */
+    List<Message> getMessagesByToChannel(int to) throws SQLException;
+
+    /**
+     * get a page of the messages sent to the input channel, ordered by timestamp and id. If only
+     * after is set the page holds the oldest messages after it, otherwise the newest messages
+     * before the before cursor, or the newest messages overall.
+     *
+     * @param to     channel id
+     * @param before only messages before this cursor, null for no bound
+     * @param after  only messages after this cursor, null for no bound
+     * @param limit  maximum number of messages
+     * @return the page of messages, oldest first
      * @throws SQLException if database error occurs
      */
-    Set<Message> getMessagesByToChannel(int to) throws SQLException;
+    List<Message> getMessagesByToChannel(int to, MessageCursor before, MessageCursor after, int limit) throws SQLException;
 
     /**
      * delete the input message from database
@@ -1,8 +1,10 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -28,6 +30,14 @@ public interface IUserDB {
      */
     Set<User> getAllUsers() throws SQLException;
 
+    /**
+     * Get the public profile of every user, ordered by username.
+     *
+     * @return list of user summaries.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    List<UserSummary> getUserSummaries() throws SQLException;
+
     /**
      * Returns an optional object which might be empty or wraps an object if the Database contains a
      * {@link User} object having the same name as the parameter.
@@ -1,16 +1,26 @@
 package com.neu.prattle.database;
 
+import com.neu.prattle.model.IdSequence;
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 import com.neu.prattle.utils.HibernateUtil;
 
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 /**
  * implementation of {@link IMessageDB} using Hibernate
@@ -28,6 +38,73 @@ public class MessageDBHibernate implements IMessageDB {
         return messageDB;
     }
 
+    /**
+     * select of the message queries. The avatars of both users are joined in by the same
+     * statement instead of one subselect per avatar and row.
+     */
+    private static final String SELECT_WITH_AVATARS = "select m, f.avatar, t.avatar from Message m left join User f on f.username = m.fromUsername left join User t on t.username = m.toUsername where ";
+
+    /**
+     * history order, served by the (..., timestamp, id) indexes declared on {@link Message}
+     */
+    private static final String ORDER_BY = " order by m.timestamp, m.id";
+
+    /**
+     * insert statement used for batches, written with plain JDBC on the session's connection. The
+     * ids are given out by {@link #reserveId()} instead of the database, so that a message can be
+     * published with its id before it is written.
+     */
+    private static final String INSERT_MESSAGE = "insert into message (id, from_username, to_username, conversation_key, to_channel, content, timestamp) values (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * statements reserving a block of message ids from the {@link IdSequence} table. The update
+     * locks the row until the transaction ends, so concurrent servers get disjoint blocks. The
+     * row is created on first use, continuing from the largest stored id.
+     */
+    private static final String RESERVE_IDS = "update id_sequence set next_id = next_id + ? where name = ?";
+    private static final String SELECT_NEXT_ID = "select next_id from id_sequence where name = ?";
+    private static final String SELECT_MAX_ID = "select max(id) from message";
+    private static final String INSERT_SEQUENCE = "insert into id_sequence (name, next_id) values (?, ?)";
+
+    /**
+     * ids reserved per round trip to the database. Ids left in the block when the server stops
+     * are never used. Set with the system property prattle.message.idBlockSize
+     */
+    private static final int ID_BLOCK_SIZE = Integer.getInteger("prattle.message.idBlockSize", 100);
+
+    /**
+     * statements of the conversation key backfill. The keys are computed in Java with
+     * {@link Message#conversationKey(String, String)}: in SQL the comparison of the usernames
+     * follows the collation of the column, case-insensitive on MySQL, and length() counts bytes,
+     * so keys computed by the database would not match the ones the queries look up.
+     */
+    private static final String SELECT_DIRECT_MESSAGE_KEYS = "select id, from_username, to_username, conversation_key"
+            + " from message where to_username is not null and id > ? order by id";
+    private static final String UPDATE_CONVERSATION_KEY = "update message set conversation_key = ? where id = ?";
+
+    /**
+     * direct messages read per round of the backfill. Set with the system property
+     * prattle.message.backfillBatchSize
+     */
+    private static final int BACKFILL_BATCH_SIZE = Integer.getInteger("prattle.message.backfillBatchSize", 1000);
+
+    /**
+     * rows fetched per round trip when streaming a history. Set with the system property
+     * prattle.message.fetchSize
+     */
+    private static final int FETCH_SIZE = Integer.getInteger("prattle.message.fetchSize", 500);
+
+    /**
+     * the session factory of the database the reserved block of ids belongs to
+     */
+    private SessionFactory idFactory;
+
+    /**
+     * the next id to give out and the end of the reserved block, exclusive. Guarded by this.
+     */
+    private int nextId;
+    private int idLimit;
+
     private MessageDBHibernate() {
     }
 
@@ -48,10 +125,152 @@ public class MessageDBHibernate implements IMessageDB {
      */
     @Override
     public void addMessage(Message message) throws SQLException {
+        addMessages(Collections.singletonList(message));
+    }
+
+    /**
+     * reserve the id of a message that is added later. The ids are handed out from a block
+     * reserved in the database, so servers sharing the database never give out the same id;
+     * only every {@link #ID_BLOCK_SIZE}th call goes to the database.
+     *
+     * @return the id
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public synchronized int reserveId() throws SQLException {
+        SessionFactory factory = HibernateUtil.getSessionFactory();
+        if (factory != idFactory || nextId >= idLimit) {
+            idLimit = reserveIds(factory);
+            nextId = idLimit - ID_BLOCK_SIZE;
+            idFactory = factory;
+        }
+        return nextId++;
+    }
+
+    /**
+     * reserve the next block of {@link #ID_BLOCK_SIZE} message ids in the database of a session
+     * factory
+     *
+     * @param factory the session factory
+     * @return the end of the block, exclusive
+     * @throws SQLException if database error occurs
+     */
+    private static int reserveIds(SessionFactory factory) throws SQLException {
+        Transaction transaction = null;
+        try (Session session = factory.openSession()) {
+            transaction = session.beginTransaction();
+            int limit = session.doReturningWork(MessageDBHibernate::reserveIds);
+            transaction.commit();
+            return limit;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new SQLException(e.getMessage());
+        }
+    }
+
+    /**
+     * reserve the next block of message ids on a connection, creating the sequence if the
+     * database has none yet
+     *
+     * @param connection the connection, in a transaction
+     * @return the end of the block, exclusive
+     * @throws SQLException if database error occurs
+     */
+    private static int reserveIds(Connection connection) throws SQLException {
+        if (advanceSequence(connection) == 0) {
+            try {
+                createSequence(connection);
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // another server created it first
+                advanceSequence(connection);
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement(SELECT_NEXT_ID)) {
+            select.setString(1, IdSequence.MESSAGE);
+            try (ResultSet rows = select.executeQuery()) {
+                if (!rows.next()) {
+                    throw new SQLException("no message id sequence");
+                }
+                return rows.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * move the message id sequence past the next block
+     *
+     * @param connection the connection
+     * @return number of rows updated, 0 if there is no sequence yet
+     * @throws SQLException if database error occurs
+     */
+    private static int advanceSequence(Connection connection) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(RESERVE_IDS)) {
+            update.setInt(1, ID_BLOCK_SIZE);
+            update.setString(2, IdSequence.MESSAGE);
+            return update.executeUpdate();
+        }
+    }
+
+    /**
+     * create the message id sequence past the largest stored id and the first block
+     *
+     * @param connection the connection
+     * @throws SQLException if database error occurs
+     */
+    private static void createSequence(Connection connection) throws SQLException {
+        int lastId;
+        try (PreparedStatement select = connection.prepareStatement(SELECT_MAX_ID);
+             ResultSet rows = select.executeQuery()) {
+            lastId = rows.next() ? rows.getInt(1) : 0;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SEQUENCE)) {
+            insert.setString(1, IdSequence.MESSAGE);
+            insert.setInt(2, lastId + 1 + ID_BLOCK_SIZE);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * add a batch of messages to the database with one JDBC batch insert in a single transaction.
+     * Messages without an id get one reserved first.
+     *
+     * @param messages messages to be added
+     * @throws SQLException if database error occurs, in which case none of the messages are added
+     */
+    @Override
+    public void addMessages(List<Message> messages) throws SQLException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        for (Message message : messages) {
+            if (message.getId() == 0) {
+                message.setId(reserveId());
+            }
+        }
         Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             transaction = session.beginTransaction();
-            session.save(message);
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_MESSAGE)) {
+                    for (Message message : messages) {
+                        statement.setInt(1, message.getId());
+                        statement.setString(2, message.getFromUsername());
+                        statement.setString(3, message.getToUsername());
+                        statement.setString(4, message.getConversationKey());
+                        if (message.getToChannelId() < 0) {
+                            statement.setNull(5, Types.INTEGER);
+                        } else {
+                            statement.setInt(5, message.getToChannelId());
+                        }
+                        statement.setString(6, message.getContent());
+                        statement.setTimestamp(7, message.getTimestamp());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            });
             transaction.commit();
         } catch (Exception e) {
             if (transaction != null) {
@@ -66,80 +285,334 @@ public class MessageDBHibernate implements IMessageDB {
      *
      * @param user1 the first user's username
      * @param user2 the second user's username
-     * @return set of all messages between user1 and user2
+     * @return list of all messages between user1 and user2, oldest first
      * @throws SQLException if database error occurs
      */
     @Override
-    public Set<Message> getMessagesBetweenUsers(String user1, String user2) throws SQLException {
-        List<Message> messages;
+    public List<Message> getMessagesBetweenUsers(String user1, String user2) throws SQLException {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Message> query = session.createQuery("from Message where (fromUsername = :user1 and toUsername = :user2) or (fromUsername = :user2 and toUsername = :user1)", Message.class);
-            query.setParameter("user1", user1);
-            query.setParameter("user2", user2);
-            messages = query.list();
+            return withAvatars(session.createQuery(SELECT_WITH_AVATARS + "m.conversationKey = :conversation_key" + ORDER_BY, Object[].class)
+                    .setParameter("conversation_key", Message.conversationKey(user1, user2)).list());
         } catch (Exception e) {
             throw new SQLException(e.getMessage());
         }
-        return new HashSet<>(messages);
+    }
+
+    /**
+     * get a page of the messages between two input users, ordered by timestamp and id
+     *
+     * @param user1  the first user's username
+     * @param user2  the second user's username
+     * @param before only messages before this cursor, null for no bound
+     * @param after  only messages after this cursor, null for no bound
+     * @param limit  maximum number of messages
+     * @return the page of messages, oldest first
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public List<Message> getMessagesBetweenUsers(String user1, String user2, MessageCursor before, MessageCursor after, int limit) throws SQLException {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = createPageQuery(session, "m.conversationKey = :conversation_key", before, after, limit);
+            query.setParameter("conversation_key", Message.conversationKey(user1, user2));
+            return getPage(query, before, after);
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage());
+        }
+    }
+
+    /**
+     * Create the query for a page of messages. The ordering and the limit are done by the
+     * database; the page is read newest first unless only the after cursor is set.
+     *
+     * @param session   the session
+     * @param condition the condition selecting the history
+     * @param before    only messages before this cursor, null for no bound
+     * @param after     only messages after this cursor, null for no bound
+     * @param limit     maximum number of messages
+     * @return the query, with the cursor parameters set
+     */
+    private Query<Object[]> createPageQuery(Session session, String condition, MessageCursor before, MessageCursor after, int limit) {
+        StringBuilder hql = new StringBuilder(SELECT_WITH_AVATARS).append(condition);
+        if (before != null) {
+            hql.append(" and (m.timestamp < :before_timestamp or (m.timestamp = :before_timestamp and m.id < :before_id))");
+        }
+        if (after != null) {
+            hql.append(" and (m.timestamp > :after_timestamp or (m.timestamp = :after_timestamp and m.id > :after_id))");
+        }
+        String direction = isAscending(before, after) ? "asc" : "desc";
+        hql.append(" order by m.timestamp ").append(direction).append(", m.id ").append(direction);
+
+        Query<Object[]> query = session.createQuery(hql.toString(), Object[].class);
+        if (before != null) {
+            query.setParameter("before_timestamp", before.getTimestamp());
+            query.setParameter("before_id", before.getId());
+        }
+        if (after != null) {
+            query.setParameter("after_timestamp", after.getTimestamp());
+            query.setParameter("after_id", after.getId());
+        }
+        query.setMaxResults(limit);
+        return query;
+    }
+
+    /**
+     * Run a page query and return the page oldest first
+     *
+     * @param query  the page query
+     * @param before the before cursor of the query
+     * @param after  the after cursor of the query
+     * @return the page of messages, oldest first
+     */
+    private List<Message> getPage(Query<Object[]> query, MessageCursor before, MessageCursor after) {
+        List<Message> messages = withAvatars(query.list());
+        if (!isAscending(before, after)) {
+            Collections.reverse(messages);
+        }
+        return messages;
+    }
+
+    /**
+     * Set the avatars selected by a message query on its messages
+     *
+     * @param rows rows of message, sender avatar and receiver avatar
+     * @return the messages, in the order of the rows
+     */
+    private static List<Message> withAvatars(List<Object[]> rows) {
+        List<Message> messages = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Message message = (Message) row[0];
+            message.setFromAvatar((Integer) row[1]);
+            message.setToAvatar((Integer) row[2]);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Whether a page is read oldest first, which is the case when only the after cursor is set
+     *
+     * @param before the before cursor
+     * @param after  the after cursor
+     * @return true if read oldest first
+     */
+    private static boolean isAscending(MessageCursor before, MessageCursor after) {
+        return after != null && before == null;
+    }
+
+    /**
+     * Set the conversation key of the direct messages stored before the key existed, or before
+     * it was prefixed with the length of the first username. The direct messages are read by id,
+     * a batch at a time, and only those whose key differs from the one computed in Java are
+     * updated, each batch in its own transaction.
+     *
+     * @return number of messages updated
+     * @throws SQLException if database error occurs
+     */
+    public int backfillConversationKeys() throws SQLException {
+        int updated = 0;
+        int lastId = 0;
+        while (true) {
+            Transaction transaction = null;
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                transaction = session.beginTransaction();
+                int fromId = lastId;
+                int[] result = session.doReturningWork(connection -> backfillBatch(connection, fromId));
+                transaction.commit();
+                updated += result[1];
+                if (result[0] == fromId) {
+                    return updated;
+                }
+                lastId = result[0];
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new SQLException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Backfill the conversation keys of one batch of direct messages
+     *
+     * @param connection the connection
+     * @param fromId     the batch starts after this id
+     * @return the last id read, fromId if there are no more messages, and the number updated
+     * @throws SQLException if database error occurs
+     */
+    private static int[] backfillBatch(Connection connection, int fromId) throws SQLException {
+        int lastId = fromId;
+        int updated = 0;
+        try (PreparedStatement select = connection.prepareStatement(SELECT_DIRECT_MESSAGE_KEYS);
+             PreparedStatement update = connection.prepareStatement(UPDATE_CONVERSATION_KEY)) {
+            select.setInt(1, fromId);
+            select.setMaxRows(BACKFILL_BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    lastId = rows.getInt(1);
+                    String key = Message.conversationKey(rows.getString(2), rows.getString(3));
+                    if (!key.equals(rows.getString(4))) {
+                        update.setString(1, key);
+                        update.setInt(2, lastId);
+                        update.addBatch();
+                        updated++;
+                    }
+                }
+            }
+            if (updated > 0) {
+                update.executeBatch();
+            }
+        }
+        return new int[]{lastId, updated};
     }
 
     /**
      * get all messages from input user in the database
      *
      * @param from user's username
-     * @return set of all messages the input user sent
+     * @return list of all messages the input user sent, oldest first
      * @throws SQLException if database error occurs
      */
     @Override
-    public Set<Message> getMessagesByFrom(String from) throws SQLException {
-        List<Message> messages;
+    public List<Message> getMessagesByFrom(String from) throws SQLException {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            messages = session.createQuery("from Message where fromUsername = :from_username", Message.class).setParameter("from_username", from).list();
+            return withAvatars(session.createQuery(SELECT_WITH_AVATARS + "m.fromUsername = :from_username" + ORDER_BY, Object[].class).setParameter("from_username", from).list());
         } catch (Exception e) {
             throw new SQLException(e.getMessage());
         }
-        return new HashSet<>(messages);
     }
 
     /**
      * get all messages to input user in the database
      *
      * @param to user's username
-     * @return set of all messages sent to the input user
+     * @return list of all messages sent to the input user, oldest first
      * @throws SQLException if database error occurs
      */
     @Override
-    public Set<Message> getMessagesByToUser(String to) throws SQLException {
-        List<Message> messages;
+    public List<Message> getMessagesByToUser(String to) throws SQLException {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            messages = session.createQuery("from Message where toUsername = :to_username", Message.class).setParameter("to_username", to).list();
+            return withAvatars(session.createQuery(SELECT_WITH_AVATARS + "m.toUsername = :to_username" + ORDER_BY, Object[].class).setParameter("to_username", to).list());
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage());
+        }
+    }
+
+    /**
+     * stream all messages from input user in the database
+     *
+     * @param from user's username
+     * @return stream of all messages the input user sent, oldest first
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public MessageStream streamMessagesByFrom(String from) throws SQLException {
+        return stream("m.fromUsername = :from_username", "from_username", from);
+    }
+
+    /**
+     * stream all messages to input user in the database
+     *
+     * @param to user's username
+     * @return stream of all messages sent to the input user, oldest first
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public MessageStream streamMessagesByToUser(String to) throws SQLException {
+        return stream("m.toUsername = :to_username", "to_username", to);
+    }
+
+    /**
+     * stream all messages between two users in the database
+     *
+     * @param user1 the first user's username
+     * @param user2 the second user's username
+     * @return stream of all messages between the two users, oldest first
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public MessageStream streamMessagesBetweenUsers(String user1, String user2) throws SQLException {
+        return stream("m.conversationKey = :conversation_key", "conversation_key", Message.conversationKey(user1, user2));
+    }
+
+    /**
+     * stream all messages to the input channel in the database
+     *
+     * @param to channel id
+     * @return stream of all messages sent to the input channel, oldest first
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public MessageStream streamMessagesByToChannel(int to) throws SQLException {
+        return stream("m.toChannelId = :to_channel", "to_channel", to);
+    }
+
+    /**
+     * Open a stream over the history selected by the condition. The query runs now, on a
+     * stateless session that stays open until the stream is closed, and the rows are fetched
+     * {@link #FETCH_SIZE} at a time as the stream is read.
+     *
+     * @param condition the condition selecting the history, with one parameter
+     * @param name      the parameter name
+     * @param value     the parameter value
+     * @return the stream, oldest first
+     * @throws SQLException if database error occurs
+     */
+    private static MessageStream stream(String condition, String name, Object value) throws SQLException {
+        StatelessSession session = null;
+        try {
+            session = HibernateUtil.getSessionFactory().openStatelessSession();
+            Query<Object[]> query = session.createQuery(SELECT_WITH_AVATARS + condition + ORDER_BY, Object[].class);
+            query.setParameter(name, value);
+            query.setFetchSize(FETCH_SIZE);
+            return new ScrollableMessageStream(session, query.scroll(ScrollMode.FORWARD_ONLY));
         } catch (Exception e) {
+            if (session != null) {
+                session.close();
+            }
             throw new SQLException(e.getMessage());
         }
-        return new HashSet<>(messages);
     }
 
     /**
      * get all messages to the input channel in the database
      *
      * @param to channel id
-     * @return set of all messages sent to the input channel
+     * @return list of all messages sent to the input channel, oldest first
      * @throws SQLException if database error occurs
      */
     @Override
-    public Set<Message> getMessagesByToChannel(int to) throws SQLException {
-        List<Message> messages;
+    public List<Message> getMessagesByToChannel(int to) throws SQLException {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            messages = session.createQuery("from Message where toChannelId = :to_channel", Message.class).setParameter("to_channel", to).list();
+            return withAvatars(session.createQuery(SELECT_WITH_AVATARS + "m.toChannelId = :to_channel" + ORDER_BY, Object[].class).setParameter("to_channel", to).list());
         } catch (Exception e) {
             throw new SQLException(e.getMessage());
         }
-        return new HashSet<>(messages);
-
     }
 
 
 
+    /**
+     * get a page of the messages sent to the input channel, ordered by timestamp and id
+     *
+     * @param to     channel id
+     * @param before only messages before this cursor, null for no bound
+     * @param after  only messages after this cursor, null for no bound
+     * @param limit  maximum number of messages
+     * @return the page of messages, oldest first
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public List<Message> getMessagesByToChannel(int to, MessageCursor before, MessageCursor after, int limit) throws SQLException {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = createPageQuery(session, "m.toChannelId = :to_channel", before, after, limit);
+            query.setParameter("to_channel", to);
+            return getPage(query, before, after);
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage());
+        }
+    }
+
     /**
      * delete the input message from database
      *
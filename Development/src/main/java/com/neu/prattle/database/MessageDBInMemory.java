@@ -1,10 +1,18 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -12,8 +20,15 @@ import java.util.stream.Collectors;
  * database, but allows for testing and working with methods before setting up the actual
  * database implementation.
  *
+ * Messages are kept in concurrent indexes, one per query: by channel id, by conversation key, by
+ * sender and by receiver. Each index maps its key to a skip list of the messages in timestamp and
+ * id order, so a history is read in O(k) and a page in O(log n + k) without sorting, and writers
+ * do not block each other or the readers. Like a database, the store gives every message a
+ * unique id: a message added without an id, or with an id already taken, gets the next free one.
+ * The timestamp of a message must not change once it is added.
+ *
  * @author Team 9
- * @version 2019-10-30
+ * @version 2019-12-06
  */
 public class MessageDBInMemory implements IMessageDB {
 
@@ -23,12 +38,47 @@ public class MessageDBInMemory implements IMessageDB {
     private static MessageDBInMemory messageDB;
 
     /**
-     * Hash set of messages.
+     * Lower bound of the messages that have a timestamp, which sort after those that do not.
+     */
+    private static final Message FIRST_WITH_TIMESTAMP = probe(new Timestamp(Long.MIN_VALUE), Integer.MIN_VALUE);
+
+    /**
+     * The indexes of the stored messages.
+     */
+    private static class Indexes {
+        /**
+         * Messages by id.
+         */
+        private final Map<Integer, Message> byId = new ConcurrentHashMap<>();
+        /**
+         * Messages by channel id.
+         */
+        private final Map<Integer, NavigableSet<Message>> byChannel = new ConcurrentHashMap<>();
+        /**
+         * Messages by conversation key.
+         */
+        private final Map<String, NavigableSet<Message>> byConversation = new ConcurrentHashMap<>();
+        /**
+         * Messages by sender username.
+         */
+        private final Map<String, NavigableSet<Message>> byFrom = new ConcurrentHashMap<>();
+        /**
+         * Messages by receiver username.
+         */
+        private final Map<String, NavigableSet<Message>> byTo = new ConcurrentHashMap<>();
+        /**
+         * The last id given out.
+         */
+        private final AtomicInteger lastId = new AtomicInteger();
+    }
+
+    /**
+     * The indexes, replaced as a whole to remove all messages.
      */
-    private Set<Message> messageSet = new HashSet<>();
+    private volatile Indexes indexes = new Indexes();
 
     /**
-     * MessageDBInMemory is a Singleton class. No initialization has to happenb.
+     * MessageDBInMemory is a Singleton class. No initialization has to happen.
      */
     private MessageDBInMemory() {
     }
@@ -56,18 +106,120 @@ public class MessageDBInMemory implements IMessageDB {
         removeAllMessages();
     }
 
+    /**
+     * A message that only holds a position in the index order, to bound range queries.
+     *
+     * @param timestamp the timestamp
+     * @param id        the id
+     * @return the message
+     */
+    private static Message probe(Timestamp timestamp, int id) {
+        Message message = Message.messageBuilder().setTimestamp(timestamp).build();
+        message.setId(id);
+        return message;
+    }
 
+    /**
+     * Add a message to one of the indexes.
+     *
+     * @param index   the index
+     * @param key     the key of the message in the index, null if it does not belong in it
+     * @param message the message
+     * @param <K>     type of the key
+     */
+    private static <K> void index(Map<K, NavigableSet<Message>> index, K key, Message message) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(MessageCursor.ORDER)).add(message);
+        }
+    }
 
     /**
-     * add a message to the database
+     * Remove a message from one of the indexes.
+     *
+     * @param index   the index
+     * @param key     the key of the message in the index, null if it does not belong in it
+     * @param message the message
+     * @param <K>     type of the key
+     */
+    private static <K> void unindex(Map<K, NavigableSet<Message>> index, K key, Message message) {
+        if (key != null) {
+            NavigableSet<Message> messages = index.get(key);
+            if (messages != null) {
+                messages.remove(message);
+            }
+        }
+    }
+
+    /**
+     * The key of a message in the channel index. Direct messages report channel id -1, and are
+     * left out of the channel index rather than all filed under channel -1.
+     *
+     * @param message the message
+     * @return the channel id, null for a direct message
+     */
+    private static Integer channelKey(Message message) {
+        return message.getToChannelId() < 0 ? null : message.getToChannelId();
+    }
+
+    /**
+     * Get the messages under a key of one of the indexes.
+     *
+     * @param index the index
+     * @param key   the key
+     * @param <K>   type of the key
+     * @return the messages, oldest first
+     */
+    private static <K> NavigableSet<Message> lookup(Map<K, NavigableSet<Message>> index, K key) {
+        NavigableSet<Message> messages = key == null ? null : index.get(key);
+        return messages == null ? Collections.emptyNavigableSet() : messages;
+    }
+
+    /**
+     * add a message to the database. Adding a message that is already stored does nothing.
      *
      * @param message message to be added
      */
     @Override
     public void addMessage(Message message) {
+        Indexes current = indexes;
+        if (message.getId() == 0 || current.byId.putIfAbsent(message.getId(), message) != null) {
+            if (current.byId.get(message.getId()) == message) {
+                return;
+            }
+            int id;
+            do {
+                id = current.lastId.incrementAndGet();
+            } while (current.byId.putIfAbsent(id, message) != null);
+            message.setId(id);
+        } else {
+            current.lastId.accumulateAndGet(message.getId(), Math::max);
+        }
+        index(current.byChannel, channelKey(message), message);
+        index(current.byConversation, message.getConversationKey(), message);
+        index(current.byFrom, message.getFromUsername(), message);
+        index(current.byTo, message.getToUsername(), message);
+    }
 
-        messageSet.add(message);
+    /**
+     * reserve the id of a message that is added later
+     *
+     * @return the id
+     */
+    @Override
+    public int reserveId() {
+        return indexes.lastId.incrementAndGet();
+    }
 
+    /**
+     * add a batch of messages to the database
+     *
+     * @param messages messages to be added
+     */
+    @Override
+    public void addMessages(List<Message> messages) {
+        for (Message message : messages) {
+            addMessage(message);
+        }
     }
 
     /**
@@ -75,85 +227,153 @@ public class MessageDBInMemory implements IMessageDB {
      *
      * @param user1 the first user's username
      * @param user2 the second user's username
-     * @return Set of all messages between user1 and user2
+     * @return list of all messages between user1 and user2, oldest first
      */
     @Override
-    public Set<Message> getMessagesBetweenUsers(String user1, String user2) {
-
-        Set<Message> output = new HashSet<>();
+    public List<Message> getMessagesBetweenUsers(String user1, String user2) {
+        return new ArrayList<>(lookup(indexes.byConversation, Message.conversationKey(user1, user2)));
+    }
 
-        // Iterate through each message. If the 'from' and 'to' fields match the users of interest,
-        // then add to output Set.
-        for (Message m : messageSet) {
+    /**
+     * get a page of the messages between two input users, ordered by timestamp and id
+     *
+     * @param user1  the first user's username
+     * @param user2  the second user's username
+     * @param before only messages before this cursor, null for no bound
+     * @param after  only messages after this cursor, null for no bound
+     * @param limit  maximum number of messages
+     * @return the page of messages, oldest first
+     */
+    @Override
+    public List<Message> getMessagesBetweenUsers(String user1, String user2, MessageCursor before, MessageCursor after, int limit) {
+        return getPage(lookup(indexes.byConversation, Message.conversationKey(user1, user2)), before, after, limit);
+    }
 
-            // User 1 sent to user 2
-            // User 2 sent to user 1
-            if ( (m.getFromUsername().equals(user1) && m.getToUsername().equals(user2))
-                || (m.getToUsername().equals(user1) && m.getFromUsername().equals(user2)) ){
-                output.add(m);
+    /**
+     * Cut the requested page out of a history
+     *
+     * @param messages all messages of the history, oldest first
+     * @param before   only messages before this cursor, null for no bound
+     * @param after    only messages after this cursor, null for no bound
+     * @param limit    maximum number of messages
+     * @return the page of messages, oldest first
+     */
+    private List<Message> getPage(NavigableSet<Message> messages, MessageCursor before, MessageCursor after, int limit) {
+        NavigableSet<Message> range = messages;
+        if (after != null) {
+            range = range.tailSet(probe(after.getTimestamp(), after.getId()), false);
+        } else if (before != null) {
+            range = range.tailSet(FIRST_WITH_TIMESTAMP, true);
+        }
+        if (before != null) {
+            range = range.headSet(probe(before.getTimestamp(), before.getId()), false);
+        }
+        List<Message> page = new ArrayList<>(Math.min(limit, 64));
+        if (after != null && before == null) {
+            Iterator<Message> iterator = range.iterator();
+            while (page.size() < limit && iterator.hasNext()) {
+                page.add(iterator.next());
             }
-
+            return page;
         }
-
-        return output;
-
+        Iterator<Message> iterator = range.descendingIterator();
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        Collections.reverse(page);
+        return page;
     }
 
-
     /**
      * get all messages from input user in the database
      *
      * @param from user's username
-     * @return Set of all messages the input user sent
+     * @return list of all messages the input user sent, oldest first
      */
     @Override
-    public Set<Message> getMessagesByFrom(String from)  {
-        Set<Message> output = new HashSet<>();
+    public List<Message> getMessagesByFrom(String from)  {
+        return new ArrayList<>(lookup(indexes.byFrom, from));
+    }
 
-        // Iterate through each message. If the 'from' field matches the user of interest,
-        // then add to output Set.
-        for (Message m : messageSet) {
-            if (m.getFromUsername().equals(from)){
-                output.add(m);
-            }
-        }
+    /**
+     * stream all messages from input user in the database
+     *
+     * @param from user's username
+     * @return stream of all messages the input user sent, oldest first
+     */
+    @Override
+    public MessageStream streamMessagesByFrom(String from) {
+        return MessageStream.of(getMessagesByFrom(from));
+    }
 
+    /**
+     * stream all messages to input user in the database
+     *
+     * @param to user's username
+     * @return stream of all messages sent to the input user, oldest first
+     */
+    @Override
+    public MessageStream streamMessagesByToUser(String to) {
+        return MessageStream.of(getMessagesByToUser(to));
+    }
 
-        return output;
+    /**
+     * stream all messages between two users in the database
+     *
+     * @param user1 the first user's username
+     * @param user2 the second user's username
+     * @return stream of all messages between the two users, oldest first
+     */
+    @Override
+    public MessageStream streamMessagesBetweenUsers(String user1, String user2) {
+        return MessageStream.of(getMessagesBetweenUsers(user1, user2));
+    }
 
+    /**
+     * stream all messages to the input channel in the database
+     *
+     * @param to channel id
+     * @return stream of all messages sent to the input channel, oldest first
+     */
+    @Override
+    public MessageStream streamMessagesByToChannel(int to) {
+        return MessageStream.of(getMessagesByToChannel(to));
     }
 
     /**
      * get all messages to input user in the database
      *
      * @param to user's username
-     * @return Set of all messages sent to the input user
+     * @return list of all messages sent to the input user, oldest first
      */
     @Override
-    public Set<Message> getMessagesByToUser(String to)  {
-
-        Set<Message> output = new HashSet<>();
-
-        // Iterate through each message. If the 'to' field matches the user of interest,
-        // then add to output Set.
-        for (Message m : messageSet) {
-            if (m.getToUsername().equals(to)){
-                output.add(m);
-            }
-        }
-
-        return output;
+    public List<Message> getMessagesByToUser(String to)  {
+        return new ArrayList<>(lookup(indexes.byTo, to));
     }
 
     /**
      * get all messages to the input channel in the database
      *
      * @param to channel id
-     * @return set of all messages sent to the input channel
+     * @return list of all messages sent to the input channel, oldest first
      */
     @Override
-    public Set<Message> getMessagesByToChannel(int to) {
-        return messageSet.stream().filter(message -> message.getToChannelId() == to).collect(Collectors.toSet());
+    public List<Message> getMessagesByToChannel(int to) {
+        return new ArrayList<>(lookup(indexes.byChannel, to));
+    }
+
+    /**
+     * get a page of the messages sent to the input channel, ordered by timestamp and id
+     *
+     * @param to     channel id
+     * @param before only messages before this cursor, null for no bound
+     * @param after  only messages after this cursor, null for no bound
+     * @param limit  maximum number of messages
+     * @return the page of messages, oldest first
+     */
+    @Override
+    public List<Message> getMessagesByToChannel(int to, MessageCursor before, MessageCursor after, int limit) {
+        return getPage(lookup(indexes.byChannel, to), before, after, limit);
     }
 
     /**
@@ -163,24 +383,34 @@ public class MessageDBInMemory implements IMessageDB {
      */
     @Override
     public void removeMessage(Message message){
-                    this.messageSet.remove(message);
+        Indexes current = indexes;
+        if (current.byId.remove(message.getId(), message)) {
+            unindex(current.byChannel, channelKey(message), message);
+            unindex(current.byConversation, message.getConversationKey(), message);
+            unindex(current.byFrom, message.getFromUsername(), message);
+            unindex(current.byTo, message.getToUsername(), message);
+        }
     }
 
     /**
-     * update the input message in the database
+     * update the input message in the database. The message replaces the stored message with the
+     * same id, if any.
      *
      * @param message message to update
      */
     @Override
     public void updateMessage(Message message)  {
-        // Implement later? Why would we update a message exactly, and wouldn't it be updated WITH something to change?
-
+        Message stored = indexes.byId.get(message.getId());
+        if (stored != null && stored != message) {
+            removeMessage(stored);
+            addMessage(message);
+        }
     }
 
     /**
-     * Removes all the messages in the database by initializing a new set entirely.
+     * Removes all the messages in the database by replacing the indexes entirely.
      */
     public void removeAllMessages() {
-        messageSet = new HashSet<>();
+        indexes = new Indexes();
     }
 }
@@ -0,0 +1,50 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.model.Message;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A message history read one message at a time, so that it never has to be held in memory as a
+ * whole. The stream holds database resources until it is closed, so close it once done, also
+ * when it is not read to the end.
+ *
+ * @author Team 9
+ * @version dated 2019-12-06
+ */
+public interface MessageStream extends Iterator<Message>, Closeable {
+
+    /**
+     * Close the stream and release its resources. Does not throw.
+     */
+    @Override
+    void close();
+
+    /**
+     * A stream over a list of messages already in memory
+     *
+     * @param messages the messages
+     * @return the stream
+     */
+    static MessageStream of(List<Message> messages) {
+        Iterator<Message> iterator = messages.iterator();
+        return new MessageStream() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Message next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                //nothing to release
+            }
+        };
+    }
+}
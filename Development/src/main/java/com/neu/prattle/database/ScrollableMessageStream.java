@@ -0,0 +1,92 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.model.Message;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link MessageStream} over the rows of a scrolled message query, read on a stateless session
+ * so that no message stays referenced by a persistence context once it has been read. Each row
+ * holds the message and the avatars of its sender and receiver.
+ *
+ * @author Team 9
+ * @version dated 2019-12-06
+ */
+class ScrollableMessageStream implements MessageStream {
+    /**
+     * The session the results are read on
+     */
+    private final StatelessSession session;
+    /**
+     * The scrolled rows
+     */
+    private final ScrollableResults results;
+    /**
+     * The message read ahead by {@link #hasNext()}, null if none
+     */
+    private Message next;
+    /**
+     * Whether the rows are exhausted
+     */
+    private boolean done;
+    /**
+     * Whether the stream is closed
+     */
+    private boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param session the session the results are read on, closed with the stream
+     * @param results the scrolled rows
+     */
+    ScrollableMessageStream(StatelessSession session, ScrollableResults results) {
+        this.session = session;
+        this.results = results;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            if (results.next()) {
+                Object[] row = results.get();
+                next = (Message) row[0];
+                next.setFromAvatar((Integer) row[1]);
+                next.setToAvatar((Integer) row[2]);
+            } else {
+                done = true;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Message next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Message message = next;
+        next = null;
+        return message;
+    }
+
+    /**
+     * Close the rows and the session. Closing again does nothing, so every path that may end up
+     * with the stream can close it.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            results.close();
+        } finally {
+            session.close();
+        }
+    }
+}
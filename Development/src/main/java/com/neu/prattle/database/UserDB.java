@@ -2,35 +2,65 @@ package com.neu.prattle.database;
 
 import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
 import java.sql.*;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+
+import javax.sql.DataSource;
 
 /**
- * An IUserDB implementation using MySQL database.
+ * An IUserDB implementation using MySQL database over plain JDBC. Connections come from a HikariCP
+ * pool with the driver's prepared statement cache turned on, every lookup is a point query on the
+ * username key, and adding a user is a single statement that also detects an existing user. The
+ * pool is built on first use; set its maximum size and connection timeout with the system
+ * properties prattle.userdb.pool.maxSize and prattle.userdb.pool.connectionTimeout.
  *
  * @author Team 9
- * @version 2019-10-30
+ * @version 2019-12-06
  */
 public class UserDB implements IUserDB {
+    /**
+     * The user columns, in the order the statements below bind and read them
+     */
+    private static final String USER_COLUMNS = "username, password, email, first_name, last_name, bio, isMod, active, login_attempts, lockout, avatar";
+    private static final String SELECT_USERS = "select " + USER_COLUMNS + " from user";
+    private static final String SELECT_USER = SELECT_USERS + " where username = ?";
+    private static final String SELECT_SUMMARIES = "select username, first_name, last_name, bio, avatar, active from user order by username";
+    /**
+     * Plain insert, failing with an integrity constraint violation for an existing user. The
+     * failure does not depend on driver settings, unlike the affected row count of an upsert,
+     * which is only 0 for an existing user with useAffectedRows.
+     */
+    private static final String INSERT_USER = "insert into user (" + USER_COLUMNS + ") values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    /**
+     * Insert that leaves an existing user unchanged, for batches
+     */
+    private static final String INSERT_USER_IF_ABSENT = INSERT_USER + " on duplicate key update username = username";
+    /**
+     * SQL state class of integrity constraint violations, for drivers that do not throw
+     * {@link SQLIntegrityConstraintViolationException}
+     */
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+    private static final String UPDATE_USER = "update user set password = ?, email = ?, first_name = ?, last_name = ?, bio = ?,"
+            + " isMod = ?, active = ?, login_attempts = ?, lockout = ?, avatar = ? where username = ?";
+    private static final String DELETE_USER = "delete from user where username = ?";
+    private static final String DELETE_USERS = "delete from user";
+
     /**
      * UserDB is a singleton.
      */
     private static UserDB userDB;
     /**
-     * SQL connection object.
+     * The connection pool, built on first use if not set.
      */
-    private Connection connect;
+    private DataSource dataSource;
     /**
      * Config for storing database password of Key, Password
      */
     private Map<String, String> config = new HashMap<>();
-    /**
-     * Logger
-     */
-    private static Logger logger = Logger.getLogger(UserDB.class.getName());
 
     /**
      * Getter for database password from config.
@@ -42,20 +72,20 @@ public class UserDB implements IUserDB {
     }
 
     /**
-     * Constructor to set up connect object to connect to MySQL database.
+     * Constructor of the singleton, on the MySQL database.
      */
-    @SuppressWarnings("squid:S4925")
     private UserDB() {
-        try {
-            Class.forName("com.mysql.jdbc.Driver");
-            config.put("db_password", "bowshot123");
-            connect = DriverManager.getConnection(
-                    "jdbc:mysql://bowshot-free.cron68rx3yeb.us-east-1.rds.amazonaws.com:3306/" +
-                            "?useSSL=false",
-                    "admin", getPassword());
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, e.getMessage());
-        }
+        config.put("db_password", "bowshot123");
+    }
+
+    /**
+     * Constructor on another database, for benchmarks and tests. The user table must have the
+     * columns of {@link User}.
+     *
+     * @param dataSource the database
+     */
+    public UserDB(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
@@ -63,47 +93,116 @@ public class UserDB implements IUserDB {
      *
      * @return the singleton.
      */
-    public static UserDB getInstance() {
+    public static synchronized UserDB getInstance() {
         if (userDB == null) {
             userDB = new UserDB();
         }
         return userDB;
     }
 
+    /**
+     * Getter for the connection pool, building the MySQL pool on first use.
+     *
+     * @return the connection pool.
+     */
+    private synchronized DataSource getDataSource() {
+        if (dataSource == null) {
+            HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setPoolName("prattle-userdb");
+            hikariConfig.setDriverClassName("com.mysql.jdbc.Driver");
+            hikariConfig.setJdbcUrl("jdbc:mysql://bowshot-free.cron68rx3yeb.us-east-1.rds.amazonaws.com:3306/bowshot?useSSL=false");
+            hikariConfig.setUsername("admin");
+            hikariConfig.setPassword(getPassword());
+            hikariConfig.setMaximumPoolSize(Integer.getInteger("prattle.userdb.pool.maxSize", 10));
+            hikariConfig.setConnectionTimeout(Long.getLong("prattle.userdb.pool.connectionTimeout", 10000L));
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+            hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+            dataSource = new HikariDataSource(hikariConfig);
+        }
+        return dataSource;
+    }
+
     /**
      * Getter for all Users from the User table.
      *
      * @return Set of all Users.
      * @throws SQLException when executeQuery failed.
      */
+    @Override
     public Set<User> getAllUsers() throws SQLException {
-        try (Statement statement = connect.createStatement()) {
-            ResultSet resultSet = statement
-                    .executeQuery("select * from bowshot.user");
-            return getUserSet(resultSet);
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_USERS);
+             ResultSet resultSet = statement.executeQuery()) {
+            Set<User> userSet = new HashSet<>();
+            while (resultSet.next()) {
+                userSet.add(getUser(resultSet));
+            }
+            return userSet;
         }
     }
 
     /**
-     * Transform resultSet into a User set.
+     * Get the public profile of every user, ordered by username. Only the summary columns are
+     * selected.
      *
-     * @param resultSet SQL result set that contains result from a select query.
-     * @return set of Users.
-     * @throws SQLException when error in resultSet.
+     * @return list of user summaries.
+     * @throws SQLException when executeQuery failed.
      */
-    private Set<User> getUserSet(ResultSet resultSet) throws SQLException {
-        Set<User> userSet = new HashSet<>();
-        while (resultSet.next()) {
-            String username = resultSet.getString("username");
-            String password = resultSet.getString("password");
-            String email = resultSet.getString("email");
-            String firstName = resultSet.getString("first_name");
-            String lastName = resultSet.getString("last_name");
-            String bio = resultSet.getString("bio");
-            boolean active = resultSet.getBoolean("active");
-            userSet.add(new User(username, password, email, firstName, lastName, bio, active));
+    @Override
+    public List<UserSummary> getUserSummaries() throws SQLException {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_SUMMARIES);
+             ResultSet resultSet = statement.executeQuery()) {
+            List<UserSummary> summaries = new ArrayList<>();
+            while (resultSet.next()) {
+                summaries.add(new UserSummary(resultSet.getString("username"), resultSet.getString("first_name"),
+                        resultSet.getString("last_name"), resultSet.getString("bio"),
+                        resultSet.getInt("avatar"), resultSet.getBoolean("active")));
+            }
+            return summaries;
         }
-        return userSet;
+    }
+
+    /**
+     * Read the User at the current row of a result set.
+     *
+     * @param resultSet SQL result set that contains result from a select of the user columns.
+     * @return the User.
+     * @throws SQLException when error in resultSet.
+     */
+    private static User getUser(ResultSet resultSet) throws SQLException {
+        User user = new User(resultSet.getString("username"), resultSet.getString("password"),
+                resultSet.getString("email"), resultSet.getString("first_name"),
+                resultSet.getString("last_name"), resultSet.getString("bio"), resultSet.getBoolean("active"));
+        user.setIsMod(resultSet.getBoolean("isMod"));
+        user.setLoginAttempts(resultSet.getInt("login_attempts"));
+        user.setLockout(resultSet.getTimestamp("lockout"));
+        user.setAvatar(resultSet.getInt("avatar"));
+        return user;
+    }
+
+    /**
+     * Bind the columns of a User to the insert statement.
+     *
+     * @param statement the insert statement.
+     * @param user      the User.
+     * @throws SQLException when binding failed.
+     */
+    private static void bindInsert(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getUsername());
+        statement.setString(2, user.getPassword());
+        statement.setString(3, user.getEmail());
+        statement.setString(4, user.getFirstName());
+        statement.setString(5, user.getLastName());
+        statement.setString(6, user.getBio());
+        statement.setBoolean(7, user.getIsMod());
+        statement.setBoolean(8, user.getActive());
+        statement.setInt(9, user.getLoginAttempts());
+        statement.setTimestamp(10, user.getLockout());
+        statement.setInt(11, user.getAvatar() == null ? 0 : user.getAvatar());
     }
 
     /**
@@ -116,9 +215,8 @@ public class UserDB implements IUserDB {
 
     /**
      * Returns an optional object which might be empty or wraps an object if the user table contains
-     * a {@link User} object having the same name as the parameter. Currently will get all users in
-     * the user table and iterate through them to find the match. May refactor to use a different
-     * SQL query
+     * a {@link User} object having the same name as the parameter. Looks the user up by its
+     * primary key.
      *
      * @param name The name of the User.
      * @return Optional object.
@@ -126,37 +224,56 @@ public class UserDB implements IUserDB {
      */
     @Override
     public Optional<User> findUserByName(String name) throws SQLException {
-        Set<User> userSet = getAllUsers();
-        for (User user : userSet) {
-            if (user.getUsername().equals(name)) {
-                return Optional.of(user);
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_USER)) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(getUser(resultSet));
+                }
+                return Optional.empty();
             }
         }
-        return Optional.empty();
     }
 
     /**
-     * Add a User in the User table.
+     * Add a User in the User table, in one statement that fails if the user is present.
      *
      * @param user User object.
+     * @throws UserAlreadyPresentException if a user with the same username or email is present.
      * @throws SQLException when query failed.
      */
     @Override
     public void addUser(User user) throws SQLException {
-        if (findUserByName(user.getUsername()).isPresent()) {
-            throw new UserAlreadyPresentException(String.format("User already present with name: %s"
-                    , user.getUsername()));
-        }
-        try (PreparedStatement statement = connect
-                .prepareStatement("insert into bowshot.user (username, password, email, " +
-                        "first_name, last_name, bio) values (?, ?, ?, ?, ?, ?)")) {
-            statement.setString(1, user.getUsername());
-            statement.setString(2, user.getPassword());
-            statement.setString(3, user.getEmail());
-            statement.setString(4, user.getFirstName());
-            statement.setString(5, user.getLastName());
-            statement.setString(6, user.getBio());
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_USER)) {
+            bindInsert(statement, user);
             statement.executeUpdate();
+        } catch (SQLException e) {
+            if (e instanceof SQLIntegrityConstraintViolationException
+                    || (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION))) {
+                throw new UserAlreadyPresentException(String.format("User already present with name: %s"
+                        , user.getUsername()));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Add Users in the User table with one batch in a single transaction. Users already present
+     * are left unchanged.
+     *
+     * @param users User objects.
+     * @throws SQLException when query failed, in which case none of the users are added.
+     */
+    public void addUsers(Collection<User> users) throws SQLException {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_USER_IF_ABSENT)) {
+            for (User user : users) {
+                bindInsert(statement, user);
+                statement.addBatch();
+            }
+            executeBatch(connection, statement);
         }
     }
 
@@ -168,13 +285,51 @@ public class UserDB implements IUserDB {
      */
     @Override
     public void removeUser(User user) throws SQLException {
-        try (PreparedStatement statement = connect
-                .prepareStatement("delete from bowshot.user where username = ?")) {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE_USER)) {
             statement.setString(1, user.getUsername());
             statement.executeUpdate();
         }
     }
 
+    /**
+     * Remove Users in the User table with one batch in a single transaction.
+     *
+     * @param users User objects.
+     * @throws SQLException when query failed, in which case none of the users are removed.
+     */
+    public void removeUsers(Collection<User> users) throws SQLException {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE_USER)) {
+            for (User user : users) {
+                statement.setString(1, user.getUsername());
+                statement.addBatch();
+            }
+            executeBatch(connection, statement);
+        }
+    }
+
+    /**
+     * Execute a statement batch in a single transaction.
+     *
+     * @param connection the connection of the statement.
+     * @param statement  the statement holding the batch.
+     * @throws SQLException when the batch failed, in which case it is rolled back.
+     */
+    private static void executeBatch(Connection connection, PreparedStatement statement) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            statement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
     /**
      * Remove all Users in the User table.
      *
@@ -182,8 +337,9 @@ public class UserDB implements IUserDB {
      */
     @Override
     public void removeAllUsers() throws SQLException {
-        try (Statement statement = connect.createStatement()) {
-            statement.executeUpdate("delete from bowshot.user");
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE_USERS)) {
+            statement.executeUpdate();
         }
     }
 
@@ -195,26 +351,29 @@ public class UserDB implements IUserDB {
      */
     @Override
     public void updateUser(User user) throws SQLException {
-        try (PreparedStatement statement = connect.prepareStatement("update bowshot.user set " +
-                "password = ?, email = ?, first_name = ?, last_name = ?, bio = ?, active = ? " +
-                "where username = ?")) {
-            statement.setString(7, user.getUsername());
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(UPDATE_USER)) {
             statement.setString(1, user.getPassword());
             statement.setString(2, user.getEmail());
             statement.setString(3, user.getFirstName());
             statement.setString(4, user.getLastName());
             statement.setString(5, user.getBio());
-            statement.setBoolean(6, user.getActive());
+            statement.setBoolean(6, user.getIsMod());
+            statement.setBoolean(7, user.getActive());
+            statement.setInt(8, user.getLoginAttempts());
+            statement.setTimestamp(9, user.getLockout());
+            statement.setInt(10, user.getAvatar() == null ? 0 : user.getAvatar());
+            statement.setString(11, user.getUsername());
             statement.executeUpdate();
         }
     }
 
     /**
-     * Setter for the connection.
+     * Setter for the connection pool.
      *
-     * @param connect connection.
+     * @param dataSource connection pool.
      */
-    public void setConnect(Connection connect) {
-        this.connect = connect;
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 }
@@ -0,0 +1,336 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache in front of another {@link IUserDB}. Users found by name are kept for a time
+ * to live, and the least recently used ones are evicted once the cache is full. Every write for a
+ * user through this class drops that user from the cache, so the next lookup reads it again.
+ * Changes made to a user's channels through the channel database are not seen by this class;
+ * call {@link #invalidate(String)} after them. The cache keeps its own copy of each user and hands
+ * out a new copy on every hit, so a caller changing the user it got cannot change what other
+ * callers see.
+ *
+ * @author Team 9
+ * @version dated 2019-12-05
+ */
+public class UserDBCache implements IUserDB {
+    /**
+     * Cache in front of the Hibernate database. Set the maximum number of users and the time to
+     * live in milliseconds with the system properties prattle.usercache.size and
+     * prattle.usercache.ttl
+     */
+    private static UserDBCache userDB = new UserDBCache(UserDBHibernate.getInstance(),
+            Integer.getInteger("prattle.usercache.size", 10000),
+            Long.getLong("prattle.usercache.ttl", 60000L));
+
+    /**
+     * The cached database
+     */
+    private final IUserDB delegate;
+    /**
+     * Maximum number of cached users
+     */
+    private final int maxSize;
+    /**
+     * Time to live of a cached user in nanoseconds
+     */
+    private final long ttlNanos;
+    /**
+     * Clock in nanoseconds
+     */
+    private final LongSupplier clock;
+    /**
+     * Cached users by username, least recently used first. Guarded by itself.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+    /**
+     * Incremented by every invalidation, so that a lookup racing with a write does not cache
+     * what it read before the write
+     */
+    private long generation = 0;
+    /**
+     * Statistics
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * A cached user and when it expires
+     */
+    private static class Entry {
+        private final User user;
+        private final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param delegate  the cached database
+     * @param maxSize   maximum number of cached users
+     * @param ttlMillis time to live of a cached user in milliseconds
+     */
+    public UserDBCache(IUserDB delegate, int maxSize, long ttlMillis) {
+        this(delegate, maxSize, ttlMillis, System::nanoTime);
+    }
+
+    /**
+     * Constructor with a clock, for tests
+     *
+     * @param delegate  the cached database
+     * @param maxSize   maximum number of cached users
+     * @param ttlMillis time to live of a cached user in milliseconds
+     * @param clock     clock in nanoseconds
+     */
+    UserDBCache(IUserDB delegate, int maxSize, long ttlMillis, LongSupplier clock) {
+        if (maxSize < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("size and time to live must be positive");
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserDBCache.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Call this method to return the cache in front of the Hibernate database.
+     *
+     * @return the instance
+     */
+    public static UserDBCache getInstance() {
+        return userDB;
+    }
+
+    /**
+     * Set test mode for the cached database and empty the cache.
+     */
+    @Override
+    public void testMode() {
+        delegate.testMode();
+        invalidateAll();
+    }
+
+    /**
+     * Get all users from the cached database. Not cached.
+     *
+     * @return set of all users.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public Set<User> getAllUsers() throws SQLException {
+        return delegate.getAllUsers();
+    }
+
+    /**
+     * Get the public profile of every user from the cached database. Not cached.
+     *
+     * @return list of user summaries.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public List<UserSummary> getUserSummaries() throws SQLException {
+        return delegate.getUserSummaries();
+    }
+
+    /**
+     * Find a user by name, from the cache if it holds the user and it has not expired.
+     *
+     * @param name The name of the user.
+     * @return Optional object.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public Optional<User> findUserByName(String name) throws SQLException {
+        long loadGeneration;
+        synchronized (entries) {
+            Entry entry = entries.get(name);
+            if (entry != null) {
+                if (entry.expiresAt - clock.getAsLong() > 0) {
+                    hitCount.incrementAndGet();
+                    return Optional.of(new User(entry.user));
+                }
+                entries.remove(name);
+                evictionCount.incrementAndGet();
+            }
+            loadGeneration = generation;
+        }
+        missCount.incrementAndGet();
+        Optional<User> user = delegate.findUserByName(name);
+        if (user.isPresent()) {
+            synchronized (entries) {
+                if (generation == loadGeneration) {
+                    entries.put(name, new Entry(new User(user.get()), clock.getAsLong() + ttlNanos));
+                }
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Add a user in the cached database.
+     *
+     * @param user User object.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public void addUser(User user) throws SQLException {
+        try {
+            delegate.addUser(user);
+        } finally {
+            invalidate(user.getUsername());
+        }
+    }
+
+    /**
+     * Remove a user in the cached database.
+     *
+     * @param user User Object.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public void removeUser(User user) throws SQLException {
+        try {
+            delegate.removeUser(user);
+        } finally {
+            invalidate(user.getUsername());
+        }
+    }
+
+    /**
+     * Remove all users in the cached database.
+     *
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public void removeAllUsers() throws SQLException {
+        try {
+            delegate.removeAllUsers();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Update a user in the cached database. This is also how a user's active status is changed.
+     * The user is dropped from the cache even if the update fails, since the caller may have
+     * changed the cached object already.
+     *
+     * @param user the user to update on.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public void updateUser(User user) throws SQLException {
+        try {
+            delegate.updateUser(user);
+        } finally {
+            invalidate(user.getUsername());
+        }
+    }
+
+    /**
+     * Drop a user from the cache
+     *
+     * @param username the username
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Drop every user from the cache
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    /**
+     * Getter for the number of cached users
+     *
+     * @return cache size
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Getter for the number of lookups served by the cache
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Getter for the number of lookups that went to the cached database
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Getter for the number of users dropped because they expired or the cache was full
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Share of the lookups served by the cache
+     *
+     * @return between 0 and 1, 0 if there was no lookup
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Reset the statistics
+     */
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+}
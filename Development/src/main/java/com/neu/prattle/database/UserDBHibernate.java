@@ -1,9 +1,12 @@
 package com.neu.prattle.database;
 
+import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
 import com.neu.prattle.utils.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.query.Query;
 
 import java.sql.SQLException;
@@ -23,6 +26,19 @@ public class UserDBHibernate implements IUserDB {
      * singleton
      */
     private static UserDBHibernate userDB = new UserDBHibernate();
+
+    /**
+     * Vendor codes of a duplicate key on MySQL: ER_DUP_ENTRY and ER_DUP_ENTRY_WITH_KEY_NAME.
+     * MySQL reports every integrity violation, NOT NULL included, with SQL state 23000, so the
+     * state alone does not tell a duplicate user.
+     */
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final int MYSQL_DUPLICATE_ENTRY_WITH_KEY_NAME = 1586;
+    /**
+     * SQL state of a unique violation on databases that report it apart, such as H2
+     */
+    private static final String UNIQUE_VIOLATION = "23505";
+
     public static UserDBHibernate getInstance() {
         return userDB;
     }
@@ -53,6 +69,23 @@ public class UserDBHibernate implements IUserDB {
         return userSet;
     }
 
+    /**
+     * Get the public profile of every user, ordered by username. Selects only the summary columns
+     * into {@link UserSummary} objects, no user entity is loaded.
+     *
+     * @return list of user summaries
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public List<UserSummary> getUserSummaries() throws SQLException {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery("select new com.neu.prattle.model.UserSummary(u.username, u.firstName, "
+                    + "u.lastName, u.bio, u.avatar, u.active) from User u order by u.username", UserSummary.class).list();
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage());
+        }
+    }
+
     /***
      * Returns an optional object which might be empty or wraps an object
      * if the Database contains a {@link User} object having the same name
@@ -77,9 +110,10 @@ public class UserDBHibernate implements IUserDB {
     }
 
     /***
-     * Add a user in the database
+     * Add a user in the database. The unique keys of the user table decide whether the user is
+     * already present, so concurrent adds of the same user need no lock: exactly one succeeds.
      * @param user User object
-     *
+     * @throws UserAlreadyPresentException if a user with the same username or email is present
      */
     @Override
     public void addUser(User user) throws SQLException {
@@ -89,13 +123,36 @@ public class UserDBHibernate implements IUserDB {
             session.save(user);
             transaction.commit();
         } catch (Exception e) {
-            if (transaction != null) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
+            if (isUniqueViolation(e)) {
+                throw new UserAlreadyPresentException(String.format("User already present with name: %s"
+                        , user.getUsername()));
+            }
             throw new SQLException(e.getMessage());
         }
     }
 
+    /**
+     * Whether an exception was caused by a duplicate key. Other constraint violations, such as a
+     * missing value for a NOT NULL column, are not.
+     *
+     * @param e the exception
+     * @return true if a unique key violation is among its causes
+     */
+    private static boolean isUniqueViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                ConstraintViolationException violation = (ConstraintViolationException) cause;
+                return violation.getErrorCode() == MYSQL_DUPLICATE_ENTRY
+                        || violation.getErrorCode() == MYSQL_DUPLICATE_ENTRY_WITH_KEY_NAME
+                        || UNIQUE_VIOLATION.equals(violation.getSQLState());
+            }
+        }
+        return false;
+    }
+
     /**
      * remove a user in the database
      *
@@ -2,18 +2,27 @@ package com.neu.prattle.database;
 
 import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
 
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Class that implements IUserDB to create a database in memory. This acts similar to a remote
  * database, but allows for testing and working with methods before setting up the actual
  * database implementation.
  *
+ * Users are kept in a concurrent map by username, so lookups are constant time and every change
+ * is a single atomic map operation.
+ *
  * @author Team 9
- * @version 2019-10-30
+ * @version 2019-12-06
  */
 public class UserDBInMemory implements IUserDB {
 
@@ -22,9 +31,9 @@ public class UserDBInMemory implements IUserDB {
      */
     private static UserDBInMemory userDB;
     /**
-     * Hash set of users.
+     * Users by username.
      */
-    private Set<User> userSet = new HashSet<>();
+    private final Map<String, User> users = new ConcurrentHashMap<>();
 
     /**
      * UserDBInMemory is a Singleton class.
@@ -66,12 +75,7 @@ public class UserDBInMemory implements IUserDB {
      */
     @Override
     public Optional<User> findUserByName(String name) {
-        for (User user:userSet){
-            if (user.getUsername().equals(name)){
-                return Optional.of(user);
-            }
-        }
-        return Optional.empty();
+        return name == null ? Optional.empty() : Optional.ofNullable(users.get(name));
     }
 
     /**
@@ -82,10 +86,9 @@ public class UserDBInMemory implements IUserDB {
      */
     @Override
     public void addUser(User user) {
-        if (userSet.contains(user))
+        if (users.putIfAbsent(user.getUsername(), user) != null)
             throw new UserAlreadyPresentException(String.format("User already present with name: %s"
                     , user.getUsername()));
-        userSet.add(user);
     }
 
     /**
@@ -95,7 +98,7 @@ public class UserDBInMemory implements IUserDB {
      */
     @Override
     public void removeUser(User user) {
-        userSet.remove(user);
+        users.remove(user.getUsername());
     }
 
     /**
@@ -103,7 +106,7 @@ public class UserDBInMemory implements IUserDB {
      */
     @Override
     public void removeAllUsers() {
-        userSet = new HashSet<>();
+        users.clear();
     }
 
     /**
@@ -113,21 +116,29 @@ public class UserDBInMemory implements IUserDB {
      */
     @Override
     public Set<User> getAllUsers() {
-        return userSet;
+        return new HashSet<>(users.values());
+    }
+
+    /**
+     * Get the public profile of every user, ordered by username.
+     *
+     * @return list of user summaries.
+     */
+    @Override
+    public List<UserSummary> getUserSummaries() {
+        return getAllUsers().stream()
+                .map(UserSummary::of)
+                .sorted(Comparator.comparing(UserSummary::getUsername))
+                .collect(Collectors.toList());
     }
 
     /**
-     * Update a user in the database.
+     * Update a user in the database, replacing the user with the same username if there is one.
      *
      * @param user the user to update on.
      */
     @Override
     public void updateUser(User user) {
-        Optional<User> optionalUser = findUserByName(user.getUsername());
-        if (!optionalUser.isPresent()){
-            return;
-        }
-        removeUser(optionalUser.get());
-        addUser(user);
+        users.replace(user.getUsername(), user);
     }
 }
@@ -6,21 +6,46 @@ import com.google.gson.stream.JsonReader;
 
 import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
+import com.neu.prattle.utils.GsonUtil;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
- * Implementation of {@link IUserDB} using json. It stores the user in a json file called user .json
+ * Implementation of {@link IUserDB} using json. It stores the user in a json file called user.json
  * in the Development directory.
  *
+ * The file is read once, on first use, into an index by username that serves every read. Each
+ * change is appended as one line to the log file user.json.log instead of rewriting user.json.
+ * Once the log holds more entries than the threshold set by the system property
+ * prattle.userjson.compactThreshold, and more than there are users, a background thread compacts
+ * it: the users are written to a temporary file that then replaces user.json in one atomic rename,
+ * so user.json is never seen half written. At startup the log is replayed on top of user.json.
+ *
  * @author Team 9
- * @version 2019-10-30
+ * @version 2019-12-06
  */
 public class UserDBJson implements IUserDB {
 
@@ -51,113 +76,410 @@ public class UserDBJson implements IUserDB {
         return userDB;
     }
 
+    /**
+     * A change appended to the log
+     */
+    private static class LogEntry {
+        /**
+         * Add or replace a user
+         */
+        static final String PUT = "put";
+        /**
+         * Remove a user
+         */
+        static final String REMOVE = "remove";
+        /**
+         * Remove all users
+         */
+        static final String CLEAR = "clear";
+
+        private String op;
+        private User user;
+        private String username;
+
+        LogEntry(String op, User user, String username) {
+            this.op = op;
+            this.user = user;
+            this.username = username;
+        }
+    }
+
     /**
      * the logger
      */
     private Logger logger = Logger.getLogger(this.getClass().getName());
 
+    /**
+     * Minimum number of log entries before the log is compacted
+     */
+    private final int compactThreshold = Integer.getInteger("prattle.userjson.compactThreshold", 1000);
+
+    /**
+     * Compacts the log in the background
+     */
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "prattle-userjson-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Writes users and log entries
+     */
+    private final Gson gson = GsonUtil.getGson();
+
     /**
      * stores the user in user.json
      */
     private String jsonFile = "user.json";
 
     /**
-     * read all users in the json file
+     * The users by username, null until the file is loaded
+     */
+    private Map<String, User> users;
+
+    /**
+     * Appends to the log, null until the file is loaded
+     */
+    private Writer logWriter;
+
+    /**
+     * Number of entries in the log
+     */
+    private int logEntries;
+
+    /**
+     * Held for the whole of a compaction, so that compactions run one at a time
+     */
+    private final Object compactLock = new Object();
+
+    /**
+     * Whether a compaction is scheduled or running
+     */
+    private boolean compacting;
+
+    /**
+     * Path of the log
+     */
+    private Path logPath() {
+        return Paths.get(jsonFile + ".log");
+    }
+
+    /**
+     * Path the log is moved to while it is compacted
+     */
+    private Path compactingLogPath() {
+        return Paths.get(jsonFile + ".log.compacting");
+    }
+
+    /**
+     * Get the index, loading user.json and replaying the logs on first use.
      *
-     * @return a set of all users in the json file
+     * @return the users by username
      */
-    public Set<User> getAllUsers() {
+    private Map<String, User> index() {
+        if (users == null) {
+            users = new HashMap<>();
+            for (User user : readUsers(Paths.get(jsonFile))) {
+                users.put(user.getUsername(), user);
+            }
+            // a log left by a compaction that did not finish is older than the current log
+            logEntries = replay(compactingLogPath()) + replay(logPath());
+            try {
+                boolean torn = endsTorn(logPath());
+                logWriter = Files.newBufferedWriter(logPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                if (torn) {
+                    // keep the next entry off the partly written line
+                    logWriter.write('\n');
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e.getMessage());
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Whether a log file ends in a partly written line
+     *
+     * @param path the log file
+     * @return true if the file is not empty and does not end with a line break
+     * @throws IOException if the file cannot be read
+     */
+    private static boolean endsTorn(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return false;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            file.seek(file.length() - 1);
+            return file.read() != '\n';
+        }
+    }
+
+    /**
+     * Read a file holding a JSON array of users
+     *
+     * @param path the file
+     * @return the users, empty if the file does not exist or cannot be read
+     */
+    private Set<User> readUsers(Path path) {
         Set<User> userSet = new HashSet<>();
+        if (!Files.exists(path)) {
+            return userSet;
+        }
         Type type = new TypeToken<HashSet<User>>() {
         }.getType();
-        try (JsonReader reader = new JsonReader(new FileReader(jsonFile))) {
-            Gson gson = new Gson();
-            userSet = gson.fromJson(reader, type);
-        } catch (IOException e) {
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            Set<User> read = gson.fromJson(reader, type);
+            if (read != null) {
+                userSet = read;
+            }
+        } catch (IOException | RuntimeException e) {
             logger.log(Level.SEVERE, e.getMessage());
         }
         return userSet;
     }
 
     /**
-     * overwrite the user json file
+     * Apply the entries of a log file to the index. A partly written last line, left by a crash,
+     * is skipped.
      *
-     * @param userSet the user set to write
-     */
-    private void saveUsers(Set<User> userSet) {
-        Gson gson = new Gson();
-        String json = gson.toJson(userSet);
-        try (
-                BufferedWriter writer = new BufferedWriter(new FileWriter(jsonFile))
-        ) {
-            writer.write(json);
+     * @param path the log file
+     * @return number of entries applied
+     */
+    private int replay(Path path) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    LogEntry entry = gson.fromJson(line, LogEntry.class);
+                    if (entry != null) {
+                        apply(entry);
+                        applied++;
+                    }
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Skipping unreadable log entry in {0}", path);
+                }
+            }
         } catch (IOException e) {
             logger.log(Level.SEVERE, e.getMessage());
         }
+        return applied;
+    }
+
+    /**
+     * Apply a log entry to the index
+     *
+     * @param entry the entry
+     */
+    private void apply(LogEntry entry) {
+        if (LogEntry.PUT.equals(entry.op)) {
+            users.put(entry.user.getUsername(), entry.user);
+        } else if (LogEntry.REMOVE.equals(entry.op)) {
+            users.remove(entry.username);
+        } else if (LogEntry.CLEAR.equals(entry.op)) {
+            users.clear();
+        }
+    }
+
+    /**
+     * Append a change to the log and schedule a compaction if the log has grown past the
+     * threshold. Called with the index loaded and the lock held.
+     *
+     * @param entry the change
+     */
+    private void append(LogEntry entry) {
+        if (logWriter == null) {
+            return;
+        }
+        try {
+            logWriter.write(gson.toJson(entry));
+            logWriter.write('\n');
+            logWriter.flush();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+        }
+        logEntries++;
+        if (!compacting && logEntries >= compactThreshold && logEntries > users.size()) {
+            compacting = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * read all users in the json file
+     *
+     * @return a set of all users in the json file
+     */
+    public synchronized Set<User> getAllUsers() {
+        return new HashSet<>(index().values());
+    }
+
+    /**
+     * Get the public profile of every user, ordered by username.
+     *
+     * @return list of user summaries.
+     */
+    @Override
+    public List<UserSummary> getUserSummaries() {
+        return getAllUsers().stream()
+                .map(UserSummary::of)
+                .sorted(Comparator.comparing(UserSummary::getUsername))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Write the users to user.json and empty the log. The current log is moved aside under the
+     * lock, the users are written outside of it to a temporary file that atomically replaces
+     * user.json, and the moved log is deleted last. Changes made meanwhile go to a new log.
+     */
+    public void compact() {
+        synchronized (compactLock) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Move the log aside and write the users to user.json. Called with the compaction lock held.
+     */
+    private void writeSnapshot() {
+        Collection<User> snapshot;
+        Path target;
+        Path movedLog;
+        synchronized (this) {
+            // nothing to do if closed since the compaction was scheduled
+            if (users == null || logWriter == null) {
+                compacting = false;
+                return;
+            }
+            snapshot = new ArrayList<>(users.values());
+            try {
+                logWriter.close();
+                if (Files.exists(compactingLogPath())) {
+                    // left by a compaction that failed, its entries are not in user.json yet
+                    Files.write(compactingLogPath(), Files.readAllBytes(logPath()), StandardOpenOption.APPEND);
+                    Files.delete(logPath());
+                } else {
+                    Files.move(logPath(), compactingLogPath());
+                }
+                logWriter = Files.newBufferedWriter(logPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e.getMessage());
+                compacting = false;
+                return;
+            }
+            logEntries = 0;
+            target = Paths.get(jsonFile);
+            movedLog = compactingLogPath();
+        }
+        Path tempFile = Paths.get(target + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            }
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(movedLog);
+        } catch (IOException e) {
+            // the moved log is kept and replayed at the next start
+            logger.log(Level.SEVERE, e.getMessage());
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Wait for the compactions scheduled so far to finish
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitCompaction() throws InterruptedException {
+        try {
+            compactor.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+        }
     }
 
     /**
      * use test_user.json instead of user.json
      */
     @Override
-    public void testMode() {
+    public synchronized void testMode() {
+        close();
         jsonFile = "test_user.json";
     }
 
-    @Override
-    public Optional<User> findUserByName(String name) {
-        Set<User> userSet = getAllUsers();
-        for (User user : userSet) {
-            if (user.getUsername().equals(name)) {
-                return Optional.of(user);
+    /**
+     * Close the log and drop the index, so that the next call reads the file again.
+     */
+    synchronized void close() {
+        if (logWriter != null) {
+            try {
+                logWriter.close();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, e.getMessage());
             }
         }
-        return Optional.empty();
+        logWriter = null;
+        users = null;
+    }
+
+    @Override
+    public synchronized Optional<User> findUserByName(String name) {
+        return Optional.ofNullable(index().get(name));
     }
 
     /** Adds a User to the JSON database.
      * @param user User object to add
      */
     @Override
-    public void addUser(User user) {
-        Set<User> userSet = getAllUsers();
-        if (userSet.contains(user))
+    public synchronized void addUser(User user) {
+        if (index().containsKey(user.getUsername()))
             throw new UserAlreadyPresentException(String.format("User already present with name: %s", user.getUsername()));
 
-        userSet.add(user);
-        saveUsers(userSet);
+        users.put(user.getUsername(), user);
+        append(new LogEntry(LogEntry.PUT, user, null));
     }
 
     /** Removes a User from the JSON database.
      * @param user User Object to remove
      */
     @Override
-    public void removeUser(User user) {
-        Set<User> userSet = getAllUsers();
-        userSet.remove(user);
-        saveUsers(userSet);
+    public synchronized void removeUser(User user) {
+        if (index().remove(user.getUsername()) != null) {
+            append(new LogEntry(LogEntry.REMOVE, null, user.getUsername()));
+        }
     }
 
     /**
-     * Removes all Users from the database by re-initializing a new, empty hashset of Users.
+     * Removes all Users from the database.
      */
     @Override
-    public void removeAllUsers() {
-        Set<User> userSet = new HashSet<>();
-        saveUsers(userSet);
+    public synchronized void removeAllUsers() {
+        index().clear();
+        append(new LogEntry(LogEntry.CLEAR, null, null));
     }
 
-    /** Updates a User in the database by removing them, then adding them. This can change their bio, avatar,
-     * or other non-integral properties (it wouldn't be used to change their username).
+    /** Updates a User in the database by replacing the stored user with the same username. This can
+     * change their bio, avatar, or other non-integral properties (it wouldn't be used to change their
+     * username).
      * @param user the user to update on.
      */
     @Override
-    public void updateUser(User user) {
-        Optional<User> optionalUser = findUserByName(user.getUsername());
-        if (!optionalUser.isPresent()) {
+    public synchronized void updateUser(User user) {
+        if (!index().containsKey(user.getUsername())) {
             return;
         }
-        removeUser(optionalUser.get());
-        addUser(user);
+        users.put(user.getUsername(), user);
+        append(new LogEntry(LogEntry.PUT, user, null));
     }
 }
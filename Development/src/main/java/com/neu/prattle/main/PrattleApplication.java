@@ -3,6 +3,8 @@ package com.neu.prattle.main;
 import com.neu.prattle.controller.CMController;
 import com.neu.prattle.controller.ChannelController;
 import com.neu.prattle.controller.DMController;
+import com.neu.prattle.controller.GsonProvider;
+import com.neu.prattle.controller.UnwrittenEntityFilter;
 import com.neu.prattle.controller.UserController;
 
 import javax.ws.rs.core.Application;
@@ -28,6 +30,8 @@ public class PrattleApplication extends Application {
         resourceClasses.add(DMController.class);
         resourceClasses.add(CMController.class);
         resourceClasses.add(ChannelController.class);
+        resourceClasses.add(GsonProvider.class);
+        resourceClasses.add(UnwrittenEntityFilter.class);
         return resourceClasses;
     }
 }
@@ -0,0 +1,59 @@
+package com.neu.prattle.main;
+
+import com.neu.prattle.database.MessageDBHibernate;
+import com.neu.prattle.database.UserDBCache;
+import com.neu.prattle.service.MessageService;
+import com.neu.prattle.utils.HibernateUtil;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hooks into the lifecycle of the web application. On startup, the session factory and its
+ * connection pool are built and direct messages stored before conversation keys existed get their
+ * key. On shutdown, every message still queued by the write-behind stage is stored and the
+ * connection pool is closed before the application goes away.
+ *
+ * @author Team 9
+ * @version dated 2019-12-04
+ */
+public class PrattleContextListener implements ServletContextListener {
+    /**
+     * The logger
+     */
+    private static Logger logger = Logger.getLogger(PrattleContextListener.class.getName());
+
+    /**
+     * Build the session factory and backfill the conversation keys on startup.
+     *
+     * @param servletContextEvent the event
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent servletContextEvent) {
+        HibernateUtil.init();
+        logger.log(Level.INFO, "Connection pool: {0}", HibernateUtil.getPoolMetrics());
+        try {
+            int updated = MessageDBHibernate.getInstance().backfillConversationKeys();
+            logger.log(Level.INFO, "Set the conversation key of {0} messages", updated);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+        }
+    }
+
+    /**
+     * Store the queued messages and close the connection pool on shutdown.
+     *
+     * @param servletContextEvent the event
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        UserDBCache userCache = UserDBCache.getInstance();
+        logger.log(Level.INFO, "User cache: {0} hits, {1} misses, {2} evictions",
+                new Object[]{userCache.getHitCount(), userCache.getMissCount(), userCache.getEvictionCount()});
+        MessageService.getInstance().shutdown();
+        HibernateUtil.shutdown();
+    }
+}
@@ -13,7 +13,16 @@ import java.util.Set;
  */
 @Entity
 @Table(name = "channel")
+@NamedEntityGraph(name = Channel.MEMBERS_GRAPH, attributeNodes = {
+        @NamedAttributeNode("mods"),
+        @NamedAttributeNode("participants")
+})
 public class Channel implements Serializable {
+    /**
+     * Entity graph fetching the mods and participants of a channel, which are lazy otherwise.
+     */
+    public static final String MEMBERS_GRAPH = "Channel.members";
+
     /**
      * Channel ID.
      */
@@ -29,9 +38,9 @@ public class Channel implements Serializable {
     private String name;
 
     /**
-     * This Channel's mods.
+     * This Channel's mods. Lazy, see {@link #MEMBERS_GRAPH}.
      */
-    @ManyToMany(fetch=FetchType.EAGER, cascade = { CascadeType.MERGE })
+    @ManyToMany(fetch=FetchType.LAZY, cascade = { CascadeType.MERGE })
     @JoinTable(
             name = "channel_mod",
             joinColumns = {@JoinColumn(name = "channel_id")},
@@ -40,9 +49,9 @@ public class Channel implements Serializable {
     private Set<User> mods = new HashSet<>();
 
     /**
-     * Set of users.
+     * Set of users. Lazy, see {@link #MEMBERS_GRAPH}.
      */
-    @ManyToMany(fetch=FetchType.EAGER, cascade = { CascadeType.MERGE })
+    @ManyToMany(fetch=FetchType.LAZY, cascade = { CascadeType.MERGE })
     @JoinTable(
             name = "channel_user",
             joinColumns = {@JoinColumn(name = "channel_id")},
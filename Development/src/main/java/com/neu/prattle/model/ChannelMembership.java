@@ -0,0 +1,164 @@
+package com.neu.prattle.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A compact, immutable view of a {@link Channel}: its id, name and the usernames of its
+ * participants and mods, without the User entities behind them. Changes return a new view, so a
+ * view can be shared between threads.
+ *
+ * @author Team 9
+ * @version dated 2019-12-05
+ */
+public class ChannelMembership {
+    /**
+     * Channel id
+     */
+    private final int id;
+    /**
+     * Channel name
+     */
+    private final String name;
+    /**
+     * Usernames of the participants
+     */
+    private final Set<String> participants;
+    /**
+     * Usernames of the mods
+     */
+    private final Set<String> mods;
+
+    /**
+     * Constructor
+     *
+     * @param id           channel id
+     * @param name         channel name
+     * @param participants usernames of the participants
+     * @param mods         usernames of the mods
+     */
+    public ChannelMembership(int id, String name, Collection<String> participants, Collection<String> mods) {
+        this.id = id;
+        this.name = name;
+        this.participants = Collections.unmodifiableSet(new HashSet<>(participants));
+        this.mods = Collections.unmodifiableSet(new HashSet<>(mods));
+    }
+
+    /**
+     * Create the view of a channel entity
+     *
+     * @param channel the channel
+     * @return the view
+     */
+    public static ChannelMembership of(Channel channel) {
+        Set<String> participants = new HashSet<>();
+        for (User user : channel.getParticipants()) {
+            participants.add(user.getUsername());
+        }
+        Set<String> mods = new HashSet<>();
+        for (User user : channel.getMods()) {
+            mods.add(user.getUsername());
+        }
+        return new ChannelMembership(channel.getId(), channel.getName(), participants, mods);
+    }
+
+    /**
+     * Getter for the channel id
+     *
+     * @return channel id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Getter for the channel name
+     *
+     * @return channel name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the usernames of the participants
+     *
+     * @return unmodifiable set of usernames
+     */
+    public Set<String> getParticipants() {
+        return participants;
+    }
+
+    /**
+     * Getter for the usernames of the mods
+     *
+     * @return unmodifiable set of usernames
+     */
+    public Set<String> getMods() {
+        return mods;
+    }
+
+    /**
+     * Whether the input user is a participant or a mod of the channel
+     *
+     * @param username the username
+     * @return true if a member
+     */
+    public boolean isMember(String username) {
+        return participants.contains(username) || mods.contains(username);
+    }
+
+    /**
+     * The view with the input user added as a participant
+     *
+     * @param username the username
+     * @return the new view
+     */
+    public ChannelMembership withParticipant(String username) {
+        Set<String> newParticipants = new HashSet<>(participants);
+        newParticipants.add(username);
+        return new ChannelMembership(id, name, newParticipants, mods);
+    }
+
+    /**
+     * The view with the input user removed from the participants
+     *
+     * @param username the username
+     * @return the new view
+     */
+    public ChannelMembership withoutParticipant(String username) {
+        Set<String> newParticipants = new HashSet<>(participants);
+        newParticipants.remove(username);
+        return new ChannelMembership(id, name, newParticipants, mods);
+    }
+
+    /**
+     * The view with the input user moved from the participants to the mods
+     *
+     * @param username the username
+     * @return the new view
+     */
+    public ChannelMembership withPromoted(String username) {
+        Set<String> newParticipants = new HashSet<>(participants);
+        newParticipants.remove(username);
+        Set<String> newMods = new HashSet<>(mods);
+        newMods.add(username);
+        return new ChannelMembership(id, name, newParticipants, newMods);
+    }
+
+    /**
+     * The view with the input user moved from the mods to the participants
+     *
+     * @param username the username
+     * @return the new view
+     */
+    public ChannelMembership withDemoted(String username) {
+        Set<String> newParticipants = new HashSet<>(participants);
+        newParticipants.add(username);
+        Set<String> newMods = new HashSet<>(mods);
+        newMods.remove(username);
+        return new ChannelMembership(id, name, newParticipants, newMods);
+    }
+}
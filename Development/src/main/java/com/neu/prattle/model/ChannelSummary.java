@@ -0,0 +1,90 @@
+package com.neu.prattle.model;
+
+/**
+ * A read model of a {@link Channel} for listing channels: its id, name and how many participants
+ * and mods it has, without the users themselves. Built straight from a query, so listing channels
+ * neither loads nor serializes their members.
+ *
+ * @author Team 9
+ * @version dated 2019-12-06
+ */
+public class ChannelSummary {
+    /**
+     * Channel id
+     */
+    private final int id;
+    /**
+     * Channel name
+     */
+    private final String name;
+    /**
+     * Number of participants
+     */
+    private final long participantCount;
+    /**
+     * Number of mods
+     */
+    private final long modCount;
+
+    /**
+     * Constructor, also used by the HQL constructor projection
+     *
+     * @param id               channel id
+     * @param name             channel name
+     * @param participantCount number of participants
+     * @param modCount         number of mods
+     */
+    public ChannelSummary(int id, String name, long participantCount, long modCount) {
+        this.id = id;
+        this.name = name;
+        this.participantCount = participantCount;
+        this.modCount = modCount;
+    }
+
+    /**
+     * Create the summary of a channel entity
+     *
+     * @param channel the channel
+     * @return the summary
+     */
+    public static ChannelSummary of(Channel channel) {
+        return new ChannelSummary(channel.getId(), channel.getName(),
+                channel.getParticipants().size(), channel.getMods().size());
+    }
+
+    /**
+     * Getter for the channel id
+     *
+     * @return channel id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Getter for the channel name
+     *
+     * @return channel name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the number of participants
+     *
+     * @return number of participants
+     */
+    public long getParticipantCount() {
+        return participantCount;
+    }
+
+    /**
+     * Getter for the number of mods
+     *
+     * @return number of mods
+     */
+    public long getModCount() {
+        return modCount;
+    }
+}
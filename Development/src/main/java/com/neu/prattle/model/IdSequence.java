@@ -0,0 +1,72 @@
+package com.neu.prattle.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * A named sequence of ids, stored so that every server reserving ids from it gets a block no
+ * other server has. The row holds the first id not yet given out.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+@Entity
+@Table(name = "id_sequence")
+public class IdSequence implements Serializable {
+    /**
+     * Name of the sequence the ids of messages come from.
+     */
+    public static final String MESSAGE = "message";
+
+    /**
+     * Name of the sequence.
+     */
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    /**
+     * The first id not yet given out.
+     */
+    @Column(name = "next_id", nullable = false)
+    private int nextId;
+
+    /**
+     * Getter for the name of the sequence.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Setter for the name of the sequence.
+     *
+     * @param name the name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Getter for the first id not yet given out.
+     *
+     * @return the next id
+     */
+    public int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Setter for the first id not yet given out.
+     *
+     * @param nextId the next id
+     */
+    public void setNextId(int nextId) {
+        this.nextId = nextId;
+    }
+}
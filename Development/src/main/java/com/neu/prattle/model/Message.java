@@ -1,8 +1,5 @@
 package com.neu.prattle.model;
 
-import org.codehaus.jackson.annotate.JsonIgnore;
-import org.hibernate.annotations.Formula;
-
 import javax.persistence.*;
 import java.io.Serializable;
 import java.sql.Timestamp;
@@ -14,20 +11,34 @@ import java.sql.Timestamp;
  * @version dated 2019-10-29
  */
 @Entity
-@Table(name = "message")
+@Table(name = "message", indexes = {
+        @Index(name = "idx_message_channel_time", columnList = "to_channel, timestamp, id"),
+        @Index(name = "idx_message_from_time", columnList = "from_username, timestamp, id"),
+        @Index(name = "idx_message_to_time", columnList = "to_username, timestamp, id"),
+        @Index(name = "idx_message_conversation_time", columnList = "conversation_key, timestamp, id")
+})
 public class Message implements Serializable {
     /**
-     * Message ID.
+     * Separator between the usernames of a conversation key.
+     */
+    public static final String CONVERSATION_KEY_SEPARATOR = "|";
+
+    /**
+     * Separator between the length of the first username of a conversation key and the username.
+     */
+    public static final String CONVERSATION_KEY_LENGTH_SEPARATOR = ":";
+
+    /**
+     * Message ID. Assigned before the message is stored, from the block of ids the server
+     * reserved in the {@link IdSequence} table.
      */
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
     /**
      * the user who sent this message
      */
-    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "from_username", insertable = false, updatable = false)
     private transient User fromUser;
@@ -39,15 +50,15 @@ public class Message implements Serializable {
     private String fromUsername;
 
     /**
-     * The avatar id of the user who sent this message
+     * The avatar id of the user who sent this message. Not stored; set by the message queries and
+     * by the endpoint that receives the message.
      */
-    @Formula("(select user.avatar from user where user.username = from_username)")
+    @Transient
     private Integer fromAvatar = null;
 
     /**
      * the user to whom the message is sent.
      */
-    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "to_username", insertable = false, updatable = false)
     private transient User toUser;
@@ -59,15 +70,22 @@ public class Message implements Serializable {
     private String toUsername;
 
     /**
-     * The avatar id of the user to whom the message is sent
+     * The key of the direct message conversation, the same for both directions. Null for channel
+     * messages. See {@link #conversationKey(String, String)}
+     */
+    @Column(name = "conversation_key")
+    private String conversationKey;
+
+    /**
+     * The avatar id of the user to whom the message is sent. Not stored; set by the message
+     * queries.
      */
-    @Formula("(select user.avatar from user where user.username = to_username)")
+    @Transient
     private Integer toAvatar = null;
 
     /**
      * The channel to which the message is sent
      */
-    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "to_channel", insertable = false, updatable = false)
     private transient Channel toChannel;
@@ -116,6 +134,7 @@ public class Message implements Serializable {
      */
     public void setFromUsername(String from) {
         this.fromUsername = from;
+        updateConversationKey();
     }
 
     /**
@@ -134,6 +153,44 @@ public class Message implements Serializable {
      */
     public void setToUsername(String to) {
         this.toUsername = to;
+        updateConversationKey();
+    }
+
+    /**
+     * Getter for the key of the direct message conversation.
+     *
+     * @return the conversation key, null for channel messages.
+     */
+    public String getConversationKey() {
+        return conversationKey;
+    }
+
+    /**
+     * Recompute the conversation key from the from and to usernames.
+     */
+    private void updateConversationKey() {
+        if (fromUsername == null || toUsername == null) {
+            conversationKey = null;
+        } else {
+            conversationKey = conversationKey(fromUsername, toUsername);
+        }
+    }
+
+    /**
+     * The key of the direct message conversation between two users: the two usernames in sorted
+     * order joined by {@link #CONVERSATION_KEY_SEPARATOR}, prefixed with the length of the first
+     * one and {@link #CONVERSATION_KEY_LENGTH_SEPARATOR}, e.g. 2:u0|u1. Usernames may contain the
+     * separator, so the length tells where the first one ends: without it a|b and c would share
+     * the key of a and b|c. The key is the same whichever user is given first.
+     *
+     * @param user1 the first user's username.
+     * @param user2 the second user's username.
+     * @return the conversation key.
+     */
+    public static String conversationKey(String user1, String user2) {
+        String first = user1.compareTo(user2) <= 0 ? user1 : user2;
+        String second = first == user1 ? user2 : user1;
+        return first.length() + CONVERSATION_KEY_LENGTH_SEPARATOR + first + CONVERSATION_KEY_SEPARATOR + second;
     }
 
     /**
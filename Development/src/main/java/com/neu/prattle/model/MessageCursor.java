@@ -0,0 +1,164 @@
+package com.neu.prattle.model;
+
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * A position in a message history, given by the timestamp and id of a message. Messages are
+ * ordered by timestamp and then by id, so a cursor splits a history into the messages before it
+ * and the messages after it. The string form is "nanos_id" with the timestamp in nanoseconds
+ * since the epoch, e.g. "946684800000000000_42".
+ *
+ * @author Team 9
+ * @version dated 2019-12-04
+ */
+public class MessageCursor {
+    /**
+     * The history order, oldest first
+     */
+    public static final Comparator<Message> ORDER = Comparator
+            .comparing(Message::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(Message::getId);
+
+    /**
+     * Nanoseconds per second
+     */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * Timestamp of the message
+     */
+    private final Timestamp timestamp;
+    /**
+     * Id of the message
+     */
+    private final int id;
+
+    /**
+     * Constructor
+     *
+     * @param timestamp timestamp of the message
+     * @param id        id of the message
+     */
+    public MessageCursor(Timestamp timestamp, int id) {
+        this.timestamp = Objects.requireNonNull(timestamp, "timestamp");
+        this.id = id;
+    }
+
+    /**
+     * Create the cursor pointing at the input message
+     *
+     * @param message the message
+     * @return the cursor, null if the message has no timestamp
+     */
+    public static MessageCursor of(Message message) {
+        if (message.getTimestamp() == null) {
+            return null;
+        }
+        return new MessageCursor(message.getTimestamp(), message.getId());
+    }
+
+    /**
+     * Parse the string form of a cursor
+     *
+     * @param value cursor string, may be null
+     * @return the cursor, null if the input is null or empty
+     * @throws IllegalArgumentException if the input is not a valid cursor
+     */
+    public static MessageCursor parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int separator = value.indexOf('_');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Invalid cursor " + value);
+        }
+        try {
+            long nanos = Long.parseLong(value.substring(0, separator));
+            int id = Integer.parseInt(value.substring(separator + 1));
+            Timestamp timestamp = new Timestamp(Math.floorDiv(nanos, NANOS_PER_SECOND) * 1000);
+            timestamp.setNanos((int) Math.floorMod(nanos, NANOS_PER_SECOND));
+            return new MessageCursor(timestamp, id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor " + value);
+        }
+    }
+
+    /**
+     * Check if the input message comes before this cursor in history order
+     *
+     * @param message the message
+     * @return true if before
+     */
+    public boolean isBeforeCursor(Message message) {
+        return message.getTimestamp() != null && compareTo(message) > 0;
+    }
+
+    /**
+     * Check if the input message comes after this cursor in history order
+     *
+     * @param message the message
+     * @return true if after
+     */
+    public boolean isAfterCursor(Message message) {
+        return message.getTimestamp() != null && compareTo(message) < 0;
+    }
+
+    /**
+     * Compare this cursor with the position of a message
+     *
+     * @param message the message, must have a timestamp
+     * @return negative if the cursor comes first, 0 if equal, positive if the message comes first
+     */
+    private int compareTo(Message message) {
+        int result = timestamp.compareTo(message.getTimestamp());
+        return result != 0 ? result : Integer.compare(id, message.getId());
+    }
+
+    /**
+     * Getter for the timestamp
+     *
+     * @return timestamp of the message
+     */
+    public Timestamp getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Getter for the id
+     *
+     * @return id of the message
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MessageCursor)) {
+            return false;
+        }
+        MessageCursor other = (MessageCursor) o;
+        return id == other.id && timestamp.equals(other.timestamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, id);
+    }
+
+    /**
+     * The string form of the cursor, which {@link #parse(String)} reads back
+     *
+     * @return cursor string
+     */
+    @Override
+    public String toString() {
+        long nanos = Math.floorDiv(timestamp.getTime(), 1000) * NANOS_PER_SECOND + timestamp.getNanos();
+        return nanos + "_" + id;
+    }
+}
@@ -72,15 +72,17 @@ public class User implements Serializable {
     private Timestamp lockout;
 
     /**
-     * The channels that the user is participant of
+     * The channels that the user is participant of. Lazy: loading a user does not load its
+     * channels. Use {@link com.neu.prattle.service.IChannelService#getChannelsOfUser(String)}
+     * to get them.
      */
-    @ManyToMany(fetch = FetchType.EAGER, mappedBy = "participants")
+    @ManyToMany(fetch = FetchType.LAZY, mappedBy = "participants")
     private Set<Channel> channelSet = new HashSet<>();
 
     /**
-     * The channels that the user is mod of
+     * The channels that the user is mod of. Lazy, like the channel set.
      */
-    @ManyToMany(fetch = FetchType.EAGER, mappedBy = "mods")
+    @ManyToMany(fetch = FetchType.LAZY, mappedBy = "mods")
     private Set<Channel> modChannelSet = new HashSet<>();
 
     /**
@@ -158,6 +160,21 @@ public class User implements Serializable {
         setActive(active);
     }
 
+    /**
+     * Copy constructor. Copies the stored fields of the input user; the lazy channel sets are not
+     * copied and start out empty.
+     *
+     * @param user the user to copy.
+     */
+    public User(User user) {
+        this(user.getUsername(), user.getPassword(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), user.getBio(), user.getActive());
+        setIsMod(user.getIsMod());
+        setLoginAttempts(user.getLoginAttempts());
+        setLockout(user.getLockout() == null ? null : new Timestamp(user.getLockout().getTime()));
+        setAvatar(user.getAvatar());
+    }
+
     /***
      * Returns the hashCode of this object. As name can be treated as a sort of identifier for
      * this instance, we can use the hashCode of "name" for the complete object.
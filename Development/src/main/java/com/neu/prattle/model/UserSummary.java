@@ -0,0 +1,121 @@
+package com.neu.prattle.model;
+
+/**
+ * A read model of a {@link User} for listing users: the public profile only. The password, email,
+ * login attempts, lockout and channel sets of the user are left out. Built straight from a query,
+ * so listing users does not load the entities.
+ *
+ * @author Team 9
+ * @version dated 2019-12-06
+ */
+public class UserSummary {
+    /**
+     * Username
+     */
+    private final String username;
+    /**
+     * First name
+     */
+    private final String firstName;
+    /**
+     * Last name
+     */
+    private final String lastName;
+    /**
+     * Bio
+     */
+    private final String bio;
+    /**
+     * Avatar id
+     */
+    private final Integer avatar;
+    /**
+     * Whether the user is active
+     */
+    private final boolean active;
+
+    /**
+     * Constructor, also used by the HQL constructor projection
+     *
+     * @param username  username
+     * @param firstName first name
+     * @param lastName  last name
+     * @param bio       bio
+     * @param avatar    avatar id
+     * @param active    whether the user is active
+     */
+    public UserSummary(String username, String firstName, String lastName, String bio, Integer avatar,
+                       boolean active) {
+        this.username = username;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.bio = bio;
+        this.avatar = avatar;
+        this.active = active;
+    }
+
+    /**
+     * Create the summary of a user entity
+     *
+     * @param user the user
+     * @return the summary
+     */
+    public static UserSummary of(User user) {
+        return new UserSummary(user.getUsername(), user.getFirstName(), user.getLastName(), user.getBio(),
+                user.getAvatar(), user.getActive());
+    }
+
+    /**
+     * Getter for the username
+     *
+     * @return username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Getter for the first name
+     *
+     * @return first name
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * Getter for the last name
+     *
+     * @return last name
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * Getter for the bio
+     *
+     * @return bio
+     */
+    public String getBio() {
+        return bio;
+    }
+
+    /**
+     * Getter for the avatar id
+     *
+     * @return avatar id
+     */
+    public Integer getAvatar() {
+        return avatar;
+    }
+
+    /**
+     * Getter for whether the user is active
+     *
+     * @return true if active
+     */
+    public boolean getActive() {
+        return active;
+    }
+}
@@ -3,10 +3,14 @@ package com.neu.prattle.service;
 import com.neu.prattle.database.*;
 import com.neu.prattle.model.Channel;
 import com.neu.prattle.model.ChannelDTO;
+import com.neu.prattle.model.ChannelMembership;
+import com.neu.prattle.model.ChannelSummary;
 import com.neu.prattle.model.User;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implementation of {@link IChannelService}. Provides channel related services.
@@ -33,9 +37,14 @@ public class ChannelService implements IChannelService {
      */
     private IChannelDB channelDB = ChannelDBHibernate.getInstance();
     /**
-     * Initializes the user database using Hibernate.
+     * Initializes the user database using Hibernate, read through the user cache.
      */
-    private IUserDB userDB = UserDBHibernate.getInstance();
+    private IUserDB userDB = UserDBCache.getInstance();
+    /**
+     * Cached membership of the channels looked up so far, by channel id. Kept up to date by the
+     * methods of this class that change a channel, see {@link #updateChannel(Channel)}.
+     */
+    private final ConcurrentMap<Integer, ChannelMembership> memberships = new ConcurrentHashMap<>();
 
     /**
      * Singleton design pattern initialization - use getInstance to use this object
@@ -59,6 +68,16 @@ public class ChannelService implements IChannelService {
         return userList;
     }
 
+    /**
+     * Drop the input users from the user cache since their channels changed
+     * @param users users whose channels changed
+     */
+    private void invalidateUsers(Collection<User> users) {
+        for (User user : users) {
+            UserDBCache.getInstance().invalidate(user.getUsername());
+        }
+    }
+
     /**
      * Use the InMemory database instead of the actual database for testing.
      * each call will also clear the instances in the InMemory database to avoid conflicts in different test cases
@@ -69,6 +88,7 @@ public class ChannelService implements IChannelService {
         userDB = UserDBInMemory.getInstance();
         channelDB.testMode();
         userDB.testMode();
+        memberships.clear();
     }
 
     /**
@@ -81,6 +101,16 @@ public class ChannelService implements IChannelService {
         return channelDB.getAllChannels();
     }
 
+    /**
+     * Get the id, name and member counts of every channel, ordered by id
+     * @return list of channel summaries
+     * @throws SQLException if there is an error in the database.
+     */
+    @Override
+    public List<ChannelSummary> getChannelSummaries() throws SQLException {
+        return channelDB.getChannelSummaries();
+    }
+
     /**
      * Get channel with the input id
      * @param id channel id
@@ -92,6 +122,74 @@ public class ChannelService implements IChannelService {
         return channelDB.getChannel(id);
     }
 
+    /**
+     * Get the channels the input user is a participant or mod of
+     * @param username the username
+     * @return set of channels of the user
+     * @throws SQLException if there is an error in the database.
+     */
+    @Override
+    public Set<Channel> getChannelsOfUser(String username) throws SQLException {
+        return channelDB.getChannelsOfUser(username);
+    }
+
+    /**
+     * Get the id, name and member usernames of the channel with the input id. Served from the
+     * membership cache, which loads a channel on its first lookup without loading its users.
+     * @param id channel id
+     * @return Optional channel membership
+     * @throws SQLException if there is an error in the database.
+     */
+    @Override
+    public Optional<ChannelMembership> getChannelMembership(int id) throws SQLException {
+        ChannelMembership membership = memberships.get(id);
+        if (membership != null) {
+            return Optional.of(membership);
+        }
+        try {
+            // loading inside computeIfAbsent makes a concurrent change of this channel wait for
+            // the load and then apply on top of it
+            return Optional.ofNullable(memberships.computeIfAbsent(id, key -> {
+                try {
+                    return channelDB.getChannelMembership(key).orElse(null);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Write a changed channel to the database and replace its cached membership, if it is cached,
+     * with the membership just written. Both happen inside one compute on the channel id, so
+     * concurrent changes of a channel reach the database and the cache in the same order, and
+     * the cache ends up holding what the database holds.
+     * @param channel the changed channel
+     * @throws SQLException if there is an error in the database
+     */
+    private void updateChannel(Channel channel) throws SQLException {
+        try {
+            memberships.compute(channel.getId(), (id, membership) -> {
+                try {
+                    channelDB.updateChannel(channel);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                return membership == null ? null : ChannelMembership.of(channel);
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
      * Add a channel to the system
      * @param channelDTO channel data transfer object
@@ -104,6 +202,9 @@ public class ChannelService implements IChannelService {
         channel.setParticipants(new HashSet<>(getUsers(channelDTO.getParticipants())));
         channel.setMods(new HashSet<>(getUsers(channelDTO.getMods())));
         channelDB.addChannel(channel);
+        memberships.remove(channel.getId());
+        invalidateUsers(channel.getParticipants());
+        invalidateUsers(channel.getMods());
     }
 
     /**
@@ -118,7 +219,11 @@ public class ChannelService implements IChannelService {
     public int removeChannel(int channelId) throws SQLException {
         Optional<Channel> optionalChannel = channelDB.getChannel(channelId);
         if (optionalChannel.isPresent()){
-            channelDB.removeChannel(optionalChannel.get());
+            Channel channel = optionalChannel.get();
+            channelDB.removeChannel(channel);
+            memberships.remove(channelId);
+            invalidateUsers(channel.getParticipants());
+            invalidateUsers(channel.getMods());
             return 1;
         }
         return 0;
@@ -147,7 +252,8 @@ public class ChannelService implements IChannelService {
         Channel channel = optionalChannel.get();
         channel.addParticipant(optionalUser.get());
         removeUserDuplication(channel);
-        channelDB.updateChannel(channel);
+        updateChannel(channel);
+        UserDBCache.getInstance().invalidate(username);
         return 1;
     }
 
@@ -174,7 +280,8 @@ public class ChannelService implements IChannelService {
         Channel channel = optionalChannel.get();
         channel.getParticipants().remove(optionalUser.get());
         removeUserDuplication(channel);
-        channelDB.updateChannel(channel);
+        updateChannel(channel);
+        UserDBCache.getInstance().invalidate(username);
         return 1;
     }
 
@@ -206,7 +313,8 @@ public class ChannelService implements IChannelService {
         channel.getParticipants().remove(user);
         channel.addMod(user);
         removeUserDuplication(channel);
-        channelDB.updateChannel(channel);
+        updateChannel(channel);
+        UserDBCache.getInstance().invalidate(username);
         return 1;
     }
 
@@ -238,7 +346,8 @@ public class ChannelService implements IChannelService {
         channel.getMods().remove(user);
         channel.addParticipant(user);
         removeUserDuplication(channel);
-        channelDB.updateChannel(channel);
+        updateChannel(channel);
+        UserDBCache.getInstance().invalidate(username);
         return 1;
     }
 
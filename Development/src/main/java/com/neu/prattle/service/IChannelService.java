@@ -2,8 +2,11 @@ package com.neu.prattle.service;
 
 import com.neu.prattle.model.Channel;
 import com.neu.prattle.model.ChannelDTO;
+import com.neu.prattle.model.ChannelMembership;
+import com.neu.prattle.model.ChannelSummary;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -27,6 +30,13 @@ public interface IChannelService {
      */
     Set<Channel> getAllChannels() throws SQLException;
 
+    /**
+     * Get the id, name and member counts of every channel, ordered by id
+     * @return list of channel summaries
+     * @throws SQLException if there is an error in the database.
+     */
+    List<ChannelSummary> getChannelSummaries() throws SQLException;
+
     /**
      * Get channel with the input id
      * @param id channel id
@@ -35,6 +45,22 @@ public interface IChannelService {
      */
     Optional<Channel> getChannelById(int id) throws SQLException;
 
+    /**
+     * Get the channels the input user is a participant or mod of
+     * @param username the username
+     * @return set of channels of the user
+     * @throws SQLException if there is an error in the database.
+     */
+    Set<Channel> getChannelsOfUser(String username) throws SQLException;
+
+    /**
+     * Get the id, name and member usernames of the channel with the input id
+     * @param id channel id
+     * @return Optional channel membership
+     * @throws SQLException if there is an error in the database.
+     */
+    Optional<ChannelMembership> getChannelMembership(int id) throws SQLException;
+
     /**
      * Add a channel to the system
      * @param channelDTO channel data transfer object
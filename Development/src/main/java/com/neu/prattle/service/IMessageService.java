@@ -1,6 +1,8 @@
 package com.neu.prattle.service;
 
+import com.neu.prattle.database.MessageStream;
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -26,6 +28,27 @@ public interface IMessageService {
      */
     void addMessage(Message message) throws SQLException;
 
+    /**
+     * Queue a message to be stored in the background, without waiting for the database. The
+     * message gets its id before this returns.
+     *
+     * @param message message to queue.
+     * @throws SQLException if the message had to be stored right away and that failed.
+     */
+    void queueMessage(Message message) throws SQLException;
+
+    /**
+     * Store every queued message now.
+     */
+    void flushMessages();
+
+    /**
+     * Retry the queued messages that failed to be stored.
+     *
+     * @return number of batches stored.
+     */
+    int replayFailedMessages();
+
     /**
      * Getter for all messages between two input users. this contains both ways of from and to.
      *
@@ -36,6 +59,21 @@ public interface IMessageService {
      */
     List<Message> getMessagesByUsers(String user1, String user2) throws SQLException;
 
+    /**
+     * Getter for a page of the messages between two input users, oldest first. If only after is
+     * set the page holds the oldest messages after it, otherwise the newest messages before the
+     * before cursor, or the newest messages overall.
+     *
+     * @param user1  the first user.
+     * @param user2  the second user.
+     * @param before only messages before this cursor, null for no bound.
+     * @param after  only messages after this cursor, null for no bound.
+     * @param limit  maximum number of messages.
+     * @return page of messages between those two input users.
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    List<Message> getMessagesByUsers(String user1, String user2, MessageCursor before, MessageCursor after, int limit) throws SQLException;
+
     /**
      * Getter for all messages base on the input from user.
      *
@@ -54,6 +92,43 @@ public interface IMessageService {
      */
     List<Message> getMessagesByTo(String to) throws SQLException;
 
+    /**
+     * Stream all Message objects based on the input from user.
+     *
+     * @param from the from user to search message on.
+     * @return stream of messages from the input user, oldest first, to be closed by the caller.
+     * @throws SQLException when the user doesn't exist/database error
+     */
+    MessageStream streamMessagesByFrom(String from) throws SQLException;
+
+    /**
+     * Stream all Message objects based on the input to user.
+     *
+     * @param to the to user to search message on.
+     * @return stream of messages to the input user, oldest first, to be closed by the caller.
+     * @throws SQLException when the user doesn't exist/database error
+     */
+    MessageStream streamMessagesByTo(String to) throws SQLException;
+
+    /**
+     * Stream all Message objects between two users.
+     *
+     * @param user1 the first user's username.
+     * @param user2 the second user's username.
+     * @return stream of messages between the two users, oldest first, to be closed by the caller.
+     * @throws SQLException when there is a database error
+     */
+    MessageStream streamMessagesByUsers(String user1, String user2) throws SQLException;
+
+    /**
+     * Stream all Message objects within a channel.
+     *
+     * @param channel the channel id.
+     * @return stream of messages within the channel, oldest first, to be closed by the caller.
+     * @throws SQLException when there is a database error
+     */
+    MessageStream streamMessagesWithinChannel(int channel) throws SQLException;
+
     /**
      * Remove all messages in the system.
      *
@@ -70,4 +145,18 @@ public interface IMessageService {
      */
     List<Message> getMessagesWithinChannel(int channel) throws SQLException;
 
+    /**
+     * Getter for a page of the Message objects within a channel, oldest first. If only after is
+     * set the page holds the oldest messages after it, otherwise the newest messages before the
+     * before cursor, or the newest messages overall.
+     *
+     * @param channel the channel ID
+     * @param before  only messages before this cursor, null for no bound.
+     * @param after   only messages after this cursor, null for no bound.
+     * @param limit   maximum number of messages.
+     * @return page of Messages sent within the channel.
+     * @throws SQLException if channel don't exist or there is some issue
+     */
+    List<Message> getMessagesWithinChannel(int channel, MessageCursor before, MessageCursor after, int limit) throws SQLException;
+
 }
@@ -1,6 +1,7 @@
 package com.neu.prattle.service;
 
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -71,6 +72,22 @@ public interface IUserService {
      */
     List<User> getActiveUsers() throws SQLException;
 
+    /**
+     * Getter for the public profile of all users in the system.
+     *
+     * @return list of user summaries.
+     * @throws SQLException when there is a failure in database.
+     */
+    List<UserSummary> getUserSummaries() throws SQLException;
+
+    /**
+     * Getter for the public profile of all active users in the system.
+     *
+     * @return list of user summaries.
+     * @throws SQLException when there is a failure in database.
+     */
+    List<UserSummary> getActiveUserSummaries() throws SQLException;
+
     /**
      * Change the user's active status.
      *
@@ -3,10 +3,15 @@ package com.neu.prattle.service;
 import com.neu.prattle.database.IMessageDB;
 import com.neu.prattle.database.MessageDBHibernate;
 import com.neu.prattle.database.MessageDBInMemory;
+import com.neu.prattle.database.MessageStream;
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Implementation of {@link IMessageService}. Provides message related services.
@@ -26,12 +31,32 @@ public class MessageService implements IMessageService {
      */
     private IMessageDB messageDB;
 
+    /**
+     * Write-behind stage for queued messages. Set the queue capacity, batch size and flush
+     * interval in milliseconds with the system properties prattle.writebehind.capacity,
+     * prattle.writebehind.batchSize and prattle.writebehind.flushInterval, and the number of
+     * failed batches kept and the first retry delay in milliseconds with
+     * prattle.writebehind.maxFailedBatches and prattle.writebehind.retryInterval
+     */
+    private MessageWriteBehind writeBehind;
+
+    /**
+     * The logger
+     */
+    private static Logger logger = Logger.getLogger(MessageService.class.getName());
+
     /**
      * MessageService is a Singleton class. Currently if the connection to database failed, the
      * constructor will keep trying to reconnect in a loop.
      */
     private MessageService() {
         messageDB = MessageDBHibernate.getInstance();
+        writeBehind = new MessageWriteBehind(batch -> messageDB.addMessages(batch),
+                Integer.getInteger("prattle.writebehind.capacity", 10000),
+                Integer.getInteger("prattle.writebehind.batchSize", 100),
+                Long.getLong("prattle.writebehind.flushInterval", 50L),
+                Integer.getInteger("prattle.writebehind.maxFailedBatches", MessageWriteBehind.DEFAULT_MAX_FAILED_BATCHES),
+                Long.getLong("prattle.writebehind.retryInterval", MessageWriteBehind.DEFAULT_RETRY_INTERVAL));
     }
 
 
@@ -59,6 +84,7 @@ public class MessageService implements IMessageService {
     @Override
     public void testMode() throws SQLException {
 
+        writeBehind.flush();
         messageDB = MessageDBInMemory.getInstance();
         messageDB.removeAllMessages();
 
@@ -72,10 +98,66 @@ public class MessageService implements IMessageService {
      * @throws SQLException if the connection failed or there is an error.
      */
     @Override
-    public synchronized void addMessage(Message message) throws SQLException {
+    public void addMessage(Message message) throws SQLException {
         messageDB.addMessage(message);
     }
 
+    /**
+     * Queue a Message to be stored by the write-behind stage. If the queue is full the message is
+     * stored on the calling thread instead. Either way the message has its id when this returns,
+     * so it can be published with it; only if no id can be reserved does it get one when stored.
+     *
+     * @param message Message object
+     * @throws SQLException if the message had to be stored on the calling thread and that failed.
+     */
+    @Override
+    public void queueMessage(Message message) throws SQLException {
+        if (message.getId() == 0) {
+            try {
+                message.setId(messageDB.reserveId());
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Could not reserve a message id: {0}", e.getMessage());
+            }
+        }
+        if (!writeBehind.enqueue(message)) {
+            addMessage(message);
+        }
+    }
+
+    /**
+     * Store every queued Message now.
+     */
+    @Override
+    public void flushMessages() {
+        writeBehind.flush();
+    }
+
+    /**
+     * Retry the queued Messages that failed to be stored.
+     *
+     * @return number of batches stored.
+     */
+    @Override
+    public int replayFailedMessages() {
+        return writeBehind.replayFailedBatches();
+    }
+
+    /**
+     * Stop the write-behind stage and store every queued Message.
+     */
+    public void shutdown() {
+        writeBehind.shutdown(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Getter for the write-behind stage, for its metrics.
+     *
+     * @return the write-behind stage
+     */
+    public MessageWriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
 
     /**
      * Getter for all Message objects between two input users. This contains both ways of from and
@@ -83,87 +165,151 @@ public class MessageService implements IMessageService {
      *
      * @param user1 the first user.
      * @param user2 the second user.
-     * @return list of Messages between those two input users.
+     * @return list of Messages between those two input users, oldest first.
      * @throws SQLException if users don't exist or there is some issue
      */
     @Override
     public List<Message> getMessagesByUsers(String user1, String user2) throws SQLException {
 
-        List<Message> messages = new ArrayList<>(messageDB.getMessagesBetweenUsers(user1, user2));
-        return sortMessagesByTimestamp(messages);
+        return messageDB.getMessagesBetweenUsers(user1, user2);
     }
 
 
 
+    /**
+     * Getter for a page of the Message objects between two input users, oldest first. The
+     * ordering and the limit are done by the database.
+     *
+     * @param user1  the first user.
+     * @param user2  the second user.
+     * @param before only messages before this cursor, null for no bound.
+     * @param after  only messages after this cursor, null for no bound.
+     * @param limit  maximum number of messages.
+     * @return page of Messages between those two input users.
+     * @throws SQLException if users don't exist or there is some issue
+     */
+    @Override
+    public List<Message> getMessagesByUsers(String user1, String user2, MessageCursor before, MessageCursor after, int limit) throws SQLException {
+        return messageDB.getMessagesBetweenUsers(user1, user2, before, after, limit);
+    }
+
     /**
      * Getter for all Message objects within a channel.
      *
      * @param channel the channel
-     * @return list of Messages sent within the channel.
+     * @return list of Messages sent within the channel, oldest first.
      * @throws SQLException if channel don't exist or there is some issue
      */
     @Override
     public List<Message> getMessagesWithinChannel(int channel) throws SQLException {
 
-        List<Message> messages = new ArrayList<>(messageDB.getMessagesByToChannel(channel));
-        return sortMessagesByTimestamp(messages);
+        return messageDB.getMessagesByToChannel(channel);
+    }
+
+    /**
+     * Getter for a page of the Message objects within a channel, oldest first. The ordering and
+     * the limit are done by the database.
+     *
+     * @param channel the channel
+     * @param before  only messages before this cursor, null for no bound.
+     * @param after   only messages after this cursor, null for no bound.
+     * @param limit   maximum number of messages.
+     * @return page of Messages sent within the channel.
+     * @throws SQLException if channel don't exist or there is some issue
+     */
+    @Override
+    public List<Message> getMessagesWithinChannel(int channel, MessageCursor before, MessageCursor after, int limit) throws SQLException {
+        return messageDB.getMessagesByToChannel(channel, before, after, limit);
     }
 
     /**
      * Getter for all Message objects based on the input from user.
      *
      * @param from the from user to search message on.
-     * @return list of messages from the input user.
+     * @return list of messages from the input user, oldest first.
      * @throws SQLException when the user doesn't exist/database error
      */
     @Override
     public List<Message> getMessagesByFrom(String from) throws SQLException {
 
-        List<Message> messages = new ArrayList<>(messageDB.getMessagesByFrom(from));
-        return sortMessagesByTimestamp(messages);
+        return messageDB.getMessagesByFrom(from);
     }
 
     /**
      * Getter for all Message objects based on the input to user.
      *
      * @param to the to user to search message on.
-     * @return list of messages to the input user.
+     * @return list of messages to the input user, oldest first.
      * @throws SQLException when the user doesn't exist/database error
      */
     @Override
     public List<Message> getMessagesByTo(String to) throws SQLException {
-        List<Message> messages = new ArrayList<>(messageDB.getMessagesByToUser(to));
-        return sortMessagesByTimestamp(messages);
+        return messageDB.getMessagesByToUser(to);
     }
 
+    /**
+     * Stream all Message objects based on the input from user.
+     *
+     * @param from the from user to search message on.
+     * @return stream of messages from the input user, oldest first, to be closed by the caller.
+     * @throws SQLException when the user doesn't exist/database error
+     */
+    @Override
+    public MessageStream streamMessagesByFrom(String from) throws SQLException {
+        return messageDB.streamMessagesByFrom(from);
+    }
 
     /**
-     * Remove all Messages in the system.
+     * Stream all Message objects based on the input to user.
      *
-     * @throws SQLException if the connection failed or there is an error.
+     * @param to the to user to search message on.
+     * @return stream of messages to the input user, oldest first, to be closed by the caller.
+     * @throws SQLException when the user doesn't exist/database error
      */
     @Override
-    public synchronized void removeAllMessages() throws SQLException {
-        messageDB.removeAllMessages();
+    public MessageStream streamMessagesByTo(String to) throws SQLException {
+        return messageDB.streamMessagesByToUser(to);
     }
 
+    /**
+     * Stream all Message objects between two users.
+     *
+     * @param user1 the first user's username.
+     * @param user2 the second user's username.
+     * @return stream of messages between the two users, oldest first, to be closed by the caller.
+     * @throws SQLException when there is a database error
+     */
+    @Override
+    public MessageStream streamMessagesByUsers(String user1, String user2) throws SQLException {
+        return messageDB.streamMessagesBetweenUsers(user1, user2);
+    }
 
     /**
-     * Sorts the list of Message objects by the earliest to latest timestamp.
+     * Stream all Message objects within a channel.
      *
-     * @param messages List of messages.
-     * @return A sorted list of messages by timestamp.
+     * @param channel the channel id.
+     * @return stream of messages within the channel, oldest first, to be closed by the caller.
+     * @throws SQLException when there is a database error
      */
-    private List<Message> sortMessagesByTimestamp(List<Message> messages) {
-        messages.sort((m1, m2) -> {
-            if (m1.getTimestamp() == null || m2.getTimestamp() == null)
-                return 0;
-            return m1.getTimestamp().compareTo(m2.getTimestamp());
-        });
-        return messages;
+    @Override
+    public MessageStream streamMessagesWithinChannel(int channel) throws SQLException {
+        return messageDB.streamMessagesByToChannel(channel);
     }
 
 
+    /**
+     * Remove all Messages in the system.
+     *
+     * @throws SQLException if the connection failed or there is an error.
+     */
+    @Override
+    public void removeAllMessages() throws SQLException {
+        messageDB.removeAllMessages();
+    }
+
+
+
+
 
 
 
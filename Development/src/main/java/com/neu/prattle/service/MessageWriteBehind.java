@@ -0,0 +1,432 @@
+package com.neu.prattle.service;
+
+import com.neu.prattle.model.Message;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind stage for messages. Messages are queued by the sending thread and written to the
+ * database in batches by a single flusher thread. A batch is written once it holds batchSize
+ * messages or flushInterval milliseconds after its first message arrived, whichever comes first.
+ *
+ * Batches that fail to write are kept, oldest first, and retried by the flusher, at first after
+ * retryInterval milliseconds and then twice as long after each retry that fails, up to
+ * {@link #MAX_RETRY_DELAY}. At most maxFailedBatches are kept: when the database stays down the
+ * oldest are dropped and their message ids logged, so memory does not grow without bound. Shutting
+ * down writes what is queued, retries the failed batches once more and logs the ids of the
+ * messages that still could not be written.
+ *
+ * @author Team 9
+ * @version dated 2019-12-04
+ */
+public class MessageWriteBehind {
+    /**
+     * Writes a batch of messages to the database
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        /**
+         * Write a batch of messages
+         *
+         * @param batch messages to write
+         * @throws SQLException if the batch could not be written
+         */
+        void write(List<Message> batch) throws SQLException;
+    }
+
+    /**
+     * Default maximum number of failed batches kept and default first retry delay in milliseconds
+     */
+    public static final int DEFAULT_MAX_FAILED_BATCHES = 100;
+    public static final long DEFAULT_RETRY_INTERVAL = 1000L;
+    /**
+     * Longest delay in milliseconds between two retries
+     */
+    public static final long MAX_RETRY_DELAY = 60000L;
+
+    /**
+     * Writes the batches
+     */
+    private final BatchWriter batchWriter;
+    /**
+     * Queued messages
+     */
+    private final BlockingQueue<Message> queue;
+    /**
+     * Maximum number of messages per batch
+     */
+    private final int batchSize;
+    /**
+     * Maximum time in milliseconds a queued message waits for its batch to fill up
+     */
+    private final long flushInterval;
+    /**
+     * Batches that failed to write, oldest first
+     */
+    private final Deque<List<Message>> failedBatches = new ConcurrentLinkedDeque<>();
+    /**
+     * Maximum number of failed batches kept
+     */
+    private final int maxFailedBatches;
+    /**
+     * First delay in milliseconds before failed batches are retried
+     */
+    private final long retryInterval;
+    /**
+     * Current delay in milliseconds between retries, and when the next retry is due in
+     * {@link System#nanoTime()} time, guarded by writeLock
+     */
+    private long retryDelay;
+    private long nextRetry;
+    /**
+     * Held while a batch is written so that flushes keep messages in queue order
+     */
+    private final Object writeLock = new Object();
+    /**
+     * The flusher thread
+     */
+    private final Thread flusher;
+    /**
+     * False once the stage is shut down
+     */
+    private volatile boolean running = true;
+    /**
+     * Metrics
+     */
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    /**
+     * The logger
+     */
+    private static Logger logger = Logger.getLogger(MessageWriteBehind.class.getName());
+
+    /**
+     * Constructor with the default retry settings. Starts the flusher thread.
+     *
+     * @param batchWriter   writes the batches
+     * @param capacity      maximum number of queued messages
+     * @param batchSize     maximum number of messages per batch
+     * @param flushInterval maximum time in milliseconds a message waits for its batch to fill up
+     */
+    public MessageWriteBehind(BatchWriter batchWriter, int capacity, int batchSize, long flushInterval) {
+        this(batchWriter, capacity, batchSize, flushInterval, DEFAULT_MAX_FAILED_BATCHES, DEFAULT_RETRY_INTERVAL);
+    }
+
+    /**
+     * Constructor. Starts the flusher thread.
+     *
+     * @param batchWriter      writes the batches
+     * @param capacity         maximum number of queued messages
+     * @param batchSize        maximum number of messages per batch
+     * @param flushInterval    maximum time in milliseconds a message waits for its batch to fill up
+     * @param maxFailedBatches maximum number of failed batches kept for retrying
+     * @param retryInterval    first delay in milliseconds before failed batches are retried
+     */
+    public MessageWriteBehind(BatchWriter batchWriter, int capacity, int batchSize, long flushInterval,
+                              int maxFailedBatches, long retryInterval) {
+        if (capacity < 1 || batchSize < 1 || flushInterval < 1) {
+            throw new IllegalArgumentException("capacity, batch size and flush interval must be positive");
+        }
+        if (maxFailedBatches < 1 || retryInterval < 1) {
+            throw new IllegalArgumentException("failed batches and retry interval must be positive");
+        }
+        this.batchWriter = batchWriter;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxFailedBatches = maxFailedBatches;
+        this.retryInterval = retryInterval;
+        this.retryDelay = retryInterval;
+        this.flusher = new Thread(this::run, "prattle-message-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queue a message to be written. Never blocks.
+     *
+     * @param message message to write
+     * @return false if the queue is full or the stage is shut down, in which case the caller has
+     * to write the message itself
+     */
+    public boolean enqueue(Message message) {
+        if (running && queue.offer(message)) {
+            return true;
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Flusher loop. Waits for a first message, fills the batch until it is full or the flush
+     * interval has passed and writes it. Retries the failed batches when due.
+     */
+    private void run() {
+        while (running) {
+            try {
+                Message first = queue.poll(pollTimeout(), TimeUnit.NANOSECONDS);
+                synchronized (writeLock) {
+                    if (first != null) {
+                        writeOrKeep(fillBatch(first));
+                    }
+                    retryIfDue();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * How long the flusher waits for a message: the flush interval, or less if a retry is due
+     * sooner. Without failed batches it waits at most the retry interval, so a batch that fails
+     * on another thread, in {@link #flush()}, is still retried in time.
+     *
+     * @return the time in nanoseconds
+     */
+    private long pollTimeout() {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(Math.min(flushInterval, retryInterval));
+        if (!failedBatches.isEmpty()) {
+            synchronized (writeLock) {
+                timeout = Math.min(timeout, Math.max(0, nextRetry - System.nanoTime()));
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * Retry the failed batches if a retry is due, and schedule the next one. The delay doubles
+     * after a retry that leaves batches unwritten and starts over once all are written. Must hold
+     * writeLock.
+     */
+    private void retryIfDue() {
+        if (failedBatches.isEmpty() || System.nanoTime() - nextRetry < 0) {
+            return;
+        }
+        replayFailedBatches();
+        if (failedBatches.isEmpty()) {
+            retryDelay = retryInterval;
+        } else {
+            retryDelay = Math.min(retryDelay * 2, Math.max(retryInterval, MAX_RETRY_DELAY));
+            nextRetry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelay);
+        }
+    }
+
+    /**
+     * Collect queued messages after the first one until the batch is full or the flush interval
+     * has passed
+     *
+     * @param first the first message of the batch
+     * @return the batch
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private List<Message> fillBatch(Message first) throws InterruptedException {
+        List<Message> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            Message next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * Write a batch
+     *
+     * @param batch messages to write
+     * @return true if written
+     */
+    private boolean write(List<Message> batch) {
+        try {
+            batchWriter.write(batch);
+            writtenCount.addAndGet(batch.size());
+            batchCount.incrementAndGet();
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to write a batch of {0} messages: {1}",
+                    new Object[]{batch.size(), e.getMessage()});
+            return false;
+        }
+    }
+
+    /**
+     * Write a batch, keeping it to be retried if it fails. The first failed batch schedules a
+     * retry. When more than maxFailedBatches are kept the oldest are dropped. Must hold writeLock.
+     *
+     * @param batch messages to write
+     */
+    private void writeOrKeep(List<Message> batch) {
+        if (write(batch)) {
+            return;
+        }
+        if (failedBatches.isEmpty()) {
+            retryDelay = retryInterval;
+            nextRetry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelay);
+        }
+        failedBatches.addLast(batch);
+        while (failedBatches.size() > maxFailedBatches) {
+            List<Message> dropped = failedBatches.pollFirst();
+            droppedCount.addAndGet(dropped.size());
+            logger.log(Level.SEVERE, "Dropped {0} messages that could not be written, ids {1}",
+                    new Object[]{dropped.size(), ids(dropped)});
+        }
+    }
+
+    /**
+     * The ids of a list of messages, for the log
+     *
+     * @param messages the messages
+     * @return the ids, comma separated
+     */
+    private static String ids(Iterable<Message> messages) {
+        StringBuilder ids = new StringBuilder();
+        for (Message message : messages) {
+            if (ids.length() > 0) {
+                ids.append(", ");
+            }
+            ids.append(message.getId());
+        }
+        return ids.toString();
+    }
+
+    /**
+     * Write everything queued so far on the calling thread
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            List<Message> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeOrKeep(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    /**
+     * Try to write the batches that failed before, oldest first. Stops at the first batch that
+     * fails again, since the database is most likely still down, and keeps it and the rest.
+     *
+     * @return number of batches written
+     */
+    public int replayFailedBatches() {
+        int replayed = 0;
+        synchronized (writeLock) {
+            List<Message> batch;
+            while ((batch = failedBatches.peekFirst()) != null && write(batch)) {
+                failedBatches.pollFirst();
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Stop accepting messages, stop the flusher, write whatever is still queued and retry the
+     * failed batches once more. The ids of the messages that are still not written are logged.
+     *
+     * @param timeout maximum time in milliseconds to wait for the flusher to stop
+     */
+    public void shutdown(long timeout) {
+        running = false;
+        try {
+            flusher.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        replayFailedBatches();
+        List<Message> unwritten = new ArrayList<>();
+        for (List<Message> batch : failedBatches) {
+            unwritten.addAll(batch);
+        }
+        if (!unwritten.isEmpty()) {
+            logger.log(Level.SEVERE, "Shut down with {0} messages that could not be written, ids {1}",
+                    new Object[]{unwritten.size(), ids(unwritten)});
+        }
+    }
+
+    /**
+     * Whether the stage still accepts messages
+     *
+     * @return true if running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Getter for the number of messages waiting to be written
+     *
+     * @return current backlog
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Getter for the number of messages written
+     *
+     * @return written count
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Getter for the number of batches written
+     *
+     * @return batch count
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Getter for the number of messages the caller had to write itself
+     *
+     * @return rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Getter for the number of failed messages dropped because too many batches failed
+     *
+     * @return dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Getter for the number of batches waiting to be replayed
+     *
+     * @return failed batch count
+     */
+    public int getFailedBatchCount() {
+        return failedBatches.size();
+    }
+}
@@ -1,10 +1,11 @@
 package com.neu.prattle.service;
 
 import com.neu.prattle.database.IUserDB;
-import com.neu.prattle.database.UserDBHibernate;
+import com.neu.prattle.database.UserDBCache;
 import com.neu.prattle.database.UserDBInMemory;
 import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -31,10 +32,10 @@ public class UserService implements IUserService {
 
     /**
      * UserService is a Singleton class. Currently if the connection to database failed, the
-     * constructor will keep trying to reconnect in a loop.
+     * constructor will keep trying to reconnect in a loop. Users are read through the user cache.
      */
     private UserService() {
-        userDB = UserDBHibernate.getInstance();
+        userDB = UserDBCache.getInstance();
     }
 
     /**
@@ -80,17 +81,15 @@ public class UserService implements IUserService {
     }
 
     /**
-     * Tries to add a User in the system.
+     * Tries to add a User in the system. The database detects an existing user atomically, by its
+     * unique keys, so adds run concurrently and of two adds of the same user exactly one succeeds.
      *
      * @param user User object
+     * @throws UserAlreadyPresentException if the user is already present.
      * @throws SQLException if the connection failed or there is an error.
      */
     @Override
-    public synchronized void addUser(User user) throws SQLException {
-        if (userDB.findUserByName(user.getUsername()).isPresent()){
-            throw new UserAlreadyPresentException(String.format("User already present with name: %s"
-                    , user.getUsername()));
-        }
+    public void addUser(User user) throws SQLException {
         userDB.addUser(user);
     }
 
@@ -101,7 +100,7 @@ public class UserService implements IUserService {
      * @throws SQLException if the connection failed or there is an error.
      */
     @Override
-    public synchronized void removeUserByName(String name) throws SQLException {
+    public void removeUserByName(String name) throws SQLException {
         Optional<User> optionalIUser = userDB.findUserByName(name);
         if (!optionalIUser.isPresent()) {
             return;
@@ -116,7 +115,7 @@ public class UserService implements IUserService {
      * @throws SQLException if the connection failed or there is an error.
      */
     @Override
-    public synchronized void removeAllUsers() throws SQLException {
+    public void removeAllUsers() throws SQLException {
         userDB.removeAllUsers();
     }
 
@@ -154,6 +153,34 @@ public class UserService implements IUserService {
         return userList;
     }
 
+    /**
+     * Getter for the public profile of all users in the system.
+     *
+     * @return list of user summaries.
+     * @throws SQLException when there is a failure in database.
+     */
+    @Override
+    public List<UserSummary> getUserSummaries() throws SQLException {
+        return userDB.getUserSummaries();
+    }
+
+    /**
+     * Getter for the public profile of all active users in the system.
+     *
+     * @return list of user summaries.
+     * @throws SQLException when there is a failure in database.
+     */
+    @Override
+    public List<UserSummary> getActiveUserSummaries() throws SQLException {
+        List<UserSummary> summaries = new ArrayList<>();
+        for (UserSummary summary : userDB.getUserSummaries()) {
+            if (summary.getActive()) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
     /**
      * Change the User's active status.
      *
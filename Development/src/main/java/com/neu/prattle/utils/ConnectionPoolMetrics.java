@@ -0,0 +1,118 @@
+package com.neu.prattle.utils;
+
+/**
+ * A snapshot of the database connection pool. The pool is saturated when every connection it may
+ * open is in use, at which point callers queue for a connection.
+ *
+ * @author Team 9
+ * @version dated 2019-12-05
+ */
+public class ConnectionPoolMetrics {
+    /**
+     * Connections in use
+     */
+    private final int activeConnections;
+    /**
+     * Open connections not in use
+     */
+    private final int idleConnections;
+    /**
+     * Open connections
+     */
+    private final int totalConnections;
+    /**
+     * Threads waiting for a connection
+     */
+    private final int threadsAwaitingConnection;
+    /**
+     * Maximum number of connections the pool may open
+     */
+    private final int maximumPoolSize;
+
+    /**
+     * Constructor
+     *
+     * @param activeConnections         connections in use
+     * @param idleConnections           open connections not in use
+     * @param totalConnections          open connections
+     * @param threadsAwaitingConnection threads waiting for a connection
+     * @param maximumPoolSize           maximum number of connections the pool may open
+     */
+    public ConnectionPoolMetrics(int activeConnections, int idleConnections, int totalConnections,
+                                 int threadsAwaitingConnection, int maximumPoolSize) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    /**
+     * Getter for the number of connections in use
+     *
+     * @return active connections
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * Getter for the number of open connections not in use
+     *
+     * @return idle connections
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Getter for the number of open connections
+     *
+     * @return total connections
+     */
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * Getter for the number of threads waiting for a connection
+     *
+     * @return waiting threads
+     */
+    public int getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    /**
+     * Getter for the maximum number of connections the pool may open
+     *
+     * @return maximum pool size
+     */
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * Share of the maximum pool size in use
+     *
+     * @return between 0 and 1, 0 if there is no pool
+     */
+    public double getSaturation() {
+        return maximumPoolSize == 0 ? 0 : (double) activeConnections / maximumPoolSize;
+    }
+
+    /**
+     * Whether every connection is in use or threads are waiting for one
+     *
+     * @return true if saturated
+     */
+    public boolean isSaturated() {
+        return maximumPoolSize > 0 && (activeConnections >= maximumPoolSize || threadsAwaitingConnection > 0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d total=%d waiting=%d max=%d",
+                activeConnections, idleConnections, totalConnections, threadsAwaitingConnection, maximumPoolSize);
+    }
+}
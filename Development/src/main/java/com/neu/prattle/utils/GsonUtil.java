@@ -4,10 +4,13 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 /**
- * A GsonUtil class providing a static gson object.
+ * A GsonUtil class providing a static gson object. It is the one JSON codec of the server: the
+ * websocket encoder and decoder, the REST controllers and the JAX-RS provider all use it.
+ * Messages, users and channels go through the hand-written adapters of
+ * {@link ModelTypeAdapterFactory}.
  *
  * @author Team 9
- * @version dated 2019-11-21
+ * @version dated 2019-12-07
  */
 public abstract class GsonUtil {
     /**
@@ -16,11 +19,12 @@ public abstract class GsonUtil {
     private static Gson gson;
 
     /**
-     * apply UserChannelSetExclusionStrategy to gson
+     * apply UserChannelSetExclusionStrategy and the model adapters to gson
      */
     static {
         GsonBuilder builder = new GsonBuilder();
         builder.setExclusionStrategies( new UserChannelSetExclusionStrategy() );
+        builder.registerTypeAdapterFactory(new ModelTypeAdapterFactory());
         gson = builder.create();
     }
 
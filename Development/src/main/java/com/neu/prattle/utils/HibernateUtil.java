@@ -1,20 +1,44 @@
 package com.neu.prattle.utils;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * This class provides functionality to integrate the Hibernate library & tools.
+ * This class provides functionality to integrate the Hibernate library & tools. Connections come
+ * from a HikariCP pool configured in hibernate.cfg.xml. The pool sizes can be overridden with the
+ * system properties prattle.db.pool.maxSize, prattle.db.pool.minIdle and
+ * prattle.db.pool.connectionTimeout.
  * @author team 9 and Hibernate
  * @date Nov 2019
  */
 public class HibernateUtil {
+    /**
+     * Pool settings that can be overridden by system properties, keyed by system property
+     */
+    private static final Map<String, String> POOL_PROPERTIES;
+
+    static {
+        Map<String, String> poolProperties = new HashMap<>();
+        poolProperties.put("prattle.db.pool.maxSize", "hibernate.hikari.maximumPoolSize");
+        poolProperties.put("prattle.db.pool.minIdle", "hibernate.hikari.minimumIdle");
+        poolProperties.put("prattle.db.pool.connectionTimeout", "hibernate.hikari.connectionTimeout");
+        POOL_PROPERTIES = Collections.unmodifiableMap(poolProperties);
+    }
+
     /**
      * The standard registry of Hibernate.
      */
@@ -22,7 +46,7 @@ public class HibernateUtil {
     /**
      * The session factory
      */
-    private static SessionFactory sessionFactory;
+    private static volatile SessionFactory sessionFactory;
     /**
      * The logger - uses Hibernate's library
      */
@@ -50,41 +74,111 @@ public class HibernateUtil {
     }
 
     /**
-     * The getter for Hibernate's session factory
-     * @return the Session Factory
+     * The getter for Hibernate's session factory. Builds it on first use if {@link #init()} has
+     * not been called.
+     * @return the Session Factory, null if it could not be built
      */
     public static SessionFactory getSessionFactory() {
-        if (sessionFactory == null) {
-            try {
-                // Create registry
-                registry = new StandardServiceRegistryBuilder().configure().build();
+        SessionFactory factory = sessionFactory;
+        if (factory == null) {
+            factory = init();
+        }
+        return factory;
+    }
 
-                // Create MetadataSources
-                MetadataSources sources = new MetadataSources(registry);
+    /**
+     * Build the session factory and fill the connection pool, unless already done. Called on
+     * startup so that the first requests do not pay for it.
+     * @return the Session Factory, null if it could not be built
+     */
+    public static SessionFactory init() {
+        Map<String, String> settings = new HashMap<>();
+        for (Map.Entry<String, String> property : POOL_PROPERTIES.entrySet()) {
+            String value = System.getProperty(property.getKey());
+            if (value != null) {
+                settings.put(property.getValue(), value);
+            }
+        }
+        return init(settings);
+    }
 
-                // Create Metadata
-                Metadata metadata = sources.getMetadataBuilder().build();
+    /**
+     * Build the session factory with the input settings on top of hibernate.cfg.xml, unless
+     * already done. Thread-safe: concurrent callers get the same factory.
+     * @param settings Hibernate settings overriding hibernate.cfg.xml
+     * @return the Session Factory, null if it could not be built
+     */
+    static synchronized SessionFactory init(Map<String, String> settings) {
+        if (sessionFactory != null) {
+            return sessionFactory;
+        }
+        try {
+            // Create registry
+            StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().configure();
+            builder.applySettings(settings);
+            registry = builder.build();
 
-                // Create SessionFactory
-                sessionFactory = metadata.getSessionFactoryBuilder().build();
+            // Create MetadataSources
+            MetadataSources sources = new MetadataSources(registry);
 
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, e.getMessage());
-                if (registry != null) {
-                    StandardServiceRegistryBuilder.destroy(registry);
-                }
+            // Create Metadata
+            Metadata metadata = sources.getMetadataBuilder().build();
+
+            // Create SessionFactory
+            sessionFactory = metadata.getSessionFactoryBuilder().build();
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, e.getMessage());
+            if (registry != null) {
+                StandardServiceRegistryBuilder.destroy(registry);
+                registry = null;
             }
         }
         return sessionFactory;
     }
 
     /**
-     * Destroys the registry of this object.
+     * Closes the session factory, which closes every pooled connection, and destroys the registry
+     * of this object.
      */
-    public static void shutdown() {
+    public static synchronized void shutdown() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+            sessionFactory = null;
+        }
         if (registry != null) {
             StandardServiceRegistryBuilder.destroy(registry);
+            registry = null;
         }
     }
-}
 
+    /**
+     * Getter for a snapshot of the connection pool metrics
+     * @return the metrics, all zero if there is no pool
+     */
+    public static ConnectionPoolMetrics getPoolMetrics() {
+        HikariDataSource dataSource = getDataSource();
+        HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return new ConnectionPoolMetrics(0, 0, 0, 0, 0);
+        }
+        return new ConnectionPoolMetrics(pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getTotalConnections(), pool.getThreadsAwaitingConnection(), dataSource.getMaximumPoolSize());
+    }
+
+    /**
+     * Getter for the pooled data source of the session factory
+     * @return the data source, null if there is no session factory or it is not pooled by HikariCP
+     */
+    private static HikariDataSource getDataSource() {
+        SessionFactory factory = sessionFactory;
+        if (!(factory instanceof SessionFactoryImplementor)) {
+            return null;
+        }
+        ConnectionProvider provider = ((SessionFactoryImplementor) factory).getServiceRegistry().getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(HikariDataSource.class)) {
+            return null;
+        }
+        return provider.unwrap(HikariDataSource.class);
+    }
+}
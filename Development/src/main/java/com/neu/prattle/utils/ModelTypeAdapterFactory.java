@@ -0,0 +1,409 @@
+package com.neu.prattle.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.User;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Hand-written gson adapters for {@link Message}, {@link User} and {@link Channel}, the types
+ * that every websocket frame and most REST responses carry. They read and write the fields
+ * directly on the stream, without the reflection of gson's default adapter, and produce the same
+ * JSON: the same names in the same order, null fields left out, the user's channel sets left out
+ * and timestamps in gson's date format. Timestamps are also read as epoch milliseconds, which the
+ * decoder accepted before. Unknown names are skipped.
+ *
+ * Gson formats dates with a shared, synchronized {@link DateFormat}, which costs more than the
+ * rest of a message. The timestamps are formatted instead with an immutable
+ * {@link DateTimeFormatter} of the same pattern, in the same time zone.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * The pattern of gson's date format, null if it has none
+     */
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = timestampFormat();
+
+    /**
+     * Build a formatter of the pattern of gson's date format: the default date and time format of
+     * the US locale.
+     *
+     * @return the formatter, null if the format has no pattern
+     */
+    private static DateTimeFormatter timestampFormat() {
+        DateFormat format = DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, Locale.US);
+        if (!(format instanceof SimpleDateFormat)) {
+            return null;
+        }
+        return DateTimeFormatter.ofPattern(((SimpleDateFormat) format).toPattern(), Locale.US)
+                .withZone(ZoneId.systemDefault());
+    }
+
+    /**
+     * Create the adapter of the input type, if it is one of the model types
+     *
+     * @param gson the gson the adapter is for
+     * @param type the type
+     * @param <T>  the type
+     * @return the adapter, null for the other types
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Message.class) {
+            return (TypeAdapter<T>) new MessageAdapter(new TimestampAdapter(gson.getAdapter(Timestamp.class))).nullSafe();
+        } else if (rawType == User.class) {
+            return (TypeAdapter<T>) new UserAdapter(new TimestampAdapter(gson.getAdapter(Timestamp.class))).nullSafe();
+        } else if (rawType == Channel.class) {
+            return (TypeAdapter<T>) new ChannelAdapter(gson.getAdapter(User.class)).nullSafe();
+        }
+        return null;
+    }
+
+    /**
+     * Read a nullable string
+     */
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Read a nullable integer
+     */
+    private static Integer nextInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * Timestamps in the format of gson's date adapter, also read from epoch milliseconds.
+     */
+    private static class TimestampAdapter extends TypeAdapter<Timestamp> {
+        /**
+         * Gson's adapter
+         */
+        private final TypeAdapter<Timestamp> delegate;
+
+        private TimestampAdapter(TypeAdapter<Timestamp> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(JsonWriter out, Timestamp value) throws IOException {
+            if (TIMESTAMP_FORMAT == null || value == null) {
+                delegate.write(out, value);
+            } else {
+                out.value(TIMESTAMP_FORMAT.format(value.toInstant()));
+            }
+        }
+
+        @Override
+        public Timestamp read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NUMBER) {
+                return new Timestamp(in.nextLong());
+            } else if (token != JsonToken.STRING || TIMESTAMP_FORMAT == null) {
+                return delegate.read(in);
+            }
+            String value = in.nextString();
+            try {
+                // the hour repeated when daylight saving ends is read as the later one, as gson does
+                return Timestamp.from(LocalDateTime.parse(value, TIMESTAMP_FORMAT)
+                        .atZone(TIMESTAMP_FORMAT.getZone()).withLaterOffsetAtOverlap().toInstant());
+            } catch (DateTimeParseException e) {
+                // the other formats gson reads
+                return delegate.fromJsonTree(new JsonPrimitive(value));
+            }
+        }
+    }
+
+    /**
+     * Messages. The conversation key is written but not read, the setters of the usernames
+     * compute it.
+     */
+    private static class MessageAdapter extends TypeAdapter<Message> {
+        /**
+         * Timestamp adapter
+         */
+        private final TypeAdapter<Timestamp> timestamps;
+
+        private MessageAdapter(TypeAdapter<Timestamp> timestamps) {
+            this.timestamps = timestamps;
+        }
+
+        @Override
+        public void write(JsonWriter out, Message message) throws IOException {
+            out.beginObject();
+            out.name("id").value(message.getId());
+            if (message.getFromUsername() != null) {
+                out.name("fromUsername").value(message.getFromUsername());
+            }
+            if (message.getFromAvatar() != null) {
+                out.name("fromAvatar").value(message.getFromAvatar());
+            }
+            if (message.getToUsername() != null) {
+                out.name("toUsername").value(message.getToUsername());
+            }
+            if (message.getConversationKey() != null) {
+                out.name("conversationKey").value(message.getConversationKey());
+            }
+            if (message.getToAvatar() != null) {
+                out.name("toAvatar").value(message.getToAvatar());
+            }
+            // -1 stands for no channel
+            if (message.getToChannelId() != -1) {
+                out.name("toChannelId").value(message.getToChannelId());
+            }
+            if (message.getContent() != null) {
+                out.name("content").value(message.getContent());
+            }
+            if (message.getTimestamp() != null) {
+                out.name("timestamp");
+                timestamps.write(out, message.getTimestamp());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Message read(JsonReader in) throws IOException {
+            Message message = new Message();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        message.setId(in.nextInt());
+                        break;
+                    case "fromUsername":
+                        message.setFromUsername(nextString(in));
+                        break;
+                    case "fromAvatar":
+                        message.setFromAvatar(nextInteger(in));
+                        break;
+                    case "toUsername":
+                        message.setToUsername(nextString(in));
+                        break;
+                    case "toAvatar":
+                        message.setToAvatar(nextInteger(in));
+                        break;
+                    case "toChannelId":
+                        message.setToChannelId(nextInteger(in));
+                        break;
+                    case "content":
+                        message.setContent(nextString(in));
+                        break;
+                    case "timestamp":
+                        message.setTimestamp(timestamps.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return message;
+        }
+    }
+
+    /**
+     * Users, without their channel sets.
+     */
+    private static class UserAdapter extends TypeAdapter<User> {
+        /**
+         * Timestamp adapter
+         */
+        private final TypeAdapter<Timestamp> timestamps;
+
+        private UserAdapter(TypeAdapter<Timestamp> timestamps) {
+            this.timestamps = timestamps;
+        }
+
+        @Override
+        public void write(JsonWriter out, User user) throws IOException {
+            out.beginObject();
+            writeString(out, "username", user.getUsername());
+            writeString(out, "password", user.getPassword());
+            writeString(out, "email", user.getEmail());
+            writeString(out, "firstName", user.getFirstName());
+            writeString(out, "lastName", user.getLastName());
+            writeString(out, "bio", user.getBio());
+            out.name("isMod").value(user.getIsMod());
+            out.name("active").value(user.getActive());
+            out.name("loginAttempts").value(user.getLoginAttempts());
+            if (user.getLockout() != null) {
+                out.name("lockout");
+                timestamps.write(out, user.getLockout());
+            }
+            if (user.getAvatar() != null) {
+                out.name("avatar").value(user.getAvatar());
+            }
+            out.endObject();
+        }
+
+        /**
+         * Write a string field, unless it is null
+         */
+        private static void writeString(JsonWriter out, String name, String value) throws IOException {
+            if (value != null) {
+                out.name(name).value(value);
+            }
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            User user = new User();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username":
+                        user.setUsername(nextString(in));
+                        break;
+                    case "password":
+                        user.setPassword(nextString(in));
+                        break;
+                    case "email":
+                        user.setEmail(nextString(in));
+                        break;
+                    case "firstName":
+                        user.setFirstName(nextString(in));
+                        break;
+                    case "lastName":
+                        user.setLastName(nextString(in));
+                        break;
+                    case "bio":
+                        user.setBio(nextString(in));
+                        break;
+                    case "isMod":
+                        user.setIsMod(in.nextBoolean());
+                        break;
+                    case "active":
+                        user.setActive(in.nextBoolean());
+                        break;
+                    case "loginAttempts":
+                        user.setLoginAttempts(in.nextInt());
+                        break;
+                    case "lockout":
+                        user.setLockout(timestamps.read(in));
+                        break;
+                    case "avatar":
+                        user.setAvatar(nextInteger(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return user;
+        }
+    }
+
+    /**
+     * Channels, with their mods and participants.
+     */
+    private static class ChannelAdapter extends TypeAdapter<Channel> {
+        /**
+         * User adapter
+         */
+        private final TypeAdapter<User> users;
+
+        private ChannelAdapter(TypeAdapter<User> users) {
+            this.users = users;
+        }
+
+        @Override
+        public void write(JsonWriter out, Channel channel) throws IOException {
+            out.beginObject();
+            out.name("id").value(channel.getId());
+            if (channel.getName() != null) {
+                out.name("name").value(channel.getName());
+            }
+            writeUsers(out, "mods", channel.getMods());
+            writeUsers(out, "participants", channel.getParticipants());
+            out.endObject();
+        }
+
+        /**
+         * Write a set of users, unless it is null
+         */
+        private void writeUsers(JsonWriter out, String name, Set<User> value) throws IOException {
+            if (value != null) {
+                out.name(name).beginArray();
+                for (User user : value) {
+                    users.write(out, user);
+                }
+                out.endArray();
+            }
+        }
+
+        @Override
+        public Channel read(JsonReader in) throws IOException {
+            Channel channel = new Channel();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        channel.setId(in.nextInt());
+                        break;
+                    case "name":
+                        channel.setName(nextString(in));
+                        break;
+                    case "mods":
+                        channel.setMods(readUsers(in));
+                        break;
+                    case "participants":
+                        channel.setParticipants(readUsers(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return channel;
+        }
+
+        /**
+         * Read a set of users
+         */
+        private Set<User> readUsers(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Set<User> value = new HashSet<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                value.add(users.read(in));
+            }
+            in.endArray();
+            return value;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.neu.prattle.websocket;
 
 import com.neu.prattle.model.Message;
-import com.neu.prattle.model.User;
 import com.neu.prattle.service.MessageService;
 import com.neu.prattle.service.IMessageService;
 import com.neu.prattle.service.IUserService;
@@ -10,10 +9,12 @@ import com.neu.prattle.service.UserService;
 import javax.websocket.EncodeException;
 import javax.websocket.Session;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,19 +37,69 @@ public abstract class AbstractEndpoint implements IObserver {
      * The session. Represents a conversation between two ChatEndpoints.
      */
     protected Session session;
+    /**
+     * The outbound queue of the session
+     */
+    protected SessionOutbox outbox;
     /**
      * The chat subject being observed
      */
     protected IChatSubject chatSubject;
     /**
-     * The map of all chat subjects
+     * The registry key of the chat subject being observed
+     */
+    protected String subjectKey;
+    /**
+     * The avatar of the user of this endpoint, looked up once when the session opens
+     */
+    protected Integer avatar;
+    /**
+     * The registry of all chat subjects
+     */
+    protected static ChatSubjectRegistry chatSubjectRegistry = new ChatSubjectRegistry();
+    /**
+     * Capacity and overflow policy of the outbound queues. Set with the system properties
+     * prattle.outbox.capacity and prattle.outbox.policy
+     */
+    private static int outboxCapacity = Integer.getInteger("prattle.outbox.capacity", 256);
+    private static OverflowPolicy overflowPolicy = OverflowPolicy.valueOf(
+            System.getProperty("prattle.outbox.policy", OverflowPolicy.DROP_OLDEST.name()));
+    /**
+     * Number of threads starting the drains of the outboxes. The sends are asynchronous, so the
+     * threads never wait on a client. Set with the system property prattle.outbox.writers
      */
-    protected static Map<String, IChatSubject> chatSubjectHashMap = new HashMap<>();
+    private static int outboundWriters = Integer.getInteger("prattle.outbox.writers",
+            Runtime.getRuntime().availableProcessors());
+    /**
+     * The executor running the outbound writers
+     */
+    private static Executor outboundWriter = createOutboundWriter();
+    /**
+     * The codec of the binary wire format
+     */
+    private static BinaryMessageEncoder binaryEncoder = new BinaryMessageEncoder();
+    private static BinaryMessageDecoder binaryDecoder = new BinaryMessageDecoder();
     /**
      * The logger
      */
     private static Logger logger = Logger.getLogger(AbstractEndpoint.class.getName());
 
+    /**
+     * Create the default executor for the outbound writers, a fixed pool of
+     * {@link #outboundWriters} threads. Its queue holds at most one drain per outbox. Threads are
+     * daemons so they never keep the container from shutting down.
+     *
+     * @return the executor
+     */
+    private static ExecutorService createOutboundWriter() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, outboundWriters), runnable -> {
+            Thread thread = new Thread(runnable, "prattle-outbound-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * Setter for user service
      *
@@ -77,41 +128,148 @@ public abstract class AbstractEndpoint implements IObserver {
     }
 
     /**
-     * Setter for chat subject map
+     * Getter for chat subject registry
      *
-     * @param chatSubjectHashMap chat subject map
+     * @return chat subject registry
      */
-    static void setChatSubjectHashMap(Map<String, IChatSubject> chatSubjectHashMap) {
-        AbstractEndpoint.chatSubjectHashMap = chatSubjectHashMap;
+    static ChatSubjectRegistry getChatSubjectRegistry() {
+        return chatSubjectRegistry;
     }
 
     /**
-     * Get the message from chat subject and send to session
+     * Setter for chat subject registry
+     *
+     * @param chatSubjectRegistry chat subject registry
      */
-    @Override
-    public void update() {
-        try {
-            session.getBasicRemote().sendObject(chatSubject.getMessage());
-        } catch (IOException | EncodeException e) {
-            logger.log(Level.SEVERE, e.getMessage());
+    static void setChatSubjectRegistry(ChatSubjectRegistry chatSubjectRegistry) {
+        AbstractEndpoint.chatSubjectRegistry = chatSubjectRegistry;
+    }
+
+    /**
+     * Getter for the outbound queue
+     *
+     * @return the outbound queue of the session
+     */
+    SessionOutbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Setter for the executor running the outbound writers
+     *
+     * @param outboundWriter executor
+     */
+    static void setOutboundWriter(Executor outboundWriter) {
+        AbstractEndpoint.outboundWriter = outboundWriter;
+    }
+
+    /**
+     * Setter for the outbound queue configuration. Applies to sessions opened afterwards.
+     *
+     * @param capacity       maximum number of queued messages per session
+     * @param overflowPolicy what to do when a queue is full
+     */
+    static void setOutboxConfig(int capacity, OverflowPolicy overflowPolicy) {
+        AbstractEndpoint.outboxCapacity = capacity;
+        AbstractEndpoint.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Set the session of this endpoint and create its outbound queue
+     *
+     * @param session the session
+     */
+    void openSession(Session session) {
+        this.session = session;
+        this.outbox = new SessionOutbox(session, outboxCapacity, overflowPolicy, outboundWriter);
+    }
+
+    /**
+     * Whether the session negotiated the binary wire format
+     *
+     * @param session the session
+     * @return true if messages are sent and received as binary frames
+     */
+    static boolean isBinary(Session session) {
+        String subprotocol = session.getNegotiatedSubprotocol();
+        return BinaryMessageEncoder.SUBPROTOCOL.equals(subprotocol)
+                || BinaryMessageEncoder.DEFLATE_SUBPROTOCOL.equals(subprotocol);
+    }
+
+    /**
+     * Send a message straight to a session, in the wire format of the session, uncompressed.
+     * Used for the errors sent while opening, before there is an outbound queue.
+     *
+     * @param session the session
+     * @param message the message
+     * @throws IOException     if sending fails
+     * @throws EncodeException if the message cannot be encoded
+     */
+    static void sendDirect(Session session, Message message) throws IOException, EncodeException {
+        if (isBinary(session)) {
+            session.getBasicRemote().sendBinary(binaryEncoder.encode(message));
+        } else {
+            session.getBasicRemote().sendObject(message);
         }
     }
 
     /**
-     * Add the input message to database and set it to chatSubject
+     * Decode an inbound binary frame
+     *
+     * @param frame the frame
+     * @return the message, null if the frame is malformed
+     */
+    static Message decodeBinary(ByteBuffer frame) {
+        return binaryDecoder.willDecode(frame) ? binaryDecoder.decode(frame) : null;
+    }
+
+    /**
+     * Attach this endpoint to the chat subject with the input key, creating the subject if needed
+     *
+     * @param key registry key of the chat subject
+     */
+    void attachToSubject(String key) {
+        this.subjectKey = key;
+        this.chatSubject = chatSubjectRegistry.attach(key, this);
+    }
+
+    /**
+     * Detach from the chat subject and discard anything still queued for the session
+     */
+    void closeSession() {
+        if (subjectKey != null) {
+            chatSubjectRegistry.detach(subjectKey, this);
+        }
+        if (outbox != null) {
+            outbox.close();
+        }
+    }
+
+    /**
+     * Queue a message published by the chat subject for the session
+     *
+     * @param frame the published message and its encoded payload
+     */
+    @Override
+    public void update(OutboundFrame frame) {
+        outbox.offer(frame);
+    }
+
+    /**
+     * Queue the input message to be stored and publish it to chatSubject. Publishing does not
+     * wait for the database, and the sender avatar comes from the one looked up on open. Queueing
+     * gives the message its id, so it is published with the id it is stored under.
      *
      * @param message incoming message
-     * @param username username of the user who sent the message
      */
-    void addAndSetMessage(Message message, String username){
+    void addAndSetMessage(Message message){
+        message.setFromAvatar(avatar);
         try {
-            messageService.addMessage(message);
-            Optional<User> optionalUser = userService.findUserByName(username);
-            optionalUser.ifPresent(user -> message.setFromAvatar(user.getAvatar()));
+            messageService.queueMessage(message);
         } catch (SQLException e) {
             logger.log(Level.SEVERE, e.getMessage());
         }
 
-        chatSubject.setMessage(message);
+        chatSubject.publish(message);
     }
 }
@@ -0,0 +1,237 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.websocket.Decoder;
+import javax.websocket.EndpointConfig;
+
+import static com.neu.prattle.websocket.BinaryMessageEncoder.CONTENT;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.DEFLATED_VERSION;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.FROM_AVATAR;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.FROM_USERNAME;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.ID;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.TIMESTAMP;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.TO_AVATAR;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.TO_CHANNEL_ID;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.TO_USERNAME;
+import static com.neu.prattle.websocket.BinaryMessageEncoder.VERSION;
+
+/**
+ * Decodes in-bound binary frames into Message objects. See {@link BinaryMessageEncoder} for the
+ * format. Compressed frames are accepted too, up to {@link #MAX_INFLATED_SIZE} bytes uncompressed.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+public class BinaryMessageDecoder implements Decoder.Binary<Message> {
+    /**
+     * The largest frame a compressed frame may expand to
+     */
+    static final int MAX_INFLATED_SIZE = 64 * 1024;
+
+    /**
+     * The logger.
+     */
+    private static Logger logger = Logger.getLogger(BinaryMessageDecoder.class.getName());
+
+    /**
+     * From a binary frame, this method builds the Message. If the frame is malformed, a severe
+     * error is logged.
+     *
+     * @param bytes the frame that was sent.
+     * @return a Message object, null if the frame is malformed.
+     */
+    @Override
+    public Message decode(ByteBuffer bytes) {
+        ByteBuffer in = bytes.duplicate();
+        try {
+            if (in.hasRemaining() && in.get(in.position()) == DEFLATED_VERSION) {
+                in.get();
+                in = inflate(in);
+            }
+            if (in.get() != VERSION) {
+                throw new IllegalArgumentException("unknown version of binary message format");
+            }
+            int flags = in.get() & 0xFF;
+            Message message = new Message();
+            if ((flags & ID) != 0) {
+                message.setId(readInt(in));
+            }
+            if ((flags & FROM_USERNAME) != 0) {
+                message.setFromUsername(readString(in));
+            }
+            if ((flags & FROM_AVATAR) != 0) {
+                message.setFromAvatar(readInt(in));
+            }
+            if ((flags & TO_USERNAME) != 0) {
+                message.setToUsername(readString(in));
+            }
+            if ((flags & TO_AVATAR) != 0) {
+                message.setToAvatar(readInt(in));
+            }
+            if ((flags & TO_CHANNEL_ID) != 0) {
+                message.setToChannelId(readInt(in));
+            }
+            if ((flags & CONTENT) != 0) {
+                message.setContent(readString(in));
+            }
+            if ((flags & TIMESTAMP) != 0) {
+                message.setTimestamp(new Timestamp(readVarint(in)));
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("trailing bytes after binary message");
+            }
+            return message;
+        } catch (BufferUnderflowException e) {
+            logger.log(Level.SEVERE, "truncated binary message");
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+        } catch (DataFormatException e) {
+            logger.log(Level.SEVERE, "corrupt compressed binary message");
+        }
+        return null;
+    }
+
+    /**
+     * Inflate the zlib stream of a compressed frame
+     *
+     * @param in the frame after its version byte
+     * @return the uncompressed frame
+     * @throws DataFormatException if the stream is corrupt
+     */
+    private static ByteBuffer inflate(ByteBuffer in) throws DataFormatException {
+        byte[] input = new byte[in.remaining()];
+        in.get(input);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(MAX_INFLATED_SIZE, input.length * 4));
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new BufferUnderflowException();
+                }
+                out.write(chunk, 0, length);
+                if (out.size() > MAX_INFLATED_SIZE) {
+                    throw new IllegalArgumentException("compressed binary message too large");
+                }
+            }
+            if (inflater.getRemaining() > 0) {
+                throw new IllegalArgumentException("trailing bytes after compressed binary message");
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Read a zigzag encoded varint
+     *
+     * @param in the frame
+     * @return the value
+     */
+    private static long readVarint(ByteBuffer in) {
+        long zigzag = readUnsigned(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Read an unsigned value in 7 bit groups
+     *
+     * @param in the frame
+     * @return the value
+     */
+    private static long readUnsigned(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint too long in binary message");
+    }
+
+    /**
+     * Read a varint that must fit an int
+     *
+     * @param in the frame
+     * @return the value
+     */
+    private static int readInt(ByteBuffer in) {
+        long value = readVarint(in);
+        if (value != (int) value) {
+            throw new IllegalArgumentException("integer out of range in binary message");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Read a length prefixed UTF-8 string
+     *
+     * @param in the frame
+     * @return the string
+     */
+    private static String readString(ByteBuffer in) {
+        long length = readUnsigned(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), (int) length, StandardCharsets.UTF_8);
+            in.position(in.position() + (int) length);
+            return value;
+        }
+        // direct or read only buffers of the container
+        byte[] value = new byte[(int) length];
+        in.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Will decode.
+     *
+     * Tests if there's a frame to decode. This is required by the Decoder.Binary<> interface.
+     *
+     * @param bytes the frame.
+     * @return true, if successful; otherwise false.
+     */
+    @Override
+    public boolean willDecode(ByteBuffer bytes) {
+        return bytes != null && bytes.hasRemaining();
+    }
+
+    /**
+     * Custom code if anything special is needed when establishing the session with a particular
+     * endpoint (the websocket). Not used at present.
+     *
+     * @param endpointConfig the endpoint config.
+     */
+    @Override
+    public void init(EndpointConfig endpointConfig) {
+        // Custom initialization logic
+    }
+
+    /**
+     * Destroy.
+     *
+     * Nothing to release.
+     */
+    @Override
+    public void destroy() {
+        // Close resources
+    }
+}
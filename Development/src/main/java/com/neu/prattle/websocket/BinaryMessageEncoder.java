@@ -0,0 +1,267 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+
+import javax.websocket.Encoder;
+import javax.websocket.EndpointConfig;
+
+/**
+ * The Class BinaryMessageEncoder converts Message objects into the binary wire format, the
+ * compact alternative to JSON for clients that ask for the {@link #SUBPROTOCOL} subprotocol.
+ *
+ * A frame is a version byte, a byte of flags telling which fields follow, then the present
+ * fields in this order:
+ * <pre>
+ *   flag 0x01  id             varint
+ *   flag 0x02  fromUsername   string
+ *   flag 0x04  fromAvatar     varint
+ *   flag 0x08  toUsername     string
+ *   flag 0x10  toAvatar       varint
+ *   flag 0x20  toChannelId    varint
+ *   flag 0x40  content        string
+ *   flag 0x80  timestamp      varint, milliseconds since the epoch
+ * </pre>
+ * A varint is a zigzag encoded signed integer in 7 bit groups, least significant first, the high
+ * bit set on all groups but the last. A string is the length of its UTF-8 bytes, in 7 bit groups
+ * the same way but without the zigzag, followed by the bytes. The conversation key is not sent;
+ * it follows from the usernames.
+ *
+ * Clients that ask for the {@link #DEFLATE_SUBPROTOCOL} subprotocol instead may also get and send
+ * compressed frames: the version byte {@link #DEFLATED_VERSION} followed by a whole frame of the
+ * format above as a zlib stream. See {@link FrameCompressor} for which frames are compressed.
+ *
+ * @author Team 9
+ * @version dated 2019-12-07
+ */
+public class BinaryMessageEncoder implements Encoder.Binary<Message> {
+    /**
+     * The websocket subprotocol selecting the binary wire format
+     */
+    public static final String SUBPROTOCOL = "prattle.binary.v1";
+    /**
+     * The websocket subprotocol selecting the binary wire format with compressed frames
+     */
+    public static final String DEFLATE_SUBPROTOCOL = "prattle.binary.v1.deflate";
+
+    /**
+     * The version byte of the format
+     */
+    static final int VERSION = 1;
+    /**
+     * The version byte of a compressed frame
+     */
+    static final int DEFLATED_VERSION = 2;
+
+    /**
+     * The field flags
+     */
+    static final int ID = 0x01;
+    static final int FROM_USERNAME = 0x02;
+    static final int FROM_AVATAR = 0x04;
+    static final int TO_USERNAME = 0x08;
+    static final int TO_AVATAR = 0x10;
+    static final int TO_CHANNEL_ID = 0x20;
+    static final int CONTENT = 0x40;
+    static final int TIMESTAMP = 0x80;
+
+    /**
+     * Encode converts a Message object into a binary frame.
+     *
+     * @param message What needs to be serialized.
+     * @return the frame, positioned at its start.
+     */
+    @Override
+    public ByteBuffer encode(Message message) {
+        return encode(message, ByteBuffer::allocate);
+    }
+
+    /**
+     * Encode a message into a buffer of the input allocator, sized to the frame.
+     *
+     * @param message   What needs to be serialized.
+     * @param allocator gives a buffer for a number of bytes, positioned at 0 with the number as
+     *                  its limit
+     * @return the frame, positioned at its start.
+     */
+    ByteBuffer encode(Message message, IntFunction<ByteBuffer> allocator) {
+        byte[] from = bytes(message.getFromUsername());
+        byte[] to = bytes(message.getToUsername());
+        byte[] content = bytes(message.getContent());
+        int flags = (message.getId() != 0 ? ID : 0)
+                | (from != null ? FROM_USERNAME : 0)
+                | (message.getFromAvatar() != null ? FROM_AVATAR : 0)
+                | (to != null ? TO_USERNAME : 0)
+                | (message.getToAvatar() != null ? TO_AVATAR : 0)
+                // -1 stands for no channel
+                | (message.getToChannelId() != -1 ? TO_CHANNEL_ID : 0)
+                | (content != null ? CONTENT : 0)
+                | (message.getTimestamp() != null ? TIMESTAMP : 0);
+
+        int size = 2;
+        if ((flags & ID) != 0) {
+            size += varintSize(message.getId());
+        }
+        if ((flags & FROM_USERNAME) != 0) {
+            size += bytesSize(from);
+        }
+        if ((flags & FROM_AVATAR) != 0) {
+            size += varintSize(message.getFromAvatar());
+        }
+        if ((flags & TO_USERNAME) != 0) {
+            size += bytesSize(to);
+        }
+        if ((flags & TO_AVATAR) != 0) {
+            size += varintSize(message.getToAvatar());
+        }
+        if ((flags & TO_CHANNEL_ID) != 0) {
+            size += varintSize(message.getToChannelId());
+        }
+        if ((flags & CONTENT) != 0) {
+            size += bytesSize(content);
+        }
+        if ((flags & TIMESTAMP) != 0) {
+            size += varintSize(message.getTimestamp().getTime());
+        }
+
+        ByteBuffer out = allocator.apply(size);
+        out.put((byte) VERSION);
+        out.put((byte) flags);
+        if ((flags & ID) != 0) {
+            writeVarint(out, message.getId());
+        }
+        if ((flags & FROM_USERNAME) != 0) {
+            writeBytes(out, from);
+        }
+        if ((flags & FROM_AVATAR) != 0) {
+            writeVarint(out, message.getFromAvatar());
+        }
+        if ((flags & TO_USERNAME) != 0) {
+            writeBytes(out, to);
+        }
+        if ((flags & TO_AVATAR) != 0) {
+            writeVarint(out, message.getToAvatar());
+        }
+        if ((flags & TO_CHANNEL_ID) != 0) {
+            writeVarint(out, message.getToChannelId());
+        }
+        if ((flags & CONTENT) != 0) {
+            writeBytes(out, content);
+        }
+        if ((flags & TIMESTAMP) != 0) {
+            writeVarint(out, message.getTimestamp().getTime());
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * The UTF-8 bytes of a string
+     *
+     * @param value the string, may be null
+     * @return the bytes, null for null
+     */
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Zigzag encode a signed value
+     *
+     * @param value the value
+     * @return the zigzag encoded value
+     */
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * The number of bytes of an unsigned value in 7 bit groups
+     *
+     * @param value the value
+     * @return the number of bytes, 1 to 10
+     */
+    private static int unsignedSize(long value) {
+        return value == 0 ? 1 : (63 - Long.numberOfLeadingZeros(value)) / 7 + 1;
+    }
+
+    /**
+     * The number of bytes of a zigzag encoded varint
+     *
+     * @param value the value
+     * @return the number of bytes
+     */
+    private static int varintSize(long value) {
+        return unsignedSize(zigzag(value));
+    }
+
+    /**
+     * The number of bytes of a length prefixed byte array
+     *
+     * @param value the bytes
+     * @return the number of bytes
+     */
+    private static int bytesSize(byte[] value) {
+        return unsignedSize(value.length) + value.length;
+    }
+
+    /**
+     * Write a zigzag encoded varint
+     *
+     * @param out   the output
+     * @param value the value
+     */
+    private static void writeVarint(ByteBuffer out, long value) {
+        writeUnsigned(out, zigzag(value));
+    }
+
+    /**
+     * Write an unsigned value in 7 bit groups
+     *
+     * @param out   the output
+     * @param value the value
+     */
+    private static void writeUnsigned(ByteBuffer out, long value) {
+        long rest = value;
+        while ((rest & ~0x7FL) != 0) {
+            out.put((byte) ((rest & 0x7F) | 0x80));
+            rest >>>= 7;
+        }
+        out.put((byte) rest);
+    }
+
+    /**
+     * Write a length prefixed byte array
+     *
+     * @param out   the output
+     * @param value the bytes
+     */
+    private static void writeBytes(ByteBuffer out, byte[] value) {
+        writeUnsigned(out, value.length);
+        out.put(value);
+    }
+
+    /**
+     * Custom code if anything special is needed when establishing the session with a particular
+     * endpoint (the websocket). Not used at present.
+     *
+     * @param endpointConfig the endpoint config.
+     */
+    @Override
+    public void init(EndpointConfig endpointConfig) {
+        // Custom initialization logic
+    }
+
+    /**
+     * Destroy.
+     *
+     * Nothing to release.
+     */
+    @Override
+    public void destroy() {
+        // Close resources
+    }
+}
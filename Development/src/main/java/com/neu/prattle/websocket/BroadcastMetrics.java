@@ -0,0 +1,74 @@
+package com.neu.prattle.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the broadcast path. Every published message is serialized once into an
+ * {@link OutboundFrame} and then delivered to each observing session, so the serializations saved
+ * are the deliveries minus the serializations.
+ *
+ * @author Team 9
+ * @version dated 2019-12-03
+ */
+public abstract class BroadcastMetrics {
+    /**
+     * Number of messages serialized into frames
+     */
+    private static final AtomicLong serializationCount = new AtomicLong();
+    /**
+     * Number of frames written to sessions
+     */
+    private static final AtomicLong deliveryCount = new AtomicLong();
+
+    private BroadcastMetrics() {
+    }
+
+    /**
+     * Record that a message was serialized into a frame
+     */
+    static void recordSerialization() {
+        serializationCount.incrementAndGet();
+    }
+
+    /**
+     * Record that a frame was written to a session
+     */
+    static void recordDelivery() {
+        deliveryCount.incrementAndGet();
+    }
+
+    /**
+     * Getter for the number of serializations
+     *
+     * @return serialization count
+     */
+    public static long getSerializationCount() {
+        return serializationCount.get();
+    }
+
+    /**
+     * Getter for the number of deliveries
+     *
+     * @return delivery count
+     */
+    public static long getDeliveryCount() {
+        return deliveryCount.get();
+    }
+
+    /**
+     * Getter for the number of serializations avoided by sharing one frame between sessions
+     *
+     * @return avoided serialization count
+     */
+    public static long getAvoidedSerializationCount() {
+        return Math.max(0, deliveryCount.get() - serializationCount.get());
+    }
+
+    /**
+     * Reset all counters
+     */
+    public static void reset() {
+        serializationCount.set(0);
+        deliveryCount.set(0);
+    }
+}
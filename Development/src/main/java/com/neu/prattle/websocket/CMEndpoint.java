@@ -1,6 +1,6 @@
 package com.neu.prattle.websocket;
 
-import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.ChannelMembership;
 import com.neu.prattle.model.Message;
 import com.neu.prattle.model.User;
 import com.neu.prattle.service.ChannelService;
@@ -9,6 +9,7 @@ import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
@@ -19,12 +20,17 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * CM chat end point. Handles channel messages
+ * CM chat end point. Handles channel messages. Clients may ask for the binary wire format with
+ * the subprotocol {@link BinaryMessageEncoder#SUBPROTOCOL}, or for it with compressed frames with
+ * {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}; the others use JSON text. The handshake also
+ * negotiates permessage-deflate, see {@link DeflateConfigurator}.
  *
  * @author Team9
  * @version dated 2019-11-20
  */
-@ServerEndpoint(value = "/cm/{channel_id}/{username}", decoders = MessageDecoder.class, encoders = MessageEncoder.class)
+@ServerEndpoint(value = "/cm/{channel_id}/{username}", decoders = MessageDecoder.class, encoders = MessageEncoder.class,
+        subprotocols = {BinaryMessageEncoder.DEFLATE_SUBPROTOCOL, BinaryMessageEncoder.SUBPROTOCOL},
+        configurator = DeflateConfigurator.class)
 public class CMEndpoint extends AbstractEndpoint {
     /**
      * The from username and to channel id of the endpoint
@@ -45,16 +51,10 @@ public class CMEndpoint extends AbstractEndpoint {
      * @param channelId  the channel id of the target channel
      */
     private void addEndpoint(Session session, String username, int channelId) {
-        this.session = session;
+        openSession(session);
         this.username = username;
         this.channelId = channelId;
-        IChatSubject subject = chatSubjectHashMap.getOrDefault("channel" + channelId, null);
-        if (subject == null) {
-            subject = new ChatSubject();
-            chatSubjectHashMap.put("channel" + channelId, subject);
-        }
-        this.chatSubject = subject;
-        chatSubject.attach(this);
+        attachToSubject("channel" + channelId);
     }
 
     /**
@@ -81,25 +81,27 @@ public class CMEndpoint extends AbstractEndpoint {
                         .setMessageContent(String.format("User %s could not be found", username))
                         .build();
 
-                session.getBasicRemote().sendObject(error);
+                sendDirect(session, error);
                 return;
             }
 
-            Optional<Channel> channel = ChannelService.getInstance().getChannelById(channelId);
+            Optional<ChannelMembership> channel = ChannelService.getInstance().getChannelMembership(channelId);
             if (!channel.isPresent()) {
                 Message error = Message.messageBuilder()
                         .setMessageContent(String.format("Channel %d could not be found", channelId))
                         .build();
-                session.getBasicRemote().sendObject(error);
+                sendDirect(session, error);
                 return;
             }
 
+            avatar = user.get().getAvatar();
+
             addEndpoint(session, username, channelId);
         } catch (SQLException e) {
             Message error = Message.messageBuilder().setMessageContent(
                     String.format("Database error: %s", e.getMessage()))
                     .build();
-            session.getBasicRemote().sendObject(error);
+            sendDirect(session, error);
             logger.log(Level.SEVERE, e.getMessage());
         }
     }
@@ -118,17 +120,33 @@ public class CMEndpoint extends AbstractEndpoint {
         message.setToUsername(null);
         message.setTimestamp(Timestamp.valueOf(LocalDateTime.ofInstant(Calendar.getInstance().toInstant(), ZoneId.of("America/New_York"))));
         
-        addAndSetMessage(message, username);
+        addAndSetMessage(message);
+    }
+
+    /**
+     * On binary message
+     * Handles a message sent in the binary wire format, see {@link BinaryMessageEncoder}. Malformed
+     * frames are dropped.
+     *
+     * @param session the session originating the message.
+     * @param frame   the binary inbound message.
+     */
+    @OnMessage
+    public void onBinaryMessage(Session session, ByteBuffer frame) {
+        Message message = decodeBinary(frame);
+        if (message != null) {
+            onMessage(session, message);
+        }
     }
 
     /**
      * On close.
-     * Closes the session by detaching it from the chat subject
+     * Closes the session by detaching it from the chat subject and discarding its outbound queue
      *
      * @param session the session.
      */
     @OnClose
     public void onClose(Session session) {
-        chatSubject.detach(this);
+        closeSession();
     }
 }
@@ -208,7 +208,7 @@ public class ChatEndpoint {
         message.setTimestamp(new Timestamp(System.currentTimeMillis()));
 
         try {
-            messageService.addMessage(message);
+            messageService.queueMessage(message);
         } catch (SQLException e) {
             logger.log(Level.SEVERE, e.getMessage());
         }
@@ -4,71 +4,115 @@ import com.neu.prattle.model.Message;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * The chat subject using observer pattern
+ * The chat subject using observer pattern. Published messages are encoded once into an
+ * {@link OutboundFrame} and go into a {@link MessageRingBuffer}; every attached observer consumes
+ * them through its own cursor, so concurrent senders never overwrite each other and each observer
+ * gets every message once, in sequence order. Frames are released from the ring once every
+ * observer has received them, and all of them once the last observer detaches.
  *
  * @author Team 9
  * @version dated 2019-11-20
  */
 public class ChatSubject implements IChatSubject {
     /**
-     * The message of the subject
+     * Default ring capacity. Set with the system property prattle.ring.capacity
      */
-    private Message message;
+    private static final int DEFAULT_CAPACITY = Integer.getInteger("prattle.ring.capacity", 1024);
 
     /**
-     * The list of observers attached
+     * The ring of published messages
      */
-    private List<IObserver> observers = new ArrayList<>();
+    private final MessageRingBuffer ringBuffer;
 
     /**
-     * Get message
+     * The subscriptions of the attached observers
+     */
+    private final Map<IObserver, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * The pool of the binary payloads of published frames
+     */
+    private final FrameBufferPool pool;
+
+    /**
+     * Constructor with the default ring capacity
+     */
+    public ChatSubject() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
      *
-     * @return message
+     * @param capacity ring capacity, must be a power of two
      */
-    public Message getMessage() {
-        return message;
+    public ChatSubject(int capacity) {
+        this(capacity, FrameBufferPool.getInstance());
     }
 
     /**
-     * Set message and notify observers
+     * Constructor
      *
-     * @param message message to set
+     * @param capacity ring capacity, must be a power of two
+     * @param pool     the pool of the binary payloads
      */
-    public void setMessage(Message message) {
-        this.message = message;
+    ChatSubject(int capacity, FrameBufferPool pool) {
+        this.ringBuffer = new MessageRingBuffer(capacity);
+        this.pool = pool;
+    }
+
+    /**
+     * Encode a message once, publish it and notify observers
+     *
+     * @param message message to publish
+     */
+    @Override
+    public void publish(Message message) {
+        ringBuffer.publish(new OutboundFrame(message, pool), this::notifyObservers);
         notifyObservers();
     }
 
     /**
-     * Attach an observer
+     * Attach an observer. It receives the messages published from now on.
      *
      * @param observer the observer to attack
      */
     @Override
     public void attach(IObserver observer) {
-        observers.add(observer);
+        subscriptions.computeIfAbsent(observer, o -> new Subscription(o, ringBuffer.addCursor()));
     }
 
     /**
-     * Detach an observer
+     * Detach an observer. Frames only it had still to receive are released, and every frame once
+     * the last observer is gone.
      *
      * @param observer the observer to detach
      */
     @Override
     public void detach(IObserver observer) {
-        observers.remove(observer);
+        Subscription subscription = subscriptions.remove(observer);
+        if (subscription != null) {
+            ringBuffer.removeCursor(subscription.cursor);
+            ringBuffer.releaseConsumed();
+        }
     }
 
     /**
-     * Notify all attached observers
+     * Deliver all published messages each attached observer has not seen yet, then release the
+     * frames all of them have received
      */
     @Override
     public void notifyObservers() {
-        for (IObserver observer : observers) {
-            observer.update();
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.drain();
         }
+        ringBuffer.releaseConsumed();
     }
 
     /**
@@ -78,6 +122,59 @@ public class ChatSubject implements IChatSubject {
      */
     @Override
     public List<IObserver> getObservers() {
-        return observers;
+        return new ArrayList<>(subscriptions.keySet());
+    }
+
+    /**
+     * An observer together with its cursor into the ring
+     */
+    private class Subscription {
+        /**
+         * The observer
+         */
+        private final IObserver observer;
+        /**
+         * The next sequence number the observer will receive
+         */
+        private final AtomicLong cursor;
+        /**
+         * True while a thread is delivering messages to the observer
+         */
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        /**
+         * Constructor
+         *
+         * @param observer the observer
+         * @param cursor   the cursor
+         */
+        Subscription(IObserver observer, AtomicLong cursor) {
+            this.observer = observer;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Deliver published messages from the cursor on. Only one thread delivers to an observer at
+         * a time; the others return at once. The published check after releasing the flag makes
+         * sure a message published in between is not left behind.
+         */
+        void drain() {
+            do {
+                if (!draining.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    long sequence = cursor.get();
+                    OutboundFrame frame;
+                    while ((frame = ringBuffer.get(sequence)) != null) {
+                        observer.update(frame);
+                        sequence++;
+                        cursor.set(sequence);
+                    }
+                } finally {
+                    draining.set(false);
+                }
+            } while (ringBuffer.isPublished(cursor.get()));
+        }
     }
 }
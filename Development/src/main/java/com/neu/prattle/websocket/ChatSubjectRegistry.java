@@ -0,0 +1,68 @@
+package com.neu.prattle.websocket;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe registry of chat subjects keyed by channel or conversation. Subjects are created
+ * on the first attach and evicted when their last observer detaches. Attach and detach for a key
+ * run atomically, so an observer can never end up on a subject that was just evicted.
+ *
+ * @author Team 9
+ * @version dated 2019-12-02
+ */
+public class ChatSubjectRegistry {
+    /**
+     * The subjects by key
+     */
+    private final ConcurrentMap<String, IChatSubject> subjects = new ConcurrentHashMap<>();
+
+    /**
+     * Attach an observer to the subject with the input key, creating the subject if needed
+     *
+     * @param key      subject key
+     * @param observer observer to attach
+     * @return the subject the observer is attached to
+     */
+    public IChatSubject attach(String key, IObserver observer) {
+        return subjects.compute(key, (k, subject) -> {
+            IChatSubject result = subject == null ? new ChatSubject() : subject;
+            result.attach(observer);
+            return result;
+        });
+    }
+
+    /**
+     * Detach an observer from the subject with the input key. The subject is evicted when it has
+     * no observers left.
+     *
+     * @param key      subject key
+     * @param observer observer to detach
+     */
+    public void detach(String key, IObserver observer) {
+        subjects.computeIfPresent(key, (k, subject) -> {
+            subject.detach(observer);
+            return subject.getObservers().isEmpty() ? null : subject;
+        });
+    }
+
+    /**
+     * Get the subject with the input key
+     *
+     * @param key subject key
+     * @return optional subject
+     */
+    public Optional<IChatSubject> get(String key) {
+        return Optional.ofNullable(subjects.get(key));
+    }
+
+    /**
+     * Get the number of live subjects
+     *
+     * @return number of subjects
+     */
+    public int size() {
+        return subjects.size();
+    }
+}
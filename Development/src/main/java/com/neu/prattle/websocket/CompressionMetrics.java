@@ -0,0 +1,145 @@
+package com.neu.prattle.websocket;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compression counters of one session on {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}: how
+ * many frames and bytes were sent, how many of them compressed, and the CPU time spent
+ * compressing. A frame is compressed once and shared by every session it goes to, so its CPU time
+ * is charged to the session that compressed it, and the others get it for free.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+public class CompressionMetrics {
+    /**
+     * The thread bean, for the CPU time of the current thread
+     */
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    /**
+     * Whether the CPU time of the current thread is available
+     */
+    private static final boolean cpuTimeSupported = cpuTimeSupported();
+
+    /**
+     * Metrics
+     */
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+
+    /**
+     * Whether the JVM measures the CPU time of the current thread, turning it on if it can
+     *
+     * @return true if it does
+     */
+    private static boolean cpuTimeSupported() {
+        try {
+            if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+                threads.setThreadCpuTimeEnabled(true);
+            }
+            return threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The CPU time of the current thread, the wall clock time if the JVM does not measure it
+     *
+     * @return time in nanoseconds, only meaningful as a difference
+     */
+    static long cpuTime() {
+        return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Record a frame sent to the session
+     *
+     * @param rawSize  bytes of the frame uncompressed
+     * @param sentSize bytes sent
+     */
+    void recordFrame(int rawSize, int sentSize) {
+        frameCount.incrementAndGet();
+        if (sentSize < rawSize) {
+            compressedCount.incrementAndGet();
+        }
+        rawBytes.addAndGet(rawSize);
+        sentBytes.addAndGet(sentSize);
+    }
+
+    /**
+     * Record the time spent compressing a frame
+     *
+     * @param nanos CPU time in nanoseconds
+     */
+    void recordCompression(long nanos) {
+        compressionNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Getter for the number of frames sent
+     *
+     * @return frame count
+     */
+    public long getFrameCount() {
+        return frameCount.get();
+    }
+
+    /**
+     * Getter for the number of frames sent compressed
+     *
+     * @return compressed frame count
+     */
+    public long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    /**
+     * Getter for the bytes of the frames sent, uncompressed
+     *
+     * @return raw byte count
+     */
+    public long getRawBytes() {
+        return rawBytes.get();
+    }
+
+    /**
+     * Getter for the bytes sent
+     *
+     * @return sent byte count
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * Getter for the CPU time spent compressing frames for the session
+     *
+     * @return time in nanoseconds
+     */
+    public long getCompressionNanos() {
+        return compressionNanos.get();
+    }
+
+    /**
+     * Getter for the compression ratio
+     *
+     * @return raw bytes per byte sent, 1 before anything is sent
+     */
+    public double getCompressionRatio() {
+        long sent = sentBytes.get();
+        return sent == 0 ? 1 : (double) rawBytes.get() / sent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames, %d compressed, %d bytes sent for %d (ratio %.2f), %d us compressing",
+                getFrameCount(), getCompressedCount(), getSentBytes(), getRawBytes(), getCompressionRatio(),
+                getCompressionNanos() / 1000);
+    }
+}
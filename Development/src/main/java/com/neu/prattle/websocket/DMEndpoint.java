@@ -7,6 +7,7 @@ import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
@@ -17,12 +18,17 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * DM chat end point. Handles direct messages
+ * DM chat end point. Handles direct messages. Clients may ask for the binary wire format with
+ * the subprotocol {@link BinaryMessageEncoder#SUBPROTOCOL}, or for it with compressed frames with
+ * {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}; the others use JSON text. The handshake also
+ * negotiates permessage-deflate, see {@link DeflateConfigurator}.
  *
  * @author Team9
  * @version dated 2019-11-20
  */
-@ServerEndpoint(value = "/dm/{to_username}/{username}", decoders = MessageDecoder.class, encoders = MessageEncoder.class)
+@ServerEndpoint(value = "/dm/{to_username}/{username}", decoders = MessageDecoder.class, encoders = MessageEncoder.class,
+        subprotocols = {BinaryMessageEncoder.DEFLATE_SUBPROTOCOL, BinaryMessageEncoder.SUBPROTOCOL},
+        configurator = DeflateConfigurator.class)
 public class DMEndpoint extends AbstractEndpoint {
     /**
      * The from username and to username of the endpoint
@@ -43,17 +49,22 @@ public class DMEndpoint extends AbstractEndpoint {
      * @param toUsername the username of the target user
      */
     private void addEndpoint(Session session, String username, String toUsername) {
-        this.session = session;
+        openSession(session);
         this.username = username;
         this.toUsername = toUsername;
-        IChatSubject subject = chatSubjectHashMap.getOrDefault(toUsername + "-" + username,
-                chatSubjectHashMap.getOrDefault(username + "-" + toUsername, null));
-        if (subject == null) {
-            subject = new ChatSubject();
-            chatSubjectHashMap.put(username + "-" + toUsername, subject);
-        }
-        this.chatSubject = subject;
-        chatSubject.attach(this);
+        attachToSubject(getSubjectKey(username, toUsername));
+    }
+
+    /**
+     * Get the chat subject key of the conversation between two users, which is the conversation
+     * key also stored on the messages. The key is the same whichever user is given first.
+     *
+     * @param user1 the first user's username
+     * @param user2 the second user's username
+     * @return the chat subject key
+     */
+    static String getSubjectKey(String user1, String user2) {
+        return Message.conversationKey(user1, user2);
     }
 
     /**
@@ -80,16 +91,18 @@ public class DMEndpoint extends AbstractEndpoint {
                         .setMessageContent(String.format("User %s could not be found", username))
                         .build();
 
-                session.getBasicRemote().sendObject(error);
+                sendDirect(session, error);
                 return;
             }
 
+            avatar = user.get().getAvatar();
+
             addEndpoint(session, username, toUsername);
         } catch (SQLException e) {
             Message error = Message.messageBuilder().setMessageContent(
                     String.format("Database error: %s", e.getMessage()))
                     .build();
-            session.getBasicRemote().sendObject(error);
+            sendDirect(session, error);
             logger.log(Level.SEVERE, e.getMessage());
         }
     }
@@ -108,17 +121,33 @@ public class DMEndpoint extends AbstractEndpoint {
         message.setToChannelId(null);
         message.setTimestamp(Timestamp.valueOf(LocalDateTime.ofInstant(Calendar.getInstance().toInstant(), ZoneId.of("America/New_York"))));
 
-        addAndSetMessage(message, username);
+        addAndSetMessage(message);
+    }
+
+    /**
+     * On binary message
+     * Handles a message sent in the binary wire format, see {@link BinaryMessageEncoder}. Malformed
+     * frames are dropped.
+     *
+     * @param session the session originating the message.
+     * @param frame   the binary inbound message.
+     */
+    @OnMessage
+    public void onBinaryMessage(Session session, ByteBuffer frame) {
+        Message message = decodeBinary(frame);
+        if (message != null) {
+            onMessage(session, message);
+        }
     }
 
     /**
      * On close.
-     * Closes the session by detaching it from the chat subject
+     * Closes the session by detaching it from the chat subject and discarding its outbound queue
      *
      * @param session the session.
      */
     @OnClose
     public void onClose(Session session) {
-        chatSubject.detach(this);
+        closeSession();
     }
 }
@@ -0,0 +1,104 @@
+package com.neu.prattle.websocket;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.websocket.Extension;
+import javax.websocket.server.ServerEndpointConfig;
+
+/**
+ * Handshake configuration of the chat endpoints, choosing how their traffic is compressed.
+ *
+ * Browsers ask for the permessage-deflate extension, which the container then applies to every
+ * message of the session in both directions. The extension gives the application no say over
+ * single messages, so for clients that can use it, {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}
+ * does the compression in the application instead: only frames of at least a threshold are
+ * compressed, each once for all the sessions it goes to, and every session keeps
+ * {@link CompressionMetrics}. See {@link FrameCompressor}. The extension is not negotiated
+ * together with that subprotocol, since it would compress the frames again.
+ *
+ * Both are on by default and turned off with the system property prattle.deflate.enabled set to
+ * false, for deployments where CPU is scarcer than bandwidth.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+public class DeflateConfigurator extends ServerEndpointConfig.Configurator {
+    /**
+     * The name of the websocket compression extension
+     */
+    public static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    /**
+     * Whether compression is negotiated
+     */
+    private static boolean enabled = Boolean.parseBoolean(System.getProperty("prattle.deflate.enabled", "true"));
+
+    /**
+     * The subprotocol negotiated by the handshake in progress on the current thread. The container
+     * negotiates the subprotocol before the extensions, on the same thread, and shares one
+     * configurator between all handshakes of an endpoint.
+     */
+    private final ThreadLocal<String> negotiatedSubprotocol = new ThreadLocal<>();
+
+    /**
+     * Setter for whether compression is negotiated. Applies to handshakes started afterwards.
+     *
+     * @param enabled false to negotiate no compression
+     */
+    static void setEnabled(boolean enabled) {
+        DeflateConfigurator.enabled = enabled;
+    }
+
+    /**
+     * Choose the first subprotocol asked for by the client that the endpoint supports, leaving out
+     * {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL} when compression is off
+     *
+     * @param supported subprotocols of the endpoint
+     * @param requested subprotocols of the client, in its order of preference
+     * @return the subprotocol, the empty string if there is none in common
+     */
+    @Override
+    public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+        String negotiated = "";
+        for (String subprotocol : requested) {
+            if (supported.contains(subprotocol)
+                    && (enabled || !BinaryMessageEncoder.DEFLATE_SUBPROTOCOL.equals(subprotocol))) {
+                negotiated = subprotocol;
+                break;
+            }
+        }
+        negotiatedSubprotocol.set(negotiated);
+        return negotiated;
+    }
+
+    /**
+     * Choose the extensions asked for by the client that the container has, leaving out
+     * permessage-deflate when compression is off or the application compresses the frames
+     *
+     * @param installed extensions of the container
+     * @param requested extensions of the client, in its order of preference
+     * @return the extensions, in the order of the client
+     */
+    @Override
+    public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+        String subprotocol = negotiatedSubprotocol.get();
+        negotiatedSubprotocol.remove();
+        boolean deflate = enabled && !BinaryMessageEncoder.DEFLATE_SUBPROTOCOL.equals(subprotocol);
+
+        Set<String> installedNames = new HashSet<>();
+        for (Extension extension : installed) {
+            installedNames.add(extension.getName());
+        }
+        List<Extension> negotiated = new ArrayList<>();
+        for (Extension extension : requested) {
+            if (installedNames.contains(extension.getName())
+                    && (deflate || !PERMESSAGE_DEFLATE.equals(extension.getName()))) {
+                negotiated.add(extension);
+            }
+        }
+        return negotiated;
+    }
+}
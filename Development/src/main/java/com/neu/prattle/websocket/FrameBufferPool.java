@@ -0,0 +1,176 @@
+package com.neu.prattle.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers for the binary payloads of outbound frames. Buffers come in
+ * power of two sizes from {@link #MIN_SIZE} to {@link #MAX_SIZE} bytes, and each size keeps at
+ * most the system property prattle.framepool.bytesPerSize bytes (1 MiB by default) of free
+ * buffers. Larger requests get a heap buffer that is not pooled. A buffer handed back is reused
+ * by the next request of its size, so a burst of messages stops allocating once the pool is warm.
+ *
+ * The pool does not track who holds a buffer: the holder must hand it back exactly once and
+ * stop using it afterwards. {@link OutboundFrame} does this with a reference count.
+ *
+ * @author Team 9
+ * @version dated 2019-12-08
+ */
+public class FrameBufferPool {
+    /**
+     * Smallest and largest pooled buffer size
+     */
+    static final int MIN_SIZE = 256;
+    static final int MAX_SIZE = 64 * 1024;
+
+    /**
+     * The pool instance
+     */
+    private static final FrameBufferPool pool = new FrameBufferPool(
+            Integer.getInteger("prattle.framepool.bytesPerSize", 1024 * 1024));
+
+    /**
+     * The free buffers of each size, smallest size first
+     */
+    private final Queue<ByteBuffer>[] free;
+    /**
+     * The number of free buffers of each size
+     */
+    private final AtomicInteger[] freeCount;
+    /**
+     * The maximum number of free buffers of each size
+     */
+    private final int[] maxFree;
+    /**
+     * Metrics
+     */
+    private final AtomicLong allocatedCount = new AtomicLong();
+    private final AtomicLong reusedCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param bytesPerSize maximum bytes of free buffers kept for each size
+     */
+    @SuppressWarnings("unchecked")
+    FrameBufferPool(int bytesPerSize) {
+        int sizes = Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+        free = new Queue[sizes];
+        freeCount = new AtomicInteger[sizes];
+        maxFree = new int[sizes];
+        for (int i = 0; i < sizes; i++) {
+            free[i] = new ConcurrentLinkedQueue<>();
+            freeCount[i] = new AtomicInteger();
+            maxFree[i] = bytesPerSize / (MIN_SIZE << i);
+        }
+    }
+
+    /**
+     * Call this method to return an instance (singleton design pattern).
+     *
+     * @return the instance of this pool.
+     */
+    public static FrameBufferPool getInstance() {
+        return pool;
+    }
+
+    /**
+     * The index of the smallest pooled size holding the input number of bytes
+     *
+     * @param size number of bytes
+     * @return the index, -1 if larger than the largest size
+     */
+    private static int sizeIndex(int size) {
+        if (size > MAX_SIZE) {
+            return -1;
+        }
+        int rounded = size <= MIN_SIZE ? MIN_SIZE : Integer.highestOneBit(size - 1) << 1;
+        return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    /**
+     * Get a buffer for the input number of bytes, reusing a free one if there is one
+     *
+     * @param size number of bytes
+     * @return a buffer positioned at 0 with its limit at size
+     */
+    public ByteBuffer acquire(int size) {
+        int index = sizeIndex(size);
+        if (index < 0) {
+            return ByteBuffer.allocate(size);
+        }
+        ByteBuffer buffer = free[index].poll();
+        if (buffer != null) {
+            freeCount[index].decrementAndGet();
+            reusedCount.incrementAndGet();
+        } else {
+            buffer = ByteBuffer.allocateDirect(MIN_SIZE << index);
+            allocatedCount.incrementAndGet();
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Hand back a buffer got from {@link #acquire(int)}. Buffers that are not pooled, or that do
+     * not fit in the pool, are left to the garbage collector.
+     *
+     * @param buffer the buffer
+     */
+    public void release(ByteBuffer buffer) {
+        int index = buffer.isDirect() ? sizeIndex(buffer.capacity()) : -1;
+        if (index < 0 || (MIN_SIZE << index) != buffer.capacity()) {
+            return;
+        }
+        if (freeCount[index].incrementAndGet() > maxFree[index]) {
+            freeCount[index].decrementAndGet();
+            discardedCount.incrementAndGet();
+            return;
+        }
+        free[index].offer(buffer);
+    }
+
+    /**
+     * Getter for the number of buffers allocated by the pool
+     *
+     * @return allocated count
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+    /**
+     * Getter for the number of requests served by a free buffer
+     *
+     * @return reused count
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * Getter for the number of buffers handed back while the pool was full
+     *
+     * @return discarded count
+     */
+    public long getDiscardedCount() {
+        return discardedCount.get();
+    }
+
+    /**
+     * Getter for the number of free buffers
+     *
+     * @return free buffer count over all sizes
+     */
+    public int getFreeCount() {
+        int count = 0;
+        for (AtomicInteger sizeCount : freeCount) {
+            count += sizeCount.get();
+        }
+        return count;
+    }
+}
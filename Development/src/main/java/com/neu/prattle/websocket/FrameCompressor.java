@@ -0,0 +1,115 @@
+package com.neu.prattle.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses binary frames for sessions on {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}.
+ * Deflating a small frame costs more CPU than the few bytes it saves, so frames under the system
+ * property prattle.deflate.threshold bytes (256 by default) are sent as they are. So are frames
+ * that do not get smaller, which the compressor finds out without allocating more than the frame.
+ * The compression level is the system property prattle.deflate.level, fastest by default.
+ *
+ * Each frame is compressed on its own, without a dictionary shared with earlier frames, so one
+ * compressed frame serves every session it is published to.
+ *
+ * @author Team 9
+ * @version dated 2019-12-09
+ */
+public class FrameCompressor {
+    /**
+     * The compressor instance
+     */
+    private static final FrameCompressor compressor = new FrameCompressor(
+            Integer.getInteger("prattle.deflate.threshold", 256),
+            Integer.getInteger("prattle.deflate.level", Deflater.BEST_SPEED));
+
+    /**
+     * The smallest frame compressed
+     */
+    private final int threshold;
+    /**
+     * The deflater of each thread, reset for every frame
+     */
+    private final ThreadLocal<Deflater> deflater;
+
+    /**
+     * Constructor
+     *
+     * @param threshold the smallest frame compressed, in bytes
+     * @param level     the compression level, 0 to 9
+     */
+    FrameCompressor(int threshold, int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compression level must be 0 to 9");
+        }
+        this.threshold = threshold;
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    /**
+     * Call this method to return an instance (singleton design pattern).
+     *
+     * @return the instance of this compressor.
+     */
+    public static FrameCompressor getInstance() {
+        return compressor;
+    }
+
+    /**
+     * Getter for the threshold
+     *
+     * @return the smallest frame compressed, in bytes
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Whether a frame is large enough to try compressing
+     *
+     * @param size bytes of the frame
+     * @return true if it is at least the threshold
+     */
+    boolean isWorthCompressing(int size) {
+        return size >= threshold;
+    }
+
+    /**
+     * Compress a binary frame into a buffer of the input allocator
+     *
+     * @param frame     the frame, left unchanged
+     * @param allocator gives a buffer for a number of bytes, positioned at 0 with the number as
+     *                  its limit
+     * @return the compressed frame positioned at its start, null if the frame is under the
+     * threshold or would not get smaller
+     */
+    ByteBuffer compress(ByteBuffer frame, IntFunction<ByteBuffer> allocator) {
+        int size = frame.remaining();
+        if (!isWorthCompressing(size) || size < 2) {
+            return null;
+        }
+        byte[] input = new byte[size];
+        frame.duplicate().get(input);
+        // with the version byte, anything longer than this is no gain
+        byte[] output = new byte[size - 2];
+        Deflater current = deflater.get();
+        current.reset();
+        current.setInput(input);
+        current.finish();
+        int length = 0;
+        int written;
+        while (!current.finished() && (written = current.deflate(output, length, output.length - length)) > 0) {
+            length += written;
+        }
+        if (!current.finished()) {
+            return null;
+        }
+        ByteBuffer compressed = allocator.apply(length + 1);
+        compressed.put((byte) BinaryMessageEncoder.DEFLATED_VERSION);
+        compressed.put(output, 0, length);
+        compressed.flip();
+        return compressed;
+    }
+}
@@ -12,18 +12,11 @@ import java.util.List;
  */
 public interface IChatSubject {
     /**
-     * Get message
+     * Publish a message to all attached observers
      *
-     * @return message
+     * @param message message to publish
      */
-    Message getMessage();
-
-    /**
-     * Set message
-     *
-     * @param message message to set
-     */
-    void setMessage(Message message);
+    void publish(Message message);
 
     /**
      * Attach an observer
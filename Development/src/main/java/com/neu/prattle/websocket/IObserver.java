@@ -8,7 +8,9 @@ package com.neu.prattle.websocket;
  */
 public interface IObserver {
     /**
-     * Update the change of subject
+     * Receive a message published by the subject
+     *
+     * @param frame the published message and its encoded payload
      */
-    void update();
+    void update(OutboundFrame frame);
 }
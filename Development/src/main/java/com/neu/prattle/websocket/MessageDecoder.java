@@ -3,25 +3,28 @@ package com.neu.prattle.websocket;
 import javax.websocket.Decoder;
 import javax.websocket.EndpointConfig;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.neu.prattle.model.Message;
+import com.neu.prattle.utils.GsonUtil;
 
-import org.codehaus.jackson.map.ObjectMapper;
-
-import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Decodes in-bound messages that come in as JSON structures into Message objects. The fields must include
- * from, to, id, content, and timestamp.
+ * from, to, id, content, and timestamp. Uses the same gson as {@link MessageEncoder}, so that a
+ * message decodes from what the encoder writes.
  *
  * @author https://github.com/eugenp/tutorials/java-websocket/src/main/java/com/baeldung/websocket/MessageDecoder.java
  * @version dated 2017-03-05
  */
 public class MessageDecoder implements Decoder.Text<Message> {
 
-    /** @see org.codehaus.jackson.map.ObjectMapper */
-    private static ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * A gson object to deserialize the message
+     */
+    private Gson gson = GsonUtil.getGson();
 
     /**
      * The logger. Stores message content coming in and going out.
@@ -43,8 +46,8 @@ public class MessageDecoder implements Decoder.Text<Message> {
 
 
         try {
-            message = objectMapper.readValue(s, Message.class);
-        } catch (IOException e) {
+            message = gson.fromJson(s, Message.class);
+        } catch (JsonParseException e) {
             logger.log(Level.SEVERE, e.getMessage());
         }
         return message;
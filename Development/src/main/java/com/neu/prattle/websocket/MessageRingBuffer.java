@@ -0,0 +1,196 @@
+package com.neu.prattle.websocket;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed-size ring of sequenced messages. Publishers claim the next sequence number, wait until
+ * every subscriber cursor has moved far enough for the slot to be reused, write the message and
+ * mark the slot as published. Subscribers read slots in sequence order with their own cursor, so
+ * no message is overwritten before every subscriber has seen it. The ring owns the reference of
+ * the publisher to each frame, and releases it with {@link #releaseConsumed()} once every
+ * subscriber has read the frame, or at the latest when the slot is reused, so pooled buffers do
+ * not stay pinned for a whole turn of the ring.
+ *
+ * @author Team 9
+ * @version dated 2019-12-03
+ */
+public class MessageRingBuffer {
+    /**
+     * The message slots, null if none published yet or released
+     */
+    private final AtomicReferenceArray<Slot> slots;
+    /**
+     * Index mask, capacity - 1
+     */
+    private final int mask;
+    /**
+     * The next sequence number to claim
+     */
+    private final AtomicLong nextSequence = new AtomicLong(0);
+    /**
+     * The next sequence number whose frame {@link #releaseConsumed()} will release
+     */
+    private final AtomicLong releasedSequence = new AtomicLong(0);
+    /**
+     * The cursors of all subscribers, each holding the next sequence the subscriber will read
+     */
+    private final Set<AtomicLong> gatingSequences = new CopyOnWriteArraySet<>();
+
+    /**
+     * Constructor
+     *
+     * @param capacity number of slots, must be a power of two
+     */
+    public MessageRingBuffer(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Publish a message. If the ring is full the caller runs whileFull, which should let slow
+     * subscribers catch up, until the slot can be reused.
+     *
+     * @param frame     encoded message to publish, whose reference passes to the ring
+     * @param whileFull run while waiting for a free slot
+     * @return the sequence number of the message
+     */
+    public long publish(OutboundFrame frame, Runnable whileFull) {
+        long sequence = nextSequence.getAndIncrement();
+        long wrapPoint = sequence - slots.length();
+        while (wrapPoint >= getMinimumGatingSequence()) {
+            whileFull.run();
+            Thread.yield();
+        }
+        Slot previous = slots.getAndSet((int) sequence & mask, new Slot(sequence, frame));
+        if (previous != null) {
+            previous.frame.release();
+        }
+        return sequence;
+    }
+
+    /**
+     * Get the message with the input sequence number
+     *
+     * @param sequence sequence number
+     * @return the message, null if it is not published yet
+     */
+    public OutboundFrame get(long sequence) {
+        Slot slot = slots.get((int) sequence & mask);
+        return slot != null && slot.sequence == sequence ? slot.frame : null;
+    }
+
+    /**
+     * Check if the message with the input sequence number is published
+     *
+     * @param sequence sequence number
+     * @return true if published
+     */
+    public boolean isPublished(long sequence) {
+        Slot slot = slots.get((int) sequence & mask);
+        return slot != null && slot.sequence == sequence;
+    }
+
+    /**
+     * Release the frames every subscriber has read, oldest first, up to the first one that is
+     * claimed but not published yet. Without subscribers every published frame is released.
+     * Released slots read as not published. Each frame is released exactly once, by whichever of
+     * this method and the publisher reusing the slot takes it out of the slot first.
+     */
+    public void releaseConsumed() {
+        // read before the cursors: a cursor added after this starts at or after it
+        long limit = Math.min(nextSequence.get(), getMinimumGatingSequence());
+        long sequence;
+        while ((sequence = releasedSequence.get()) < limit) {
+            int index = (int) sequence & mask;
+            Slot slot = slots.get(index);
+            if ((slot == null || slot.sequence < sequence) && releasedSequence.get() == sequence) {
+                // claimed but not published yet, its publisher calls this again afterwards
+                return;
+            }
+            if (releasedSequence.compareAndSet(sequence, sequence + 1) && slot != null
+                    && slot.sequence == sequence && slots.compareAndSet(index, slot, null)) {
+                slot.frame.release();
+            }
+        }
+    }
+
+    /**
+     * Create a cursor for a new subscriber. It starts at the next sequence number, so the
+     * subscriber only sees messages published after it joined.
+     *
+     * The cursor holds back publishers before its start is read: read first, a publisher could
+     * wrap around to the start slot in between and overwrite it, and the subscriber would wait
+     * for that sequence forever. Held back at a sequence no later than the next one claimed, the
+     * cursor then moves up to the next sequence, which no publisher can have wrapped past yet.
+     *
+     * @return the cursor
+     */
+    public AtomicLong addCursor() {
+        AtomicLong cursor = new AtomicLong(nextSequence.get());
+        gatingSequences.add(cursor);
+        cursor.set(nextSequence.get());
+        return cursor;
+    }
+
+    /**
+     * Remove a subscriber cursor so it no longer holds back publishers
+     *
+     * @param cursor the cursor
+     */
+    public void removeCursor(AtomicLong cursor) {
+        gatingSequences.remove(cursor);
+    }
+
+    /**
+     * Get the number of slots
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Get the smallest cursor of all subscribers
+     *
+     * @return smallest cursor, Long.MAX_VALUE if there are no subscribers
+     */
+    private long getMinimumGatingSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (AtomicLong cursor : gatingSequences) {
+            minimum = Math.min(minimum, cursor.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * A published frame together with its sequence number
+     */
+    private static class Slot {
+        /**
+         * The sequence number
+         */
+        private final long sequence;
+        /**
+         * The frame
+         */
+        private final OutboundFrame frame;
+
+        /**
+         * Constructor
+         *
+         * @param sequence the sequence number
+         * @param frame    the frame
+         */
+        Slot(long sequence, OutboundFrame frame) {
+            this.sequence = sequence;
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A message together with its encoded websocket payload. The message is serialized once when the
+ * frame is created, and the same payload is then sent to every session observing the subject.
+ * The binary payload, for sessions that negotiated {@link BinaryMessageEncoder#SUBPROTOCOL}, is
+ * encoded once when the first such session asks for it, into a buffer of the
+ * {@link FrameBufferPool}. The same goes for the compressed payload of sessions that negotiated
+ * {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}.
+ *
+ * The frame is reference counted so that the buffer goes back to the pool once the frame is no
+ * longer used. The creator holds the first reference, and every holder that keeps the frame
+ * beyond the call it got it in, like a queue, takes its own with {@link #retain()}. Each holder
+ * calls {@link #release()} once when done, and the last one hands the buffers back.
+ *
+ * @author Team 9
+ * @version dated 2019-12-08
+ */
+public class OutboundFrame {
+    /**
+     * The encoder shared by all frames
+     */
+    private static final MessageEncoder encoder = new MessageEncoder();
+    /**
+     * The binary encoder shared by all frames
+     */
+    private static final BinaryMessageEncoder binaryEncoder = new BinaryMessageEncoder();
+    /**
+     * Stands for a binary payload that is not worth compressing
+     */
+    private static final ByteBuffer NOT_COMPRESSED = ByteBuffer.allocate(0);
+    /**
+     * The message
+     */
+    private final Message message;
+    /**
+     * The encoded JSON text of the message
+     */
+    private final String text;
+    /**
+     * The pool of the binary payload
+     */
+    private final FrameBufferPool pool;
+    /**
+     * The compressor of the binary payload
+     */
+    private final FrameCompressor compressor;
+    /**
+     * The encoded binary payload of the message, null until first needed and once released
+     */
+    private final AtomicReference<ByteBuffer> binary = new AtomicReference<>();
+    /**
+     * The compressed binary payload, null until first needed and once released
+     */
+    private final AtomicReference<ByteBuffer> compressed = new AtomicReference<>();
+    /**
+     * The number of references, 0 once released
+     */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    /**
+     * Create a frame by encoding the input message
+     *
+     * @param message the message
+     */
+    public OutboundFrame(Message message) {
+        this(message, FrameBufferPool.getInstance());
+    }
+
+    /**
+     * Create a frame by encoding the input message
+     *
+     * @param message the message
+     * @param pool    the pool of the binary payload
+     */
+    OutboundFrame(Message message, FrameBufferPool pool) {
+        this(message, pool, FrameCompressor.getInstance());
+    }
+
+    /**
+     * Create a frame by encoding the input message
+     *
+     * @param message    the message
+     * @param pool       the pool of the binary payload
+     * @param compressor the compressor of the binary payload
+     */
+    OutboundFrame(Message message, FrameBufferPool pool, FrameCompressor compressor) {
+        this.message = message;
+        this.text = encoder.encode(message);
+        this.pool = pool;
+        this.compressor = compressor;
+        BroadcastMetrics.recordSerialization();
+    }
+
+    /**
+     * Getter for the message
+     *
+     * @return the message
+     */
+    public Message getMessage() {
+        return message;
+    }
+
+    /**
+     * Getter for the encoded JSON text
+     *
+     * @return the JSON text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Getter for the encoded binary payload, encoding it on first use. The caller must hold a
+     * reference until done with the payload.
+     *
+     * @return the binary payload, a read only view of its own for each caller
+     */
+    public ByteBuffer getBinary() {
+        ByteBuffer encoded = binary.get();
+        if (encoded == null) {
+            ByteBuffer fresh = binaryEncoder.encode(message, pool::acquire);
+            if (binary.compareAndSet(null, fresh)) {
+                BroadcastMetrics.recordSerialization();
+                encoded = fresh;
+            } else {
+                // another writer encoded it first
+                pool.release(fresh);
+                encoded = binary.get();
+            }
+        }
+        return encoded.asReadOnlyBuffer();
+    }
+
+    /**
+     * Getter for the payload of sessions that negotiated
+     * {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}: the binary payload compressed, or as it is
+     * if it is under the threshold of the compressor or does not get smaller. Compressed on first
+     * use. The caller must hold a reference until done with the payload.
+     *
+     * @param metrics the metrics of the calling session, charged with the CPU time if this call
+     *                compresses the payload
+     * @return the payload, a read only view of its own for each caller
+     */
+    public ByteBuffer getCompressed(CompressionMetrics metrics) {
+        ByteBuffer plain = getBinary();
+        if (!compressor.isWorthCompressing(plain.remaining())) {
+            return plain;
+        }
+        ByteBuffer encoded = compressed.get();
+        if (encoded == null) {
+            long start = CompressionMetrics.cpuTime();
+            ByteBuffer fresh = compressor.compress(plain, pool::acquire);
+            long elapsed = CompressionMetrics.cpuTime() - start;
+            if (fresh == null) {
+                fresh = NOT_COMPRESSED;
+            }
+            if (compressed.compareAndSet(null, fresh)) {
+                metrics.recordCompression(elapsed);
+                encoded = fresh;
+            } else {
+                // another writer compressed it first
+                if (fresh != NOT_COMPRESSED) {
+                    pool.release(fresh);
+                }
+                encoded = compressed.get();
+            }
+        }
+        return encoded == NOT_COMPRESSED ? plain : encoded.asReadOnlyBuffer();
+    }
+
+    /**
+     * Take a reference to the frame
+     *
+     * @return false if the frame is already released, and may not be used
+     */
+    public boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Give up a reference to the frame. Releasing the last one hands the binary payloads back to
+     * the pool.
+     */
+    public void release() {
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            ByteBuffer encoded = binary.getAndSet(null);
+            if (encoded != null) {
+                pool.release(encoded);
+            }
+            ByteBuffer deflated = compressed.getAndSet(null);
+            if (deflated != null && deflated != NOT_COMPRESSED) {
+                pool.release(deflated);
+            }
+        } else if (count < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("frame released more often than retained");
+        }
+    }
+
+    /**
+     * Getter for the number of references
+     *
+     * @return the reference count, 0 once released
+     */
+    int getReferenceCount() {
+        return references.get();
+    }
+}
@@ -0,0 +1,22 @@
+package com.neu.prattle.websocket;
+
+/**
+ * What a {@link SessionOutbox} does when a message arrives and its queue is already full.
+ *
+ * @author Team 9
+ * @version dated 2019-12-02
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the oldest queued message to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Close the session. The client is expected to reconnect and reload the history.
+     */
+    DISCONNECT,
+    /**
+     * Discard the whole backlog and keep only the newest message.
+     */
+    COALESCE
+}
@@ -0,0 +1,359 @@
+package com.neu.prattle.websocket;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded outbound queue owned by a single websocket session. Messages are queued by the thread
+ * publishing to the chat subject and the drain is started on the shared executor. Frames are sent
+ * with the async remote of the session, one in flight at a time, which keeps messages in order for
+ * the session; the completion of a send starts the next one. No thread waits on a slow client,
+ * whose messages pile up in its own queue until the overflow policy applies. Frames are sent as binary if the session
+ * negotiated {@link BinaryMessageEncoder#SUBPROTOCOL}, compressed when worth it if it negotiated
+ * {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}, and as JSON text otherwise. The outbox holds a
+ * reference to each queued frame, released once the frame is sent or dropped.
+ *
+ * @author Team 9
+ * @version dated 2019-12-02
+ */
+public class SessionOutbox {
+    /**
+     * The session the messages are written to
+     */
+    private final Session session;
+    /**
+     * Whether the session uses the binary wire format
+     */
+    private final boolean binary;
+    /**
+     * Whether the session takes compressed binary frames
+     */
+    private final boolean compressed;
+    /**
+     * Maximum number of queued messages
+     */
+    private final int capacity;
+    /**
+     * What to do when the queue is full
+     */
+    private final OverflowPolicy overflowPolicy;
+    /**
+     * Executor running the writer
+     */
+    private final Executor writer;
+    /**
+     * Queued messages, guarded by this
+     */
+    private final Deque<OutboundFrame> queue = new ArrayDeque<>();
+    /**
+     * True while a writer is draining the queue
+     */
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    /**
+     * True once the outbox stops accepting messages
+     */
+    private volatile boolean closed = false;
+    /**
+     * Metrics
+     */
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile int highWaterMark = 0;
+    private final CompressionMetrics compressionMetrics = new CompressionMetrics();
+    /**
+     * The logger
+     */
+    private static Logger logger = Logger.getLogger(SessionOutbox.class.getName());
+
+    /**
+     * Constructor
+     *
+     * @param session        the session to write to
+     * @param capacity       maximum number of queued messages
+     * @param overflowPolicy what to do when the queue is full
+     * @param writer         executor running the writer
+     */
+    public SessionOutbox(Session session, int capacity, OverflowPolicy overflowPolicy, Executor writer) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.session = session;
+        String subprotocol = session.getNegotiatedSubprotocol();
+        this.compressed = BinaryMessageEncoder.DEFLATE_SUBPROTOCOL.equals(subprotocol);
+        this.binary = compressed || BinaryMessageEncoder.SUBPROTOCOL.equals(subprotocol);
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.writer = writer;
+    }
+
+    /**
+     * Queue a frame for the session and make sure a writer is draining the queue. Never blocks
+     * on the network.
+     *
+     * @param frame encoded message to send
+     * @return false if the outbox is closed, the session got disconnected because of the overflow
+     * or the frame is already released
+     */
+    public boolean offer(OutboundFrame frame) {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed || !frame.retain()) {
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DROP_OLDEST:
+                        queue.pollFirst().release();
+                        droppedCount.incrementAndGet();
+                        break;
+                    case COALESCE:
+                        droppedCount.addAndGet(queue.size());
+                        releaseQueue();
+                        break;
+                    default:
+                        droppedCount.addAndGet(queue.size() + 1L);
+                        releaseQueue();
+                        frame.release();
+                        closed = true;
+                        disconnect = true;
+                        break;
+                }
+            }
+            if (!disconnect) {
+                queue.addLast(frame);
+                enqueuedCount.incrementAndGet();
+                highWaterMark = Math.max(highWaterMark, queue.size());
+            }
+        }
+
+        if (disconnect) {
+            logger.log(Level.WARNING, "Outbound backlog of session {0} exceeded {1}, disconnecting",
+                    new Object[]{session.getId(), capacity});
+            writer.execute(this::disconnect);
+            return false;
+        }
+        if (draining.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * Send queued messages until the queue is empty or a send is still in flight, in which case
+     * its completion carries on. Re-checks the queue after releasing the draining flag so that a
+     * message queued in between is not left behind.
+     */
+    private void drain() {
+        while (true) {
+            OutboundFrame next = poll();
+            if (next == null) {
+                draining.set(false);
+                if (getBacklog() == 0 || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            } else if (!send(next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Take the next queued frame
+     *
+     * @return next frame, null if the queue is empty
+     */
+    private synchronized OutboundFrame poll() {
+        return queue.pollFirst();
+    }
+
+    /**
+     * Release and remove all queued frames. Must hold the lock.
+     */
+    private void releaseQueue() {
+        OutboundFrame frame;
+        while ((frame = queue.pollFirst()) != null) {
+            frame.release();
+        }
+    }
+
+    /**
+     * Start sending the already encoded payload of a frame to the session. The frame is released
+     * once the send completes, since the container uses the payload until then.
+     *
+     * @param frame frame to write
+     * @return true if the send already completed, false if its completion continues the drain
+     */
+    private boolean send(OutboundFrame frame) {
+        Send send = new Send(frame);
+        try {
+            if (compressed) {
+                ByteBuffer payload = frame.getCompressed(compressionMetrics);
+                send.sentSize = payload.remaining();
+                session.getAsyncRemote().sendBinary(payload, send);
+            } else if (binary) {
+                session.getAsyncRemote().sendBinary(frame.getBinary(), send);
+            } else {
+                session.getAsyncRemote().sendText(frame.getText(), send);
+            }
+        } catch (RuntimeException e) {
+            // the session is closed or already has a send in flight
+            send.onResult(new SendResult(e));
+        }
+        return send.handOff();
+    }
+
+    /**
+     * The completion of the send of one frame. Whichever of the sending thread and the
+     * completion comes second continues the drain, so the drain neither stops nor runs twice,
+     * whether the container completes the send before or after the send call returns.
+     */
+    private class Send implements SendHandler {
+        private final OutboundFrame frame;
+        private final AtomicBoolean handedOff = new AtomicBoolean(false);
+        private int sentSize;
+
+        private Send(OutboundFrame frame) {
+            this.frame = frame;
+        }
+
+        @Override
+        public void onResult(SendResult result) {
+            if (result.isOK()) {
+                if (compressed) {
+                    compressionMetrics.recordFrame(frame.getBinary().remaining(), sentSize);
+                }
+                sentCount.incrementAndGet();
+                BroadcastMetrics.recordDelivery();
+            } else {
+                logger.log(Level.SEVERE, result.getException().getMessage());
+            }
+            frame.release();
+            if (handOff()) {
+                drain();
+            }
+        }
+
+        /**
+         * @return true if the other side already finished, so the caller continues the drain
+         */
+        private boolean handOff() {
+            return handedOff.getAndSet(true);
+        }
+    }
+
+    /**
+     * Close the session because its backlog overflowed
+     */
+    private void disconnect() {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "outbound backlog exceeded"));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+        }
+    }
+
+    /**
+     * Stop accepting messages and discard the backlog
+     */
+    public synchronized void close() {
+        closed = true;
+        releaseQueue();
+        if (compressed) {
+            logger.log(Level.FINE, "Compression of session {0}: {1}", new Object[]{session.getId(), compressionMetrics});
+        }
+    }
+
+    /**
+     * Whether the outbox still accepts messages
+     *
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Getter for the number of messages waiting to be written
+     *
+     * @return current backlog
+     */
+    public synchronized int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Getter for the largest backlog seen so far
+     *
+     * @return backlog high water mark
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Getter for the number of messages accepted into the queue
+     *
+     * @return enqueued count
+     */
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    /**
+     * Getter for the number of messages written to the session
+     *
+     * @return sent count
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * Getter for the number of messages discarded by the overflow policy
+     *
+     * @return dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Getter for the compression metrics, only counting for sessions that negotiated
+     * {@link BinaryMessageEncoder#DEFLATE_SUBPROTOCOL}
+     *
+     * @return compression metrics of the session
+     */
+    public CompressionMetrics getCompressionMetrics() {
+        return compressionMetrics;
+    }
+
+    /**
+     * Getter for the capacity
+     *
+     * @return maximum number of queued messages
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Getter for the overflow policy
+     *
+     * @return overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
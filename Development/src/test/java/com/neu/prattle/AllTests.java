@@ -3,16 +3,28 @@ package com.neu.prattle;
 import com.neu.prattle.controller.TestCMController;
 import com.neu.prattle.controller.TestChannelController;
 import com.neu.prattle.controller.TestDMController;
+import com.neu.prattle.controller.TestGsonProvider;
+import com.neu.prattle.controller.TestMessageJson;
 import com.neu.prattle.controller.TestUserController;
 import com.neu.prattle.database.*;
 import com.neu.prattle.model.*;
 import com.neu.prattle.service.TestChannelService;
 import com.neu.prattle.service.TestMessageService;
+import com.neu.prattle.service.TestMessageWriteBehind;
 import com.neu.prattle.service.TestUserService;
+import com.neu.prattle.utils.TestHibernateUtil;
+import com.neu.prattle.utils.TestModelTypeAdapterFactory;
+import com.neu.prattle.websocket.TestBinaryMessageCodec;
 import com.neu.prattle.websocket.TestCMEndpoint;
 import com.neu.prattle.websocket.TestChatEndpoint;
+import com.neu.prattle.websocket.TestChatSubject;
+import com.neu.prattle.websocket.TestChatSubjectRegistry;
 import com.neu.prattle.websocket.TestDMEndpoint;
+import com.neu.prattle.websocket.TestDeflateConfigurator;
+import com.neu.prattle.websocket.TestFrameBufferPool;
+import com.neu.prattle.websocket.TestFrameCompressor;
 import com.neu.prattle.websocket.TestMessageDecoder;
+import com.neu.prattle.websocket.TestSessionOutbox;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -27,29 +39,51 @@ import org.junit.runners.Suite.SuiteClasses;
         TestUserController.class,
         TestDMController.class,
         TestCMController.class,
+        TestMessageJson.class,
+        TestGsonProvider.class,
 
         TestChannelDBHibernate.class,
+        TestChannelDBHibernateH2.class,
         TestChannelDBInMemory.class,
+        TestFetchPlanH2.class,
         TestMessageDBHibernate.class,
+        TestMessageDBHibernateH2.class,
         TestMessageDBInMemory.class,
         TestUserDB.class,
+        TestUserDBCache.class,
+        TestUserDBH2.class,
         TestUserDBHibernate.class,
         TestUserDBInMemory.class,
         TestUserDBJson.class,
 
         TestChannel.class,
         TestChannelDTO.class,
+        TestChannelMembership.class,
+        TestChannelSummary.class,
         TestMessage.class,
+        TestMessageCursor.class,
         TestUser.class,
+        TestUserSummary.class,
 
         TestChannelService.class,
         TestMessageService.class,
+        TestMessageWriteBehind.class,
         TestUserService.class,
 
+        TestHibernateUtil.class,
+        TestModelTypeAdapterFactory.class,
+
         TestMessageDecoder.class,
+        TestBinaryMessageCodec.class,
         TestCMEndpoint.class,
         TestDMEndpoint.class,
-        TestMessageDecoder.class
+        TestMessageDecoder.class,
+        TestSessionOutbox.class,
+        TestFrameBufferPool.class,
+        TestFrameCompressor.class,
+        TestDeflateConfigurator.class,
+        TestChatSubjectRegistry.class,
+        TestChatSubject.class
 })
 public class AllTests {
 
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 import com.neu.prattle.service.IMessageService;
 import com.neu.prattle.service.MessageService;
 import com.neu.prattle.utils.GsonUtil;
@@ -21,7 +22,9 @@ import java.util.List;
 import javax.ws.rs.core.Response;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 
 public class TestCMController {
     private CMController cmController = new CMController();
@@ -36,6 +39,8 @@ public class TestCMController {
     @Before
     public void setUp() throws SQLException {
         Mockito.doThrow(SQLException.class).when(messageServiceMock).getMessagesWithinChannel(any(Integer.class));
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).getMessagesWithinChannel(anyInt(), any(MessageCursor.class), any(MessageCursor.class), anyInt());
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).streamMessagesWithinChannel(anyInt());
 
 
         cmControllerException.setMessageService(messageServiceMock);
@@ -56,7 +61,7 @@ public class TestCMController {
         populateMsg();
         Response response = cmController.getAllMessages("1");
         assertEquals(200, response.getStatus());
-        List<Message> messageList = gson.fromJson((String) response.getEntity(), msgListType);
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
         assertEquals(1, messageList.size());
         assertEquals("u0", messageList.get(0).getFromUsername());
         assertEquals("2000-01-01 00:00:00.0", messageList.get(0).getTimestamp().toString());
@@ -72,7 +77,7 @@ public class TestCMController {
         populateMsg();
         Response response = cmController.getAllMessages("2");
         assertEquals(200, response.getStatus());
-        List<Message> messageList = gson.fromJson((String) response.getEntity(), msgListType);
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
         assertEquals(2, messageList.size());
         assertEquals("u1", messageList.get(0).getFromUsername());
         assertEquals("2000-01-01 00:00:01.0", messageList.get(0).getTimestamp().toString());
@@ -88,12 +93,65 @@ public class TestCMController {
         populateMsg();
         Response response = cmController.getAllMessages("3");
         assertEquals(200, response.getStatus());
-        List<Message> messageList = gson.fromJson((String) response.getEntity(), msgListType);
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
         assertEquals(0, messageList.size());
 
         response = cmControllerException.getAllMessages("3");
         assertEquals(500, response.getStatus());
     }
 
+    @Test
+    public void testGetCMWithoutPaging() throws SQLException {
+        messageService.testMode();
+        int count = MessagePage.DEFAULT_LIMIT * 2 + 1;
+        for (int i = 0; i < count; i++) {
+            messageService.addMessage(Message.messageBuilder().setFrom("u0").setToChannelId(5).setMessageContent("m" + i)
+                    .setTimestamp(new Timestamp(1000L * i)).build());
+        }
+        // the frontend asks without paging parameters and gets the whole history
+        Response response = cmController.getAllMessages("5", null, null, null);
+        assertEquals(200, response.getStatus());
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
+        assertEquals(count, messageList.size());
+        assertEquals("m0", messageList.get(0).getContent());
+        assertEquals("m" + (count - 1), messageList.get(count - 1).getContent());
+        assertEquals(count, gson.<List<Message>>fromJson(TestMessageJson.read(cmController.getAllMessages("5", "", "", "")), msgListType).size());
+
+        // a limit alone still pages
+        response = cmController.getAllMessages("5", null, null, "3");
+        assertEquals(3, gson.<List<Message>>fromJson(TestMessageJson.read(response), msgListType).size());
+        assertEquals(400, cmController.getAllMessages("x", null, null, null).getStatus());
+    }
+
+    @Test
+    public void testGetCMPage() throws SQLException {
+        messageService.testMode();
+        populateMsg();
+        Response response = cmController.getAllMessages("4", null, null, "2");
+        assertEquals(200, response.getStatus());
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
+        assertEquals(2, messageList.size());
+        assertEquals("2000-01-01 00:00:04.0", messageList.get(0).getTimestamp().toString());
+        assertEquals("2000-01-01 00:00:05.0", messageList.get(1).getTimestamp().toString());
+
+        String before = (String) response.getMetadata().getFirst(MessagePage.BEFORE_HEADER);
+        response = cmController.getAllMessages("4", before, null, "2");
+        messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
+        assertEquals(1, messageList.size());
+        assertEquals("2000-01-01 00:00:03.0", messageList.get(0).getTimestamp().toString());
 
+        String after = (String) response.getMetadata().getFirst(MessagePage.AFTER_HEADER);
+        response = cmController.getAllMessages("4", null, after, "1");
+        messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
+        assertEquals(1, messageList.size());
+        assertEquals("2000-01-01 00:00:04.0", messageList.get(0).getTimestamp().toString());
+
+        response = cmController.getAllMessages("3", null, null, null);
+        assertNull(response.getMetadata().getFirst(MessagePage.BEFORE_HEADER));
+
+        assertEquals(400, cmController.getAllMessages("4", "bad", null, null).getStatus());
+        assertEquals(400, cmController.getAllMessages("4", null, null, "0").getStatus());
+        assertEquals(400, cmController.getAllMessages("4", null, null, "x").getStatus());
+        assertEquals(500, cmControllerException.getAllMessages("4", null, null, "2").getStatus());
+    }
 }
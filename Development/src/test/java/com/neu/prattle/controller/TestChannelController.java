@@ -113,7 +113,7 @@ public class TestChannelController {
     @Test
     public void exceptions() throws SQLException{
         ChannelService channelServiceMock = Mockito.mock(ChannelService.class);
-        Mockito.doThrow(SQLException.class).when(channelServiceMock).getAllChannels();
+        Mockito.doThrow(SQLException.class).when(channelServiceMock).getChannelSummaries();
         Mockito.doThrow(SQLException.class).when(channelServiceMock).getChannelById(any(Integer.class));
         Mockito.doThrow(SQLException.class).when(channelServiceMock).removeChannel(any(Integer.class));
         Mockito.doThrow(SQLException.class).when(channelServiceMock).addChannel(any(ChannelDTO.class));
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 import com.neu.prattle.service.MessageService;
 import com.neu.prattle.service.IMessageService;
 
@@ -22,6 +23,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 
 public class TestDMController {
     private DMController dmController = new DMController();
@@ -37,7 +39,11 @@ public class TestDMController {
     public void setUp() throws SQLException {
         Mockito.doThrow(SQLException.class).when(messageServiceMock).getMessagesByFrom(any(String.class));
         Mockito.doThrow(SQLException.class).when(messageServiceMock).getMessagesByTo(any(String.class));
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).streamMessagesByFrom(any(String.class));
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).streamMessagesByTo(any(String.class));
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).streamMessagesByUsers(any(String.class), any(String.class));
         Mockito.doThrow(SQLException.class).when(messageServiceMock).getMessagesByUsers(any(String.class), any(String.class));
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).getMessagesByUsers(any(String.class), any(String.class), any(MessageCursor.class), any(MessageCursor.class), anyInt());
 
         dmControllerException.setMessageService(messageServiceMock);
     }
@@ -57,7 +63,7 @@ public class TestDMController {
         populateMsg();
         Response response = dmController.getDMFrom("u0");
         assertEquals(200, response.getStatus());
-        List<Message> messageList = gson.fromJson((String) response.getEntity(), msgListType);
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
         assertEquals(2, messageList.size());
         assertEquals("u0", messageList.get(0).getFromUsername());
         assertEquals("u1", messageList.get(0).getToUsername());
@@ -76,7 +82,7 @@ public class TestDMController {
         populateMsg();
         Response response = dmController.getDMTo("u0");
         assertEquals(200, response.getStatus());
-        List<Message> messageList = gson.fromJson((String) response.getEntity(), msgListType);
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
         assertEquals(2, messageList.size());
         assertEquals("u1", messageList.get(0).getFromUsername());
         assertEquals("u0", messageList.get(0).getToUsername());
@@ -95,7 +101,7 @@ public class TestDMController {
         populateMsg();
         Response response = dmController.getDMBetween("u0", "u1");
         assertEquals(200, response.getStatus());
-        List<Message> messageList = gson.fromJson((String) response.getEntity(), msgListType);
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
         assertEquals(2, messageList.size());
         assertEquals("u0", messageList.get(0).getFromUsername());
         assertEquals("u1", messageList.get(0).getToUsername());
@@ -107,4 +113,44 @@ public class TestDMController {
         response = dmControllerException.getDMBetween("u0", "u1");
         assertEquals(500, response.getStatus());
     }
+
+    @Test
+    public void testGetDMBetweenWithoutPaging() throws SQLException {
+        messageService.testMode();
+        int count = MessagePage.DEFAULT_LIMIT + 50;
+        for (int i = 0; i < count; i++) {
+            messageService.addMessage(Message.messageBuilder().setFrom(i % 2 == 0 ? "u0" : "u1").setToUsername(i % 2 == 0 ? "u1" : "u0")
+                    .setMessageContent("m" + i).setTimestamp(new Timestamp(1000L * i)).build());
+        }
+        // the frontend asks without paging parameters and gets the whole history
+        Response response = dmController.getDMBetween("u1", "u0", null, null, null);
+        assertEquals(200, response.getStatus());
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
+        assertEquals(count, messageList.size());
+        assertEquals("m0", messageList.get(0).getContent());
+        assertEquals("m" + (count - 1), messageList.get(count - 1).getContent());
+        assertEquals(500, dmControllerException.getDMBetween("u0", "u1", null, null, null).getStatus());
+    }
+
+    @Test
+    public void testGetDMBetweenPage() throws SQLException {
+        messageService.testMode();
+        populateMsg();
+        messageService.addMessage(Message.messageBuilder().setFrom("u1").setToUsername("u0").setMessageContent("c").setTimestamp(Timestamp.valueOf("2000-01-01 00:00:06.0")).build());
+        Response response = dmController.getDMBetween("u0", "u1", null, null, "2");
+        assertEquals(200, response.getStatus());
+        List<Message> messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
+        assertEquals(2, messageList.size());
+        assertEquals("2000-01-01 00:00:01.0", messageList.get(0).getTimestamp().toString());
+        assertEquals("2000-01-01 00:00:06.0", messageList.get(1).getTimestamp().toString());
+
+        String before = (String) response.getMetadata().getFirst(MessagePage.BEFORE_HEADER);
+        response = dmController.getDMBetween("u1", "u0", before, null, null);
+        messageList = gson.fromJson(TestMessageJson.read(response), msgListType);
+        assertEquals(1, messageList.size());
+        assertEquals("2000-01-01 00:00:00.0", messageList.get(0).getTimestamp().toString());
+
+        assertEquals(400, dmController.getDMBetween("u0", "u1", null, "1_", null).getStatus());
+        assertEquals(500, dmControllerException.getDMBetween("u0", "u1", null, null, "2").getStatus());
+    }
 }
@@ -0,0 +1,72 @@
+package com.neu.prattle.controller;
+
+import com.neu.prattle.model.ChannelDTO;
+import com.neu.prattle.model.User;
+import com.neu.prattle.utils.GsonUtil;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestGsonProvider {
+    private GsonProvider provider = new GsonProvider();
+
+    private Annotation[] annotations = new Annotation[0];
+
+    @SuppressWarnings("unchecked")
+    private Object read(Class<?> type, String json) {
+        return provider.readFrom((Class<Object>) type, type, annotations, MediaType.APPLICATION_JSON_TYPE, null,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void handledTypes() {
+        assertTrue(provider.isReadable(User.class, User.class, annotations, MediaType.APPLICATION_JSON_TYPE));
+        assertTrue(provider.isWriteable(User.class, User.class, annotations, MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(provider.isReadable(User.class, User.class, annotations, MediaType.TEXT_PLAIN_TYPE));
+        assertFalse(provider.isReadable(String.class, String.class, annotations, MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(provider.isWriteable(String.class, String.class, annotations, MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(provider.isWriteable(StreamingOutput.class, StreamingOutput.class, annotations, MediaType.APPLICATION_JSON_TYPE));
+        assertEquals(-1, provider.getSize(new User(), User.class, User.class, annotations, MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    @Test
+    public void readUser() {
+        User user = (User) read(User.class, "{ \"username\" : \"dian\", \"password\": \"1234\", \"email\": \"1234\"}");
+        assertEquals("dian", user.getUsername());
+        assertEquals("1234", user.getPassword());
+    }
+
+    @Test
+    public void readChannelDTO() {
+        ChannelDTO channel = (ChannelDTO) read(ChannelDTO.class, "{\"name\":\"general\",\"participants\":[\"u0\",\"u1\"],\"mods\":[\"u0\"]}");
+        assertEquals("general", channel.getName());
+        assertEquals(Arrays.asList("u0", "u1"), channel.getParticipants());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void readMalformed() {
+        read(User.class, "{\"username\":");
+    }
+
+    @Test
+    public void write() throws IOException {
+        User user = new User("u0", "pw", "u0@abc", "first", "last", "bio");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        provider.writeTo(user, User.class, User.class, annotations, MediaType.APPLICATION_JSON_TYPE, null, output);
+        assertEquals(GsonUtil.getGson().toJson(user), new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
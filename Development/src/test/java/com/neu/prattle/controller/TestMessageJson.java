@@ -0,0 +1,132 @@
+package com.neu.prattle.controller;
+
+import com.google.gson.reflect.TypeToken;
+import com.neu.prattle.database.MessageStream;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.utils.GsonUtil;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+
+public class TestMessageJson {
+
+    /**
+     * Render the streamed entity of a response
+     *
+     * @param response the response
+     * @return the JSON it writes
+     */
+    static String read(Response response) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ((StreamingOutput) response.getEntity()).write(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static List<Message> messages() {
+        return Arrays.asList(
+                Message.messageBuilder().setFrom("u0").setToUsername("u1").setMessageContent("a \"quoted\" é").setTimestamp(Timestamp.valueOf("2000-01-01 00:00:00.0")).build(),
+                Message.messageBuilder().setFrom("u1").setToUsername("u0").setMessageContent("b").setTimestamp(Timestamp.valueOf("2000-01-01 00:00:01.0")).build());
+    }
+
+    private static String write(StreamingOutput entity) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        entity.write(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void sameAsToJson() throws IOException {
+        List<Message> messages = messages();
+        String expected = GsonUtil.getGson().toJson(messages);
+        assertEquals(expected, write(MessageJson.of(messages)));
+        assertEquals(expected, write(MessageJson.of(MessageStream.of(messages))));
+        assertEquals("[]", write(MessageJson.of(Collections.<Message>emptyList())));
+    }
+
+    @Test
+    public void streamClosed() throws IOException {
+        MessageStream stream = Mockito.spy(MessageStream.of(new ArrayList<>(messages())));
+        write(MessageJson.of(stream));
+        Mockito.verify(stream).close();
+
+        MessageStream failing = Mockito.spy(MessageStream.of(new ArrayList<>(messages())));
+        OutputStream broken = Mockito.mock(OutputStream.class);
+        Mockito.doThrow(new IOException("client gone")).when(broken).write(any(byte[].class), anyInt(), anyInt());
+        try {
+            MessageJson.of(failing).write(broken);
+            fail();
+        } catch (IOException e) {
+            assertEquals("client gone", e.getMessage());
+        }
+        Mockito.verify(failing).close();
+    }
+
+    @Test
+    public void unwrittenStreamClosed() throws IOException {
+        MessageStream stream = Mockito.spy(MessageStream.of(new ArrayList<>(messages())));
+        Response response = MessageJson.ok(stream);
+        assertEquals(200, response.getStatus());
+        Mockito.verify(stream, Mockito.never()).close();
+        ((Closeable) response.getEntity()).close();
+        Mockito.verify(stream).close();
+    }
+
+    @Test
+    public void headResponseClosed() throws IOException {
+        MessageStream stream = Mockito.spy(MessageStream.of(new ArrayList<>(messages())));
+        ContainerRequestContext request = Mockito.mock(ContainerRequestContext.class);
+        ContainerResponseContext response = Mockito.mock(ContainerResponseContext.class);
+        Mockito.doReturn(MessageJson.of(stream)).when(response).getEntity();
+        UnwrittenEntityFilter filter = new UnwrittenEntityFilter();
+
+        // the body of a GET is written, which closes the stream
+        Mockito.doReturn("GET").when(request).getMethod();
+        filter.filter(request, response);
+        Mockito.verify(stream, Mockito.never()).close();
+
+        Mockito.doReturn("HEAD").when(request).getMethod();
+        filter.filter(request, response);
+        Mockito.verify(stream).close();
+        Mockito.verify(response).setEntity(null);
+
+        // other entities are left alone
+        Mockito.doReturn("[]").when(response).getEntity();
+        filter.filter(request, response);
+        Mockito.verify(response, Mockito.times(1)).setEntity(null);
+    }
+
+    @Test
+    public void readBack() {
+        List<Message> messages = GsonUtil.getGson().fromJson(read(MessagePage.toResponse(messages())),
+                new TypeToken<ArrayList<Message>>() {
+                }.getType());
+        assertEquals(2, messages.size());
+        assertEquals("a \"quoted\" é", messages.get(0).getContent());
+    }
+}
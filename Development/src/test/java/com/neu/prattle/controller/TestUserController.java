@@ -61,7 +61,7 @@ public class TestUserController {
         IUserService userServiceMock = Mockito.mock(UserService.class);
         Mockito.doThrow(SQLException.class).when(userServiceMock).addUser(any(User.class));
         Mockito.doThrow(SQLException.class).when(userServiceMock).findUserByName(any(String.class));
-        Mockito.doThrow(SQLException.class).when(userServiceMock).getAllUsers();
+        Mockito.doThrow(SQLException.class).when(userServiceMock).getUserSummaries();
         Mockito.doThrow(SQLException.class).when(userServiceMock).login(any(User.class));
         userControllerException.setAccountService(userServiceMock);
 
@@ -118,7 +118,7 @@ public class TestUserController {
 
         UserController userControllerException = new UserController();
         IUserService userServiceMock = Mockito.mock(UserService.class);
-        Mockito.doThrow(SQLException.class).when(userServiceMock).getActiveUsers();
+        Mockito.doThrow(SQLException.class).when(userServiceMock).getActiveUserSummaries();
         userControllerException.setAccountService(userServiceMock);
         response = userControllerException.getActiveUsers();
         assertEquals(500, response.getStatus());
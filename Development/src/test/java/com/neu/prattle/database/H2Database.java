@@ -0,0 +1,67 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.IdSequence;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.User;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Builds Hibernate session factories on an in-memory H2 database in MySQL mode, with the schema
+ * exported from the entity mappings. Used as a stand-in for MySQL by tests and benchmarks.
+ */
+public class H2Database {
+
+    private H2Database() {
+    }
+
+    /**
+     * Create a session factory on a fresh in-memory database
+     *
+     * @param name database name, databases with the same name are shared within the JVM
+     * @return the session factory
+     */
+    public static SessionFactory createSessionFactory(String name) {
+        return configure(name).buildSessionFactory();
+    }
+
+    /**
+     * Create a session factory on a fresh in-memory database that passes every SQL statement it
+     * prepares to the input inspector
+     *
+     * @param name      database name, databases with the same name are shared within the JVM
+     * @param inspector the statement inspector
+     * @return the session factory
+     */
+    public static SessionFactory createSessionFactory(String name, StatementInspector inspector) {
+        Configuration configuration = configure(name);
+        configuration.getProperties().put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        return configuration.buildSessionFactory();
+    }
+
+    /**
+     * Create the configuration of a fresh in-memory database, with statistics turned on
+     *
+     * @param name database name
+     * @return the configuration
+     */
+    private static Configuration configure(String name) {
+        return new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Message.class)
+                .addAnnotatedClass(Channel.class)
+                .addAnnotatedClass(IdSequence.class)
+                .setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.connection.username", "sa")
+                .setProperty("hibernate.connection.password", "")
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.jdbc.batch_size", "100")
+                .setProperty("hibernate.generate_statistics", "true");
+    }
+}
@@ -12,6 +12,7 @@ import org.mockito.Mockito;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -45,8 +46,6 @@ public class TestChannelDBHibernate {
         Mockito.doReturn(queryMock).when(sessionMock).createQuery(any(String.class), any());
         Mockito.doReturn(queryMock).when(queryMock).setParameter(any(String.class), any());
         Mockito.doReturn(channelList).when(queryMock).list();
-        Mockito.doReturn(channelList.get(0)).when(sessionMock).get(Channel.class, 1);
-        Mockito.doReturn(null).when(sessionMock).get(Channel.class, 2);
 
         channelDB.addChannel(channelList.get(0));
         channelDB.removeChannel(channelList.get(0));
@@ -54,8 +53,10 @@ public class TestChannelDBHibernate {
 
         assertEquals(1, channelDB.getAllChannels().size());
         assertEquals("channel1", Objects.requireNonNull(channelDB.getChannel(1).orElse(null)).getName());
-        assertFalse(channelDB.getChannel(2).isPresent());
         assertEquals(1, channelDB.getChannels("channel1").size());
+        assertEquals(1, channelDB.getChannelsOfUser("user1").size());
+        Mockito.doReturn(Collections.emptyList()).when(queryMock).list();
+        assertFalse(channelDB.getChannel(2).isPresent());
 
         Mockito.doThrow(new RuntimeException()).when(transactionMock).commit();
 
@@ -100,5 +101,12 @@ public class TestChannelDBHibernate {
         catch (SQLException e) {
             assertEquals(SQLException.class, e.getClass());
         }
+
+        try{
+            channelDB.getChannelsOfUser("user1");
+        }
+        catch (SQLException e) {
+            assertEquals(SQLException.class, e.getClass());
+        }
     }
 }
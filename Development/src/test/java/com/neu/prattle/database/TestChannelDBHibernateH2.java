@@ -0,0 +1,90 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.ChannelMembership;
+import com.neu.prattle.model.User;
+import com.neu.prattle.utils.HibernateUtil;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestChannelDBHibernateH2 {
+    private static final int PARTICIPANTS = 50;
+
+    private SessionFactory sessionFactory;
+    private ChannelDBHibernate channelDB = ChannelDBHibernate.getInstance();
+    private int channelId;
+
+    @Before
+    public void setUp() {
+        sessionFactory = H2Database.createSessionFactory("channels");
+        HibernateUtil.setSessionFactory(sessionFactory);
+
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            Set<User> participants = new HashSet<>();
+            for (int i = 0; i < PARTICIPANTS; i++) {
+                User user = new User("user" + i, "123", "user" + i + "@abc", "first", "last", "bio");
+                session.save(user);
+                participants.add(user);
+            }
+            User mod = new User("mod", "123", "mod@abc", "first", "last", "bio");
+            session.save(mod);
+            Set<User> mods = new HashSet<>();
+            mods.add(mod);
+            Channel channel = new Channel(0, "big", mods, participants);
+            session.save(channel);
+            transaction.commit();
+            channelId = channel.getId();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+        HibernateUtil.setSessionFactory(null);
+    }
+
+    @Test
+    public void testGetChannelMembership() throws SQLException {
+        Statistics statistics = sessionFactory.getStatistics();
+
+        // before: the channel entity and every user in it, with their own channel sets
+        statistics.clear();
+        assertEquals(PARTICIPANTS, channelDB.getChannel(channelId).get().getParticipants().size());
+        assertTrue(statistics.getEntityLoadCount() > PARTICIPANTS);
+
+        // after: three scalar queries and no entity at all
+        statistics.clear();
+        ChannelMembership membership = channelDB.getChannelMembership(channelId).get();
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals("big", membership.getName());
+        assertEquals(channelId, membership.getId());
+        assertEquals(PARTICIPANTS, membership.getParticipants().size());
+        assertTrue(membership.getParticipants().contains("user7"));
+        assertTrue(membership.getMods().contains("mod"));
+        assertFalse(membership.getParticipants().contains("mod"));
+
+        assertFalse(channelDB.getChannelMembership(channelId + 1).isPresent());
+    }
+
+    @Test(expected = SQLException.class)
+    public void testGetChannelMembershipFails() throws SQLException {
+        sessionFactory.close();
+        channelDB.getChannelMembership(channelId);
+    }
+}
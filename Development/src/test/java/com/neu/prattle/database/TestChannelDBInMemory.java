@@ -1,11 +1,20 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.ChannelSummary;
+import com.neu.prattle.model.User;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -40,6 +49,28 @@ public class TestChannelDBInMemory {
         assertEquals(0, channelDB.getChannels("channel2").size());
     }
 
+    @Test
+    public void getChannelsOfUser() {
+        channelDB.getChannel(0).ifPresent(channel -> channel.getParticipants().add(new User("user0")));
+        channelDB.getChannel(1).ifPresent(channel -> channel.getMods().add(new User("user0")));
+        channelDB.getChannel(2).ifPresent(channel -> channel.getParticipants().add(new User("user1")));
+        // members are indexed when the channel is updated
+        channelDB.getAllChannels().forEach(channelDB::updateChannel);
+        assertEquals(2, channelDB.getChannelsOfUser("user0").size());
+        assertEquals(1, channelDB.getChannelsOfUser("user1").size());
+        assertEquals(0, channelDB.getChannelsOfUser("user2").size());
+    }
+
+    @Test
+    public void getChannelSummaries() {
+        channelDB.getChannel(1).ifPresent(channel -> channel.getParticipants().add(new User("user0")));
+        List<ChannelSummary> summaries = channelDB.getChannelSummaries();
+        assertEquals(3, summaries.size());
+        assertEquals(0, summaries.get(0).getId());
+        assertEquals(1, summaries.get(1).getParticipantCount());
+        assertEquals(0, summaries.get(1).getModCount());
+    }
+
     @Test
     public void addChannel() {
         channelDB.addChannel(new Channel(3, "channel3"));
@@ -59,4 +90,77 @@ public class TestChannelDBInMemory {
         assertEquals(0, channelDB.getChannels("channel0").size());
         assertEquals(1, channelDB.getChannels("new_name").size());
     }
+
+    @Test
+    public void indexesFollowUpdates() {
+        Channel channel = channelDB.getChannel(1).orElse(null);
+        channel.addParticipant(new User("user0"));
+        channel.addMod(new User("user1"));
+        channelDB.updateChannel(channel);
+        assertEquals(Collections.singleton(channel), channelDB.getChannelsOfUser("user1"));
+
+        channel.getMods().clear();
+        channel.setName("renamed");
+        channelDB.updateChannel(channel);
+        assertEquals(0, channelDB.getChannelsOfUser("user1").size());
+        assertEquals(1, channelDB.getChannelsOfUser("user0").size());
+        assertEquals(1, channelDB.getChannels("channel1").size());
+        assertEquals(Collections.singleton(channel), channelDB.getChannels("renamed"));
+
+        channelDB.removeChannel(channel);
+        assertEquals(0, channelDB.getChannelsOfUser("user0").size());
+        assertEquals(0, channelDB.getChannels("renamed").size());
+        // id 0 is a valid id
+        assertTrue(channelDB.getChannel(0).isPresent());
+    }
+
+    @Test
+    public void concurrentUpdates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            int id = 100 + i % 50;
+            String username = "user" + i;
+            executor.execute(() -> {
+                Channel channel = new Channel(id, "channel" + id);
+                channel.addParticipant(new User(username));
+                channelDB.updateChannel(channel);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        int indexed = 0;
+        for (int i = 0; i < 1000; i++) {
+            indexed += channelDB.getChannelsOfUser("user" + i).size();
+        }
+        // each channel is indexed under the participant of its last update only
+        assertEquals(50, indexed);
+        assertEquals(53, channelDB.getAllChannels().size());
+    }
+
+    @Test
+    public void concurrentAddAndRemoveSharingKeys() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int first = 100 + t * 100;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    // every channel has the same name and member, so the index entries are shared
+                    Channel channel = new Channel(first + i, "shared");
+                    channel.addParticipant(new User("member"));
+                    channelDB.addChannel(channel);
+                    if (i % 2 == 0) {
+                        channelDB.removeChannel(channel);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        // none of the kept channels went into a set dropped by the removal of another one
+        assertEquals(400, channelDB.getChannels("shared").size());
+        assertEquals(400, channelDB.getChannelsOfUser("member").size());
+    }
 }
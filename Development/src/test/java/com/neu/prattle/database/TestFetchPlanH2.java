@@ -0,0 +1,163 @@
+package com.neu.prattle.database;
+
+import com.google.gson.Gson;
+import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.ChannelSummary;
+import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
+import com.neu.prattle.utils.GsonUtil;
+import com.neu.prattle.utils.HibernateUtil;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestFetchPlanH2 {
+    private static final int USERS = 10000;
+    private static final int CHANNELS = 1000;
+    private static final int PARTICIPANTS_PER_CHANNEL = 10;
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+    private Gson gson = GsonUtil.getGson();
+
+    @Before
+    public void setUp() {
+        sessionFactory = H2Database.createSessionFactory("fetchplan");
+        HibernateUtil.setSessionFactory(sessionFactory);
+        statistics = sessionFactory.getStatistics();
+
+        // plain JDBC batches, saving this many entities one by one takes too long
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.doWork(connection -> {
+                try (PreparedStatement users = connection.prepareStatement("insert into user (username, password, email, first_name, last_name, bio, isMod, active, login_attempts, avatar) values (?, '123', ?, 'first', 'last', 'bio', false, true, 0, 0)")) {
+                    for (int i = 0; i < USERS; i++) {
+                        users.setString(1, "user" + i);
+                        users.setString(2, "user" + i + "@abc");
+                        users.addBatch();
+                    }
+                    users.executeBatch();
+                }
+                try (PreparedStatement channels = connection.prepareStatement("insert into channel (id, name) values (?, ?)");
+                     PreparedStatement participants = connection.prepareStatement("insert into channel_user (channel_id, username) values (?, ?)");
+                     PreparedStatement mods = connection.prepareStatement("insert into channel_mod (channel_id, username) values (?, ?)")) {
+                    for (int i = 1; i <= CHANNELS; i++) {
+                        channels.setInt(1, i);
+                        channels.setString(2, "channel" + i);
+                        channels.addBatch();
+                        for (int j = 0; j < PARTICIPANTS_PER_CHANNEL; j++) {
+                            participants.setInt(1, i);
+                            participants.setString(2, "user" + ((i * PARTICIPANTS_PER_CHANNEL + j) % USERS));
+                            participants.addBatch();
+                        }
+                        mods.setInt(1, i);
+                        mods.setString(2, "user" + (i % USERS));
+                        mods.addBatch();
+                    }
+                    channels.executeBatch();
+                    participants.executeBatch();
+                    mods.executeBatch();
+                }
+            });
+            transaction.commit();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+        HibernateUtil.setSessionFactory(null);
+    }
+
+    @Test
+    public void testAllUsers() throws SQLException {
+        // before: one statement for the users, then two per user for its eager channel sets
+        statistics.clear();
+        Set<User> users = UserDBHibernate.getInstance().getAllUsers();
+        String json = gson.toJson(users);
+        assertEquals(USERS, users.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        assertTrue(json.contains("\"username\":\"user9999\""));
+    }
+
+    @Test
+    public void testAllChannels() throws SQLException {
+        // before: one statement for the channels, then one per member set and per member's
+        // channel sets
+        statistics.clear();
+        Set<Channel> channels = ChannelDBHibernate.getInstance().getAllChannels();
+        String json = gson.toJson(channels);
+        assertEquals(CHANNELS, channels.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        for (Channel channel : channels) {
+            assertEquals(PARTICIPANTS_PER_CHANNEL, channel.getParticipants().size());
+            assertEquals(1, channel.getMods().size());
+        }
+        assertTrue(json.contains("\"name\":\"channel1000\""));
+    }
+
+    @Test
+    public void testUserSummaries() throws SQLException {
+        String full = gson.toJson(UserDBHibernate.getInstance().getAllUsers());
+        statistics.clear();
+        List<UserSummary> summaries = UserDBHibernate.getInstance().getUserSummaries();
+        String json = gson.toJson(summaries);
+        assertEquals(USERS, summaries.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals("user0", summaries.get(0).getUsername());
+        assertFalse(json.contains("password"));
+        assertTrue(json.length() < full.length());
+    }
+
+    @Test
+    public void testChannelSummaries() throws SQLException {
+        String full = gson.toJson(ChannelDBHibernate.getInstance().getAllChannels());
+        statistics.clear();
+        List<ChannelSummary> summaries = ChannelDBHibernate.getInstance().getChannelSummaries();
+        String json = gson.toJson(summaries);
+        assertEquals(CHANNELS, summaries.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, summaries.get(0).getId());
+        assertEquals(PARTICIPANTS_PER_CHANNEL, summaries.get(0).getParticipantCount());
+        assertEquals(1, summaries.get(0).getModCount());
+        // a member is a whole user in the full payload, and a count in the summary
+        assertTrue(json.length() * 10 < full.length());
+    }
+
+    @Test
+    public void testChannelsOfUser() throws SQLException {
+        statistics.clear();
+        Set<Channel> channels = ChannelDBHibernate.getInstance().getChannelsOfUser("user10");
+        gson.toJson(channels);
+        // a participant of channel 1 and the mod of channel 10
+        assertEquals(2, channels.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    public void testChannelById() throws SQLException {
+        statistics.clear();
+        Channel channel = ChannelDBHibernate.getInstance().getChannel(5).get();
+        assertEquals(PARTICIPANTS_PER_CHANNEL, channel.getParticipants().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
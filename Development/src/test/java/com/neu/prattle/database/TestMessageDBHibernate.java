@@ -1,21 +1,34 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
 import com.neu.prattle.utils.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.jdbc.ReturningWork;
+import org.hibernate.jdbc.Work;
 import org.hibernate.query.Query;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class TestMessageDBHibernate {
     private MessageDBHibernate messageDB;
@@ -42,7 +55,9 @@ public class TestMessageDBHibernate {
         Mockito.doReturn(sessionMock).when(sessionFactoryMock).openSession();
         Mockito.doReturn(queryMock).when(sessionMock).createQuery(any(String.class), any());
         Mockito.doReturn(queryMock).when(queryMock).setParameter(any(String.class), any());
-        Mockito.doReturn(messageList).when(queryMock).list();
+        Mockito.doReturn(Collections.singletonList(new Object[]{messageList.get(0), 4, null})).when(queryMock).list();
+        // the end of the reserved block of ids
+        Mockito.doReturn(101).when(sessionMock).doReturningWork(any(ReturningWork.class));
 
         messageDB.addMessage(messageList.get(0));
         messageDB.removeMessage(messageList.get(0));
@@ -52,6 +67,8 @@ public class TestMessageDBHibernate {
         assertEquals(1, messageDB.getMessagesByFrom("dian").size());
         assertEquals(1, messageDB.getMessagesByToUser("alice").size());
         assertEquals(1, messageDB.getMessagesByToChannel(1).size());
+        assertEquals(Integer.valueOf(4), messageList.get(0).getFromAvatar());
+        assertNull(messageList.get(0).getToAvatar());
 
         Mockito.doThrow(new RuntimeException()).when(transactionMock).commit();
 
@@ -106,4 +123,107 @@ public class TestMessageDBHibernate {
             assertEquals(SQLException.class, e.getClass());
         }
     }
+
+    @Test
+    public void testAddMessages() throws Exception {
+        SessionFactory sessionFactoryMock = Mockito.mock(SessionFactory.class);
+        Session sessionMock = Mockito.mock(Session.class);
+        Transaction transactionMock = Mockito.mock(Transaction.class);
+        Connection connectionMock = Mockito.mock(Connection.class);
+        PreparedStatement statementMock = Mockito.mock(PreparedStatement.class);
+        ResultSet resultSetMock = Mockito.mock(ResultSet.class);
+
+        HibernateUtil.setSessionFactory(sessionFactoryMock);
+
+        Mockito.doReturn(transactionMock).when(sessionMock).beginTransaction();
+        Mockito.doReturn(sessionMock).when(sessionFactoryMock).openSession();
+        Mockito.doAnswer(invocation -> {
+            ((Work) invocation.getArguments()[0]).execute(connectionMock);
+            return null;
+        }).when(sessionMock).doWork(any(Work.class));
+        Mockito.doAnswer(invocation -> ((ReturningWork) invocation.getArguments()[0]).execute(connectionMock))
+                .when(sessionMock).doReturningWork(any(ReturningWork.class));
+        Mockito.doReturn(statementMock).when(connectionMock).prepareStatement(any(String.class));
+        // no id sequence yet, it is created past the largest stored id, 6, and the first block
+        Mockito.doReturn(0).doReturn(1).when(statementMock).executeUpdate();
+        Mockito.doReturn(resultSetMock).when(statementMock).executeQuery();
+        Mockito.doReturn(true).when(resultSetMock).next();
+        Mockito.doReturn(6).doReturn(107).when(resultSetMock).getInt(1);
+
+        messageList.add(Message.messageBuilder().setFrom("alice").setToChannelId(2).setMessageContent("456").build());
+        messageDB.addMessages(messageList);
+
+        verify(statementMock, times(2)).addBatch();
+        verify(statementMock, times(1)).executeBatch();
+        verify(statementMock, times(1)).setInt(1, 7);
+        verify(statementMock, times(1)).setInt(1, 8);
+        verify(statementMock, times(1)).setNull(5, Types.INTEGER);
+        verify(statementMock, times(1)).setString(4, "5:alice|dian");
+        verify(statementMock, times(1)).setInt(5, 2);
+        // one transaction reserves the ids, one adds the messages
+        verify(transactionMock, times(2)).commit();
+        assertEquals(7, messageList.get(0).getId());
+        assertEquals(8, messageList.get(1).getId());
+        verify(connectionMock).prepareStatement("insert into id_sequence (name, next_id) values (?, ?)");
+        verify(statementMock).setInt(2, 107);
+        // the rest of the block is given out without going to the database
+        assertEquals(9, messageDB.reserveId());
+        verify(statementMock, times(2)).executeUpdate();
+
+        messageDB.addMessages(new ArrayList<>());
+        verify(sessionFactoryMock, times(2)).openSession();
+
+        Mockito.doThrow(new SQLException()).when(statementMock).executeBatch();
+        try {
+            messageDB.addMessages(messageList);
+        } catch (SQLException e) {
+            assertEquals(SQLException.class, e.getClass());
+        }
+        verify(transactionMock, times(1)).rollback();
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        SessionFactory sessionFactoryMock = Mockito.mock(SessionFactory.class);
+        Session sessionMock = Mockito.mock(Session.class);
+        Query queryMock = Mockito.mock(Query.class);
+
+        HibernateUtil.setSessionFactory(sessionFactoryMock);
+
+        Mockito.doReturn(sessionMock).when(sessionFactoryMock).openSession();
+        Mockito.doReturn(queryMock).when(sessionMock).createQuery(any(String.class), any());
+        Mockito.doReturn(queryMock).when(queryMock).setParameter(any(String.class), any());
+        Message older = Message.messageBuilder().setMessageContent("older").build();
+        Message newer = Message.messageBuilder().setMessageContent("newer").build();
+        Mockito.doReturn(Arrays.asList(new Object[]{newer, 1, null}, new Object[]{older, 2, null})).when(queryMock).list();
+
+        MessageCursor cursor = new MessageCursor(Timestamp.valueOf("2000-01-01 00:00:00.0"), 3);
+        List<Message> page = messageDB.getMessagesByToChannel(1, cursor, null, 2);
+        assertEquals("older", page.get(0).getContent());
+        assertEquals("newer", page.get(1).getContent());
+        assertEquals(Integer.valueOf(2), page.get(0).getFromAvatar());
+        verify(sessionMock).createQuery("select m, f.avatar, t.avatar from Message m left join User f on f.username = m.fromUsername left join User t on t.username = m.toUsername where m.toChannelId = :to_channel and (m.timestamp < :before_timestamp or (m.timestamp = :before_timestamp and m.id < :before_id)) order by m.timestamp desc, m.id desc", Object[].class);
+        verify(queryMock).setParameter("before_id", 3);
+        verify(queryMock).setMaxResults(2);
+
+        Mockito.doReturn(Arrays.asList(new Object[]{older, 1, 2}, new Object[]{newer, 2, 1})).when(queryMock).list();
+        page = messageDB.getMessagesBetweenUsers("dian", "alice", null, cursor, 5);
+        assertEquals("older", page.get(0).getContent());
+        assertEquals(Integer.valueOf(2), page.get(0).getToAvatar());
+        verify(sessionMock).createQuery("select m, f.avatar, t.avatar from Message m left join User f on f.username = m.fromUsername left join User t on t.username = m.toUsername where m.conversationKey = :conversation_key and (m.timestamp > :after_timestamp or (m.timestamp = :after_timestamp and m.id > :after_id)) order by m.timestamp asc, m.id asc", Object[].class);
+        verify(queryMock).setParameter("conversation_key", "5:alice|dian");
+        verify(queryMock).setParameter("after_id", 3);
+
+        Mockito.doThrow(new RuntimeException()).when(sessionFactoryMock).openSession();
+        try {
+            messageDB.getMessagesByToChannel(1, null, null, 2);
+        } catch (SQLException e) {
+            assertEquals(SQLException.class, e.getClass());
+        }
+        try {
+            messageDB.getMessagesBetweenUsers("dian", "alice", null, null, 2);
+        } catch (SQLException e) {
+            assertEquals(SQLException.class, e.getClass());
+        }
+    }
 }
@@ -0,0 +1,303 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
+import com.neu.prattle.model.User;
+import com.neu.prattle.utils.HibernateUtil;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestMessageDBHibernateH2 {
+    private SessionFactory sessionFactory;
+    private MessageDBHibernate messageDB = MessageDBHibernate.getInstance();
+    private List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws SQLException {
+        sessionFactory = H2Database.createSessionFactory("messages", sql -> {
+            statements.add(sql);
+            return sql;
+        });
+        HibernateUtil.setSessionFactory(sessionFactory);
+
+        List<Message> messages = new ArrayList<>();
+        for (int i = 9; i >= 0; i--) {
+            messages.add(Message.messageBuilder().setFrom("u" + (i % 2)).setToChannelId(i % 2)
+                    .setMessageContent("c" + i).setTimestamp(new Timestamp(1000L * i)).build());
+            messages.add(Message.messageBuilder().setFrom("u" + (i % 2)).setToUsername("u" + ((i + 1) % 2))
+                    .setMessageContent("d" + i).setTimestamp(new Timestamp(1000L * i)).build());
+        }
+        messageDB.addMessages(messages);
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+        HibernateUtil.setSessionFactory(null);
+    }
+
+    private String explain(String sql) {
+        try (Session session = sessionFactory.openSession()) {
+            return session.createNativeQuery("explain " + sql).getSingleResult().toString();
+        }
+    }
+
+    @Test
+    public void testIndexes() {
+        try (Session session = sessionFactory.openSession()) {
+            List<?> indexes = session.createNativeQuery("select distinct index_name from information_schema.indexes where table_name = 'MESSAGE'").list();
+            assertTrue(indexes.contains("IDX_MESSAGE_CHANNEL_TIME"));
+            assertTrue(indexes.contains("IDX_MESSAGE_FROM_TIME"));
+            assertTrue(indexes.contains("IDX_MESSAGE_TO_TIME"));
+            assertTrue(indexes.contains("IDX_MESSAGE_CONVERSATION_TIME"));
+        }
+        assertTrue(explain("select * from message where to_channel = 1 order by timestamp, id").contains("IDX_MESSAGE_CHANNEL_TIME"));
+        assertTrue(explain("select * from message where from_username = 'u1' order by timestamp, id").contains("IDX_MESSAGE_FROM_TIME"));
+        assertTrue(explain("select * from message where to_username = 'u1' order by timestamp, id").contains("IDX_MESSAGE_TO_TIME"));
+        assertTrue(explain("select * from message where conversation_key = '2:u0|u1' order by timestamp, id").contains("IDX_MESSAGE_CONVERSATION_TIME"));
+    }
+
+    @Test
+    public void testOrderedQueries() throws SQLException {
+        List<Message> channel = messageDB.getMessagesByToChannel(1);
+        assertEquals(5, channel.size());
+        assertEquals("c1", channel.get(0).getContent());
+        assertEquals("c9", channel.get(4).getContent());
+
+        List<Message> between = messageDB.getMessagesBetweenUsers("u1", "u0");
+        assertEquals(10, between.size());
+        assertEquals("d0", between.get(0).getContent());
+        assertEquals("d9", between.get(9).getContent());
+
+        // same timestamp, the channel message was inserted first
+        assertEquals("c1", messageDB.getMessagesByFrom("u1").get(0).getContent());
+        assertEquals("d1", messageDB.getMessagesByFrom("u1").get(1).getContent());
+        assertEquals("d0", messageDB.getMessagesByToUser("u1").get(0).getContent());
+    }
+
+    @Test
+    public void testPages() throws SQLException {
+        List<Message> page = messageDB.getMessagesByToChannel(0, null, null, 2);
+        assertEquals(2, page.size());
+        assertEquals("c6", page.get(0).getContent());
+        assertEquals("c8", page.get(1).getContent());
+
+        page = messageDB.getMessagesByToChannel(0, MessageCursor.of(page.get(0)), null, 2);
+        assertEquals("c2", page.get(0).getContent());
+        assertEquals("c4", page.get(1).getContent());
+
+        page = messageDB.getMessagesByToChannel(0, null, MessageCursor.of(page.get(0)), 2);
+        assertEquals("c4", page.get(0).getContent());
+        assertEquals("c6", page.get(1).getContent());
+
+        page = messageDB.getMessagesBetweenUsers("u0", "u1", MessageCursor.of(page.get(1)), MessageCursor.of(page.get(0)), 10);
+        // d4 has the timestamp of c4 but a higher id, d6 the timestamp of c6 and a higher id
+        assertEquals(2, page.size());
+        assertEquals("d4", page.get(0).getContent());
+        assertEquals("d5", page.get(1).getContent());
+    }
+
+    @Test
+    public void testReservedIds() throws SQLException {
+        int reserved = messageDB.reserveId();
+        assertEquals(21, reserved);
+        Message message = Message.messageBuilder().setFrom("u0").setToChannelId(0).setMessageContent("r")
+                .setTimestamp(new Timestamp(100000L)).build();
+        message.setId(reserved);
+        Message unreserved = Message.messageBuilder().setFrom("u0").setToChannelId(0).setMessageContent("u")
+                .setTimestamp(new Timestamp(200000L)).build();
+        messageDB.addMessage(unreserved);
+        messageDB.addMessage(message);
+        assertEquals(22, unreserved.getId());
+
+        List<Message> channel = messageDB.getMessagesByToChannel(0);
+        assertEquals(reserved, channel.get(channel.size() - 2).getId());
+        assertEquals(22, channel.get(channel.size() - 1).getId());
+    }
+
+    @Test
+    public void testIdBlocksAreShared() throws SQLException {
+        // the first block, 1 to 100, was reserved by setUp
+        assertEquals(21, messageDB.reserveId());
+        assertEquals(101, nextId());
+        // another server on the same database reserves the next block
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.createNativeQuery("update id_sequence set next_id = next_id + 100 where name = 'message'").executeUpdate();
+            transaction.commit();
+        }
+        int id = 21;
+        while (id < 100) {
+            id = messageDB.reserveId();
+        }
+        assertEquals(201, messageDB.reserveId());
+        assertEquals(301, nextId());
+    }
+
+    private int nextId() {
+        try (Session session = sessionFactory.openSession()) {
+            return ((Number) session.createNativeQuery("select next_id from id_sequence where name = 'message'").getSingleResult()).intValue();
+        }
+    }
+
+    @Test
+    public void testBackfillConversationKeys() throws SQLException {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.createNativeQuery("insert into message (id, from_username, to_username, content, timestamp) values (1001, 'u1', 'u0', 'old', '1960-01-01 00:00:00')").executeUpdate();
+            // keyed before the key was prefixed with the length of the first username
+            session.createNativeQuery("insert into message (id, from_username, to_username, conversation_key, content, timestamp) values (1002, 'u0', 'u1', 'u0|u1', 'unprefixed', '1960-01-02 00:00:00')").executeUpdate();
+            transaction.commit();
+        }
+        assertEquals(10, messageDB.getMessagesBetweenUsers("u0", "u1").size());
+
+        assertEquals(2, messageDB.backfillConversationKeys());
+        List<Message> between = messageDB.getMessagesBetweenUsers("u0", "u1");
+        assertEquals(12, between.size());
+        assertEquals("old", between.get(0).getContent());
+        assertEquals("2:u0|u1", between.get(0).getConversationKey());
+        assertEquals("unprefixed", between.get(1).getContent());
+        assertEquals(0, messageDB.backfillConversationKeys());
+    }
+
+    @Test
+    public void testUsernamesWithSeparator() throws SQLException {
+        messageDB.addMessage(Message.messageBuilder().setFrom("a|b").setToUsername("c").setMessageContent("first")
+                .setTimestamp(new Timestamp(100000L)).build());
+        messageDB.addMessage(Message.messageBuilder().setFrom("a").setToUsername("b|c").setMessageContent("second")
+                .setTimestamp(new Timestamp(100000L)).build());
+        List<Message> first = messageDB.getMessagesBetweenUsers("c", "a|b");
+        assertEquals(1, first.size());
+        assertEquals("first", first.get(0).getContent());
+        List<Message> second = messageDB.getMessagesBetweenUsers("b|c", "a", null, null, 10);
+        assertEquals(1, second.size());
+        assertEquals("second", second.get(0).getContent());
+        assertEquals(0, messageDB.backfillConversationKeys());
+    }
+
+    @Test
+    public void testBackfillMatchesJavaKeys() throws SQLException {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            // mixed case and non-ASCII pairs, keyed in the order and length Java uses
+            session.createNativeQuery("insert into message (id, from_username, to_username, content, timestamp) values (1001, 'Bob', 'alice', 'mixed', '1960-01-01 00:00:00')").executeUpdate();
+            session.createNativeQuery("insert into message (id, from_username, to_username, content, timestamp) values (1002, 'zoë', 'Émile', 'accents', '1960-01-01 00:00:00')").executeUpdate();
+            transaction.commit();
+        }
+        assertEquals(2, messageDB.backfillConversationKeys());
+        List<Message> mixed = messageDB.getMessagesBetweenUsers("alice", "Bob");
+        assertEquals(1, mixed.size());
+        assertEquals(Message.conversationKey("Bob", "alice"), mixed.get(0).getConversationKey());
+        assertEquals("3:Bob|alice", mixed.get(0).getConversationKey());
+        assertEquals(1, messageDB.getMessagesBetweenUsers("Émile", "zoë").size());
+        // keys written by Java are left alone
+        assertEquals(0, messageDB.backfillConversationKeys());
+    }
+
+    private void addUser(String username, int avatar) {
+        User user = new User(username, "123", username + "@abc", "first", "last", "bio");
+        user.setAvatar(avatar);
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.save(user);
+            transaction.commit();
+        }
+    }
+
+    private static int countSelects(String sql) {
+        return sql.toLowerCase().split("\\bselect\\b", -1).length - 1;
+    }
+
+    @Test
+    public void testAvatarsJoinedOnce() throws SQLException {
+        addUser("u0", 3);
+        addUser("u1", 5);
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        statements.clear();
+
+        List<Message> page = messageDB.getMessagesBetweenUsers("u0", "u1", null, null, 6);
+        assertEquals(6, page.size());
+        for (Message message : page) {
+            assertEquals(message.getFromUsername().equals("u0") ? Integer.valueOf(3) : Integer.valueOf(5), message.getFromAvatar());
+            assertEquals(message.getToUsername().equals("u0") ? Integer.valueOf(3) : Integer.valueOf(5), message.getToAvatar());
+        }
+        // before: one statement holding two correlated avatar subselects, so 1 + 2 * 6 = 13 selects
+        // for this page. after: one statement, one select, no user entity loaded.
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statements.size());
+        assertEquals(1, countSelects(statements.get(0)));
+        assertEquals(0, statistics.getEntityFetchCount());
+
+        statistics.clear();
+        statements.clear();
+        List<Message> channel = messageDB.getMessagesByToChannel(1);
+        assertEquals(5, channel.size());
+        assertEquals(Integer.valueOf(5), channel.get(0).getFromAvatar());
+        assertNull(channel.get(0).getToAvatar());
+        // before: 1 + 2 * 5 = 11 selects. after: 1
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, countSelects(statements.get(0)));
+    }
+
+    @Test
+    public void testStreams() throws SQLException {
+        addUser("u1", 5);
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        List<String> contents = new ArrayList<>();
+        try (MessageStream stream = messageDB.streamMessagesByFrom("u1")) {
+            while (stream.hasNext()) {
+                Message message = stream.next();
+                assertEquals(Integer.valueOf(5), message.getFromAvatar());
+                contents.add(message.getContent());
+            }
+            assertFalse(stream.hasNext());
+        }
+        assertEquals(messageDB.getMessagesByFrom("u1").size(), contents.size());
+        assertEquals("c1", contents.get(0));
+        assertEquals("d1", contents.get(1));
+        assertEquals("d9", contents.get(contents.size() - 1));
+
+        // closed before the end
+        try (MessageStream stream = messageDB.streamMessagesByToUser("u1")) {
+            assertEquals("d0", stream.next().getContent());
+        }
+        // closed twice, by the writer and by whoever dropped the response
+        MessageStream stream = messageDB.streamMessagesByToUser("u1");
+        stream.close();
+        stream.close();
+        assertEquals(statistics.getSessionOpenCount(), statistics.getSessionCloseCount());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testStreamEnd() throws SQLException {
+        try (MessageStream stream = messageDB.streamMessagesByToUser("nobody")) {
+            stream.next();
+        }
+    }
+
+    @Test(expected = SQLException.class)
+    public void testStreamFails() throws SQLException {
+        sessionFactory.close();
+        messageDB.streamMessagesByFrom("u1");
+    }
+}
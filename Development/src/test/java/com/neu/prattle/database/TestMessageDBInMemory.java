@@ -1,11 +1,17 @@
 package com.neu.prattle.database;
 
 import com.neu.prattle.model.Message;
+import com.neu.prattle.model.MessageCursor;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertFalse;
@@ -63,6 +69,18 @@ public class TestMessageDBInMemory {
         assertEquals(1, messageDB.getMessagesByToChannel(1).size());
     }
 
+    @Test
+    public void testDirectMessagesNotInChannelIndex() throws SQLException {
+        Message direct = Message.messageBuilder().setFrom("alice").setToUsername("dian").setMessageContent("456").build();
+        messageDB.addMessage(direct);
+        assertEquals(-1, direct.getToChannelId());
+        assertEquals(0, messageDB.getMessagesByToChannel(-1).size());
+        assertEquals(0, messageDB.getMessagesByToChannel(-1, null, null, 10).size());
+
+        messageDB.removeMessage(direct);
+        assertEquals(1, messageDB.getMessagesBetweenUsers("alice", "dian").size());
+    }
+
 
     @Test
     public void testAddMessage() throws SQLException {
@@ -134,4 +152,88 @@ public class TestMessageDBInMemory {
 
     }
 
+    @Test
+    public void testOrderAndIds() throws SQLException {
+        Message later = Message.messageBuilder().setFrom("dian").setToChannelId(2).setTimestamp(new Timestamp(2000)).build();
+        Message earlier = Message.messageBuilder().setFrom("dian").setToChannelId(2).setTimestamp(new Timestamp(1000)).build();
+        messageDB.addMessage(later);
+        messageDB.addMessage(earlier);
+        messageDB.addMessage(earlier);
+        assertEquals(Arrays.asList(earlier, later), messageDB.getMessagesByToChannel(2));
+        assertNotEquals(0, later.getId());
+        assertNotEquals(later.getId(), earlier.getId());
+
+        // a taken id is replaced
+        Message copy = Message.messageBuilder().setFrom("dian").setToChannelId(2).setTimestamp(new Timestamp(3000)).build();
+        copy.setId(later.getId());
+        messageDB.addMessage(copy);
+        assertNotEquals(later.getId(), copy.getId());
+        assertEquals(3, messageDB.getMessagesByToChannel(2).size());
+
+        // the channel message has no receiver, the direct message no channel
+        assertEquals(1, messageDB.getMessagesByToUser("alice").size());
+        assertEquals(0, messageDB.getMessagesByToChannel(0).size());
+        assertEquals(4, messageDB.getMessagesByFrom("dian").size());
+    }
+
+    @Test
+    public void testPages() throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            messages.add(Message.messageBuilder().setFrom("david").setToUsername("tanner").setTimestamp(new Timestamp(i * 1000)).build());
+        }
+        Collections.shuffle(messages, new Random(1));
+        messageDB.addMessages(messages);
+        messageDB.addMessage(Message.messageBuilder().setFrom("david").setToUsername("tanner").build());
+        messages.sort(MessageCursor.ORDER);
+
+        assertEquals(messages.subList(7, 10), messageDB.getMessagesBetweenUsers("tanner", "david", null, null, 3));
+        MessageCursor fifth = MessageCursor.of(messages.get(4));
+        assertEquals(messages.subList(1, 4), messageDB.getMessagesBetweenUsers("david", "tanner", fifth, null, 3));
+        assertEquals(messages.subList(0, 4), messageDB.getMessagesBetweenUsers("david", "tanner", fifth, null, 10));
+        assertEquals(messages.subList(5, 8), messageDB.getMessagesBetweenUsers("david", "tanner", null, fifth, 3));
+        assertEquals(messages.subList(5, 7), messageDB.getMessagesBetweenUsers("david", "tanner",
+                MessageCursor.of(messages.get(7)), fifth, 3));
+        assertEquals(11, messageDB.getMessagesBetweenUsers("david", "tanner").size());
+    }
+
+    @Test
+    public void testUpdateAndRemoveIndexed() throws SQLException {
+        Message stored = messageSet.get(0);
+        Message replacement = Message.messageBuilder().setFrom("dian").setToUsername("bob").setMessageContent("456").build();
+        replacement.setId(stored.getId());
+        messageDB.updateMessage(replacement);
+        assertEquals(0, messageDB.getMessagesByToUser("alice").size());
+        assertEquals(Collections.singletonList(replacement), messageDB.getMessagesByToUser("bob"));
+
+        // removing a message that is not the stored one does nothing
+        messageDB.removeMessage(stored);
+        assertEquals(1, messageDB.getMessagesByFrom("dian").size());
+        messageDB.removeMessage(replacement);
+        assertEquals(0, messageDB.getMessagesByFrom("dian").size());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        MessageDBInMemory messageDB = MessageDBInMemory.getInstance();
+        int threads = 8;
+        int perThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    messageDB.addMessage(Message.messageBuilder().setFrom("user" + thread).setToChannelId(7)
+                            .setTimestamp(new Timestamp(i)).build());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        List<Message> channel = messageDB.getMessagesByToChannel(7);
+        assertEquals(threads * perThread, channel.size());
+        assertEquals(threads * perThread, channel.stream().map(Message::getId).distinct().count());
+        assertEquals(perThread, messageDB.getMessagesByFrom("user3").size());
+    }
+
 }
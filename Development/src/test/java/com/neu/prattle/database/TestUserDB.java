@@ -11,6 +11,8 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.sql.DataSource;
+
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 
@@ -28,16 +30,22 @@ public class TestUserDB {
         testUserList.add(new User("Test2", "123", "abc2", "first", "last", "bio"));
     }
 
+    private Connection mockConnection() throws SQLException {
+        DataSource mockDataSource = Mockito.mock(DataSource.class);
+        Connection mockConnection = Mockito.mock(Connection.class);
+        Mockito.doReturn(mockConnection).when(mockDataSource).getConnection();
+        userDB.setDataSource(mockDataSource);
+        return mockConnection;
+    }
+
     @Test
     public void testUserDB() throws SQLException {
-        Connection mockConnection = Mockito.mock(Connection.class);
-        userDB.setConnect(mockConnection);
-        Statement mockStatement = Mockito.mock(Statement.class);
+        Connection mockConnection = mockConnection();
         PreparedStatement mockPreparedStatement = Mockito.mock(PreparedStatement.class);
-        Mockito.doReturn(mockStatement).when(mockConnection).createStatement();
         Mockito.doReturn(mockPreparedStatement).when(mockConnection).prepareStatement(any(String.class));
         ResultSet mockResultSet = Mockito.mock(ResultSet.class);
-        Mockito.doReturn(mockResultSet).when(mockStatement).executeQuery(any(String.class));
+        Mockito.doReturn(mockResultSet).when(mockPreparedStatement).executeQuery();
+        Mockito.doReturn(1).when(mockPreparedStatement).executeUpdate();
 
         userDB.addUser(testUserList.get(0));
         userDB.updateUser(testUserList.get(0));
@@ -53,22 +61,50 @@ public class TestUserDB {
         assertTrue(userDB.findUserByName(testUserList.get(0).getUsername()).isPresent());
         assertFalse(userDB.findUserByName(testUserList.get(1).getUsername()).isPresent());
 
-        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        Mockito.doThrow(new SQLIntegrityConstraintViolationException("Duplicate entry")).when(mockPreparedStatement).executeUpdate();
         try {
             userDB.addUser(testUserList.get(0));
+            fail();
         } catch (UserAlreadyPresentException e) {
             assertEquals(String.format("User already present with name: %s", testUserList.get(0).getUsername()),
                     e.getMessage());
         }
+        // drivers reporting the violation by SQL state only
+        Mockito.doThrow(new SQLException("Duplicate entry", "23000")).when(mockPreparedStatement).executeUpdate();
+        try {
+            userDB.addUser(testUserList.get(0));
+            fail();
+        } catch (UserAlreadyPresentException e) {
+            assertEquals(String.format("User already present with name: %s", testUserList.get(0).getUsername()),
+                    e.getMessage());
+        }
+        Mockito.doReturn(1).when(mockPreparedStatement).executeUpdate();
         userDB.removeUser(testUserList.get(0));
         userDB.removeAllUsers();
+        userDB.addUsers(testUserList);
+        userDB.removeUsers(testUserList);
+        Mockito.verify(mockPreparedStatement, Mockito.times(6)).addBatch();
+        Mockito.verify(mockConnection, Mockito.times(2)).commit();
+    }
+
+    @Test
+    public void testBatchRolledBack() throws SQLException {
+        Connection mockConnection = mockConnection();
+        PreparedStatement mockPreparedStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.doReturn(mockPreparedStatement).when(mockConnection).prepareStatement(any(String.class));
+        Mockito.doThrow(SQLException.class).when(mockPreparedStatement).executeBatch();
+        try {
+            userDB.addUsers(testUserList);
+            fail();
+        } catch (SQLException e) {
+            Mockito.verify(mockConnection).rollback();
+            Mockito.verify(mockConnection, Mockito.never()).commit();
+        }
     }
 
     @Test
     public void testThrows() throws SQLException {
-        Connection mockConnection = Mockito.mock(Connection.class);
-        userDB.setConnect(mockConnection);
-        Mockito.doThrow(SQLException.class).when(mockConnection).createStatement();
+        Connection mockConnection = mockConnection();
         Mockito.doThrow(SQLException.class).when(mockConnection).prepareStatement(any(String.class));
 
         try {
@@ -0,0 +1,185 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TestUserDBCache {
+    private IUserDB delegateMock;
+    private AtomicLong clock;
+    private UserDBCache userDB;
+    private User alice;
+    private User bob;
+
+    @Before
+    public void setUp() throws SQLException {
+        delegateMock = Mockito.mock(IUserDB.class);
+        clock = new AtomicLong();
+        userDB = new UserDBCache(delegateMock, 2, 1000, clock::get);
+        alice = new User("alice", "123", "a@abc", "first", "last", "bio");
+        bob = new User("bob", "123", "b@abc", "first", "last", "bio");
+        Mockito.doReturn(Optional.of(alice)).when(delegateMock).findUserByName("alice");
+        Mockito.doReturn(Optional.of(bob)).when(delegateMock).findUserByName("bob");
+        Mockito.doReturn(Optional.empty()).when(delegateMock).findUserByName("carol");
+    }
+
+    @Test
+    public void testHitsAreCopies() throws SQLException {
+        alice.setAvatar(3);
+        alice.setLockout(new Timestamp(1000L));
+        userDB.findUserByName("alice").get().setBio("changed by the first caller");
+        User first = userDB.findUserByName("alice").get();
+        User second = userDB.findUserByName("alice").get();
+        assertNotSame(first, second);
+        first.setBio("changed by the second caller");
+        first.getLockout().setTime(2000L);
+        assertEquals("bio", second.getBio());
+        assertEquals("bio", userDB.findUserByName("alice").get().getBio());
+        assertEquals(1000L, userDB.findUserByName("alice").get().getLockout().getTime());
+        assertEquals(Integer.valueOf(3), second.getAvatar());
+        assertEquals("a@abc", second.getEmail());
+        verify(delegateMock, times(1)).findUserByName("alice");
+    }
+
+    @Test
+    public void testHitsAndMisses() throws SQLException {
+        assertSame(alice, userDB.findUserByName("alice").get());
+        for (int i = 0; i < 9; i++) {
+            assertEquals(alice, userDB.findUserByName("alice").get());
+        }
+        verify(delegateMock, times(1)).findUserByName("alice");
+        assertEquals(9, userDB.getHitCount());
+        assertEquals(1, userDB.getMissCount());
+        assertEquals(0.9, userDB.getHitRate(), 1e-9);
+
+        // users that do not exist are not cached
+        assertFalse(userDB.findUserByName("carol").isPresent());
+        assertFalse(userDB.findUserByName("carol").isPresent());
+        verify(delegateMock, times(2)).findUserByName("carol");
+        assertEquals(1, userDB.size());
+
+        userDB.resetStatistics();
+        assertEquals(0, userDB.getHitCount());
+        assertEquals(0.0, userDB.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testTimeToLive() throws SQLException {
+        userDB.findUserByName("alice");
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        userDB.findUserByName("alice");
+        verify(delegateMock, times(1)).findUserByName("alice");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        userDB.findUserByName("alice");
+        verify(delegateMock, times(2)).findUserByName("alice");
+        assertEquals(1, userDB.getEvictionCount());
+    }
+
+    @Test
+    public void testSizeEviction() throws SQLException {
+        User dave = new User("dave", "123", "d@abc", "first", "last", "bio");
+        Mockito.doReturn(Optional.of(dave)).when(delegateMock).findUserByName("dave");
+
+        userDB.findUserByName("alice");
+        userDB.findUserByName("bob");
+        userDB.findUserByName("alice");
+        // bob is the least recently used
+        userDB.findUserByName("dave");
+        assertEquals(2, userDB.size());
+        assertEquals(1, userDB.getEvictionCount());
+
+        userDB.findUserByName("alice");
+        verify(delegateMock, times(1)).findUserByName("alice");
+        userDB.findUserByName("bob");
+        verify(delegateMock, times(2)).findUserByName("bob");
+    }
+
+    @Test
+    public void testInvalidation() throws SQLException {
+        userDB.findUserByName("alice");
+        userDB.updateUser(alice);
+        verify(delegateMock).updateUser(alice);
+        userDB.findUserByName("alice");
+        verify(delegateMock, times(2)).findUserByName("alice");
+
+        userDB.removeUser(alice);
+        verify(delegateMock).removeUser(alice);
+        userDB.findUserByName("alice");
+        verify(delegateMock, times(3)).findUserByName("alice");
+
+        userDB.addUser(alice);
+        verify(delegateMock).addUser(alice);
+        userDB.findUserByName("alice");
+        verify(delegateMock, times(4)).findUserByName("alice");
+
+        userDB.findUserByName("bob");
+        userDB.removeAllUsers();
+        verify(delegateMock).removeAllUsers();
+        assertEquals(0, userDB.size());
+
+        userDB.findUserByName("bob");
+        userDB.invalidate("bob");
+        assertEquals(0, userDB.size());
+        userDB.findUserByName("bob");
+        userDB.testMode();
+        verify(delegateMock).testMode();
+        assertEquals(0, userDB.size());
+    }
+
+    @Test
+    public void testFailedUpdateInvalidates() throws SQLException {
+        userDB.findUserByName("alice");
+        Mockito.doThrow(new SQLException()).when(delegateMock).updateUser(any(User.class));
+        alice.setActive(false);
+        try {
+            userDB.updateUser(alice);
+        } catch (SQLException e) {
+            assertEquals(SQLException.class, e.getClass());
+        }
+        assertEquals(0, userDB.size());
+    }
+
+    @Test
+    public void testReadRacingWithWrite() throws SQLException {
+        // the update lands while the lookup is reading the old user
+        Mockito.doAnswer(invocation -> {
+            userDB.updateUser(alice);
+            return Optional.of(alice);
+        }).when(delegateMock).findUserByName("alice");
+        userDB.findUserByName("alice");
+        assertEquals(0, userDB.size());
+    }
+
+    @Test
+    public void testGetAllUsers() throws SQLException {
+        Mockito.doReturn(Collections.singleton(alice)).when(delegateMock).getAllUsers();
+        assertEquals(1, userDB.getAllUsers().size());
+        Mockito.doReturn(Collections.singletonList(UserSummary.of(alice))).when(delegateMock).getUserSummaries();
+        assertEquals("alice", userDB.getUserSummaries().get(0).getUsername());
+        assertSame(UserDBCache.getInstance(), UserDBCache.getInstance());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new UserDBCache(delegateMock, 0, 1000);
+    }
+}
@@ -0,0 +1,123 @@
+package com.neu.prattle.database;
+
+import com.neu.prattle.exceptions.UserAlreadyPresentException;
+import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestUserDBH2 {
+    private SessionFactory sessionFactory;
+    private UserDB userDB;
+
+    @Before
+    public void setUp() {
+        // the session factory exports the schema
+        sessionFactory = H2Database.createSessionFactory("userdb");
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:userdb;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        userDB = new UserDB(dataSource);
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    private static User user(String name) {
+        return new User(name, "123", name + "@abc", "first", "last", "bio");
+    }
+
+    @Test
+    public void testAddFindUpdate() throws SQLException {
+        User alice = user("alice");
+        alice.setAvatar(4);
+        userDB.addUser(alice);
+        User found = userDB.findUserByName("alice").get();
+        assertEquals("alice@abc", found.getEmail());
+        assertEquals(Integer.valueOf(4), found.getAvatar());
+        assertTrue(found.getActive());
+        assertFalse(userDB.findUserByName("bob").isPresent());
+
+        found.setActive(false);
+        found.setLoginAttempts(2);
+        found.setLockout(new Timestamp(1000));
+        userDB.updateUser(found);
+        found = userDB.findUserByName("alice").get();
+        assertFalse(found.getActive());
+        assertEquals(2, found.getLoginAttempts());
+        assertEquals(new Timestamp(1000), found.getLockout());
+
+        User copy = user("alice");
+        copy.setBio("changed");
+        try {
+            userDB.addUser(copy);
+            fail();
+        } catch (UserAlreadyPresentException e) {
+            assertEquals("User already present with name: alice", e.getMessage());
+        }
+        // left unchanged
+        assertEquals("bio", userDB.findUserByName("alice").get().getBio());
+
+        // another user with the same email
+        User other = user("bob");
+        other.setEmail("alice@abc");
+        try {
+            userDB.addUser(other);
+            fail();
+        } catch (UserAlreadyPresentException e) {
+            assertFalse(userDB.findUserByName("bob").isPresent());
+        }
+    }
+
+    @Test
+    public void testBatches() throws SQLException {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(user("user" + i));
+        }
+        userDB.addUser(users.get(0));
+        userDB.addUsers(users);
+        assertEquals(100, userDB.getAllUsers().size());
+
+        List<UserSummary> summaries = userDB.getUserSummaries();
+        assertEquals(100, summaries.size());
+        assertEquals("user0", summaries.get(0).getUsername());
+        assertEquals("first", summaries.get(0).getFirstName());
+
+        userDB.removeUsers(users.subList(0, 50));
+        assertEquals(50, userDB.getAllUsers().size());
+        userDB.removeUser(users.get(50));
+        assertFalse(userDB.findUserByName("user50").isPresent());
+        userDB.removeAllUsers();
+        assertTrue(userDB.getAllUsers().isEmpty());
+    }
+
+    @Test
+    public void testBatchRolledBack() throws SQLException {
+        User broken = user("broken");
+        broken.setPassword(null);
+        try {
+            userDB.addUsers(Arrays.asList(user("first"), broken));
+            fail();
+        } catch (SQLException e) {
+            assertTrue(userDB.getAllUsers().isEmpty());
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.neu.prattle.database;
 
+import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.User;
 import com.neu.prattle.utils.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.query.Query;
 import org.junit.Before;
 import org.junit.Test;
@@ -16,6 +18,10 @@ import org.mockito.Mockito;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TestUserDBHibernate {
     private UserDBHibernate userDB;
@@ -94,4 +100,80 @@ public class TestUserDBHibernate {
             assertEquals(SQLException.class, e.getClass());
         }
     }
+
+    @Test
+    public void testOnlyDuplicatesArePresent() throws SQLException {
+        SessionFactory sessionFactoryMock = Mockito.mock(SessionFactory.class);
+        Session sessionMock = Mockito.mock(Session.class);
+        Transaction transactionMock = Mockito.mock(Transaction.class);
+
+        HibernateUtil.setSessionFactory(sessionFactoryMock);
+        Mockito.doReturn(sessionMock).when(sessionFactoryMock).openSession();
+        Mockito.doReturn(transactionMock).when(sessionMock).beginTransaction();
+
+        // MySQL: duplicate key
+        Mockito.doThrow(new ConstraintViolationException("could not execute statement",
+                new SQLException("Duplicate entry 'Test0' for key 'PRIMARY'", "23000", 1062), "PRIMARY"))
+                .when(sessionMock).save(testUserList.get(0));
+        try {
+            userDB.addUser(testUserList.get(0));
+            fail();
+        } catch (UserAlreadyPresentException e) {
+            assertEquals("User already present with name: Test0", e.getMessage());
+        }
+
+        // H2: duplicate key
+        Mockito.doThrow(new ConstraintViolationException("could not execute statement",
+                new SQLException("Unique index or primary key violation", "23505", 23505), "PRIMARY"))
+                .when(sessionMock).save(testUserList.get(1));
+        try {
+            userDB.addUser(testUserList.get(1));
+            fail();
+        } catch (UserAlreadyPresentException e) {
+            assertEquals("User already present with name: Test1", e.getMessage());
+        }
+
+        // MySQL: NOT NULL column, same SQL state as a duplicate
+        Mockito.doThrow(new ConstraintViolationException("could not execute statement",
+                new SQLException("Column 'password' cannot be null", "23000", 1048), null))
+                .when(sessionMock).save(testUserList.get(2));
+        try {
+            userDB.addUser(testUserList.get(2));
+            fail();
+        } catch (UserAlreadyPresentException e) {
+            fail(e.getMessage());
+        } catch (SQLException e) {
+            assertEquals(SQLException.class, e.getClass());
+        }
+    }
+
+    @Test
+    public void testConcurrentDuplicateAdds() throws InterruptedException {
+        SessionFactory sessionFactory = H2Database.createSessionFactory("duplicates");
+        HibernateUtil.setSessionFactory(sessionFactory);
+        try {
+            AtomicInteger added = new AtomicInteger();
+            AtomicInteger present = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 16; i++) {
+                executor.execute(() -> {
+                    try {
+                        userDB.addUser(new User("same", "123", "same@abc", "first", "last", "bio"));
+                        added.incrementAndGet();
+                    } catch (UserAlreadyPresentException e) {
+                        present.incrementAndGet();
+                    } catch (SQLException e) {
+                        fail(e.getMessage());
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            assertEquals(1, added.get());
+            assertEquals(15, present.get());
+        } finally {
+            sessionFactory.close();
+            HibernateUtil.setSessionFactory(null);
+        }
+    }
 }
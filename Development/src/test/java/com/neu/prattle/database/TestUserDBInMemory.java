@@ -1,11 +1,18 @@
 package com.neu.prattle.database;
 
+import com.neu.prattle.exceptions.UserAlreadyPresentException;
 import com.neu.prattle.model.User;
+import com.neu.prattle.model.UserSummary;
 
 import org.junit.Test;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -35,4 +42,39 @@ public class TestUserDBInMemory {
         userDB.removeUser(user1);
     }
 
+    @Test
+    public void testUserSummaries() throws SQLException {
+        userDB.testMode();
+        userDB.addUser(new User("b", "test", "b@abc", "first", "last", "bio"));
+        userDB.addUser(new User("a", "test", "a@abc", "first", "last", "bio", false));
+        List<UserSummary> summaries = userDB.getUserSummaries();
+        assertEquals(2, summaries.size());
+        assertEquals("a", summaries.get(0).getUsername());
+        assertFalse(summaries.get(0).getActive());
+        assertEquals("b", summaries.get(1).getUsername());
+    }
+
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        userDB.testMode();
+        AtomicInteger added = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            String username = "user" + i % 500;
+            executor.execute(() -> {
+                try {
+                    userDB.addUser(new User(username));
+                    added.incrementAndGet();
+                } catch (UserAlreadyPresentException | SQLException e) {
+                    // lost the race for the username
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(500, added.get());
+        assertEquals(500, UserDBInMemory.getInstance().getAllUsers().size());
+        assertTrue(UserDBInMemory.getInstance().findUserByName("user499").isPresent());
+    }
+
 }
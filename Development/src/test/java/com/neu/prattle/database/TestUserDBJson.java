@@ -7,6 +7,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -83,8 +89,67 @@ public class TestUserDBJson {
         userDB.removeUser(user1);
     }
 
+    @Test
+    public void testReloadReplaysLog() throws SQLException {
+        userDB.addUser(testUserList.get(0));
+        userDB.addUser(testUserList.get(1));
+        userDB.addUser(testUserList.get(2));
+        User updated = new User("Test1", "123", "abc1", "first", "last", "bio", false);
+        userDB.updateUser(updated);
+        userDB.removeUser(testUserList.get(2));
+
+        // only the log changed
+        assertEquals("[]", read("test_user.json"));
+        ((UserDBJson) userDB).close();
+        assertEquals(2, userDB.getAllUsers().size());
+        assertFalse(userDB.findUserByName("Test1").get().getActive());
+        assertFalse(userDB.findUserByName("Test2").isPresent());
+    }
+
+    @Test
+    public void testCompact() throws SQLException, IOException, InterruptedException {
+        for (int i = 0; i < 5000; i++) {
+            userDB.addUser(new User("user" + i, "123", "email", "first", "last", "bio"));
+        }
+        userDB.removeUser(new User("user0"));
+        ((UserDBJson) userDB).awaitCompaction();
+        ((UserDBJson) userDB).compact();
+        assertEquals(0, Files.size(Paths.get("test_user.json.log")));
+        assertFalse(Files.exists(Paths.get("test_user.json.log.compacting")));
+
+        ((UserDBJson) userDB).close();
+        assertEquals(4999, userDB.getAllUsers().size());
+        assertTrue(userDB.findUserByName("user4999").isPresent());
+        assertFalse(userDB.findUserByName("user0").isPresent());
+    }
+
+    @Test
+    public void testTornLogEntry() throws SQLException, IOException {
+        userDB.addUser(testUserList.get(0));
+        ((UserDBJson) userDB).close();
+        Files.write(Paths.get("test_user.json.log"), "{\"op\":\"put\",\"user\":{\"userna".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        assertEquals(1, userDB.getAllUsers().size());
+        // appended after the torn line
+        userDB.addUser(testUserList.get(1));
+        ((UserDBJson) userDB).close();
+        assertEquals(2, userDB.getAllUsers().size());
+    }
+
+    private static String read(String file) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @After
-    public void cleanUp() throws SQLException {
+    public void cleanUp() throws SQLException, IOException, InterruptedException {
         userDB.removeAllUsers();
+        ((UserDBJson) userDB).awaitCompaction();
+        ((UserDBJson) userDB).compact();
+        ((UserDBJson) userDB).close();
+        Files.deleteIfExists(Paths.get("test_user.json.log"));
     }
 }
@@ -0,0 +1,62 @@
+package com.neu.prattle.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class TestChannelMembership {
+
+    @Test
+    public void of() {
+        Channel channel = new Channel(3, "channel3",
+                new HashSet<>(Collections.singletonList(new User("mod"))),
+                new HashSet<>(Arrays.asList(new User("user0"), new User("user1"))));
+        ChannelMembership membership = ChannelMembership.of(channel);
+        assertEquals(3, membership.getId());
+        assertEquals("channel3", membership.getName());
+        assertEquals(new HashSet<>(Arrays.asList("user0", "user1")), membership.getParticipants());
+        assertEquals(Collections.singleton("mod"), membership.getMods());
+    }
+
+    @Test
+    public void isMember() {
+        ChannelMembership membership = new ChannelMembership(0, "channel0",
+                Collections.singletonList("user0"), Collections.singletonList("mod"));
+        assertTrue(membership.isMember("user0"));
+        assertTrue(membership.isMember("mod"));
+        assertFalse(membership.isMember("user1"));
+    }
+
+    @Test
+    public void changes() {
+        ChannelMembership membership = new ChannelMembership(0, "channel0",
+                Collections.emptyList(), Collections.emptyList());
+
+        ChannelMembership joined = membership.withParticipant("user0");
+        assertTrue(joined.getParticipants().contains("user0"));
+        assertFalse(membership.isMember("user0"));
+        assertEquals(joined.getParticipants(), joined.withParticipant("user0").getParticipants());
+
+        ChannelMembership promoted = joined.withPromoted("user0");
+        assertFalse(promoted.getParticipants().contains("user0"));
+        assertTrue(promoted.getMods().contains("user0"));
+
+        ChannelMembership demoted = promoted.withDemoted("user0");
+        assertTrue(demoted.getParticipants().contains("user0"));
+        assertFalse(demoted.getMods().contains("user0"));
+
+        ChannelMembership left = demoted.withoutParticipant("user0");
+        assertFalse(left.isMember("user0"));
+        assertEquals("channel0", left.getName());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unmodifiable() {
+        new ChannelMembership(0, "channel0", Collections.emptyList(), Collections.emptyList())
+                .getParticipants().add("user0");
+    }
+}
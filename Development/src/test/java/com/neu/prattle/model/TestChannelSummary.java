@@ -0,0 +1,30 @@
+package com.neu.prattle.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestChannelSummary {
+
+    @Test
+    public void getters() {
+        ChannelSummary summary = new ChannelSummary(1, "channel1", 10, 2);
+        assertEquals(1, summary.getId());
+        assertEquals("channel1", summary.getName());
+        assertEquals(10, summary.getParticipantCount());
+        assertEquals(2, summary.getModCount());
+    }
+
+    @Test
+    public void of() {
+        Channel channel = new Channel(1, "channel1");
+        channel.getParticipants().add(new User("user0"));
+        channel.getParticipants().add(new User("user1"));
+        channel.getMods().add(new User("mod"));
+        ChannelSummary summary = ChannelSummary.of(channel);
+        assertEquals(1, summary.getId());
+        assertEquals("channel1", summary.getName());
+        assertEquals(2, summary.getParticipantCount());
+        assertEquals(1, summary.getModCount());
+    }
+}
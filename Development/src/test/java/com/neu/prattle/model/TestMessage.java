@@ -5,6 +5,8 @@ import org.junit.Test;
 import java.sql.Timestamp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 
 public class TestMessage {
     @Test
@@ -45,4 +47,25 @@ public class TestMessage {
         assertEquals(new Integer(1), message.getFromAvatar());
         assertEquals(new Integer(2), message.getToAvatar());
     }
+
+    @Test
+    public void testConversationKey() {
+        assertEquals("2:u0|u1", Message.conversationKey("u0", "u1"));
+        assertEquals("2:u0|u1", Message.conversationKey("u1", "u0"));
+
+        Message message = Message.messageBuilder().setFrom("u1").setToUsername("u0").build();
+        assertEquals("2:u0|u1", message.getConversationKey());
+        message.setToUsername(null);
+        assertNull(message.getConversationKey());
+        assertNull(Message.messageBuilder().setFrom("u1").setToChannelId(1).build().getConversationKey());
+    }
+
+    @Test
+    public void testConversationKeyWithSeparator() {
+        // a|b with c and a with b|c are different conversations
+        assertNotEquals(Message.conversationKey("a|b", "c"), Message.conversationKey("a", "b|c"));
+        assertEquals("3:a|b|c", Message.conversationKey("c", "a|b"));
+        assertEquals("1:a|b|c", Message.conversationKey("b|c", "a"));
+        assertNotEquals(Message.conversationKey("1:a", "b"), Message.conversationKey("a", "1:b"));
+    }
 }
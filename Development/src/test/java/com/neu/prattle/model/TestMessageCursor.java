@@ -0,0 +1,66 @@
+package com.neu.prattle.model;
+
+import org.junit.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestMessageCursor {
+
+    private Message message(String timestamp, int id) {
+        Message message = Message.messageBuilder().setTimestamp(Timestamp.valueOf(timestamp)).build();
+        message.setId(id);
+        return message;
+    }
+
+    @Test
+    public void testParseAndFormat() {
+        Timestamp timestamp = Timestamp.valueOf("2000-01-01 00:00:00.123456789");
+        MessageCursor cursor = new MessageCursor(timestamp, 42);
+        MessageCursor parsed = MessageCursor.parse(cursor.toString());
+        assertEquals(cursor, parsed);
+        assertEquals(cursor.hashCode(), parsed.hashCode());
+        assertEquals(timestamp, parsed.getTimestamp());
+        assertEquals(42, parsed.getId());
+
+        MessageCursor old = new MessageCursor(Timestamp.valueOf("1960-01-01 00:00:00.5"), 1);
+        assertEquals(old, MessageCursor.parse(old.toString()));
+        assertNotEquals(cursor, old);
+        assertNotEquals(cursor, "cursor");
+
+        assertNull(MessageCursor.parse(null));
+        assertNull(MessageCursor.parse(""));
+        assertNull(MessageCursor.of(Message.messageBuilder().build()));
+        assertEquals(cursor, MessageCursor.of(message("2000-01-01 00:00:00.123456789", 42)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseNoSeparator() {
+        MessageCursor.parse("12345");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseNotANumber() {
+        MessageCursor.parse("abc_1");
+    }
+
+    @Test
+    public void testOrder() {
+        MessageCursor cursor = new MessageCursor(Timestamp.valueOf("2000-01-01 00:00:01.0"), 5);
+        assertTrue(cursor.isBeforeCursor(message("2000-01-01 00:00:00.0", 9)));
+        assertTrue(cursor.isBeforeCursor(message("2000-01-01 00:00:01.0", 4)));
+        assertFalse(cursor.isBeforeCursor(message("2000-01-01 00:00:01.0", 5)));
+        assertFalse(cursor.isAfterCursor(message("2000-01-01 00:00:01.0", 5)));
+        assertTrue(cursor.isAfterCursor(message("2000-01-01 00:00:01.0", 6)));
+        assertTrue(cursor.isAfterCursor(message("2000-01-01 00:00:02.0", 0)));
+        assertFalse(cursor.isAfterCursor(Message.messageBuilder().build()));
+
+        assertTrue(MessageCursor.ORDER.compare(message("2000-01-01 00:00:01.0", 4), message("2000-01-01 00:00:01.0", 5)) < 0);
+        assertTrue(MessageCursor.ORDER.compare(message("2000-01-01 00:00:02.0", 1), message("2000-01-01 00:00:01.0", 5)) > 0);
+    }
+}
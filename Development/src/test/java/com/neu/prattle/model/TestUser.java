@@ -1,10 +1,10 @@
 package com.neu.prattle.model;
 
-import org.codehaus.jackson.map.ObjectMapper;
+import com.neu.prattle.utils.GsonUtil;
+
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -31,10 +31,9 @@ public class TestUser {
     }
 
     @Test
-    public void testJson() throws IOException {
+    public void testJson() {
         String JSON = "{ \"username\" : \"dian\", \"password\": \"1234\", \"email\": \"1234\", \"firstName\": \"dian\", \"lastName\": \"wang\"}";
-        ObjectMapper objectMapper = new ObjectMapper();
-        User p = objectMapper.readValue(JSON, User.class);
+        User p = GsonUtil.getGson().fromJson(JSON, User.class);
         assertEquals("dian", p.getUsername());
     }
 
@@ -0,0 +1,34 @@
+package com.neu.prattle.model;
+
+import com.neu.prattle.utils.GsonUtil;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestUserSummary {
+
+    @Test
+    public void of() {
+        User user = new User("user0", "secret", "user0@abc", "first", "last", "bio", false);
+        user.setAvatar(3);
+        UserSummary summary = UserSummary.of(user);
+        assertEquals("user0", summary.getUsername());
+        assertEquals("first", summary.getFirstName());
+        assertEquals("last", summary.getLastName());
+        assertEquals("bio", summary.getBio());
+        assertEquals(Integer.valueOf(3), summary.getAvatar());
+        assertFalse(summary.getActive());
+    }
+
+    @Test
+    public void noPrivateFields() {
+        User user = new User("user0", "secret", "user0@abc", "first", "last", "bio");
+        String json = GsonUtil.getGson().toJson(UserSummary.of(user));
+        assertTrue(json.contains("\"firstName\":\"first\""));
+        assertFalse(json.contains("secret"));
+        assertFalse(json.contains("user0@abc"));
+    }
+}
@@ -4,12 +4,14 @@ import com.neu.prattle.database.ChannelDBInMemory;
 import com.neu.prattle.database.UserDBInMemory;
 import com.neu.prattle.model.Channel;
 import com.neu.prattle.model.ChannelDTO;
+import com.neu.prattle.model.ChannelMembership;
 import com.neu.prattle.model.User;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -115,4 +117,52 @@ public class TestChannelService {
         assertEquals(1, channelService.demoteUserInChannel(0, "user0"));
         assertEquals(0, Objects.requireNonNull(channelService.getChannelById(0).orElse(null)).getMods().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getChannelMembership() throws SQLException{
+        channelDB.addChannel(new Channel(0, "channel0"));
+        userDB.addUser(new User("user0"));
+        userDB.addUser(new User("user1"));
+        assertFalse(channelService.getChannelMembership(1).isPresent());
+
+        ChannelMembership membership = channelService.getChannelMembership(0).orElse(null);
+        assertNotNull(membership);
+        assertEquals("channel0", membership.getName());
+        assertTrue(membership.getParticipants().isEmpty());
+        assertSame(membership, channelService.getChannelMembership(0).orElse(null));
+
+        // the cached membership follows every change without reloading the channel
+        channelService.addUserToChannel(0, "user0");
+        channelService.addUserToChannel(0, "user1");
+        assertEquals(2, channelService.getChannelMembership(0).get().getParticipants().size());
+        channelService.promoteUserInChannel(0, "user1");
+        assertTrue(channelService.getChannelMembership(0).get().getMods().contains("user1"));
+        channelService.removeUserFromChannel(0, "user0");
+        channelService.demoteUserInChannel(0, "user1");
+        membership = channelService.getChannelMembership(0).get();
+        Channel channel = channelDB.getChannel(0).get();
+        assertEquals(ChannelMembership.of(channel).getParticipants(), membership.getParticipants());
+        assertEquals(ChannelMembership.of(channel).getMods(), membership.getMods());
+        assertEquals(Collections.singleton("user1"), membership.getParticipants());
+
+        channelService.removeChannel(0);
+        assertFalse(channelService.getChannelMembership(0).isPresent());
+    }
+
+    @Test
+    public void membershipMatchesDatabase() throws SQLException {
+        channelDB.addChannel(new Channel(0, "channel0"));
+        userDB.addUser(new User("user0"));
+        channelService.addUserToChannel(0, "user0");
+        channelService.promoteUserInChannel(0, "user0");
+        assertTrue(channelService.getChannelMembership(0).isPresent());
+
+        // adding a mod as a participant keeps them a mod only, in the database and in the cache
+        channelService.addUserToChannel(0, "user0");
+        ChannelMembership membership = channelService.getChannelMembership(0).get();
+        Channel channel = channelDB.getChannel(0).get();
+        assertEquals(ChannelMembership.of(channel).getParticipants(), membership.getParticipants());
+        assertEquals(ChannelMembership.of(channel).getMods(), membership.getMods());
+        assertTrue(membership.getParticipants().isEmpty());
+    }
+}
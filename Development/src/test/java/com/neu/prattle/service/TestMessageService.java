@@ -11,6 +11,7 @@ import java.sql.Timestamp;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestMessageService {
     private MessageDBInMemory messageDB = MessageDBInMemory.getInstance();
@@ -73,4 +74,24 @@ public class TestMessageService {
         assertEquals(Timestamp.valueOf("2000-01-01 00:00:06.0"), messages.get(3).getTimestamp());
 
     }
+
+    @Test
+    public void testQueueMessage() throws SQLException {
+        Message first = Message.messageBuilder().setFrom("u0").setToUsername("u1").setMessageContent("c").setTimestamp(Timestamp.valueOf("2000-01-01 00:00:00.0")).build();
+        Message second = Message.messageBuilder().setFrom("u1").setToUsername("u0").setMessageContent("c").setTimestamp(Timestamp.valueOf("2000-01-01 00:00:01.0")).build();
+        messageService.queueMessage(first);
+        messageService.queueMessage(second);
+        // the ids are known before the messages are stored
+        int firstId = first.getId();
+        int secondId = second.getId();
+        assertTrue(firstId > 0);
+        assertTrue(secondId > firstId);
+        messageService.flushMessages();
+
+        List<Message> stored = messageService.getMessagesByUsers("u0", "u1");
+        assertEquals(2, stored.size());
+        assertEquals(firstId, stored.get(0).getId());
+        assertEquals(secondId, stored.get(1).getId());
+        assertEquals(0, messageService.replayFailedMessages());
+    }
 }
@@ -0,0 +1,200 @@
+package com.neu.prattle.service;
+
+import com.neu.prattle.model.Message;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestMessageWriteBehind {
+    private MessageWriteBehind writeBehind;
+
+    private Message message(String content) {
+        return Message.messageBuilder().setMessageContent(content).build();
+    }
+
+    @After
+    public void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.shutdown(1000);
+        }
+    }
+
+    @Test
+    public void testFlushOnBatchSize() throws Exception {
+        List<List<Message>> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch written = new CountDownLatch(1);
+        writeBehind = new MessageWriteBehind(batch -> {
+            batches.add(batch);
+            written.countDown();
+        }, 100, 3, 60000);
+
+        assertTrue(writeBehind.enqueue(message("a")));
+        assertTrue(writeBehind.enqueue(message("b")));
+        assertTrue(writeBehind.enqueue(message("c")));
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals("a", batches.get(0).get(0).getContent());
+        assertEquals("c", batches.get(0).get(2).getContent());
+        writeBehind.shutdown(10000);
+        assertEquals(3, writeBehind.getWrittenCount());
+        assertEquals(1, writeBehind.getBatchCount());
+    }
+
+    @Test
+    public void testFlushOnInterval() throws Exception {
+        List<Message> written = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+        writeBehind = new MessageWriteBehind(batch -> {
+            written.addAll(batch);
+            latch.countDown();
+        }, 100, 50, 20);
+
+        writeBehind.enqueue(message("a"));
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, written.size());
+        assertEquals(0, writeBehind.getBacklog());
+    }
+
+    @Test
+    public void testReplayFailedBatches() throws Exception {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        List<Message> written = Collections.synchronizedList(new ArrayList<>());
+        writeBehind = new MessageWriteBehind(batch -> {
+            if (fail.get()) {
+                throw new SQLException("down");
+            }
+            written.addAll(batch);
+        }, 100, 10, 60000);
+
+        writeBehind.enqueue(message("a"));
+        writeBehind.enqueue(message("b"));
+        writeBehind.flush();
+        assertEquals(1, writeBehind.getFailedBatchCount());
+        assertEquals(0, writeBehind.replayFailedBatches());
+        assertEquals(1, writeBehind.getFailedBatchCount());
+
+        fail.set(false);
+        assertEquals(1, writeBehind.replayFailedBatches());
+        assertEquals(0, writeBehind.getFailedBatchCount());
+        assertEquals(2, written.size());
+    }
+
+    @Test
+    public void testFlusherRetriesFailedBatches() throws Exception {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        CountDownLatch written = new CountDownLatch(1);
+        writeBehind = new MessageWriteBehind(batch -> {
+            if (fail.get()) {
+                throw new SQLException("down");
+            }
+            written.countDown();
+        }, 100, 10, 60000, 10, 20);
+
+        writeBehind.enqueue(message("a"));
+        writeBehind.flush();
+        assertEquals(1, writeBehind.getFailedBatchCount());
+        fail.set(false);
+        // nothing new is queued, the flusher wakes up for the retry on its own
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (writeBehind.getFailedBatchCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, writeBehind.getFailedBatchCount());
+        assertEquals(1, writeBehind.getWrittenCount());
+    }
+
+    @Test
+    public void testFailedBatchesAreBounded() {
+        List<Message> written = new ArrayList<>();
+        AtomicBoolean fail = new AtomicBoolean(true);
+        writeBehind = new MessageWriteBehind(batch -> {
+            if (fail.get()) {
+                throw new SQLException("down");
+            }
+            written.addAll(batch);
+        }, 100, 1, 60000, 2, 60000);
+
+        for (int i = 0; i < 5; i++) {
+            writeBehind.enqueue(message("m" + i));
+            writeBehind.flush();
+        }
+        assertEquals(2, writeBehind.getFailedBatchCount());
+        assertEquals(3, writeBehind.getDroppedCount());
+
+        // the oldest were dropped, the newest are still written on shutdown
+        fail.set(false);
+        writeBehind.shutdown(1000);
+        assertEquals(0, writeBehind.getFailedBatchCount());
+        assertEquals(2, written.size());
+        assertEquals("m3", written.get(0).getContent());
+        assertEquals("m4", written.get(1).getContent());
+    }
+
+    @Test
+    public void testShutdownKeepsUnwrittenBatches() {
+        writeBehind = new MessageWriteBehind(batch -> {
+            throw new SQLException("down");
+        }, 100, 10, 60000, 10, 60000);
+        writeBehind.enqueue(message("a"));
+        writeBehind.shutdown(1000);
+        assertEquals(1, writeBehind.getFailedBatchCount());
+        assertEquals(0, writeBehind.getWrittenCount());
+    }
+
+    @Test
+    public void testBoundedQueueAndShutdownFlush() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Message> written = Collections.synchronizedList(new ArrayList<>());
+        writeBehind = new MessageWriteBehind(batch -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.addAll(batch);
+        }, 2, 1, 60000);
+
+        // the flusher takes the first message and blocks on it, the next two fill the queue
+        writeBehind.enqueue(message("a"));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (writeBehind.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(writeBehind.enqueue(message("b")));
+        assertTrue(writeBehind.enqueue(message("c")));
+        assertFalse(writeBehind.enqueue(message("d")));
+        assertEquals(1, writeBehind.getRejectedCount());
+
+        release.countDown();
+        writeBehind.shutdown(10000);
+        assertFalse(writeBehind.isRunning());
+        assertEquals(3, written.size());
+        assertEquals("a", written.get(0).getContent());
+        assertEquals("c", written.get(2).getContent());
+        assertFalse(writeBehind.enqueue(message("late")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        new MessageWriteBehind(batch -> { }, 10, 0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRetryInterval() {
+        new MessageWriteBehind(batch -> { }, 10, 10, 10, 10, 0);
+    }
+}
@@ -73,6 +73,9 @@ public class TestUserService {
         as.addUser(new User("test", "test", "test", "first", "last", "bio", false));
         assertEquals(2, as.getAllUsers().size());
         assertEquals(1, as.getActiveUsers().size());
+        assertEquals(2, as.getUserSummaries().size());
+        assertEquals(1, as.getActiveUserSummaries().size());
+        assertEquals("Mike", as.getActiveUserSummaries().get(0).getUsername());
     }
 
     @Test
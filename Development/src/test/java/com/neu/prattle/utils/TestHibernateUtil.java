@@ -0,0 +1,129 @@
+package com.neu.prattle.utils;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestHibernateUtil {
+
+    private static Map<String, String> h2Settings() {
+        Map<String, String> settings = new HashMap<>();
+        settings.put("hibernate.connection.driver_class", "org.h2.Driver");
+        settings.put("hibernate.connection.url", "jdbc:h2:mem:pool;MODE=MySQL;DB_CLOSE_DELAY=-1;IGNORE_UNKNOWN_SETTINGS=TRUE");
+        settings.put("hibernate.connection.username", "sa");
+        settings.put("hibernate.connection.password", "");
+        settings.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        settings.put("hibernate.show_sql", "false");
+        settings.put("hibernate.hikari.maximumPoolSize", "2");
+        settings.put("hibernate.hikari.minimumIdle", "1");
+        return settings;
+    }
+
+    @Before
+    public void setUp() {
+        // other tests leave their own session factory behind
+        HibernateUtil.setSessionFactory(null);
+    }
+
+    @After
+    public void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    private static void awaitThreadsAwaitingConnection(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (HibernateUtil.getPoolMetrics().getThreadsAwaitingConnection() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testPoolMetrics() throws Exception {
+        SessionFactory factory = HibernateUtil.init(h2Settings());
+        assertNotNull(factory);
+        assertSame(factory, HibernateUtil.getSessionFactory());
+        assertEquals(2, HibernateUtil.getPoolMetrics().getMaximumPoolSize());
+
+        Session session1 = factory.openSession();
+        session1.beginTransaction();
+        Session session2 = factory.openSession();
+        session2.beginTransaction();
+        ConnectionPoolMetrics metrics = HibernateUtil.getPoolMetrics();
+        assertEquals(2, metrics.getActiveConnections());
+        assertEquals(1.0, metrics.getSaturation(), 0.0);
+        assertTrue(metrics.isSaturated());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> waiting = executor.submit(() -> {
+            try (Session session3 = factory.openSession()) {
+                session3.beginTransaction().commit();
+            }
+        });
+        awaitThreadsAwaitingConnection(1);
+        assertEquals(1, HibernateUtil.getPoolMetrics().getThreadsAwaitingConnection());
+
+        session1.getTransaction().commit();
+        session1.close();
+        waiting.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        session2.getTransaction().commit();
+        session2.close();
+        assertFalse(HibernateUtil.getPoolMetrics().isSaturated());
+        assertEquals(0, HibernateUtil.getPoolMetrics().getActiveConnections());
+
+        HibernateUtil.shutdown();
+        assertTrue(factory.isClosed());
+        assertEquals(0, HibernateUtil.getPoolMetrics().getTotalConnections());
+        assertFalse(HibernateUtil.getPoolMetrics().isSaturated());
+    }
+
+    @Test
+    public void testConcurrentInit() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<SessionFactory>> factories = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Callable<SessionFactory> init = () -> {
+                start.await();
+                return HibernateUtil.init(h2Settings());
+            };
+            factories.add(executor.submit(init));
+        }
+        start.countDown();
+        SessionFactory first = factories.get(0).get(30, TimeUnit.SECONDS);
+        assertNotNull(first);
+        for (Future<SessionFactory> factory : factories) {
+            assertSame(first, factory.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testNoPool() {
+        ConnectionPoolMetrics metrics = HibernateUtil.getPoolMetrics();
+        assertEquals(0, metrics.getTotalConnections());
+        assertEquals(0.0, metrics.getSaturation(), 0.0);
+        assertFalse(metrics.isSaturated());
+        assertEquals("active=0 idle=0 total=0 waiting=0 max=0", metrics.toString());
+    }
+}
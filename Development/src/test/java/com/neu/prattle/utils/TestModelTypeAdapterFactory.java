@@ -0,0 +1,155 @@
+package com.neu.prattle.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.neu.prattle.model.Channel;
+import com.neu.prattle.model.Message;
+import com.neu.prattle.model.User;
+
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestModelTypeAdapterFactory {
+    private Gson gson = GsonUtil.getGson();
+
+    /**
+     * Gson as it was configured before the model adapters
+     */
+    private Gson reflective = new GsonBuilder().setExclusionStrategies(new UserChannelSetExclusionStrategy()).create();
+
+    private Message directMessage() {
+        Message message = Message.messageBuilder().setFrom("u0").setToUsername("u1").setMessageContent("hi \"u1\"")
+                .setTimestamp(new Timestamp(1575730800000L)).build();
+        message.setId(4);
+        message.setFromAvatar(2);
+        return message;
+    }
+
+    private User user() {
+        User user = new User("u0", "pw", "u0@abc", "first", "last", "bio");
+        user.setLockout(new Timestamp(1575730800000L));
+        user.setLoginAttempts(3);
+        user.setChannelSet(new HashSet<>(Collections.singletonList(new Channel(1, "general"))));
+        return user;
+    }
+
+    @Test
+    public void messageSameAsReflection() {
+        Message channelMessage = Message.messageBuilder().setFrom("u0").setToChannelId(3).setMessageContent("hello").build();
+        assertEquals(reflective.toJson(directMessage()), gson.toJson(directMessage()));
+        assertEquals(reflective.toJson(channelMessage), gson.toJson(channelMessage));
+        assertEquals(reflective.toJson(new Message()), gson.toJson(new Message()));
+    }
+
+    @Test
+    public void userSameAsReflection() {
+        assertEquals(reflective.toJson(user()), gson.toJson(user()));
+        assertEquals(reflective.toJson(new User()), gson.toJson(new User()));
+        assertFalse(gson.toJson(user()).contains("channelSet"));
+    }
+
+    @Test
+    public void channelSameAsReflection() {
+        Channel channel = new Channel(2, "general", new HashSet<>(Collections.singletonList(user())),
+                new HashSet<>(Arrays.asList(user(), new User("u1"))));
+        assertEquals(reflective.toJson(channel), gson.toJson(channel));
+        assertEquals(reflective.toJson(new Channel()), gson.toJson(new Channel()));
+    }
+
+    @Test
+    public void timestampsSameAsReflection() {
+        // every hour of two years, both sides of noon and of the daylight saving changes
+        for (long time = 1546300800000L; time < 1609459200000L; time += 3600000L + 1234L) {
+            Message message = Message.messageBuilder().setTimestamp(new Timestamp(time)).build();
+            String json = gson.toJson(message);
+            assertEquals(reflective.toJson(message), json);
+            assertEquals(reflective.fromJson(json, Message.class).getTimestamp(), gson.fromJson(json, Message.class).getTimestamp());
+        }
+    }
+
+    @Test
+    public void readIsoTimestamp() {
+        Message message = gson.fromJson("{\"timestamp\":\"2019-12-07T15:00:00Z\"}", Message.class);
+        assertEquals(1575730800000L, message.getTimestamp().getTime());
+    }
+
+    @Test
+    public void listSameAsReflection() {
+        List<Message> messages = Arrays.asList(directMessage(), null, directMessage());
+        assertEquals(reflective.toJson(messages), gson.toJson(messages));
+    }
+
+    @Test
+    public void messageRoundTrip() {
+        Message message = gson.fromJson(gson.toJson(directMessage()), Message.class);
+        assertEquals(4, message.getId());
+        assertEquals("u0", message.getFromUsername());
+        assertEquals("u1", message.getToUsername());
+        assertEquals(Message.conversationKey("u0", "u1"), message.getConversationKey());
+        assertEquals(Integer.valueOf(2), message.getFromAvatar());
+        assertNull(message.getToAvatar());
+        assertEquals(-1, message.getToChannelId());
+        assertEquals("hi \"u1\"", message.getContent());
+        assertEquals(directMessage().getTimestamp().getTime() / 1000, message.getTimestamp().getTime() / 1000);
+    }
+
+    @Test
+    public void userRoundTrip() {
+        User user = gson.fromJson(gson.toJson(user()), User.class);
+        assertEquals("u0", user.getUsername());
+        assertEquals("pw", user.getPassword());
+        assertEquals("u0@abc", user.getEmail());
+        assertEquals("first", user.getFirstName());
+        assertEquals("last", user.getLastName());
+        assertEquals("bio", user.getBio());
+        assertTrue(user.getActive());
+        assertFalse(user.getIsMod());
+        assertEquals(3, user.getLoginAttempts());
+        assertEquals(Integer.valueOf(0), user.getAvatar());
+        assertEquals(user().getLockout().getTime() / 1000, user.getLockout().getTime() / 1000);
+        assertTrue(user.getChannelSet().isEmpty());
+    }
+
+    @Test
+    public void channelRoundTrip() {
+        Channel channel = new Channel(2, "general", new HashSet<>(Collections.singletonList(user())),
+                new HashSet<>(Arrays.asList(user(), new User("u1"))));
+        Channel read = gson.fromJson(gson.toJson(channel), Channel.class);
+        assertEquals(2, read.getId());
+        assertEquals("general", read.getName());
+        assertEquals(channel.getMods(), read.getMods());
+        assertEquals(channel.getParticipants(), read.getParticipants());
+    }
+
+    @Test
+    public void readClientJson() {
+        Message message = gson.fromJson("{\"content\":\"hi\",\"toUsername\":\"u1\",\"unknown\":{\"a\":[1,2]},"
+                + "\"timestamp\":1575730800000,\"fromAvatar\":null}", Message.class);
+        assertEquals("hi", message.getContent());
+        assertEquals("u1", message.getToUsername());
+        assertEquals(1575730800000L, message.getTimestamp().getTime());
+        assertNull(message.getFromAvatar());
+
+        User user = gson.fromJson("{\"username\":\"u0\",\"password\":\"pw\",\"channelSet\":[]}", User.class);
+        assertEquals("u0", user.getUsername());
+        assertEquals("pw", user.getPassword());
+    }
+
+    @Test
+    public void readNull() {
+        assertNull(gson.fromJson("null", Message.class));
+        List<User> users = gson.fromJson("[null]", new TypeToken<List<User>>() {}.getType());
+        assertNull(users.get(0));
+    }
+}
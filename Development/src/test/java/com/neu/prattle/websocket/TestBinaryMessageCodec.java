@@ -0,0 +1,137 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestBinaryMessageCodec {
+    private BinaryMessageEncoder encoder = new BinaryMessageEncoder();
+    private BinaryMessageDecoder decoder = new BinaryMessageDecoder();
+
+    private Message message() {
+        Message message = Message.messageBuilder().setFrom("u0").setToUsername("ü1 ☺")
+                .setMessageContent("héllo wörld").setTimestamp(new Timestamp(1575730800123L)).build();
+        message.setId(123456);
+        message.setFromAvatar(2);
+        message.setToAvatar(0);
+        return message;
+    }
+
+    private byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void roundTrip() {
+        Message message = decoder.decode(encoder.encode(message()));
+        assertEquals(123456, message.getId());
+        assertEquals("u0", message.getFromUsername());
+        assertEquals("ü1 ☺", message.getToUsername());
+        assertEquals(Message.conversationKey("u0", "ü1 ☺"), message.getConversationKey());
+        assertEquals(Integer.valueOf(2), message.getFromAvatar());
+        assertEquals(Integer.valueOf(0), message.getToAvatar());
+        assertEquals(-1, message.getToChannelId());
+        assertEquals("héllo wörld", message.getContent());
+        assertEquals(1575730800123L, message.getTimestamp().getTime());
+    }
+
+    @Test
+    public void roundTripChannelMessage() {
+        Message sent = Message.messageBuilder().setFrom("u0").setToChannelId(7).setMessageContent("").build();
+        sent.setId(-5);
+        Message message = decoder.decode(encoder.encode(sent));
+        assertEquals(-5, message.getId());
+        assertEquals(7, message.getToChannelId());
+        assertEquals("", message.getContent());
+        assertNull(message.getToUsername());
+        assertNull(message.getFromAvatar());
+        assertNull(message.getTimestamp());
+    }
+
+    @Test
+    public void emptyMessage() {
+        Message empty = new Message();
+        assertTrue(Arrays.equals(new byte[]{1, 0}, bytes(encoder.encode(empty))));
+        Message message = decoder.decode(encoder.encode(empty));
+        assertEquals(0, message.getId());
+        assertNull(message.getFromUsername());
+        assertNull(message.getContent());
+    }
+
+    @Test
+    public void layout() {
+        Message message = Message.messageBuilder().setFrom("ab").setTimestamp(new Timestamp(-1)).build();
+        message.setId(64);
+        // version, flags, id 64 zigzagged to 128, "ab" with its length, timestamp -1 zigzagged to 1
+        assertTrue(Arrays.equals(new byte[]{1, (byte) 0x83, (byte) 0x80, 1, 2, 'a', 'b', 1},
+                bytes(encoder.encode(message))));
+    }
+
+    @Test
+    public void smallerThanJson() {
+        int json = new MessageEncoder().encode(message()).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(encoder.encode(message()).remaining() * 2 < json);
+    }
+
+    @Test
+    public void directBuffer() {
+        ByteBuffer heap = encoder.encode(message());
+        ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining());
+        direct.put(heap.duplicate()).flip();
+        assertEquals("héllo wörld", decoder.decode(direct).getContent());
+        assertEquals("héllo wörld", decoder.decode(heap.asReadOnlyBuffer()).getContent());
+        assertEquals(heap.remaining(), direct.remaining());
+    }
+
+    @Test
+    public void malformed() {
+        byte[] frame = bytes(encoder.encode(message()));
+        assertNull(decoder.decode(ByteBuffer.wrap(frame, 0, frame.length - 1)));
+        assertNull(decoder.decode(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length + 1))));
+        frame[0] = 2;
+        assertNull(decoder.decode(ByteBuffer.wrap(frame)));
+        // a string longer than the frame
+        assertNull(decoder.decode(ByteBuffer.wrap(new byte[]{1, BinaryMessageEncoder.CONTENT, 100, 'a'})));
+        // an id that does not fit an int
+        assertNull(decoder.decode(ByteBuffer.wrap(new byte[]{1, BinaryMessageEncoder.ID,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x40})));
+        assertNull(decoder.decode(ByteBuffer.wrap(new byte[]{1, BinaryMessageEncoder.ID,
+                -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1})));
+    }
+
+    @Test
+    public void willDecode() {
+        assertTrue(decoder.willDecode(encoder.encode(message())));
+        assertFalse(decoder.willDecode(ByteBuffer.allocate(0)));
+        assertFalse(decoder.willDecode(null));
+        encoder.init(null);
+        decoder.init(null);
+        encoder.destroy();
+        decoder.destroy();
+    }
+
+    @Test
+    public void outboundFrame() {
+        BroadcastMetrics.reset();
+        OutboundFrame frame = new OutboundFrame(message());
+        ByteBuffer first = frame.getBinary();
+        first.get();
+        ByteBuffer second = frame.getBinary();
+        assertEquals(first.limit(), second.remaining());
+        assertTrue(second.isReadOnly());
+        assertEquals("héllo wörld", decoder.decode(second).getContent());
+        assertEquals(2, BroadcastMetrics.getSerializationCount());
+    }
+}
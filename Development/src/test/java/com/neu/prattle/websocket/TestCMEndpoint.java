@@ -6,17 +6,19 @@ import com.neu.prattle.model.User;
 import com.neu.prattle.service.ChannelService;
 import com.neu.prattle.service.MessageService;
 import com.neu.prattle.service.UserService;
+import com.neu.prattle.utils.GsonUtil;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
 import javax.websocket.Session;
 import java.sql.SQLException;
-import java.util.HashMap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -26,6 +28,8 @@ public class TestCMEndpoint {
     private Session mockSession2;
     private RemoteEndpoint.Basic mockBasic1;
     private RemoteEndpoint.Basic mockBasic2;
+    private RemoteEndpoint.Async mockAsync1;
+    private RemoteEndpoint.Async mockAsync2;
     private ArgumentCaptor<Message> msg;
 
     @Before
@@ -42,8 +46,11 @@ public class TestCMEndpoint {
 
         Mockito.doReturn(mockBasic1).when(mockSession1).getBasicRemote();
         Mockito.doReturn(mockBasic2).when(mockSession2).getBasicRemote();
+        mockAsync1 = TestSessionOutbox.mockAsyncRemote(mockSession1);
+        mockAsync2 = TestSessionOutbox.mockAsyncRemote(mockSession2);
 
-        CMEndpoint.setChatSubjectHashMap(new HashMap<>());
+        CMEndpoint.setChatSubjectRegistry(new ChatSubjectRegistry());
+        CMEndpoint.setOutboundWriter(Runnable::run);
     }
 
     @Test
@@ -91,16 +98,16 @@ public class TestCMEndpoint {
         CMEndpoint cmEndpoint2 = new CMEndpoint();
         cmEndpoint2.onOpen(mockSession2, 0, "user2");
 
-        verify(mockBasic1, times(0)).sendObject(msg.capture());
-        verify(mockBasic2, times(0)).sendObject(msg.capture());
+        verify(mockAsync1, times(0)).sendText(any(String.class), any(SendHandler.class));
+        verify(mockAsync2, times(0)).sendText(any(String.class), any(SendHandler.class));
 
         cmEndpoint1.onMessage(mockSession1, Message.messageBuilder().setMessageContent("test").build());
 
-        verify(mockBasic1, times(1)).sendObject(msg.capture());
-        verify(mockBasic2, times(1)).sendObject(msg.capture());
+        verify(mockAsync1, times(1)).sendText(any(String.class), any(SendHandler.class));
+        verify(mockAsync2, times(1)).sendText(any(String.class), any(SendHandler.class));
 
         MessageService messageServiceMock = Mockito.mock(MessageService.class);
-        Mockito.doThrow(SQLException.class).when(messageServiceMock).addMessage(any(Message.class));
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).queueMessage(any(Message.class));
         cmEndpoint1.setMessageService(messageServiceMock);
         cmEndpoint1.onMessage(mockSession1, Message.messageBuilder().setMessageContent("test").build());
     }
@@ -121,5 +128,57 @@ public class TestCMEndpoint {
 
         cmEndpoint1.onClose(mockSession1);
         assertEquals(1, cmEndpoint2.getChatSubject().getObservers().size());
+
+        cmEndpoint2.onClose(mockSession2);
+        assertEquals(0, CMEndpoint.getChatSubjectRegistry().size());
+    }
+
+    @Test
+    public void broadcastEncodesOnce() throws Exception {
+        UserService.getInstance().addUser(new User("user1", "123", "abc1", "first", "last", "bio"));
+        UserService.getInstance().addUser(new User("user2", "123", "abc2", "first", "last", "bio"));
+        ChannelService.getInstance().addChannel(new ChannelDTO(0, "c1"));
+        ChannelService.getInstance().addUserToChannel(0, "user1");
+        ChannelService.getInstance().addUserToChannel(0, "user2");
+
+        CMEndpoint cmEndpoint1 = new CMEndpoint();
+        cmEndpoint1.onOpen(mockSession1, 0, "user1");
+        CMEndpoint cmEndpoint2 = new CMEndpoint();
+        cmEndpoint2.onOpen(mockSession2, 0, "user2");
+
+        BroadcastMetrics.reset();
+        cmEndpoint1.onMessage(mockSession1, Message.messageBuilder().setMessageContent("test").build());
+
+        ArgumentCaptor<String> text1 = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> text2 = ArgumentCaptor.forClass(String.class);
+        verify(mockAsync1, times(1)).sendText(text1.capture(), any(SendHandler.class));
+        verify(mockAsync2, times(1)).sendText(text2.capture(), any(SendHandler.class));
+        assertSame(text1.getValue(), text2.getValue());
+        assertEquals(1, BroadcastMetrics.getSerializationCount());
+        assertEquals(2, BroadcastMetrics.getDeliveryCount());
+        assertEquals(1, BroadcastMetrics.getAvoidedSerializationCount());
+    }
+
+    @Test
+    public void avatarLookedUpOnOpenOnly() throws Exception {
+        User user1 = new User("user1", "123", "abc1", "first", "last", "bio");
+        user1.setAvatar(7);
+        UserService.getInstance().addUser(user1);
+        ChannelService.getInstance().addChannel(new ChannelDTO(0, "c1"));
+        ChannelService.getInstance().addUserToChannel(0, "user1");
+
+        UserService userServiceSpy = Mockito.spy(UserService.getInstance());
+        CMEndpoint cmEndpoint1 = new CMEndpoint();
+        cmEndpoint1.setUserService(userServiceSpy);
+        cmEndpoint1.onOpen(mockSession1, 0, "user1");
+        for (int i = 0; i < 3; i++) {
+            cmEndpoint1.onMessage(mockSession1, Message.messageBuilder().setMessageContent("test" + i).build());
+        }
+
+        // before: one lookup on open and one per message, 4 for 3 messages. after: 1
+        verify(userServiceSpy, times(1)).findUserByName("user1");
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        verify(mockAsync1, times(3)).sendText(text.capture(), any(SendHandler.class));
+        assertEquals(Integer.valueOf(7), GsonUtil.getGson().fromJson(text.getValue(), Message.class).getFromAvatar());
     }
 }
@@ -0,0 +1,242 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestChatSubject {
+
+    private Message message(String content) {
+        return Message.messageBuilder().setMessageContent(content).build();
+    }
+
+    @Test
+    public void testPublishToObservers() {
+        ChatSubject subject = new ChatSubject(4);
+        List<String> received1 = new ArrayList<>();
+        List<String> received2 = new ArrayList<>();
+        IObserver observer1 = frame -> received1.add(frame.getMessage().getContent());
+        IObserver observer2 = frame -> received2.add(frame.getMessage().getContent());
+
+        subject.attach(observer1);
+        subject.publish(message("a"));
+        subject.attach(observer2);
+        subject.publish(message("b"));
+        subject.detach(observer1);
+        subject.publish(message("c"));
+
+        assertEquals(2, received1.size());
+        assertEquals("a", received1.get(0));
+        assertEquals("b", received1.get(1));
+        assertEquals(2, received2.size());
+        assertEquals("b", received2.get(0));
+        assertEquals("c", received2.get(1));
+        assertEquals(1, subject.getObservers().size());
+    }
+
+    @Test
+    public void testWrapAround() {
+        ChatSubject subject = new ChatSubject(2);
+        List<String> received = new ArrayList<>();
+        subject.attach(frame -> received.add(frame.getMessage().getContent()));
+        for (int i = 0; i < 10; i++) {
+            subject.publish(message("m" + i));
+        }
+        assertEquals(10, received.size());
+        assertEquals("m9", received.get(9));
+    }
+
+    @Test
+    public void testRingReleasesDeliveredFrames() {
+        ChatSubject subject = new ChatSubject(2);
+        List<OutboundFrame> received = new ArrayList<>();
+        subject.attach(received::add);
+        for (int i = 0; i < 5; i++) {
+            subject.publish(message("m" + i));
+        }
+        // delivered to every observer, so the ring holds none of them any more
+        for (OutboundFrame frame : received) {
+            assertEquals(0, frame.getReferenceCount());
+        }
+    }
+
+    @Test
+    public void testPoolRecoversAfterDelivery() {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        ChatSubject subject = new ChatSubject(1024, pool);
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            subject.attach(frame -> sizes.add(frame.getBinary().remaining()));
+        }
+        subject.publish(message("a"));
+        assertEquals(3, sizes.size());
+        assertEquals(1, pool.getAllocatedCount());
+        // the ring has let go of the frame although 1023 slots are left before it is reused
+        assertEquals(1, pool.getFreeCount());
+
+        subject.publish(message("b"));
+        assertEquals(1, pool.getAllocatedCount());
+        assertEquals(1, pool.getFreeCount());
+    }
+
+    @Test
+    public void testRingReleasesOnLastDetach() {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        MessageRingBuffer ringBuffer = new MessageRingBuffer(4);
+        AtomicLong cursor = ringBuffer.addCursor();
+        OutboundFrame frame = new OutboundFrame(message("a"), pool);
+        frame.getBinary();
+        ringBuffer.publish(frame, () -> { });
+        ringBuffer.releaseConsumed();
+        // not read yet
+        assertEquals(1, frame.getReferenceCount());
+        assertEquals(0, pool.getFreeCount());
+
+        // the subject is evicted once its last observer is gone
+        ringBuffer.removeCursor(cursor);
+        ringBuffer.releaseConsumed();
+        assertEquals(0, frame.getReferenceCount());
+        assertEquals(1, pool.getFreeCount());
+        assertFalse(ringBuffer.isPublished(0));
+        assertNull(ringBuffer.get(0));
+    }
+
+    @Test
+    public void testReleaseAcrossWrapAround() {
+        MessageRingBuffer ringBuffer = new MessageRingBuffer(4);
+        ringBuffer.releaseConsumed();
+        OutboundFrame frame = new OutboundFrame(message("a"));
+        ringBuffer.publish(frame, () -> { });
+        ringBuffer.releaseConsumed();
+        assertEquals(0, frame.getReferenceCount());
+
+        // reused after being released, the next frame is released on its own
+        for (int i = 0; i < 4; i++) {
+            ringBuffer.publish(new OutboundFrame(message("b" + i)), () -> { });
+        }
+        OutboundFrame last = new OutboundFrame(message("c"));
+        ringBuffer.publish(last, () -> { });
+        assertEquals(1, last.getReferenceCount());
+        ringBuffer.releaseConsumed();
+        assertEquals(0, last.getReferenceCount());
+    }
+
+    @Test
+    public void testConcurrentPublishersAreOrderedAndLossless() throws Exception {
+        int publishers = 4;
+        int messagesPerPublisher = 5000;
+        int observers = 8;
+        ChatSubject subject = new ChatSubject(64);
+        List<List<Message>> received = new ArrayList<>();
+        for (int i = 0; i < observers; i++) {
+            List<Message> list = Collections.synchronizedList(new ArrayList<>());
+            received.add(list);
+            subject.attach(frame -> list.add(frame.getMessage()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(publishers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < publishers; p++) {
+            String from = "p" + p;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < messagesPerPublisher; i++) {
+                    subject.publish(Message.messageBuilder().setFrom(from).setMessageContent(Integer.toString(i)).build());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Message> first = received.get(0);
+        assertEquals(publishers * messagesPerPublisher, first.size());
+        for (List<Message> list : received) {
+            // every observer sees the same sequence
+            assertEquals(first, list);
+        }
+        int[] next = new int[publishers];
+        for (Message message : first) {
+            int publisher = Integer.parseInt(message.getFromUsername().substring(1));
+            // each publisher's messages arrive in the order they were sent
+            assertEquals(next[publisher]++, Integer.parseInt(message.getContent()));
+        }
+    }
+
+    @Test
+    public void testAttachWhilePublishing() throws Exception {
+        int publishers = 3;
+        int messagesPerPublisher = 20000;
+        ChatSubject subject = new ChatSubject(1);
+        ExecutorService executor = Executors.newFixedThreadPool(publishers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < publishers; p++) {
+            String from = "p" + p;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < messagesPerPublisher; i++) {
+                    subject.publish(Message.messageBuilder().setFrom(from).setMessageContent(Integer.toString(i)).build());
+                }
+            }));
+        }
+
+        List<List<Message>> received = new ArrayList<>();
+        while (futures.stream().anyMatch(future -> !future.isDone())) {
+            List<Message> list = Collections.synchronizedList(new ArrayList<>());
+            IObserver observer = frame -> list.add(frame.getMessage());
+            subject.attach(observer);
+            subject.detach(observer);
+            received.add(list);
+        }
+        // a subscriber joining while the ring wraps never stalls the publishers
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        for (List<Message> list : received) {
+            int[] last = {-1, -1, -1};
+            for (Message message : list) {
+                int publisher = Integer.parseInt(message.getFromUsername().substring(1));
+                int content = Integer.parseInt(message.getContent());
+                assertTrue(content > last[publisher]);
+                last[publisher] = content;
+            }
+        }
+    }
+
+    @Test
+    public void testRingBuffer() {
+        MessageRingBuffer ringBuffer = new MessageRingBuffer(2);
+        assertEquals(2, ringBuffer.getCapacity());
+        assertFalse(ringBuffer.isPublished(0));
+        assertNull(ringBuffer.get(0));
+
+        long sequence = ringBuffer.publish(new OutboundFrame(message("a")), () -> { });
+        assertEquals(0, sequence);
+        assertTrue(ringBuffer.isPublished(0));
+        assertEquals("a", ringBuffer.get(0).getMessage().getContent());
+        assertNull(ringBuffer.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRingBufferCapacity() {
+        new MessageRingBuffer(3);
+    }
+}
@@ -0,0 +1,98 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestChatSubjectRegistry {
+
+    @Test
+    public void testAttachAndEvict() {
+        ChatSubjectRegistry registry = new ChatSubjectRegistry();
+        IObserver observer1 = frame -> { };
+        IObserver observer2 = frame -> { };
+
+        IChatSubject subject1 = registry.attach("channel1", observer1);
+        IChatSubject subject2 = registry.attach("channel1", observer2);
+        assertSame(subject1, subject2);
+        assertEquals(2, subject1.getObservers().size());
+        assertEquals(1, registry.size());
+
+        registry.attach("channel1", observer1);
+        assertEquals(2, subject1.getObservers().size());
+
+        registry.detach("channel1", observer1);
+        assertTrue(registry.get("channel1").isPresent());
+        registry.detach("channel1", observer2);
+        assertFalse(registry.get("channel1").isPresent());
+        assertEquals(0, registry.size());
+
+        registry.detach("channel1", observer2);
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testConcurrentJoinsAndLeaves() throws Exception {
+        ChatSubjectRegistry registry = new ChatSubjectRegistry();
+        int threads = 16;
+        int joinsPerThread = 500;
+        int channels = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < joinsPerThread; i++) {
+                        String key = "channel" + (i % channels);
+                        List<OutboundFrame> inbox = new ArrayList<>();
+                        IObserver observer = inbox::add;
+                        IChatSubject subject = registry.attach(key, observer);
+                        assertTrue(subject.getObservers().contains(observer));
+                        subject.publish(Message.messageBuilder().setMessageContent("m" + i).build());
+                        registry.detach(key, observer);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            try {
+                start.await();
+                for (int i = 0; i < threads * joinsPerThread; i++) {
+                    registry.get("channel" + (i % channels)).ifPresent(IChatSubject::notifyObservers);
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+            return null;
+        }));
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(0, registry.size());
+    }
+}
@@ -9,14 +9,15 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
-import javax.websocket.EncodeException;
 import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
 import javax.websocket.Session;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
-import java.util.HashMap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -26,6 +27,8 @@ public class TestDMEndpoint {
     private Session mockSession2;
     private RemoteEndpoint.Basic mockBasic1;
     private RemoteEndpoint.Basic mockBasic2;
+    private RemoteEndpoint.Async mockAsync1;
+    private RemoteEndpoint.Async mockAsync2;
     private ArgumentCaptor<Message> msg;
 
     @Before
@@ -41,8 +44,11 @@ public class TestDMEndpoint {
 
         Mockito.doReturn(mockBasic1).when(mockSession1).getBasicRemote();
         Mockito.doReturn(mockBasic2).when(mockSession2).getBasicRemote();
+        mockAsync1 = TestSessionOutbox.mockAsyncRemote(mockSession1);
+        mockAsync2 = TestSessionOutbox.mockAsyncRemote(mockSession2);
 
-        DMEndpoint.setChatSubjectHashMap(new HashMap<>());
+        DMEndpoint.setChatSubjectRegistry(new ChatSubjectRegistry());
+        DMEndpoint.setOutboundWriter(Runnable::run);
     }
 
     @Test
@@ -80,20 +86,56 @@ public class TestDMEndpoint {
         DMEndpoint dmEndpoint2 = new DMEndpoint();
         dmEndpoint2.onOpen(mockSession2, "user1", "user2");
 
-        verify(mockBasic1, times(0)).sendObject(msg.capture());
-        verify(mockBasic2, times(0)).sendObject(msg.capture());
+        verify(mockAsync1, times(0)).sendText(any(String.class), any(SendHandler.class));
+        verify(mockAsync2, times(0)).sendText(any(String.class), any(SendHandler.class));
 
         dmEndpoint1.onMessage(mockSession1, Message.messageBuilder().setMessageContent("test").build());
 
-        verify(mockBasic1, times(1)).sendObject(msg.capture());
-        verify(mockBasic2, times(1)).sendObject(msg.capture());
+        verify(mockAsync1, times(1)).sendText(any(String.class), any(SendHandler.class));
+        verify(mockAsync2, times(1)).sendText(any(String.class), any(SendHandler.class));
 
         MessageService messageServiceMock = Mockito.mock(MessageService.class);
-        Mockito.doThrow(SQLException.class).when(messageServiceMock).addMessage(any(Message.class));
+        Mockito.doThrow(SQLException.class).when(messageServiceMock).queueMessage(any(Message.class));
         dmEndpoint1.setMessageService(messageServiceMock);
         dmEndpoint1.onMessage(mockSession1, Message.messageBuilder().setMessageContent("test").build());
     }
 
+    @Test
+    public void binarySession() throws Exception {
+        UserService.getInstance().addUser(new User("user1", "123", "abc1", "first", "last", "bio"));
+        UserService.getInstance().addUser(new User("user2", "123", "abc2", "first", "last", "bio"));
+        Mockito.doReturn(BinaryMessageEncoder.SUBPROTOCOL).when(mockSession1).getNegotiatedSubprotocol();
+        ArgumentCaptor<ByteBuffer> frame = ArgumentCaptor.forClass(ByteBuffer.class);
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        BinaryMessageDecoder decoder = new BinaryMessageDecoder();
+
+        DMEndpoint dmEndpoint1 = new DMEndpoint();
+        dmEndpoint1.onOpen(mockSession1, "user2", "user3");
+        verify(mockBasic1, times(1)).sendBinary(frame.capture());
+        verify(mockBasic1, times(0)).sendObject(any(Message.class));
+        assertEquals("User user3 could not be found", decoder.decode(frame.getValue()).getContent());
+
+        dmEndpoint1.onOpen(mockSession1, "user2", "user1");
+        DMEndpoint dmEndpoint2 = new DMEndpoint();
+        dmEndpoint2.onOpen(mockSession2, "user1", "user2");
+
+        dmEndpoint1.onBinaryMessage(mockSession1,
+                new BinaryMessageEncoder().encode(Message.messageBuilder().setMessageContent("test").build()));
+        verify(mockBasic1, times(1)).sendBinary(any(ByteBuffer.class));
+        verify(mockAsync1, times(1)).sendBinary(frame.capture(), any(SendHandler.class));
+        verify(mockAsync1, times(0)).sendText(any(String.class), any(SendHandler.class));
+        verify(mockAsync2, times(1)).sendText(text.capture(), any(SendHandler.class));
+        Message received = decoder.decode(frame.getValue());
+        assertEquals("test", received.getContent());
+        assertEquals("user1", received.getFromUsername());
+        assertEquals("user2", received.getToUsername());
+        assertEquals(received.getContent(), new MessageDecoder().decode(text.getValue()).getContent());
+
+        dmEndpoint1.onBinaryMessage(mockSession1, ByteBuffer.wrap(new byte[]{9}));
+        dmEndpoint1.onBinaryMessage(mockSession1, ByteBuffer.allocate(0));
+        verify(mockAsync2, times(1)).sendText(any(String.class), any(SendHandler.class));
+    }
+
     @Test
     public void onClose() throws Exception{
         UserService.getInstance().addUser(new User("user1", "123", "abc1", "first", "last", "bio"));
@@ -107,6 +149,16 @@ public class TestDMEndpoint {
 
         dmEndpoint1.onClose(mockSession1);
         assertEquals(1, dmEndpoint2.getChatSubject().getObservers().size());
+
+        dmEndpoint2.onClose(mockSession2);
+        assertEquals(0, DMEndpoint.getChatSubjectRegistry().size());
+    }
+
+    @Test
+    public void separatorInUsernames() {
+        // a|b with c and a with b|c must not share a live subject
+        assertNotEquals(DMEndpoint.getSubjectKey("a|b", "c"), DMEndpoint.getSubjectKey("a", "b|c"));
+        assertEquals(DMEndpoint.getSubjectKey("a|b", "c"), DMEndpoint.getSubjectKey("c", "a|b"));
     }
 
     @Test
@@ -117,20 +169,14 @@ public class TestDMEndpoint {
         DMEndpoint dmEndpoint1 = new DMEndpoint();
         dmEndpoint1.onOpen(mockSession1, "user2", "user1");
 
-        Mockito.doThrow(EncodeException.class).when(mockBasic1).sendObject(any(Object.class));
-        try {
-            dmEndpoint1.update();
-        }
-        catch (Exception e){
-            assertEquals(EncodeException.class, e.getClass());
-        }
-
-        Mockito.doThrow(IOException.class).when(mockBasic1).sendObject(any(Object.class));
+        Mockito.doAnswer(TestSessionOutbox::fail).when(mockAsync1).sendText(any(String.class), any(SendHandler.class));
         try {
-            dmEndpoint1.update();
+            dmEndpoint1.update(new OutboundFrame(Message.messageBuilder().setMessageContent("test").build()));
         }
         catch (Exception e){
             assertEquals(IOException.class, e.getClass());
         }
+        assertEquals(1, dmEndpoint1.getOutbox().getEnqueuedCount());
+        assertEquals(0, dmEndpoint1.getOutbox().getSentCount());
     }
 }
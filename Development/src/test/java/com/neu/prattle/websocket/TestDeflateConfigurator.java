@@ -0,0 +1,83 @@
+package com.neu.prattle.websocket;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.websocket.Extension;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestDeflateConfigurator {
+    private static final List<String> SUPPORTED = Arrays.asList(
+            BinaryMessageEncoder.DEFLATE_SUBPROTOCOL, BinaryMessageEncoder.SUBPROTOCOL);
+
+    private DeflateConfigurator configurator = new DeflateConfigurator();
+
+    private Extension extension(String name) {
+        Extension extension = Mockito.mock(Extension.class);
+        Mockito.doReturn(name).when(extension).getName();
+        return extension;
+    }
+
+    @After
+    public void tearDown() {
+        DeflateConfigurator.setEnabled(true);
+    }
+
+    @Test
+    public void subprotocolInClientOrder() {
+        assertEquals(BinaryMessageEncoder.SUBPROTOCOL, configurator.getNegotiatedSubprotocol(SUPPORTED,
+                Arrays.asList("other", BinaryMessageEncoder.SUBPROTOCOL, BinaryMessageEncoder.DEFLATE_SUBPROTOCOL)));
+        assertEquals(BinaryMessageEncoder.DEFLATE_SUBPROTOCOL, configurator.getNegotiatedSubprotocol(SUPPORTED,
+                Arrays.asList(BinaryMessageEncoder.DEFLATE_SUBPROTOCOL, BinaryMessageEncoder.SUBPROTOCOL)));
+        assertEquals("", configurator.getNegotiatedSubprotocol(SUPPORTED, Collections.singletonList("other")));
+    }
+
+    @Test
+    public void permessageDeflate() {
+        Extension installed = extension(DeflateConfigurator.PERMESSAGE_DEFLATE);
+        Extension requested = extension(DeflateConfigurator.PERMESSAGE_DEFLATE);
+        Extension unknown = extension("x-unknown");
+
+        configurator.getNegotiatedSubprotocol(SUPPORTED, Collections.emptyList());
+        List<Extension> negotiated = configurator.getNegotiatedExtensions(
+                Collections.singletonList(installed), Arrays.asList(unknown, requested));
+        assertEquals(Collections.singletonList(requested), negotiated);
+
+        // the client's offer for a container without the extension
+        assertTrue(configurator.getNegotiatedExtensions(
+                Collections.emptyList(), Collections.singletonList(requested)).isEmpty());
+    }
+
+    @Test
+    public void noPermessageDeflateWithCompressedFrames() {
+        Extension installed = extension(DeflateConfigurator.PERMESSAGE_DEFLATE);
+        Extension other = extension("x-other");
+        List<Extension> requested = Arrays.asList(extension(DeflateConfigurator.PERMESSAGE_DEFLATE), other);
+
+        configurator.getNegotiatedSubprotocol(SUPPORTED,
+                Collections.singletonList(BinaryMessageEncoder.DEFLATE_SUBPROTOCOL));
+        assertEquals(Collections.singletonList(other),
+                configurator.getNegotiatedExtensions(Arrays.asList(installed, other), requested));
+
+        // the next handshake on the thread starts over
+        assertEquals(2, configurator.getNegotiatedExtensions(Arrays.asList(installed, other), requested).size());
+    }
+
+    @Test
+    public void disabled() {
+        DeflateConfigurator.setEnabled(false);
+        Extension installed = extension(DeflateConfigurator.PERMESSAGE_DEFLATE);
+
+        assertEquals(BinaryMessageEncoder.SUBPROTOCOL, configurator.getNegotiatedSubprotocol(SUPPORTED,
+                Arrays.asList(BinaryMessageEncoder.DEFLATE_SUBPROTOCOL, BinaryMessageEncoder.SUBPROTOCOL)));
+        assertTrue(configurator.getNegotiatedExtensions(Collections.singletonList(installed),
+                Collections.singletonList(extension(DeflateConfigurator.PERMESSAGE_DEFLATE))).isEmpty());
+    }
+}
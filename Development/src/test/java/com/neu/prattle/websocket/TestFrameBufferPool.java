@@ -0,0 +1,144 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestFrameBufferPool {
+
+    private Message message(String content) {
+        return Message.messageBuilder().setFrom("u0").setToUsername("u1").setMessageContent(content).build();
+    }
+
+    @Test
+    public void acquireSizes() {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        ByteBuffer small = pool.acquire(10);
+        assertTrue(small.isDirect());
+        assertEquals(FrameBufferPool.MIN_SIZE, small.capacity());
+        assertEquals(0, small.position());
+        assertEquals(10, small.limit());
+        assertEquals(512, pool.acquire(257).capacity());
+        assertEquals(512, pool.acquire(512).capacity());
+        assertEquals(FrameBufferPool.MAX_SIZE, pool.acquire(FrameBufferPool.MAX_SIZE).capacity());
+
+        ByteBuffer large = pool.acquire(FrameBufferPool.MAX_SIZE + 1);
+        assertFalse(large.isDirect());
+        pool.release(large);
+        assertEquals(0, pool.getFreeCount());
+        assertEquals(4, pool.getAllocatedCount());
+    }
+
+    @Test
+    public void reuse() {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        ByteBuffer buffer = pool.acquire(100);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        assertEquals(1, pool.getFreeCount());
+
+        ByteBuffer again = pool.acquire(200);
+        assertSame(buffer, again);
+        assertEquals(0, again.position());
+        assertEquals(200, again.limit());
+        assertEquals(1, pool.getReusedCount());
+        assertNotSame(buffer, pool.acquire(200));
+
+        // not from the pool
+        pool.release(ByteBuffer.allocate(256));
+        pool.release(ByteBuffer.allocateDirect(300));
+        assertEquals(0, pool.getFreeCount());
+    }
+
+    @Test
+    public void boundedPerSize() {
+        FrameBufferPool pool = new FrameBufferPool(1024);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            buffers.add(pool.acquire(FrameBufferPool.MIN_SIZE));
+        }
+        buffers.forEach(pool::release);
+        assertEquals(4, pool.getFreeCount());
+        assertEquals(2, pool.getDiscardedCount());
+        pool.release(pool.acquire(2048));
+        assertEquals(4, pool.getFreeCount());
+    }
+
+    @Test
+    public void frameReferences() {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        OutboundFrame frame = new OutboundFrame(message("hello"), pool);
+        assertEquals(1, frame.getReferenceCount());
+        assertTrue(frame.retain());
+
+        ByteBuffer payload = frame.getBinary();
+        assertTrue(payload.isReadOnly());
+        assertEquals("hello", new BinaryMessageDecoder().decode(payload).getContent());
+        assertEquals(payload.remaining(), frame.getBinary().remaining());
+        assertEquals(1, pool.getAllocatedCount());
+
+        frame.release();
+        assertEquals(0, pool.getFreeCount());
+        frame.release();
+        assertEquals(0, frame.getReferenceCount());
+        assertEquals(1, pool.getFreeCount());
+        assertFalse(frame.retain());
+
+        OutboundFrame next = new OutboundFrame(message("again"), pool);
+        assertEquals("again", new BinaryMessageDecoder().decode(next.getBinary()).getContent());
+        assertEquals(1, pool.getReusedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasedTwice() {
+        OutboundFrame frame = new OutboundFrame(message("hello"), new FrameBufferPool(1024));
+        frame.release();
+        frame.release();
+    }
+
+    @Test
+    public void textOnlyFrameTakesNoBuffer() {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        OutboundFrame frame = new OutboundFrame(message("hello"), pool);
+        frame.release();
+        assertEquals(0, pool.getAllocatedCount());
+        assertEquals(0, pool.getFreeCount());
+    }
+
+    @Test
+    public void concurrentFirstEncode() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 200; i++) {
+                OutboundFrame frame = new OutboundFrame(message("m" + i), pool);
+                List<Future<ByteBuffer>> payloads = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    payloads.add(executor.submit(frame::getBinary));
+                }
+                ByteBuffer first = payloads.get(0).get();
+                for (Future<ByteBuffer> payload : payloads) {
+                    assertEquals(first, payload.get());
+                }
+                frame.release();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // every buffer an encode lost the race with went back too
+        assertEquals(pool.getAllocatedCount(), pool.getFreeCount());
+    }
+}
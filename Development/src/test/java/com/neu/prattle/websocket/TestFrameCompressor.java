@@ -0,0 +1,164 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestFrameCompressor {
+    private BinaryMessageEncoder encoder = new BinaryMessageEncoder();
+    private BinaryMessageDecoder decoder = new BinaryMessageDecoder();
+
+    private String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private Message message(String content) {
+        return Message.messageBuilder().setFrom("u0").setToUsername("u1").setMessageContent(content).build();
+    }
+
+    private ByteBuffer deflated(byte[] frame) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(frame);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinaryMessageEncoder.DEFLATED_VERSION);
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    @Test
+    public void compressRoundTrip() {
+        FrameCompressor compressor = new FrameCompressor(256, Deflater.BEST_SPEED);
+        ByteBuffer frame = encoder.encode(message(repeat("hello world ", 100)));
+        int size = frame.remaining();
+        ByteBuffer compressed = compressor.compress(frame, ByteBuffer::allocate);
+        assertNotNull(compressed);
+        assertEquals(size, frame.remaining());
+        assertEquals(0, compressed.position());
+        assertEquals(BinaryMessageEncoder.DEFLATED_VERSION, compressed.get(0));
+        assertTrue(compressed.remaining() < size / 4);
+        assertEquals(repeat("hello world ", 100), decoder.decode(compressed).getContent());
+        assertEquals("u0", decoder.decode(compressed).getFromUsername());
+    }
+
+    @Test
+    public void underThreshold() {
+        FrameCompressor compressor = new FrameCompressor(256, Deflater.BEST_SPEED);
+        ByteBuffer frame = encoder.encode(message(repeat("a", 100)));
+        assertTrue(frame.remaining() < 256);
+        assertNull(compressor.compress(frame, ByteBuffer::allocate));
+        assertNotNull(new FrameCompressor(0, Deflater.BEST_SPEED).compress(frame, ByteBuffer::allocate));
+        assertEquals(256, compressor.getThreshold());
+    }
+
+    @Test
+    public void incompressible() {
+        byte[] frame = new byte[600];
+        new Random(1).nextBytes(frame);
+        FrameCompressor compressor = new FrameCompressor(0, Deflater.BEST_SPEED);
+        assertNull(compressor.compress(ByteBuffer.wrap(frame), size -> {
+            throw new AssertionError("allocated for a frame that does not get smaller");
+        }));
+        assertNull(compressor.compress(ByteBuffer.allocate(1), ByteBuffer::allocate));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevel() {
+        new FrameCompressor(256, 10);
+    }
+
+    @Test
+    public void pooledFrame() {
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        CompressionMetrics metrics = new CompressionMetrics();
+        OutboundFrame frame = new OutboundFrame(message(repeat("hello world ", 100)), pool,
+                new FrameCompressor(256, Deflater.BEST_SPEED));
+        ByteBuffer first = frame.getCompressed(metrics);
+        ByteBuffer second = frame.getCompressed(new CompressionMetrics());
+        assertEquals(first, second);
+        assertTrue(first.remaining() < frame.getBinary().remaining());
+        assertEquals(2, pool.getAllocatedCount());
+
+        frame.release();
+        assertEquals(2, pool.getFreeCount());
+    }
+
+    @Test
+    public void smallFrameNotCompressed() {
+        OutboundFrame frame = new OutboundFrame(message("a"), new FrameBufferPool(1024 * 1024),
+                new FrameCompressor(256, Deflater.BEST_SPEED));
+        CompressionMetrics metrics = new CompressionMetrics();
+        assertEquals(frame.getBinary(), frame.getCompressed(metrics));
+        assertEquals(0, metrics.getCompressionNanos());
+        frame.release();
+    }
+
+    @Test
+    public void decodeCorrupt() {
+        byte[] frame = new byte[encoder.encode(message(repeat("hello world ", 100))).remaining()];
+        encoder.encode(message(repeat("hello world ", 100))).get(frame);
+        ByteBuffer valid = deflated(frame);
+        assertNotNull(decoder.decode(valid));
+
+        // truncated
+        ByteBuffer truncated = valid.duplicate();
+        truncated.limit(truncated.limit() - 5);
+        assertNull(decoder.decode(truncated));
+        // corrupt
+        byte[] corrupt = valid.array().clone();
+        corrupt[3] ^= 0x55;
+        corrupt[corrupt.length - 1] ^= 0x55;
+        assertNull(decoder.decode(ByteBuffer.wrap(corrupt)));
+        // trailing bytes
+        ByteBuffer trailing = ByteBuffer.allocate(valid.remaining() + 1);
+        trailing.put(valid.duplicate()).put((byte) 0).flip();
+        assertNull(decoder.decode(trailing));
+        // compressed twice
+        assertNull(decoder.decode(deflated(valid.array())));
+        // version byte only
+        assertNull(decoder.decode(ByteBuffer.wrap(new byte[]{BinaryMessageEncoder.DEFLATED_VERSION})));
+    }
+
+    @Test
+    public void decodeTooLarge() {
+        byte[] frame = new byte[BinaryMessageDecoder.MAX_INFLATED_SIZE + 1];
+        frame[0] = BinaryMessageEncoder.VERSION;
+        assertNull(decoder.decode(deflated(frame)));
+    }
+
+    @Test
+    public void metrics() {
+        CompressionMetrics metrics = new CompressionMetrics();
+        assertEquals(1, metrics.getCompressionRatio(), 0);
+        metrics.recordFrame(100, 100);
+        metrics.recordFrame(900, 100);
+        metrics.recordCompression(1000);
+        assertEquals(2, metrics.getFrameCount());
+        assertEquals(1, metrics.getCompressedCount());
+        assertEquals(1000, metrics.getRawBytes());
+        assertEquals(200, metrics.getSentBytes());
+        assertEquals(5, metrics.getCompressionRatio(), 0);
+        assertEquals(1000, metrics.getCompressionNanos());
+        assertTrue(metrics.toString().contains("ratio 5"));
+        assertSame(FrameCompressor.getInstance(), FrameCompressor.getInstance());
+    }
+}
@@ -4,9 +4,12 @@ import com.neu.prattle.model.Message;
 
 import org.junit.Test;
 
+import java.sql.Timestamp;
+
 import javax.websocket.EncodeException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class TestMessageDecoder {
@@ -26,4 +29,25 @@ public class TestMessageDecoder {
         messageEncoder.destroy();
         messageDecoder.destroy();
     }
+
+    @Test
+    public void testDecodeEncodedTimestamp() {
+        Message sent = Message.messageBuilder().setFrom("u0").setToChannelId(2).setMessageContent("test")
+                .setTimestamp(new Timestamp(1575730800000L)).build();
+        Message message = messageDecoder.decode(messageEncoder.encode(sent));
+        assertEquals(2, message.getToChannelId());
+        assertEquals(1575730800000L, message.getTimestamp().getTime());
+    }
+
+    @Test
+    public void testDecodeClient() {
+        Message message = messageDecoder.decode("{\"content\":\"hi\",\"toUsername\":\"u1\"}");
+        assertEquals("hi", message.getContent());
+        assertEquals("u1", message.getToUsername());
+    }
+
+    @Test
+    public void testDecodeMalformed() {
+        assertNull(messageDecoder.decode("{\"content\":"));
+    }
 }
@@ -0,0 +1,321 @@
+package com.neu.prattle.websocket;
+
+import com.neu.prattle.model.Message;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TestSessionOutbox {
+    private Session mockSession;
+    private RemoteEndpoint.Async mockAsync;
+    private List<Runnable> pendingTasks;
+
+    @Before
+    public void setUp() {
+        mockSession = Mockito.mock(Session.class);
+        mockAsync = mockAsyncRemote(mockSession);
+        Mockito.doReturn("s1").when(mockSession).getId();
+        pendingTasks = new ArrayList<>();
+    }
+
+    /**
+     * Mock the async remote of a session, completing every send before the send returns
+     *
+     * @param session the mock session
+     * @return the async remote
+     */
+    static RemoteEndpoint.Async mockAsyncRemote(Session session) {
+        RemoteEndpoint.Async async = Mockito.mock(RemoteEndpoint.Async.class);
+        Mockito.doReturn(async).when(session).getAsyncRemote();
+        Mockito.doAnswer(TestSessionOutbox::complete).when(async).sendText(any(String.class), any(SendHandler.class));
+        Mockito.doAnswer(TestSessionOutbox::complete).when(async).sendBinary(any(ByteBuffer.class), any(SendHandler.class));
+        return async;
+    }
+
+    /**
+     * Complete a send successfully
+     */
+    static Object complete(InvocationOnMock invocation) {
+        ((SendHandler) invocation.getArguments()[1]).onResult(new SendResult());
+        return null;
+    }
+
+    /**
+     * Complete a send with a failure
+     */
+    static Object fail(InvocationOnMock invocation) {
+        ((SendHandler) invocation.getArguments()[1]).onResult(new SendResult(new IOException("closed")));
+        return null;
+    }
+
+    private OutboundFrame message(String content) {
+        return new OutboundFrame(Message.messageBuilder().setMessageContent(content).build());
+    }
+
+    private String decode(String text) {
+        return new MessageDecoder().decode(text).getContent();
+    }
+
+    private void runPendingTasks() {
+        List<Runnable> tasks = new ArrayList<>(pendingTasks);
+        pendingTasks.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Test
+    public void testSendInOrder() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(mockSession, 10, OverflowPolicy.DROP_OLDEST, pendingTasks::add);
+        outbox.offer(message("a"));
+        outbox.offer(message("b"));
+        outbox.offer(message("c"));
+        assertEquals(1, pendingTasks.size());
+        assertEquals(3, outbox.getBacklog());
+        verify(mockAsync, times(0)).sendText(any(String.class), any(SendHandler.class));
+
+        runPendingTasks();
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(mockAsync, times(3)).sendText(msg.capture(), any(SendHandler.class));
+        assertEquals("a", decode(msg.getAllValues().get(0)));
+        assertEquals("b", decode(msg.getAllValues().get(1)));
+        assertEquals("c", decode(msg.getAllValues().get(2)));
+        assertEquals(0, outbox.getBacklog());
+        assertEquals(3, outbox.getHighWaterMark());
+        assertEquals(3, outbox.getEnqueuedCount());
+        assertEquals(3, outbox.getSentCount());
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(mockSession, 2, OverflowPolicy.DROP_OLDEST, pendingTasks::add);
+        outbox.offer(message("a"));
+        outbox.offer(message("b"));
+        assertTrue(outbox.offer(message("c")));
+        assertEquals(2, outbox.getBacklog());
+        assertEquals(1, outbox.getDroppedCount());
+
+        runPendingTasks();
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(mockAsync, times(2)).sendText(msg.capture(), any(SendHandler.class));
+        assertEquals("b", decode(msg.getAllValues().get(0)));
+        assertEquals("c", decode(msg.getAllValues().get(1)));
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(mockSession, 2, OverflowPolicy.COALESCE, pendingTasks::add);
+        outbox.offer(message("a"));
+        outbox.offer(message("b"));
+        outbox.offer(message("c"));
+        assertEquals(1, outbox.getBacklog());
+        assertEquals(2, outbox.getDroppedCount());
+
+        runPendingTasks();
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(mockAsync, times(1)).sendText(msg.capture(), any(SendHandler.class));
+        assertEquals("c", decode(msg.getValue()));
+    }
+
+    @Test
+    public void testDisconnect() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(mockSession, 2, OverflowPolicy.DISCONNECT, pendingTasks::add);
+        outbox.offer(message("a"));
+        outbox.offer(message("b"));
+        assertFalse(outbox.offer(message("c")));
+        assertTrue(outbox.isClosed());
+        assertEquals(0, outbox.getBacklog());
+        assertEquals(3, outbox.getDroppedCount());
+        assertFalse(outbox.offer(message("d")));
+
+        runPendingTasks();
+        verify(mockSession, times(1)).close(any(CloseReason.class));
+        verify(mockAsync, times(0)).sendText(any(String.class), any(SendHandler.class));
+    }
+
+    @Test
+    public void testSendFailureDoesNotStopDrain() throws Exception {
+        Mockito.doAnswer(TestSessionOutbox::fail).doAnswer(TestSessionOutbox::complete)
+                .when(mockAsync).sendText(any(String.class), any(SendHandler.class));
+        SessionOutbox outbox = new SessionOutbox(mockSession, 10, OverflowPolicy.DROP_OLDEST, Runnable::run);
+        outbox.offer(message("a"));
+        outbox.offer(message("b"));
+        verify(mockAsync, times(2)).sendText(any(String.class), any(SendHandler.class));
+        assertEquals(1, outbox.getSentCount());
+
+        // rejected by the container, e.g. because the session closed
+        Mockito.doThrow(IllegalStateException.class).doAnswer(TestSessionOutbox::complete)
+                .when(mockAsync).sendText(any(String.class), any(SendHandler.class));
+        OutboundFrame rejected = message("c");
+        outbox.offer(rejected);
+        outbox.offer(message("d"));
+        verify(mockAsync, times(4)).sendText(any(String.class), any(SendHandler.class));
+        assertEquals(2, outbox.getSentCount());
+        // released by the outbox, only the reference of the test is left
+        assertEquals(1, rejected.getReferenceCount());
+    }
+
+    @Test
+    public void testOneSendInFlight() throws Exception {
+        List<SendHandler> handlers = new ArrayList<>();
+        Mockito.doAnswer(invocation -> handlers.add((SendHandler) invocation.getArguments()[1]))
+                .when(mockAsync).sendText(any(String.class), any(SendHandler.class));
+        SessionOutbox outbox = new SessionOutbox(mockSession, 10, OverflowPolicy.DROP_OLDEST, Runnable::run);
+        OutboundFrame a = message("a");
+        outbox.offer(a);
+        outbox.offer(message("b"));
+        outbox.offer(message("c"));
+        // the writer returned without waiting, the next frame waits for the first to complete
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(mockAsync, times(1)).sendText(msg.capture(), any(SendHandler.class));
+        assertEquals("a", decode(msg.getValue()));
+        assertEquals(2, outbox.getBacklog());
+        // held by the container until the send completes
+        assertEquals(2, a.getReferenceCount());
+
+        handlers.get(0).onResult(new SendResult());
+        assertEquals(1, a.getReferenceCount());
+        verify(mockAsync, times(2)).sendText(msg.capture(), any(SendHandler.class));
+        assertEquals("b", decode(msg.getValue()));
+        handlers.get(1).onResult(new SendResult());
+        handlers.get(2).onResult(new SendResult());
+        verify(mockAsync, times(3)).sendText(msg.capture(), any(SendHandler.class));
+        assertEquals("c", decode(msg.getValue()));
+        assertEquals(3, outbox.getSentCount());
+        assertEquals(0, outbox.getBacklog());
+
+        // the drain starts again with the next frame
+        outbox.offer(message("d"));
+        verify(mockAsync, times(4)).sendText(msg.capture(), any(SendHandler.class));
+        assertEquals("d", decode(msg.getValue()));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(mockSession, 10, OverflowPolicy.DROP_OLDEST, pendingTasks::add);
+        outbox.offer(message("a"));
+        outbox.close();
+        assertFalse(outbox.offer(message("b")));
+        runPendingTasks();
+        verify(mockAsync, times(0)).sendText(any(String.class), any(SendHandler.class));
+        assertEquals(10, outbox.getCapacity());
+        assertEquals(OverflowPolicy.DROP_OLDEST, outbox.getOverflowPolicy());
+    }
+
+    @Test
+    public void testFramesReleased() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(mockSession, 2, OverflowPolicy.DROP_OLDEST, pendingTasks::add);
+        OutboundFrame a = message("a");
+        OutboundFrame b = message("b");
+        OutboundFrame c = message("c");
+        outbox.offer(a);
+        outbox.offer(b);
+        assertEquals(2, a.getReferenceCount());
+        outbox.offer(c);
+        assertEquals(1, a.getReferenceCount());
+        runPendingTasks();
+        assertEquals(1, b.getReferenceCount());
+        assertEquals(1, c.getReferenceCount());
+
+        OutboundFrame d = message("d");
+        outbox.offer(d);
+        outbox.close();
+        assertEquals(1, d.getReferenceCount());
+
+        OutboundFrame released = message("e");
+        released.release();
+        SessionOutbox open = new SessionOutbox(mockSession, 2, OverflowPolicy.DROP_OLDEST, pendingTasks::add);
+        assertFalse(open.offer(released));
+        assertEquals(0, open.getBacklog());
+    }
+
+    @Test
+    public void testFramesReleasedOnDisconnect() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(mockSession, 1, OverflowPolicy.DISCONNECT, pendingTasks::add);
+        OutboundFrame a = message("a");
+        OutboundFrame b = message("b");
+        outbox.offer(a);
+        outbox.offer(b);
+        assertEquals(1, a.getReferenceCount());
+        assertEquals(1, b.getReferenceCount());
+    }
+
+    @Test
+    public void testBinarySession() throws Exception {
+        Mockito.doReturn(BinaryMessageEncoder.SUBPROTOCOL).when(mockSession).getNegotiatedSubprotocol();
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        ArgumentCaptor<ByteBuffer> payload = ArgumentCaptor.forClass(ByteBuffer.class);
+        SessionOutbox outbox = new SessionOutbox(mockSession, 10, OverflowPolicy.DROP_OLDEST, Runnable::run);
+        OutboundFrame frame = new OutboundFrame(Message.messageBuilder().setMessageContent("a").build(), pool);
+        outbox.offer(frame);
+        verify(mockAsync, times(1)).sendBinary(payload.capture(), any(SendHandler.class));
+        verify(mockAsync, times(0)).sendText(any(String.class), any(SendHandler.class));
+        assertEquals("a", new BinaryMessageDecoder().decode(payload.getValue()).getContent());
+
+        frame.release();
+        assertEquals(1, pool.getFreeCount());
+    }
+
+    @Test
+    public void testCompressedSession() throws Exception {
+        Mockito.doReturn(BinaryMessageEncoder.DEFLATE_SUBPROTOCOL).when(mockSession).getNegotiatedSubprotocol();
+        FrameBufferPool pool = new FrameBufferPool(1024 * 1024);
+        FrameCompressor compressor = new FrameCompressor(256, Deflater.BEST_SPEED);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("hello ");
+        }
+        ArgumentCaptor<ByteBuffer> payload = ArgumentCaptor.forClass(ByteBuffer.class);
+        SessionOutbox outbox = new SessionOutbox(mockSession, 10, OverflowPolicy.DROP_OLDEST, Runnable::run);
+        OutboundFrame small = new OutboundFrame(Message.messageBuilder().setMessageContent("a").build(), pool, compressor);
+        OutboundFrame large = new OutboundFrame(Message.messageBuilder().setMessageContent(content.toString()).build(),
+                pool, compressor);
+        int smallSize = small.getBinary().remaining();
+        int largeSize = large.getBinary().remaining();
+        outbox.offer(small);
+        outbox.offer(large);
+        verify(mockAsync, times(2)).sendBinary(payload.capture(), any(SendHandler.class));
+        verify(mockAsync, times(0)).sendText(any(String.class), any(SendHandler.class));
+        assertEquals(BinaryMessageEncoder.VERSION, payload.getAllValues().get(0).get(0));
+        assertEquals(BinaryMessageEncoder.DEFLATED_VERSION, payload.getAllValues().get(1).get(0));
+        BinaryMessageDecoder decoder = new BinaryMessageDecoder();
+        assertEquals("a", decoder.decode(payload.getAllValues().get(0)).getContent());
+        assertEquals(content.toString(), decoder.decode(payload.getAllValues().get(1)).getContent());
+
+        CompressionMetrics metrics = outbox.getCompressionMetrics();
+        assertEquals(2, metrics.getFrameCount());
+        assertEquals(1, metrics.getCompressedCount());
+        assertEquals(smallSize + largeSize, metrics.getRawBytes());
+        assertEquals(smallSize + payload.getAllValues().get(1).remaining(), metrics.getSentBytes());
+        assertTrue(metrics.getCompressionRatio() > 2);
+        assertTrue(metrics.getCompressionNanos() >= 0);
+
+        small.release();
+        large.release();
+        assertEquals(3, pool.getFreeCount());
+        outbox.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new SessionOutbox(mockSession, 0, OverflowPolicy.DROP_OLDEST, Runnable::run);
+    }
+}